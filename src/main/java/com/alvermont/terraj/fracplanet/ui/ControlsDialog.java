@@ -323,6 +323,19 @@ public class ControlsDialog extends javax.swing.JDialog
 
         this.colChooser.addChoosableFileFilter(new RGBFilter());
 
+        // a new request to regenerate replaces any that is in progress
+        final AbstractAsynchronousAction regen =
+            (AbstractAsynchronousAction) regenButton.getAction();
+
+        regen.setCoalescing(true);
+
+        ((AbstractAsynchronousAction) regenTerrainButton.getAction()).setCoalescing(
+            regen);
+        ((AbstractAsynchronousAction) regenRiverButton.getAction()).setCoalescing(
+            regen);
+        ((AbstractAsynchronousAction) regenCloudsButton.getAction()).setCoalescing(
+            regen);
+
         updateFromTerrainParams();
         updateFromExportParams();
         updateFromRenderParams();
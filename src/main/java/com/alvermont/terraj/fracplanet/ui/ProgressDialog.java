@@ -51,6 +51,7 @@
 package com.alvermont.terraj.fracplanet.ui;
 
 import com.alvermont.terraj.fracplanet.util.Progress;
+import com.meghnasoft.async.AbstractAsynchronousAction;
 
 /**
  * Dialog that handles the progress bar display
@@ -167,6 +168,9 @@ public class ProgressDialog extends javax.swing.JDialog implements Progress
      */
     public void progressStep(int step)
     {
+        // stop here if the task we're showing progress for was cancelled
+        AbstractAsynchronousAction.checkCancelled();
+
         this.jProgressBar1.setValue(step);
     }
 
@@ -64,6 +64,7 @@ import com.alvermont.terraj.fracplanet.io.JarLibraryLoader;
 import com.alvermont.terraj.fracplanet.render.TriangleMeshViewerDisplay;
 import com.alvermont.terraj.stargen.util.MathUtils;
 import com.meghnasoft.async.AbstractAsynchronousAction;
+import com.meghnasoft.async.TaskCancelledException;
 import com.jogamp.opengl.util.FPSAnimator;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
@@ -223,51 +224,64 @@ public class TerrainViewerFrame extends AbstractTerrainViewerFrame {
 
         TriangleMeshTerrain terrain = null;
 
-        // put up progress dialog
-        this.pd.setVisible(true);
-
-        // create the new terrain
-        if (tp.getObjectType() == TerrainParameters.ObjectTypeEnum.PLANET) {
-            terrain = new TriangleMeshTerrainPlanet(tp, this.pd, utils);
-        } else {
-            terrain = new TriangleMeshTerrainFlat(tp, this.pd, utils);
-        }
+        final RenderParameters rp = getAllParams()
+                .getRenderParameters();
 
-        // update stats
-        this.stats.setVertices(terrain.getVertexCount());
-        this.stats.setTriangles(terrain.getTriangleCount());
-        this.stats.setLandTriangles(terrain.getTriangleColour0Count());
-        this.stats.setSeaTriangles(terrain.getTriangleColour1Count());
+        final List<TriangleMesh> meshes = new ArrayList<TriangleMesh>();
 
-        this.setMeshStats(this.stats);
+        try {
+            // put up progress dialog
+            this.pd.setVisible(true);
+
+            // create the new terrain
+            if (tp.getObjectType() == TerrainParameters.ObjectTypeEnum.PLANET) {
+                terrain = new TriangleMeshTerrainPlanet(tp, this.pd, utils);
+            } else {
+                terrain = new TriangleMeshTerrainFlat(tp, this.pd, utils);
+            }
 
-        final RenderParameters rp = getAllParams()
-                .getRenderParameters();
+            // update stats
+            this.stats.setVertices(terrain.getVertexCount());
+            this.stats.setTriangles(terrain.getTriangleCount());
+            this.stats.setLandTriangles(terrain.getTriangleColour0Count());
+            this.stats.setSeaTriangles(terrain.getTriangleColour1Count());
 
-        List<TriangleMesh> meshes = new ArrayList<TriangleMesh>();
+            this.setMeshStats(this.stats);
 
-        meshes.add(terrain);
+            meshes.add(terrain);
 
-        if (cp.isEnabled()) {
-            TriangleMesh cloudMesh = null;
+            if (cp.isEnabled()) {
+                TriangleMesh cloudMesh = null;
 
-            switch (tp.getObjectType()) {
-                case PLANET: {
-                    cloudMesh = new TriangleMeshCloudPlanet(
-                            pd, terrain.getGeometry(), tp, cp);
+                switch (tp.getObjectType()) {
+                    case PLANET: {
+                        cloudMesh = new TriangleMeshCloudPlanet(
+                                pd, terrain.getGeometry(), tp, cp);
 
-                    break;
-                }
+                        break;
+                    }
 
-                default: {
-                    cloudMesh = new TriangleMeshCloudFlat(
-                            pd, terrain.getGeometry(), tp, cp);
+                    default: {
+                        cloudMesh = new TriangleMeshCloudFlat(
+                                pd, terrain.getGeometry(), tp, cp);
 
-                    break;
+                        break;
+                    }
                 }
+
+                meshes.add(cloudMesh);
+            }
+        } catch (TaskCancelledException tce) {
+            // a newer request has replaced this one, so leave the old
+            // terrain on display
+            this.pd.setVisible(false);
+
+            if (this.tmvd != null) {
+                this.setVisible(true);
+                this.anim.start();
             }
 
-            meshes.add(cloudMesh);
+            throw tce;
         }
 
         // take the progress dialog down
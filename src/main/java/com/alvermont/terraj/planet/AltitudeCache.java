@@ -0,0 +1,432 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * AltitudeCache.java
+ *
+ * Created on October 17, 2026, 11:05 PM
+ *
+ */
+package com.alvermont.terraj.planet;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A cache of the altitude and shade of a planet, held on the same grid as an
+ * <code>AltitudeGrid</code> but filled in as it is used. The grid is divided
+ * into square blocks of samples and a block is generated the first time a
+ * point that needs it is looked up. Drawing the planet again from a nearby
+ * viewpoint, such as the next frame of an animation, only generates the
+ * blocks that were not visible before.
+ *
+ * Shade is held rather than the surface normal as the light direction is
+ * fixed relative to the planet, so it doesn't change as the planet turns.
+ * Memory is only used for the blocks that have been generated, up to the
+ * size of the whole grid.
+ *
+ * @version $Id$
+ */
+public class AltitudeCache implements AltitudeSampler
+{
+    /** Our logging object */
+    private static Log log = LogFactory.getLog(AltitudeCache.class);
+
+    // RequireThis OFF: log
+
+    /** The number of samples along each edge of a block */
+    private static final int BLOCK_SIZE = 16;
+
+    /** The number of values held for each sample, altitude then shade */
+    private static final int VALUES = 2;
+
+    /** The number of faces of the cube */
+    private static final int FACES = 6;
+
+    /** The number of locks used to generate blocks */
+    private static final int LOCKS = 64;
+
+    /** The generator used to fill in blocks */
+    private final PlanetGen gen;
+
+    /** The parameters of the planet held in the cache */
+    private final double[] key;
+
+    /** The number of samples along each edge of a face */
+    private final int resolution;
+
+    /** The number of samples along each edge of a face including the
+     * border */
+    private final int stride;
+
+    /** The number of blocks along each edge of a face */
+    private final int blocksAcross;
+
+    /** The subdivision depth used to generate the samples */
+    private final int depth;
+
+    /** The samples of each block, or <code>null</code> for blocks that
+     * haven't been generated */
+    private final AtomicReferenceArray<float[]> blocks;
+
+    /** Locks used to stop two threads generating the same block */
+    private final Object[] locks = new Object[LOCKS];
+
+    /** The contexts used by each thread to generate blocks */
+    private final ThreadLocal<PlanetContext> contexts =
+        new ThreadLocal<PlanetContext>()
+        {
+            protected PlanetContext initialValue()
+            {
+                return new PlanetContext(depth);
+            }
+        };
+
+    /** The number of points looked up */
+    private final LongAdder lookups = new LongAdder();
+
+    /** The number of points looked up that needed a block to be generated */
+    private final LongAdder misses = new LongAdder();
+
+    /** The number of samples generated */
+    private final LongAdder samplesGenerated = new LongAdder();
+
+    /**
+     * Creates a new instance of AltitudeCache
+     *
+     * @param params The parameters of the planet
+     * @param resolution The number of samples along each edge of a face of
+     * the grid
+     */
+    public AltitudeCache(AllPlanetParameters params, int resolution)
+    {
+        if ((resolution < 1) || (resolution > AltitudeGrid.MAX_RESOLUTION))
+        {
+            throw new IllegalArgumentException(
+                "Cache resolution must be from 1 to " +
+                AltitudeGrid.MAX_RESOLUTION + ": " + resolution);
+        }
+
+        final AllPlanetParameters copy = new AllPlanetParameters(params);
+
+        copy.getProjectionParameters()
+            .setDoShade(true);
+
+        this.gen = new PlanetGen(copy);
+        this.gen.cacheParameters();
+
+        this.key = AltitudeGrid.getKey(copy);
+        this.resolution = resolution;
+        this.stride = resolution + 2;
+        this.blocksAcross = ((this.stride + BLOCK_SIZE) - 1) / BLOCK_SIZE;
+        this.depth = AltitudeGrid.getDepth(resolution);
+        this.blocks =
+            new AtomicReferenceArray<float[]>(
+                FACES * this.blocksAcross * this.blocksAcross);
+
+        for (int l = 0; l < LOCKS; ++l)
+        {
+            this.locks[l] = new Object();
+        }
+    }
+
+    /**
+     * Look up the altitude and shade of a point on the planet, interpolating
+     * between the four nearest samples and generating any of them that are
+     * not yet in the cache. This method may be called by several threads at
+     * once.
+     *
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param z The z coordinate of the point
+     * @param result Array to be set to the altitude and shade of the point
+     */
+    public void sample(double x, double y, double z, double[] result)
+    {
+        final int face = AltitudeGrid.locate(x, y, z, this.resolution, result);
+        final double fu = result[0];
+        final double fv = result[1];
+
+        final int iu = Math.max(0, Math.min((int) fu, this.resolution));
+        final int iv = Math.max(0, Math.min((int) fv, this.resolution));
+        final double tu = Math.max(0.0, Math.min(fu - iu, 1.0));
+        final double tv = Math.max(0.0, Math.min(fv - iv, 1.0));
+
+        float[] b00 = this.blocks.get(getBlockIndex(face, iu, iv));
+        float[] b10 = this.blocks.get(getBlockIndex(face, iu + 1, iv));
+        float[] b01 = this.blocks.get(getBlockIndex(face, iu, iv + 1));
+        float[] b11 = this.blocks.get(getBlockIndex(face, iu + 1, iv + 1));
+
+        this.lookups.increment();
+
+        if ((b00 == null) || (b10 == null) || (b01 == null) || (b11 == null))
+        {
+            this.misses.increment();
+
+            b00 = getBlock(face, iu, iv);
+            b10 = getBlock(face, iu + 1, iv);
+            b01 = getBlock(face, iu, iv + 1);
+            b11 = getBlock(face, iu + 1, iv + 1);
+        }
+
+        final int o00 = getOffset(iu, iv);
+        final int o10 = getOffset(iu + 1, iv);
+        final int o01 = getOffset(iu, iv + 1);
+        final int o11 = getOffset(iu + 1, iv + 1);
+
+        for (int k = 0; k < VALUES; ++k)
+        {
+            final double top =
+                b00[o00 + k] + (tu * (b10[o10 + k] - b00[o00 + k]));
+            final double bottom =
+                b01[o01 + k] + (tu * (b11[o11 + k] - b01[o01 + k]));
+
+            result[k] = top + (tv * (bottom - top));
+        }
+    }
+
+    /**
+     * Get the offset of a sample within its block
+     *
+     * @param u The column of the sample, including the border
+     * @param v The row of the sample, including the border
+     * @return The index of the first value of the sample in its block
+     */
+    private static int getOffset(int u, int v)
+    {
+        return (((v % BLOCK_SIZE) * BLOCK_SIZE) + (u % BLOCK_SIZE)) * VALUES;
+    }
+
+    /**
+     * Get the index of the block holding a sample
+     *
+     * @param face The face the sample is on
+     * @param u The column of the sample, including the border
+     * @param v The row of the sample, including the border
+     * @return The index of the block
+     */
+    private int getBlockIndex(int face, int u, int v)
+    {
+        return ((((face * this.blocksAcross) + (v / BLOCK_SIZE)) *
+            this.blocksAcross) + (u / BLOCK_SIZE));
+    }
+
+    /**
+     * Get the block holding a sample, generating it if necessary
+     *
+     * @param face The face the sample is on
+     * @param u The column of the sample, including the border
+     * @param v The row of the sample, including the border
+     * @return The samples of the block
+     */
+    private float[] getBlock(int face, int u, int v)
+    {
+        final int index = getBlockIndex(face, u, v);
+
+        float[] block = this.blocks.get(index);
+
+        if (block == null)
+        {
+            synchronized (this.locks[index % LOCKS])
+            {
+                block = this.blocks.get(index);
+
+                if (block == null)
+                {
+                    block = generateBlock(
+                            face, (u / BLOCK_SIZE) * BLOCK_SIZE,
+                            (v / BLOCK_SIZE) * BLOCK_SIZE);
+
+                    this.blocks.set(index, block);
+                }
+            }
+        }
+
+        return block;
+    }
+
+    /**
+     * Generate the samples of a block
+     *
+     * @param face The face the block is on
+     * @param u0 The first column of the block, including the border
+     * @param v0 The first row of the block, including the border
+     * @return The samples of the block
+     */
+    private float[] generateBlock(int face, int u0, int v0)
+    {
+        final PlanetContext ctx = this.contexts.get();
+        final float[] block = new float[BLOCK_SIZE * BLOCK_SIZE * VALUES];
+        final double[] point = new double[3];
+        final int u1 = Math.min(u0 + BLOCK_SIZE, this.stride);
+        final int v1 = Math.min(v0 + BLOCK_SIZE, this.stride);
+
+        for (int v = v0; v < v1; ++v)
+        {
+            final double tv = Math.tan(AltitudeGrid.getAngle(v, this.resolution));
+
+            // neighbouring samples share most of their subdivision path
+            ctx.invalidate();
+
+            for (int u = u0; u < u1; ++u)
+            {
+                AltitudeGrid.getPoint(
+                    face, Math.tan(AltitudeGrid.getAngle(u, this.resolution)),
+                    tv, point);
+
+                final double alt =
+                    this.gen.planet1(ctx, point[0], point[1], point[2]);
+                final int offset = getOffset(u, v);
+
+                block[offset] = (float) alt;
+                block[offset + 1] = ctx.getShade();
+            }
+        }
+
+        this.samplesGenerated.add((u1 - u0) * (v1 - v0));
+
+        return block;
+    }
+
+    /**
+     * Test whether this cache holds the terrain of the planet that a set of
+     * parameters describes
+     *
+     * @param params The parameters of the planet
+     * @return <code>true</code> if the cache holds the terrain of that planet
+     */
+    public boolean matches(AllPlanetParameters params)
+    {
+        return Arrays.equals(this.key, AltitudeGrid.getKey(params));
+    }
+
+    /**
+     * Remove every block from the cache and reset the statistics
+     */
+    public void clear()
+    {
+        for (int b = 0; b < this.blocks.length(); ++b)
+        {
+            this.blocks.set(b, null);
+        }
+
+        resetStatistics();
+    }
+
+    /**
+     * Reset the counts of lookups, misses and samples generated
+     */
+    public void resetStatistics()
+    {
+        this.lookups.reset();
+        this.misses.reset();
+        this.samplesGenerated.reset();
+    }
+
+    /**
+     * Get the number of points looked up since the statistics were reset
+     *
+     * @return The number of lookups
+     */
+    public long getLookups()
+    {
+        return this.lookups.sum();
+    }
+
+    /**
+     * Get the number of points looked up since the statistics were reset
+     * that needed a block to be generated. Each such point is counted once
+     * however many blocks it needed.
+     *
+     * @return The number of lookups that missed the cache
+     */
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    /**
+     * Get the number of samples generated since the statistics were reset
+     *
+     * @return The number of samples generated
+     */
+    public long getSamplesGenerated()
+    {
+        return this.samplesGenerated.sum();
+    }
+
+    /**
+     * Get the number of blocks currently held in the cache
+     *
+     * @return The number of blocks that have been generated
+     */
+    public int getBlockCount()
+    {
+        int count = 0;
+
+        for (int b = 0; b < this.blocks.length(); ++b)
+        {
+            if (this.blocks.get(b) != null)
+            {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the number of samples along each edge of a face of the grid
+     *
+     * @return The resolution of the grid
+     */
+    public int getResolution()
+    {
+        return this.resolution;
+    }
+}
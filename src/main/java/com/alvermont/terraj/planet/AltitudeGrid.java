@@ -0,0 +1,669 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * AltitudeGrid.java
+ *
+ * Created on October 17, 2026, 7:10 PM
+ *
+ */
+package com.alvermont.terraj.planet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The altitude and shade of a planet sampled once onto a grid covering the
+ * whole sphere and held in a file that is mapped into memory. Projections
+ * can look up points in the grid by interpolation instead of generating
+ * the terrain again, so drawing the same planet with another projection or
+ * from another viewpoint only costs the mapping of the pixels.
+ *
+ * The grid is a cube projected onto the sphere. Each of the six faces is a
+ * square of samples spaced at equal angles, with an extra row and column
+ * of samples around the edge so that a point can always be interpolated
+ * from the samples of one face. The level of detail is fixed when the grid
+ * is baked, so projections zoomed in further than the grid resolution
+ * will show less detail than generating the terrain directly.
+ *
+ * @version $Id$
+ */
+public class AltitudeGrid implements AltitudeSampler
+{
+    /** Our logging object */
+    private static Log log = LogFactory.getLog(AltitudeGrid.class);
+
+    // RequireThis OFF: log
+    // MagicNumber OFF
+
+    /** The value at the start of every grid file ("TJAG") */
+    private static final int MAGIC = 0x544a4147;
+
+    /** The version of the file format */
+    private static final int VERSION = 1;
+
+    /** The number of bytes before the samples of the first face */
+    private static final int HEADER_SIZE = 64;
+
+    /** The number of faces of the cube */
+    private static final int FACES = 6;
+
+    /** The number of values held for each sample, altitude then shade */
+    private static final int VALUES = 2;
+
+    /** The largest resolution allowed, which keeps each face of the file
+     * within the size of a single mapping */
+    public static final int MAX_RESOLUTION = 16000;
+
+    /** The number of planet parameters the grid was baked from */
+    private static final int KEY_SIZE = 6;
+
+    /** The number of samples along each edge of a face */
+    private final int resolution;
+
+    /** The number of samples along each edge of a face including the
+     * border */
+    private final int stride;
+
+    /** The subdivision depth used to generate the samples */
+    private final int depth;
+
+    /** The parameters of the planet the grid was baked from */
+    private final double[] key;
+
+    /** The samples of each face */
+    private final FloatBuffer[] faces;
+
+    /**
+     * Creates a new instance of AltitudeGrid
+     *
+     * @param resolution The number of samples along each edge of a face
+     * @param depth The subdivision depth used to generate the samples
+     * @param key The parameters of the planet the grid was baked from
+     * @param faces The samples of each face
+     */
+    private AltitudeGrid(int resolution, int depth, double[] key,
+        FloatBuffer[] faces)
+    {
+        this.resolution = resolution;
+        this.stride = resolution + 2;
+        this.depth = depth;
+        this.key = key;
+        this.faces = faces;
+    }
+
+    /**
+     * Get the values of the planet parameters that affect the altitude and
+     * shade of the terrain
+     *
+     * @param params The parameters of the planet
+     * @return The seed, initial altitude, power, altitude difference weight,
+     * distance weight and shade angle
+     */
+    static double[] getKey(AllPlanetParameters params)
+    {
+        final PlanetParameters planet = params.getPlanetParameters();
+
+        return new double[]
+        {
+            planet.getSeed(), planet.getInitialAltitude(), planet.getPower(),
+            planet.getAltitudeDifferenceWeight(), planet.getDistanceWeight(),
+            params.getProjectionParameters().getShadeAngle()
+        };
+    }
+
+    /**
+     * Get the number of bytes used to hold the samples of one face
+     *
+     * @param resolution The number of samples along each edge of a face
+     * @return The size of a face in bytes
+     */
+    private static int getFaceBytes(int resolution)
+    {
+        final int stride = resolution + 2;
+
+        return stride * stride * VALUES * 4;
+    }
+
+    /**
+     * Get the subdivision depth that gives detail about as fine as the
+     * spacing of the samples. This is the depth a projection would use to
+     * draw the whole planet at a similar size.
+     *
+     * @param resolution The number of samples along each edge of a face
+     * @return The depth to generate the samples at
+     */
+    static int getDepth(int resolution)
+    {
+        final double size = (resolution * 4) / Math.PI;
+
+        return (3 * ((int) (Math.log(size) / Math.log(2.0)))) + 6;
+    }
+
+    /**
+     * Generate a grid for a planet and write it to a file, replacing the
+     * file if it already exists. The rows of samples are shared between a
+     * number of threads, each evaluating the terrain with its own context.
+     * Shade is always generated whatever the shading setting of the
+     * parameters. Any grid opened earlier from the same file must not be
+     * used afterwards.
+     *
+     * @param params The parameters of the planet
+     * @param resolution The number of samples along each edge of a face
+     * @param file The file the grid is to be written to
+     * @param threads The number of threads to use
+     * @throws java.io.IOException If there is an error writing the file
+     * @return The new grid, mapped from the file
+     */
+    public static AltitudeGrid bake(
+        AllPlanetParameters params, int resolution, File file, int threads)
+        throws IOException
+    {
+        if ((resolution < 1) || (resolution > MAX_RESOLUTION))
+        {
+            throw new IllegalArgumentException(
+                "Grid resolution must be from 1 to " + MAX_RESOLUTION + ": " +
+                resolution);
+        }
+
+        final AllPlanetParameters copy = new AllPlanetParameters(params);
+
+        copy.getProjectionParameters()
+            .setDoShade(true);
+
+        final PlanetGen gen = new PlanetGen(copy);
+
+        gen.cacheParameters();
+
+        final double[] key = getKey(copy);
+        final int depth = getDepth(resolution);
+        final int faceBytes = getFaceBytes(resolution);
+        final FloatBuffer[] faces = new FloatBuffer[FACES];
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+        try
+        {
+            raf.setLength(0);
+            raf.setLength(HEADER_SIZE + ((long) faceBytes * FACES));
+
+            final FileChannel channel = raf.getChannel();
+
+            for (int f = 0; f < FACES; ++f)
+            {
+                faces[f] = mapFace(
+                        channel, FileChannel.MapMode.READ_WRITE, f, faceBytes);
+            }
+
+            final AltitudeGrid grid =
+                new AltitudeGrid(resolution, depth, key, faces);
+
+            final long start = System.nanoTime();
+
+            grid.generate(gen, threads);
+
+            // the header is written last so an unfinished file is rejected
+            final ByteBuffer header =
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(resolution);
+            header.putInt(depth);
+
+            for (double value : key)
+            {
+                header.putDouble(value);
+            }
+
+            log.debug(
+                "Baked " + resolution + "x" + resolution + " grid to " + file +
+                " at depth " + depth + " in " +
+                ((System.nanoTime() - start) / 1000000) + " ms");
+
+            return grid;
+        }
+        finally
+        {
+            // the mappings remain valid after the file is closed
+            raf.close();
+        }
+    }
+
+    /**
+     * Open a grid that has been baked to a file
+     *
+     * @param file The file holding the grid
+     * @throws java.io.IOException If the file can't be read or is not a
+     * complete grid
+     * @return The grid, mapped from the file
+     */
+    public static AltitudeGrid open(File file)
+        throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try
+        {
+            final FileChannel channel = raf.getChannel();
+
+            if (channel.size() < HEADER_SIZE)
+            {
+                throw new IOException("Not an altitude grid: " + file);
+            }
+
+            final ByteBuffer header =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+
+            if ((header.getInt() != MAGIC) || (header.getInt() != VERSION))
+            {
+                throw new IOException("Not an altitude grid: " + file);
+            }
+
+            final int resolution = header.getInt();
+            final int depth = header.getInt();
+            final double[] key = new double[KEY_SIZE];
+
+            for (int k = 0; k < KEY_SIZE; ++k)
+            {
+                key[k] = header.getDouble();
+            }
+
+            if ((resolution < 1) || (resolution > MAX_RESOLUTION))
+            {
+                throw new IOException("Not an altitude grid: " + file);
+            }
+
+            final int faceBytes = getFaceBytes(resolution);
+
+            if (channel.size() != (HEADER_SIZE + ((long) faceBytes * FACES)))
+            {
+                throw new IOException("Altitude grid is incomplete: " + file);
+            }
+
+            final FloatBuffer[] faces = new FloatBuffer[FACES];
+
+            for (int f = 0; f < FACES; ++f)
+            {
+                faces[f] = mapFace(
+                        channel, FileChannel.MapMode.READ_ONLY, f, faceBytes);
+            }
+
+            return new AltitudeGrid(resolution, depth, key, faces);
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    /**
+     * Open a grid file if it was baked for the same planet at the same
+     * resolution, otherwise bake the grid again and replace the file
+     *
+     * @param params The parameters of the planet
+     * @param resolution The number of samples along each edge of a face
+     * @param file The file holding the grid
+     * @param threads The number of threads to use if the grid is baked
+     * @throws java.io.IOException If there is an error reading or writing
+     * the file
+     * @return The grid, mapped from the file
+     */
+    public static AltitudeGrid openOrBake(
+        AllPlanetParameters params, int resolution, File file, int threads)
+        throws IOException
+    {
+        if (file.exists())
+        {
+            try
+            {
+                final AltitudeGrid grid = open(file);
+
+                if (grid.matches(params) &&
+                        (grid.getResolution() == resolution))
+                {
+                    return grid;
+                }
+
+                log.debug("Altitude grid is out of date: " + file);
+            }
+            catch (IOException ioe)
+            {
+                log.debug("Altitude grid can't be used: " + file, ioe);
+            }
+        }
+
+        return bake(params, resolution, file, threads);
+    }
+
+    /**
+     * Map the samples of one face from the grid file
+     *
+     * @param channel The channel of the grid file
+     * @param mode The mode the samples are to be mapped in
+     * @param face The face to map
+     * @param faceBytes The number of bytes used by each face
+     * @throws java.io.IOException If the file can't be mapped
+     * @return A buffer holding the samples of the face
+     */
+    private static FloatBuffer mapFace(
+        FileChannel channel, FileChannel.MapMode mode, int face, int faceBytes)
+        throws IOException
+    {
+        final ByteBuffer buffer =
+            channel.map(
+                mode, HEADER_SIZE + ((long) face * faceBytes), faceBytes);
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        return buffer.asFloatBuffer();
+    }
+
+    /**
+     * Generate every sample of the grid
+     *
+     * @param gen The generator to evaluate the terrain with
+     * @param threads The number of threads to use
+     * @throws java.io.IOException If generation fails or is interrupted
+     */
+    private void generate(final PlanetGen gen, int threads)
+        throws IOException
+    {
+        final int rows = FACES * this.stride;
+        final AtomicInteger next = new AtomicInteger();
+        final ExecutorService pool =
+            Executors.newFixedThreadPool(Math.max(1, threads));
+        final List<Future<?>> results = new ArrayList<Future<?>>();
+
+        for (int t = 0; t < Math.max(1, threads); ++t)
+        {
+            results.add(
+                pool.submit(
+                    new Runnable()
+                    {
+                        public void run()
+                        {
+                            final PlanetContext ctx =
+                                new PlanetContext(depth);
+                            final double[] point = new double[3];
+
+                            int row = next.getAndIncrement();
+
+                            while (row < rows)
+                            {
+                                generateRow(
+                                    gen, ctx, row / stride, row % stride,
+                                    point);
+
+                                row = next.getAndIncrement();
+                            }
+                        }
+                    }));
+        }
+
+        pool.shutdown();
+
+        try
+        {
+            for (Future<?> result : results)
+            {
+                result.get();
+            }
+        }
+        catch (InterruptedException ie)
+        {
+            pool.shutdownNow();
+
+            throw new InterruptedIOException("Grid baking was interrupted");
+        }
+        catch (ExecutionException ee)
+        {
+            pool.shutdownNow();
+
+            throw new IOException("Grid baking failed", ee.getCause());
+        }
+    }
+
+    /**
+     * Generate one row of samples of a face
+     *
+     * @param gen The generator to evaluate the terrain with
+     * @param ctx The context belonging to the calling thread
+     * @param face The face the row belongs to
+     * @param v The index of the row, including the border
+     * @param point Work array for the point being sampled
+     */
+    private void generateRow(
+        PlanetGen gen, PlanetContext ctx, int face, int v, double[] point)
+    {
+        final FloatBuffer samples = this.faces[face];
+        final double tv = Math.tan(getAngle(v, this.resolution));
+
+        // neighbouring samples share most of their subdivision path
+        ctx.invalidate();
+
+        for (int u = 0; u < this.stride; ++u)
+        {
+            getPoint(face, Math.tan(getAngle(u, this.resolution)), tv, point);
+
+            final double alt = gen.planet1(ctx, point[0], point[1], point[2]);
+            final int index = ((v * this.stride) + u) * VALUES;
+
+            samples.put(index, (float) alt);
+            samples.put(index + 1, ctx.getShade());
+        }
+    }
+
+    /**
+     * Get the angle from the centre of a face to a row or column of samples
+     *
+     * @param index The index of the row or column, including the border
+     * @param resolution The number of samples along each edge of a face
+     * @return The angle in radians, from -PI/4 to PI/4 across the face
+     */
+    static double getAngle(int index, int resolution)
+    {
+        return ((((2.0 * index) - 1.0) / resolution) - 1.0) * Math.PI / 4;
+    }
+
+    /**
+     * Get the point on the sphere shown at a position on a face
+     *
+     * @param face The face
+     * @param u The position across the face, from -1 to 1 between the edges
+     * @param v The position down the face, from -1 to 1 between the edges
+     * @param point Array to be set to the x, y and z coordinates of the point
+     */
+    static void getPoint(int face, double u, double v, double[] point)
+    {
+        final int axis = face >> 1;
+        final double len = Math.sqrt(1.0 + (u * u) + (v * v));
+
+        point[axis] = (((face & 1) == 0) ? 1.0 : -1.0) / len;
+        point[(axis + 1) % 3] = u / len;
+        point[(axis + 2) % 3] = v / len;
+    }
+
+    /**
+     * Find the face of the grid that a point lies on and its position on the
+     * face, measured in samples including the border
+     *
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param z The z coordinate of the point
+     * @param resolution The number of samples along each edge of a face
+     * @param position Array to be set to the position across and down the
+     * face
+     * @return The face the point lies on
+     */
+    static int locate(
+        double x, double y, double z, int resolution, double[] position)
+    {
+        final double ax = Math.abs(x);
+        final double ay = Math.abs(y);
+        final double az = Math.abs(z);
+
+        final int face;
+        final double major;
+        final double u;
+        final double v;
+
+        if ((ax >= ay) && (ax >= az))
+        {
+            face = (x >= 0) ? 0 : 1;
+            major = ax;
+            u = y;
+            v = z;
+        }
+        else if (ay >= az)
+        {
+            face = (y >= 0) ? 2 : 3;
+            major = ay;
+            u = z;
+            v = x;
+        }
+        else
+        {
+            face = (z >= 0) ? 4 : 5;
+            major = az;
+            u = x;
+            v = y;
+        }
+
+        final double half = 0.5 * resolution;
+
+        position[0] = (Math.atan(u / major) * 4 / Math.PI * half) + half + 0.5;
+        position[1] = (Math.atan(v / major) * 4 / Math.PI * half) + half + 0.5;
+
+        return face;
+    }
+
+    /**
+     * Look up the altitude and shade of a point on the planet, interpolating
+     * between the four nearest samples. This method may be called by several
+     * threads at once.
+     *
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param z The z coordinate of the point
+     * @param result Array to be set to the altitude and shade of the point
+     */
+    public void sample(double x, double y, double z, double[] result)
+    {
+        final int face = locate(x, y, z, this.resolution, result);
+        final double fu = result[0];
+        final double fv = result[1];
+
+        final int iu = Math.max(0, Math.min((int) fu, this.resolution));
+        final int iv = Math.max(0, Math.min((int) fv, this.resolution));
+        final double tu = Math.max(0.0, Math.min(fu - iu, 1.0));
+        final double tv = Math.max(0.0, Math.min(fv - iv, 1.0));
+
+        final FloatBuffer samples = this.faces[face];
+        final int i00 = ((iv * this.stride) + iu) * VALUES;
+        final int i01 = i00 + (this.stride * VALUES);
+
+        for (int k = 0; k < VALUES; ++k)
+        {
+            final double top =
+                samples.get(i00 + k) +
+                (tu * (samples.get(i00 + VALUES + k) - samples.get(i00 + k)));
+            final double bottom =
+                samples.get(i01 + k) +
+                (tu * (samples.get(i01 + VALUES + k) - samples.get(i01 + k)));
+
+            result[k] = top + (tv * (bottom - top));
+        }
+    }
+
+    /**
+     * Test whether this grid was baked for the same planet as a set of
+     * parameters describes
+     *
+     * @param params The parameters of the planet
+     * @return <code>true</code> if the grid holds the terrain of that planet
+     */
+    public boolean matches(AllPlanetParameters params)
+    {
+        return Arrays.equals(this.key, getKey(params));
+    }
+
+    /**
+     * Get the number of samples along each edge of a face of the grid
+     *
+     * @return The resolution of the grid
+     */
+    public int getResolution()
+    {
+        return this.resolution;
+    }
+
+    /**
+     * Get the subdivision depth used to generate the samples
+     *
+     * @return The depth the grid was baked at
+     */
+    public int getDepth()
+    {
+        return this.depth;
+    }
+
+    // MagicNumber ON
+}
@@ -0,0 +1,468 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * PlanetContext.java
+ *
+ * Created on October 17, 2026, 10:12 AM
+ *
+ */
+package com.alvermont.terraj.planet;
+
+
+/**
+ * Holds the state that changes while the terrain is being evaluated. The
+ * generator itself only holds values that are fixed for the duration of a
+ * projection so a single <code>PlanetGen</code> can be shared between several
+ * threads as long as each of them evaluates points using its own context.
+ * <p>
+ * The context also caches the tetrahedra that were passed through while
+ * evaluating the last point. Neighbouring points follow the same path
+ * through most of the subdivision levels, so the next point can restart
+ * from the deepest cached tetrahedron that contains it. The number of
+ * tetrahedra kept is limited; when the depth is greater than the limit only
+ * every second (or third, and so on) level is kept, spread evenly over the
+ * whole depth.
+ *
+ * @version $Id$
+ */
+public class PlanetContext
+{
+    /** The default limit on the number of cached tetrahedra */
+    public static final int DEFAULT_CACHE_LEVELS = 32;
+
+    /**
+     * The number of values stored for each tetrahedron. These are the four
+     * altitudes, the four seeds and the coordinates of the four vertices in
+     * the same order as the arguments to <code>PlanetGen.planet()</code>
+     */
+    static final int ENTRY_SIZE = 20;
+
+    // RequireThis OFF: ENTRY_SIZE
+
+    /** Depth of subdivision to be carried out */
+    private int depth;
+
+    /** Value used in shading, set by the last evaluation */
+    private short shade;
+
+    /** The maximum number of tetrahedra that will be cached */
+    private final int cacheLevels;
+
+    /** The number of levels between cached tetrahedra */
+    private int stride;
+
+    /** The cached tetrahedra, from the shallowest to the deepest */
+    final double[] path;
+
+    /** The number of remaining levels for each cached tetrahedron */
+    final int[] pathLevel;
+
+    /** The number of valid entries in the path */
+    int pathSize;
+
+    /** The number of points evaluated */
+    private long lookups;
+
+    /** The number of points that restarted from a cached tetrahedron */
+    private long hits;
+
+    /** The total number of levels that did not need to be evaluated */
+    private long levelsSkipped;
+
+    /**
+     * Creates a new instance of PlanetContext with the default cache limit
+     *
+     * @param depth The depth of subdivision to be carried out
+     */
+    public PlanetContext(int depth)
+    {
+        this(depth, DEFAULT_CACHE_LEVELS);
+    }
+
+    /**
+     * Creates a new instance of PlanetContext
+     *
+     * @param depth The depth of subdivision to be carried out
+     * @param cacheLevels The maximum number of tetrahedra to be cached. Each
+     * one uses 164 bytes.
+     */
+    public PlanetContext(int depth, int cacheLevels)
+    {
+        if (cacheLevels < 1)
+        {
+            throw new IllegalArgumentException(
+                "Must cache at least one level: " + cacheLevels);
+        }
+
+        this.cacheLevels = cacheLevels;
+        this.path = new double[cacheLevels * ENTRY_SIZE];
+        this.pathLevel = new int[cacheLevels];
+
+        setDepth(depth);
+        invalidate();
+    }
+
+    /**
+     * Discard the cached tetrahedra so that the next point evaluated starts
+     * from the top level. The cache assumes that a point inside a cached
+     * tetrahedron would have followed the same path from the top level,
+     * which is not exactly true for points very close to a face, so
+     * callers that need results independent of the order of evaluation
+     * (e.g. when splitting the work between threads) call this at the start
+     * of each unit of work.
+     */
+    public void invalidate()
+    {
+        this.pathSize = 0;
+    }
+
+    /**
+     * Record a tetrahedron that has been reached during an evaluation, if
+     * its level is one that is cached. Any deeper tetrahedra cached from
+     * the previous evaluation are discarded.
+     *
+     * @param level The number of remaining levels
+     * @param a Altitude of vertex 1
+     * @param b Altitude of vertex 2
+     * @param c Altitude of vertex 3
+     * @param d Altitude of vertex 4
+     * @param as Seed of vertex 1
+     * @param bs Seed of vertex 2
+     * @param cs Seed of vertex 3
+     * @param ds Seed of vertex 4
+     * @param ax Vertex 1 X coordinate
+     * @param ay Vertex 1 Y coordinate
+     * @param az Vertex 1 Z coordinate
+     * @param bx Vertex 2 X coordinate
+     * @param by Vertex 2 Y coordinate
+     * @param bz Vertex 2 Z coordinate
+     * @param cx Vertex 3 X coordinate
+     * @param cy Vertex 3 Y coordinate
+     * @param cz Vertex 3 Z coordinate
+     * @param dx Vertex 4 X coordinate
+     * @param dy Vertex 4 Y coordinate
+     * @param dz Vertex 4 Z coordinate
+     */
+    void record(
+        int level, double a, double b, double c, double d, double as,
+        double bs, double cs, double ds, double ax, double ay, double az,
+        double bx, double by, double bz, double cx, double cy, double cz,
+        double dx, double dy, double dz)
+    {
+        final int k = this.depth - level;
+
+        // the top level tetrahedron is never cached as every point is
+        // inside it
+        if ((k <= 0) || ((k % this.stride) != 0))
+        {
+            return;
+        }
+
+        final int slot = (k / this.stride) - 1;
+
+        if (slot >= this.cacheLevels)
+        {
+            return;
+        }
+
+        final int o = slot * ENTRY_SIZE;
+
+        this.path[o] = a;
+        this.path[o + 1] = b;
+        this.path[o + 2] = c;
+        this.path[o + 3] = d;
+        this.path[o + 4] = as;
+        this.path[o + 5] = bs;
+        this.path[o + 6] = cs;
+        this.path[o + 7] = ds;
+        this.path[o + 8] = ax;
+        this.path[o + 9] = ay;
+        this.path[o + 10] = az;
+        this.path[o + 11] = bx;
+        this.path[o + 12] = by;
+        this.path[o + 13] = bz;
+        this.path[o + 14] = cx;
+        this.path[o + 15] = cy;
+        this.path[o + 16] = cz;
+        this.path[o + 17] = dx;
+        this.path[o + 18] = dy;
+        this.path[o + 19] = dz;
+
+        this.pathLevel[slot] = level;
+        this.pathSize = slot + 1;
+    }
+
+    /**
+     * Find the deepest cached tetrahedron that contains a point. The cached
+     * tetrahedra are nested so a binary search is used.
+     *
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param z The z coordinate of the point
+     * @return The index of the tetrahedron in the path or -1 if none of
+     * them contain the point
+     */
+    int findDeepest(double x, double y, double z)
+    {
+        int lo = -1;
+        int hi = this.pathSize - 1;
+
+        ++this.lookups;
+
+        // the deepest tetrahedron is the most likely to contain the point
+        // and the shallowest the least likely to miss it
+        if ((hi >= 0) && contains(hi, x, y, z))
+        {
+            lo = hi;
+        }
+        else
+        {
+            --hi;
+
+            while (lo < hi)
+            {
+                final int mid = (lo + hi + 1) >>> 1;
+
+                if (contains(mid, x, y, z))
+                {
+                    lo = mid;
+                }
+                else
+                {
+                    hi = mid - 1;
+                }
+            }
+        }
+
+        if (lo >= 0)
+        {
+            ++this.hits;
+            this.levelsSkipped += (this.depth - this.pathLevel[lo]);
+        }
+
+        return lo;
+    }
+
+    /**
+     * Test whether a point is inside one of the cached tetrahedra
+     *
+     * @param slot The index of the tetrahedron in the path
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param z The z coordinate of the point
+     * @return <code>true</code> if the point is inside the tetrahedron
+     */
+    private boolean contains(int slot, double x, double y, double z)
+    {
+        final int o = slot * ENTRY_SIZE;
+
+        final double ax = this.path[o + 8];
+        final double ay = this.path[o + 9];
+        final double az = this.path[o + 10];
+
+        final double abx = this.path[o + 11] - ax;
+        final double aby = this.path[o + 12] - ay;
+        final double abz = this.path[o + 13] - az;
+        final double acx = this.path[o + 14] - ax;
+        final double acy = this.path[o + 15] - ay;
+        final double acz = this.path[o + 16] - az;
+        final double adx = this.path[o + 17] - ax;
+        final double ady = this.path[o + 18] - ay;
+        final double adz = this.path[o + 19] - az;
+        final double apx = x - ax;
+        final double apy = y - ay;
+        final double apz = z - az;
+
+        if (
+            ((((adx * aby * acz) + (ady * abz * acx) + (adz * abx * acy)) -
+                (adz * aby * acx) - (ady * abx * acz) - (adx * abz * acy)) * (((apx * aby * acz) +
+                (apy * abz * acx) + (apz * abx * acy)) - (apz * aby * acx) -
+                (apy * abx * acz) - (apx * abz * acy))) > 0.0)
+        {
+            /* p is on same side of abc as d */
+            if (
+                ((((acx * aby * adz) + (acy * abz * adx) + (acz * abx * ady)) -
+                    (acz * aby * adx) - (acy * abx * adz) - (acx * abz * ady)) * (((apx * aby * adz) +
+                    (apy * abz * adx) + (apz * abx * ady)) - (apz * aby * adx) -
+                    (apy * abx * adz) - (apx * abz * ady))) > 0.0)
+            {
+                /* p is on same side of abd as c */
+                if (
+                    ((((abx * ady * acz) + (aby * adz * acx) +
+                        (abz * adx * acy)) - (abz * ady * acx) -
+                        (aby * adx * acz) - (abx * adz * acy)) * (((apx * ady * acz) +
+                        (apy * adz * acx) + (apz * adx * acy)) -
+                        (apz * ady * acx) - (apy * adx * acz) -
+                        (apx * adz * acy))) > 0.0)
+                {
+                    /* p is on same side of acd as b */
+                    final double bx = this.path[o + 11];
+                    final double by = this.path[o + 12];
+                    final double bz = this.path[o + 13];
+
+                    final double bax = -abx;
+                    final double bay = -aby;
+                    final double baz = -abz;
+                    final double bcx = this.path[o + 14] - bx;
+                    final double bcy = this.path[o + 15] - by;
+                    final double bcz = this.path[o + 16] - bz;
+                    final double bdx = this.path[o + 17] - bx;
+                    final double bdy = this.path[o + 18] - by;
+                    final double bdz = this.path[o + 19] - bz;
+                    final double bpx = x - bx;
+                    final double bpy = y - by;
+                    final double bpz = z - bz;
+
+                    /* true if p is on same side of bcd as a */
+                    return ((((bax * bcy * bdz) + (bay * bcz * bdx) +
+                        (baz * bcx * bdy)) - (baz * bcy * bdx) -
+                        (bay * bcx * bdz) - (bax * bcz * bdy)) * (((bpx * bcy * bdz) +
+                        (bpy * bcz * bdx) + (bpz * bcx * bdy)) -
+                        (bpz * bcy * bdx) - (bpy * bcx * bdz) -
+                        (bpx * bcz * bdy))) > 0.0;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Getter for property depth.
+     * @return Value of property depth.
+     */
+    public int getDepth()
+    {
+        return this.depth;
+    }
+
+    /**
+     * Setter for property depth. Changing the depth discards the cache and
+     * changes which levels will be cached.
+     * @param depth New value of property depth.
+     */
+    public void setDepth(int depth)
+    {
+        if (depth != this.depth)
+        {
+            // the cached tetrahedra are only valid for the depth they were
+            // recorded at
+            this.pathSize = 0;
+        }
+
+        this.depth = depth;
+        this.stride =
+            Math.max(1, ((depth + this.cacheLevels) - 1) / this.cacheLevels);
+    }
+
+    /**
+     * Getter for property shade.
+     * @return Value of property shade.
+     */
+    public short getShade()
+    {
+        return this.shade;
+    }
+
+    /**
+     * Setter for property shade.
+     * @param shade New value of property shade.
+     */
+    void setShade(short shade)
+    {
+        this.shade = shade;
+    }
+
+    /**
+     * Getter for property cacheLevels.
+     * @return Value of property cacheLevels.
+     */
+    public int getCacheLevels()
+    {
+        return this.cacheLevels;
+    }
+
+    /**
+     * Get the number of points that have been evaluated with this context
+     *
+     * @return The number of points evaluated
+     */
+    public long getLookups()
+    {
+        return this.lookups;
+    }
+
+    /**
+     * Get the number of points that restarted from a cached tetrahedron
+     *
+     * @return The number of cache hits
+     */
+    public long getHits()
+    {
+        return this.hits;
+    }
+
+    /**
+     * Get the total number of subdivision levels that did not need to be
+     * evaluated because a point restarted from a cached tetrahedron
+     *
+     * @return The number of levels skipped
+     */
+    public long getLevelsSkipped()
+    {
+        return this.levelsSkipped;
+    }
+
+    /**
+     * Reset the cache statistics to zero
+     */
+    public void resetStatistics()
+    {
+        this.lookups = 0;
+        this.hits = 0;
+        this.levelsSkipped = 0;
+    }
+}
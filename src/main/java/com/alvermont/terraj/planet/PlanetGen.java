@@ -51,6 +51,8 @@
  */
 package com.alvermont.terraj.planet;
 
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
 import java.util.Random;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -116,9 +118,18 @@ public class PlanetGen
     /** Cached value of shade angle */
     private double shadeAngle;
 
+    /** Cached sine of the shade angle */
+    private double shadeSin;
+
+    /** Cached cosine of the shade angle */
+    private double shadeCos;
+
     /** Cached value of initial altitude */
     private double m;
 
+    /** Cached value of iterative evaluation */
+    private boolean iterative;
+
     /**
      * Must be called to cache parameters in this object for performance.
      * Call this method once before starting a projection.
@@ -135,75 +146,329 @@ public class PlanetGen
                 .isDoShade();
         shadeAngle = parameters.getProjectionParameters()
                 .getShadeAngle();
+        shadeSin = Math.sin((Math.PI * shadeAngle) / 180.0);
+        shadeCos = Math.cos((Math.PI * shadeAngle) / 180.0);
         m = parameters.getPlanetParameters()
                 .getInitialAltitude();
+        iterative = parameters.getProjectionParameters()
+                .isIterative();
+    }
+
+    /** Context used by the single threaded methods of this class */
+    private PlanetContext defaultContext = new PlanetContext(0);
+
+    /**
+     * Create a new context that can be used to evaluate points on this
+     * planet. Each thread evaluating points concurrently must use its own
+     * context.
+     *
+     * @return A new context set up for the current subdivision depth
+     */
+    public PlanetContext createContext()
+    {
+        return new PlanetContext(this.depth);
+    }
+
+    /** The largest number of points that are sorted and evaluated together
+     * by the bulk sampling methods */
+    private static final int SAMPLE_BATCH = 1 << 16;
+
+    /** The number of bits of each coordinate used to sort points */
+    private static final int SORT_BITS = 16;
+
+    /** The number of bits of the sort key handled by each radix pass */
+    private static final int RADIX_BITS = 12;
+
+    /** The working storage used by each thread calling the bulk sampling
+     * methods, kept so that no memory is allocated once it has grown to
+     * the size of the batches being evaluated */
+    private final ThreadLocal<SampleBuffers> sampleBuffers =
+        new ThreadLocal<SampleBuffers>()
+        {
+            protected SampleBuffers initialValue()
+            {
+                return new SampleBuffers();
+            }
+        };
+
+    /**
+     * Working storage for the bulk sampling methods
+     */
+    private static final class SampleBuffers
+    {
+        /** The context points are evaluated with */
+        final PlanetContext ctx = new PlanetContext(0);
+
+        /** The sort key of each point with its index in the low bits */
+        long[] keys = new long[0];
+
+        /** The keys during the passes of the sort */
+        long[] sorted = new long[0];
+
+        /** The number of keys with each value of a digit */
+        final int[] counts = new int[1 << RADIX_BITS];
+
+        /** The x coordinates of points copied from a buffer */
+        double[] x = new double[0];
+
+        /** The y coordinates of points copied from a buffer */
+        double[] y = new double[0];
+
+        /** The z coordinates of points copied from a buffer */
+        double[] z = new double[0];
+
+        /**
+         * Make sure the arrays can hold a batch of points
+         *
+         * @param count The number of points in the batch
+         * @param coords <code>true</code> if the coordinate arrays are needed
+         */
+        void ensureCapacity(int count, boolean coords)
+        {
+            if (this.keys.length < count)
+            {
+                this.keys = new long[count];
+                this.sorted = new long[count];
+            }
+
+            if (coords && (this.x.length < count))
+            {
+                this.x = new double[count];
+                this.y = new double[count];
+                this.z = new double[count];
+            }
+        }
     }
 
-    // values used during the calculations
-    double ssa;
+    /**
+     * Find the altitudes of a set of points. The points are evaluated in an
+     * order that keeps neighbouring points together so that most of them
+     * restart from a tetrahedron cached from the one before, which is much
+     * faster than evaluating them in an arbitrary order. This method can be
+     * called concurrently by several threads and does not allocate memory
+     * once a thread has evaluated a batch of the same size, but
+     * <code>cacheParameters()</code> must have been called first.
+     * <p>
+     * The result for a point very close to the face of a tetrahedron can
+     * depend on which point was evaluated before it. The cache is emptied
+     * at the start of each call so the same points always give the same
+     * altitudes.
+     *
+     * @param depth The depth of subdivision to be carried out
+     * @param x The x coordinates of the points
+     * @param y The y coordinates of the points
+     * @param z The z coordinates of the points
+     * @param offset The index of the first point in the arrays
+     * @param count The number of points to be evaluated
+     * @param altitudes The array to be filled in with the altitude of each
+     * point, starting at the same offset
+     */
+    public void sample(
+        int depth, double[] x, double[] y, double[] z, int offset, int count,
+        double[] altitudes)
+    {
+        final SampleBuffers buffers = this.sampleBuffers.get();
 
-    // values used during the calculations
-    double ssb;
+        buffers.ctx.setDepth(depth);
+        buffers.ctx.invalidate();
+        buffers.ensureCapacity(Math.min(count, SAMPLE_BATCH), false);
 
-    // values used during the calculations
-    double ssc;
+        for (int done = 0; done < count; done += SAMPLE_BATCH)
+        {
+            sampleBatch(
+                buffers, x, y, z, offset + done,
+                Math.min(SAMPLE_BATCH, count - done), altitudes, offset + done);
+        }
+    }
 
-    // values used during the calculations
-    double ssd;
+    /**
+     * Find the altitudes of a set of points held in a buffer as x, y and z
+     * coordinates one point after another. The points are read from the
+     * position of the buffer up to its limit, and the position is moved to
+     * the end of the last whole point read. Otherwise this is the same as
+     * the method that takes arrays of coordinates.
+     *
+     * @param depth The depth of subdivision to be carried out
+     * @param points The buffer holding the coordinates of the points
+     * @param altitudes The array to be filled in with the altitude of each
+     * point
+     * @param offset The index in the altitude array for the first point
+     */
+    public void sample(
+        int depth, DoubleBuffer points, double[] altitudes, int offset)
+    {
+        final SampleBuffers buffers = this.sampleBuffers.get();
+        final int count = points.remaining() / 3;
 
-    // values used during the calculations
-    double ssas;
+        buffers.ctx.setDepth(depth);
+        buffers.ctx.invalidate();
+        buffers.ensureCapacity(Math.min(count, SAMPLE_BATCH), true);
 
-    // values used during the calculations
-    double ssbs;
+        int pos = points.position();
 
-    // values used during the calculations
-    double sscs;
+        for (int done = 0; done < count; done += SAMPLE_BATCH)
+        {
+            final int batch = Math.min(SAMPLE_BATCH, count - done);
 
-    // values used during the calculations
-    double ssds;
+            for (int n = 0; n < batch; ++n)
+            {
+                buffers.x[n] = points.get(pos++);
+                buffers.y[n] = points.get(pos++);
+                buffers.z[n] = points.get(pos++);
+            }
 
-    // values used during the calculations
-    double ssax;
+            sampleBatch(
+                buffers, buffers.x, buffers.y, buffers.z, 0, batch, altitudes,
+                offset + done);
+        }
 
-    // values used during the calculations
-    double ssay;
+        points.position(pos);
+    }
 
-    // values used during the calculations
-    double ssaz;
+    /**
+     * Sort a batch of points so that neighbouring points are next to each
+     * other and then evaluate them
+     *
+     * @param buffers The working storage of the calling thread
+     * @param x The x coordinates of the points
+     * @param y The y coordinates of the points
+     * @param z The z coordinates of the points
+     * @param offset The index of the first point in the coordinate arrays
+     * @param count The number of points, no more than the batch size
+     * @param altitudes The array to be filled in with the altitudes
+     * @param altOffset The index in the altitude array for the first point
+     */
+    private void sampleBatch(
+        SampleBuffers buffers, double[] x, double[] y, double[] z, int offset,
+        int count, double[] altitudes, int altOffset)
+    {
+        final long[] keys = buffers.keys;
 
-    // values used during the calculations
-    double ssbx;
+        // the key is the position of the point along a Morton curve through
+        // the cube enclosing the planet, followed by its index in the batch
+        for (int n = 0; n < count; ++n)
+        {
+            final long key =
+                spread(quantise(x[offset + n])) |
+                (spread(quantise(y[offset + n])) << 1) |
+                (spread(quantise(z[offset + n])) << 2);
 
-    // values used during the calculations
-    double ssby;
+            keys[n] = (key << SORT_BITS) | n;
+        }
 
-    // values used during the calculations
-    double ssbz;
+        radixSort(buffers, count);
 
-    // values used during the calculations
-    double sscx;
+        final PlanetContext ctx = buffers.ctx;
 
-    // values used during the calculations
-    double sscy;
+        for (int n = 0; n < count; ++n)
+        {
+            final int i = (int) (keys[n] & (SAMPLE_BATCH - 1));
 
-    // values used during the calculations
-    double sscz;
+            altitudes[altOffset + i] =
+                planet1(ctx, x[offset + i], y[offset + i], z[offset + i]);
+        }
+    }
 
-    // values used during the calculations
-    double ssdx;
+    /**
+     * Convert a coordinate to an integer for sorting, so that coordinates
+     * from -1 to 1 cover the whole range
+     *
+     * @param v The coordinate
+     * @return The coordinate as an integer with <code>SORT_BITS</code> bits
+     */
+    private static long quantise(double v)
+    {
+        final int max = (1 << SORT_BITS) - 1;
+        final double q = (v + 1.0) * 0.5 * max;
 
-    // values used during the calculations
-    double ssdy;
+        // also catches NaN, which isn't greater than zero
+        if (!(q > 0.0))
+        {
+            return 0;
+        }
 
-    // values used during the calculations
-    double ssdz;
+        return (q >= max) ? max : (long) q;
+    }
+
+    /**
+     * Spread the bits of an integer out so that there are two zero bits
+     * between each of them, ready to be interleaved with two others
+     *
+     * @param v The integer, with no more than <code>SORT_BITS</code> bits
+     * @return The integer with its bits spread out
+     */
+    private static long spread(long v)
+    {
+        // MagicNumber OFF
+        long r = v;
+
+        r = (r | (r << 16)) & 0x0000ff0000ffL;
+        r = (r | (r << 8)) & 0x00f00f00f00fL;
+        r = (r | (r << 4)) & 0x0c30c30c30c3L;
+        r = (r | (r << 2)) & 0x249249249249L;
+
+        // MagicNumber ON
+        return r;
+    }
+
+    /**
+     * Sort the keys of a batch of points into order. A radix sort is used
+     * as it needs no memory other than the working storage and keeps points
+     * with the same key in their original order.
+     *
+     * @param buffers The working storage holding the keys
+     * @param count The number of keys to be sorted
+     */
+    private static void radixSort(SampleBuffers buffers, int count)
+    {
+        final int[] counts = buffers.counts;
+        final int mask = counts.length - 1;
+
+        long[] from = buffers.keys;
+        long[] to = buffers.sorted;
+
+        // the index bits are already in order, so only the key is sorted
+        for (
+            int shift = SORT_BITS; shift < (SORT_BITS * 4);
+                shift += RADIX_BITS)
+        {
+            Arrays.fill(counts, 0);
+
+            for (int n = 0; n < count; ++n)
+            {
+                ++counts[(int) (from[n] >>> shift) & mask];
+            }
+
+            int total = 0;
+
+            for (int d = 0; d < counts.length; ++d)
+            {
+                final int c = counts[d];
+
+                counts[d] = total;
+                total += c;
+            }
+
+            for (int n = 0; n < count; ++n)
+            {
+                to[counts[(int) (from[n] >>> shift) & mask]++] = from[n];
+            }
+
+            final long[] t = from;
+
+            from = to;
+            to = t;
+        }
+
+        // an even number of passes leaves the result in the keys array
+    }
 
     /**
      * Carries out the remaining levels of terrain generation, recursivel
      * until the last level is reached. Returns the height of the planet
      * at this point
      *
+     * @param ctx The context holding the state of this evaluation
      * @param a Altitude of vertex 1
      * @param b Altitude of vertex 2
      * @param c Altitude of vertex 3
@@ -231,10 +496,11 @@ public class PlanetGen
      * @return The altitude of the planet after recursive subdivision
      */
     double planet(
-        double a, double b, double c, double d, double as, double bs, double cs,
-        double ds, double ax, double ay, double az, double bx, double by,
-        double bz, double cx, double cy, double cz, double dx, double dy,
-        double dz, double x, double y, double z, int level)
+        PlanetContext ctx, double a, double b, double c, double d, double as,
+        double bs, double cs, double ds, double ax, double ay, double az,
+        double bx, double by, double bz, double cx, double cy, double cz,
+        double dx, double dy, double dz, double x, double y, double z,
+        int level)
     {
         double abx;
         double aby;
@@ -291,29 +557,9 @@ public class PlanetGen
 
         if (level > 0)
         {
-            if (level == 11)
-            {
-                this.ssa = a;
-                this.ssb = b;
-                this.ssc = c;
-                this.ssd = d;
-                this.ssas = as;
-                this.ssbs = bs;
-                this.sscs = cs;
-                this.ssds = ds;
-                this.ssax = ax;
-                this.ssay = ay;
-                this.ssaz = az;
-                this.ssbx = bx;
-                this.ssby = by;
-                this.ssbz = bz;
-                this.sscx = cx;
-                this.sscy = cy;
-                this.sscz = cz;
-                this.ssdx = dx;
-                this.ssdy = dy;
-                this.ssdz = dz;
-            }
+            ctx.record(
+                level, a, b, c, d, as, bs, cs, ds, ax, ay, az, bx, by, bz, cx,
+                cy, cz, dx, dy, dz);
 
             abx = ax - bx;
             aby = ay - by;
@@ -327,8 +573,8 @@ public class PlanetGen
             if (lab < lac)
             {
                 return (planet(
-                    a, c, b, d, as, cs, bs, ds, ax, ay, az, cx, cy, cz, bx, by,
-                    bz, dx, dy, dz, x, y, z, level));
+                    ctx, a, c, b, d, as, cs, bs, ds, ax, ay, az, cx, cy, cz,
+                    bx, by, bz, dx, dy, dz, x, y, z, level));
             }
             else
             {
@@ -340,8 +586,8 @@ public class PlanetGen
                 if (lab < lad)
                 {
                     return (planet(
-                        a, d, b, c, as, ds, bs, cs, ax, ay, az, dx, dy, dz, bx,
-                        by, bz, cx, cy, cz, x, y, z, level));
+                        ctx, a, d, b, c, as, ds, bs, cs, ax, ay, az, dx, dy,
+                        dz, bx, by, bz, cx, cy, cz, x, y, z, level));
                 }
                 else
                 {
@@ -353,8 +599,8 @@ public class PlanetGen
                     if (lab < lbc)
                     {
                         return (planet(
-                            b, c, a, d, bs, cs, as, ds, bx, by, bz, cx, cy, cz,
-                            ax, ay, az, dx, dy, dz, x, y, z, level));
+                            ctx, b, c, a, d, bs, cs, as, ds, bx, by, bz, cx,
+                            cy, cz, ax, ay, az, dx, dy, dz, x, y, z, level));
                     }
                     else
                     {
@@ -366,8 +612,9 @@ public class PlanetGen
                         if (lab < lbd)
                         {
                             return (planet(
-                                b, d, a, c, bs, ds, as, cs, bx, by, bz, dx, dy,
-                                dz, ax, ay, az, cx, cy, cz, x, y, z, level));
+                                ctx, b, d, a, c, bs, ds, as, cs, bx, by, bz,
+                                dx, dy, dz, ax, ay, az, cx, cy, cz, x, y, z,
+                                level));
                         }
                         else
                         {
@@ -379,9 +626,9 @@ public class PlanetGen
                             if (lab < lcd)
                             {
                                 return (planet(
-                                    c, d, a, b, cs, ds, as, bs, cx, cy, cz, dx,
-                                    dy, dz, ax, ay, az, bx, by, bz, x, y, z,
-                                    level));
+                                    ctx, c, d, a, b, cs, ds, as, bs, cx, cy,
+                                    cz, dx, dy, dz, ax, ay, az, bx, by, bz, x,
+                                    y, z, level));
                             }
                             else
                             {
@@ -439,16 +686,16 @@ public class PlanetGen
                                         (epx * ecz * edy))) > 0.0)
                                 {
                                     return (planet(
-                                        c, d, a, e, cs, ds, as, es, cx, cy, cz,
-                                        dx, dy, dz, ax, ay, az, ex, ey, ez, x, y,
-                                        z, level - 1));
+                                        ctx, c, d, a, e, cs, ds, as, es, cx, cy,
+                                        cz, dx, dy, dz, ax, ay, az, ex, ey, ez,
+                                        x, y, z, level - 1));
                                 }
                                 else
                                 {
                                     return (planet(
-                                        c, d, b, e, cs, ds, bs, es, cx, cy, cz,
-                                        dx, dy, dz, bx, by, bz, ex, ey, ez, x, y,
-                                        z, level - 1));
+                                        ctx, c, d, b, e, cs, ds, bs, es, cx, cy,
+                                        cz, dx, dy, dz, bx, by, bz, ex, ey, ez,
+                                        x, y, z, level - 1));
                                 }
                             }
                         }
@@ -487,29 +734,489 @@ public class PlanetGen
                 y2 = (((-x * y) / tmp * x1) + (tmp * y1)) -
                     ((z * y) / tmp * z1);
                 z2 = (-z / tmp * x1) + (x / tmp * z1);
-                shade = (short) ((((-Math.sin(
-                        (Math.PI * this.shadeAngle) / 180.0) * y2) -
-                    (Math.cos((Math.PI * shadeAngle) / 180.0) * z2)) / l1 * 48.0) +
-                    128.0);
+                short s = (short) ((((-this.shadeSin * y2) -
+                    (this.shadeCos * z2)) / l1 * 48.0) + 128.0);
 
-                if (this.shade < 10)
+                if (s < 10)
                 {
-                    this.shade = 10;
+                    s = 10;
                 }
 
-                if (this.shade > 255)
+                if (s > 255)
                 {
-                    this.shade = 255;
+                    s = 255;
                 }
+
+                ctx.setShade(s);
             }
 
             return ((a + b + c + d) / 4);
         }
     }
 
+    /**
+     * Carries out the remaining levels of terrain generation in a loop
+     * rather than by recursion. Every recursive call made by
+     * <code>planet()</code> is its last action so the only state needed is
+     * the current tetrahedron, which is held in local variables and replaced
+     * in place at each step. Calls that only reorder the vertices are done
+     * by exchanging variables, and the edge lengths are exchanged with them
+     * so that only the edges created by a subdivision need to be measured.
+     * The result is identical to <code>planet()</code>.
+     *
+     * @param ctx The context holding the state of this evaluation
+     * @param a Altitude of vertex 1
+     * @param b Altitude of vertex 2
+     * @param c Altitude of vertex 3
+     * @param d Altitude of vertex 4
+     * @param as Seed of vertex 1
+     * @param bs Seed of vertex 2
+     * @param cs Seed of vertex 3
+     * @param ds Seed of vertex 4
+     * @param ax Vertex 1 X coordinate
+     * @param ay Vertex 1 Y coordinate
+     * @param az Vertex 1 Z coordinate
+     * @param bx Vertex 2 X coordinate
+     * @param by Vertex 2 Y coordinate
+     * @param bz Vertex 2 Z coordinate
+     * @param cx Vertex 3 X coordinate
+     * @param cy Vertex 3 Y coordinate
+     * @param cz Vertex 3 Z coordinate
+     * @param dx Vertex 4 X coordinate
+     * @param dy Vertex 4 Y coordinate
+     * @param dz Vertex 4 Z coordinate
+     * @param x Goal point X coordinate
+     * @param y Goal point Y coordinate
+     * @param z Goal point Z coordinate
+     * @param level Number of remaining levels
+     * @return The altitude of the planet after subdivision
+     */
+    double planetIterative(
+        PlanetContext ctx, double a, double b, double c, double d, double as,
+        double bs, double cs, double ds, double ax, double ay, double az,
+        double bx, double by, double bz, double cx, double cy, double cz,
+        double dx, double dy, double dz, double x, double y, double z,
+        int level)
+    {
+        double lab;
+        double lac;
+        double lad;
+        double lbc;
+        double lbd;
+        double lcd;
+        double ex;
+        double ey;
+        double ez;
+        double e;
+        double es;
+        double es1;
+        double es2;
+        double es3;
+        double eax;
+        double eay;
+        double eaz;
+        double epx;
+        double epy;
+        double epz;
+        double ecx;
+        double ecy;
+        double ecz;
+        double edx;
+        double edy;
+        double edz;
+        double x1;
+        double y1;
+        double z1;
+        double x2;
+        double y2;
+        double z2;
+        double l1;
+        double tmp;
+        double t;
+        double ts;
+        double tx;
+        double ty;
+        double tz;
+        double tl;
+        double lpow;
+
+        // squared edge lengths, kept up to date as the vertices are
+        // exchanged so they only need to be calculated for new edges
+        lab = edgeLength(ax, ay, az, bx, by, bz);
+        lac = edgeLength(ax, ay, az, cx, cy, cz);
+        lad = edgeLength(ax, ay, az, dx, dy, dz);
+        lbc = edgeLength(bx, by, bz, cx, cy, cz);
+        lbd = edgeLength(bx, by, bz, dx, dy, dz);
+        lcd = edgeLength(cx, cy, cz, dx, dy, dz);
+
+        while (level > 0)
+        {
+            if (lab < lac)
+            {
+                // (a, c, b, d): exchange b and c
+                t = b;
+                b = c;
+                c = t;
+                ts = bs;
+                bs = cs;
+                cs = ts;
+                tx = bx;
+                bx = cx;
+                cx = tx;
+                ty = by;
+                by = cy;
+                cy = ty;
+                tz = bz;
+                bz = cz;
+                cz = tz;
+                tl = lab;
+                lab = lac;
+                lac = tl;
+                tl = lbd;
+                lbd = lcd;
+                lcd = tl;
+
+                continue;
+            }
+
+            if (lab < lad)
+            {
+                // (a, d, b, c): rotate b, c and d
+                t = b;
+                b = d;
+                d = c;
+                c = t;
+                ts = bs;
+                bs = ds;
+                ds = cs;
+                cs = ts;
+                tx = bx;
+                bx = dx;
+                dx = cx;
+                cx = tx;
+                ty = by;
+                by = dy;
+                dy = cy;
+                cy = ty;
+                tz = bz;
+                bz = dz;
+                dz = cz;
+                cz = tz;
+                tl = lab;
+                lab = lad;
+                lad = lac;
+                lac = tl;
+                tl = lbc;
+                lbc = lbd;
+                lbd = lcd;
+                lcd = tl;
+
+                continue;
+            }
+
+            if (lab < lbc)
+            {
+                // (b, c, a, d): rotate a, b and c
+                t = a;
+                a = b;
+                b = c;
+                c = t;
+                ts = as;
+                as = bs;
+                bs = cs;
+                cs = ts;
+                tx = ax;
+                ax = bx;
+                bx = cx;
+                cx = tx;
+                ty = ay;
+                ay = by;
+                by = cy;
+                cy = ty;
+                tz = az;
+                az = bz;
+                bz = cz;
+                cz = tz;
+                tl = lab;
+                lab = lbc;
+                lbc = lac;
+                lac = tl;
+                tl = lad;
+                lad = lbd;
+                lbd = lcd;
+                lcd = tl;
+
+                continue;
+            }
+
+            if (lab < lbd)
+            {
+                // (b, d, a, c): rotate all four vertices
+                t = a;
+                a = b;
+                b = d;
+                d = c;
+                c = t;
+                ts = as;
+                as = bs;
+                bs = ds;
+                ds = cs;
+                cs = ts;
+                tx = ax;
+                ax = bx;
+                bx = dx;
+                dx = cx;
+                cx = tx;
+                ty = ay;
+                ay = by;
+                by = dy;
+                dy = cy;
+                cy = ty;
+                tz = az;
+                az = bz;
+                bz = dz;
+                dz = cz;
+                cz = tz;
+                tl = lab;
+                lab = lbd;
+                lbd = lcd;
+                lcd = lac;
+                lac = tl;
+                tl = lad;
+                lad = lbc;
+                lbc = tl;
+
+                continue;
+            }
+
+            if (lab < lcd)
+            {
+                // (c, d, a, b): exchange a with c and b with d
+                t = a;
+                a = c;
+                c = t;
+                t = b;
+                b = d;
+                d = t;
+                ts = as;
+                as = cs;
+                cs = ts;
+                ts = bs;
+                bs = ds;
+                ds = ts;
+                tx = ax;
+                ax = cx;
+                cx = tx;
+                tx = bx;
+                bx = dx;
+                dx = tx;
+                ty = ay;
+                ay = cy;
+                cy = ty;
+                ty = by;
+                by = dy;
+                dy = ty;
+                tz = az;
+                az = cz;
+                cz = tz;
+                tz = bz;
+                bz = dz;
+                dz = tz;
+                tl = lab;
+                lab = lcd;
+                lcd = tl;
+                tl = lad;
+                lad = lbc;
+                lbc = tl;
+
+                continue;
+            }
+
+            // ab is the longest edge so this tetrahedron is split here
+            ctx.record(
+                level, a, b, c, d, as, bs, cs, ds, ax, ay, az, bx, by, bz, cx,
+                cy, cz, dx, dy, dz);
+
+            es = rand2(as, bs);
+            es1 = rand2(es, es);
+            es2 = 0.5 + (0.1 * rand2(es1, es1));
+            es3 = 1.0 - es2;
+
+            if (ax == bx)
+            { /* very unlikely to ever happen */
+                ex = (0.5 * ax) + (0.5 * bx);
+                ey = (0.5 * ay) + (0.5 * by);
+                ez = (0.5 * az) + (0.5 * bz);
+            }
+            else if (ax < bx)
+            {
+                ex = (es2 * ax) + (es3 * bx);
+                ey = (es2 * ay) + (es3 * by);
+                ez = (es2 * az) + (es3 * bz);
+            }
+            else
+            {
+                ex = (es3 * ax) + (es2 * bx);
+                ey = (es3 * ay) + (es2 * by);
+                ez = (es3 * az) + (es2 * bz);
+            }
+
+            lpow = lab;
+
+            if (lpow > 1.0)
+            {
+                lpow = Math.pow(lpow, 0.75);
+            }
+
+            e = (0.5 * (a + b)) + (es * dd1 * Math.abs(a - b)) +
+                (es1 * dd2 * Math.pow(lpow, pow));
+            eax = ax - ex;
+            eay = ay - ey;
+            eaz = az - ez;
+            epx = x - ex;
+            epy = y - ey;
+            epz = z - ez;
+            ecx = cx - ex;
+            ecy = cy - ey;
+            ecz = cz - ez;
+            edx = dx - ex;
+            edy = dy - ey;
+            edz = dz - ez;
+
+            // the next tetrahedron is (c, d, a, e) or (c, d, b, e), so the
+            // vertex that is kept is moved into a before the others are
+            // shuffled into place
+            final boolean sameSideAsA =
+                ((((eax * ecy * edz) + (eay * ecz * edx) + (eaz * ecx * edy)) -
+                (eaz * ecy * edx) - (eay * ecx * edz) - (eax * ecz * edy)) * (((epx * ecy * edz) +
+                (epy * ecz * edx) + (epz * ecx * edy)) - (epz * ecy * edx) -
+                (epy * ecx * edz) - (epx * ecz * edy))) > 0.0;
+
+            if (sameSideAsA)
+            {
+                tl = (eax * eax) + (eay * eay) + (eaz * eaz);
+            }
+            else
+            {
+                a = b;
+                as = bs;
+                ax = bx;
+                ay = by;
+                az = bz;
+                lac = lbc;
+                lad = lbd;
+                tl = edgeLength(bx, by, bz, ex, ey, ez);
+            }
+
+            t = a;
+            a = c;
+            c = t;
+            b = d;
+            d = e;
+            ts = as;
+            as = cs;
+            cs = ts;
+            bs = ds;
+            ds = es;
+            tx = ax;
+            ax = cx;
+            cx = tx;
+            bx = dx;
+            dx = ex;
+            ty = ay;
+            ay = cy;
+            cy = ty;
+            by = dy;
+            dy = ey;
+            tz = az;
+            az = cz;
+            cz = tz;
+            bz = dz;
+            dz = ez;
+
+            lab = lcd;
+            lbc = lad;
+            lcd = tl;
+            lad = (ecx * ecx) + (ecy * ecy) + (ecz * ecz);
+            lbd = (edx * edx) + (edy * edy) + (edz * edz);
+
+            --level;
+        }
+
+        if (this.doShade)
+        {
+            x1 = 0.25 * (ax + bx + cx + dx);
+            x1 = (a * (x1 - ax)) + (b * (x1 - bx)) + (c * (x1 - cx)) +
+                (d * (x1 - dx));
+            y1 = 0.25 * (ay + by + cy + dy);
+            y1 = (a * (y1 - ay)) + (b * (y1 - by)) + (c * (y1 - cy)) +
+                (d * (y1 - dy));
+            z1 = 0.25 * (az + bz + cz + dz);
+            z1 = (a * (z1 - az)) + (b * (z1 - bz)) + (c * (z1 - cz)) +
+                (d * (z1 - dz));
+            l1 = Math.sqrt((x1 * x1) + (y1 * y1) + (z1 * z1));
+
+            if (l1 == 0.0)
+            {
+                l1 = 1.0;
+            }
+
+            tmp = Math.sqrt(1.0 - (y * y));
+
+            if (tmp < 0.0001)
+            {
+                tmp = 0.0001;
+            }
+
+            x2 = (x * x1) + (y * y1) + (z * z1);
+            y2 = (((-x * y) / tmp * x1) + (tmp * y1)) - ((z * y) / tmp * z1);
+            z2 = (-z / tmp * x1) + (x / tmp * z1);
+
+            short s = (short) ((((-this.shadeSin * y2) -
+                (this.shadeCos * z2)) / l1 * 48.0) + 128.0);
+
+            if (s < 10)
+            {
+                s = 10;
+            }
+
+            if (s > 255)
+            {
+                s = 255;
+            }
+
+            ctx.setShade(s);
+        }
+
+        return ((a + b + c + d) / 4);
+    }
+
+    /**
+     * Calculate the square of the distance between two vertices
+     *
+     * @param x1 Vertex 1 X coordinate
+     * @param y1 Vertex 1 Y coordinate
+     * @param z1 Vertex 1 Z coordinate
+     * @param x2 Vertex 2 X coordinate
+     * @param y2 Vertex 2 Y coordinate
+     * @param z2 Vertex 2 Z coordinate
+     * @return The square of the distance between the vertices
+     */
+    private static double edgeLength(
+        double x1, double y1, double z1, double x2, double y2, double z2)
+    {
+        final double dx = x1 - x2;
+        final double dy = y1 - y2;
+        final double dz = z1 - z2;
+
+        return (dx * dx) + (dy * dy) + (dz * dz);
+    }
+
     /**
      * Top level of planetary terrain generation. This carries out the
-     * first level of subdivision and returns the height of a point
+     * first level of subdivision and returns the height of a point. This
+     * method uses a context belonging to this object so it must not be called
+     * by more than one thread at once.
      *
      * @param x The x coordinate of the point to get altitude for
      * @param y The y coordinate of the point to get altitude for
@@ -518,115 +1225,95 @@ public class PlanetGen
      */
     public double planet1(double x, double y, double z)
     {
-        double abx;
-        double aby;
-        double abz;
-        double acx;
-        double acy;
-        double acz;
-        double adx;
-        double ady;
-        double adz;
-        double apx;
-        double apy;
-        double apz;
-        double bax;
-        double bay;
-        double baz;
-        double bcx;
-        double bcy;
-        double bcz;
-        double bdx;
-        double bdy;
-        double bdz;
-        double bpx;
-        double bpy;
-        double bpz;
-
-        abx = this.ssbx - this.ssax;
-        aby = this.ssby - this.ssay;
-        abz = this.ssbz - this.ssaz;
-        acx = this.sscx - this.ssax;
-        acy = this.sscy - this.ssay;
-        acz = this.sscz - this.ssaz;
-        adx = this.ssdx - this.ssax;
-        ady = this.ssdy - this.ssay;
-        adz = this.ssdz - this.ssaz;
-        apx = x - this.ssax;
-        apy = y - this.ssay;
-        apz = z - this.ssaz;
-
-        if (
-            ((((adx * aby * acz) + (ady * abz * acx) + (adz * abx * acy)) -
-                (adz * aby * acx) - (ady * abx * acz) - (adx * abz * acy)) * (((apx * aby * acz) +
-                (apy * abz * acx) + (apz * abx * acy)) - (apz * aby * acx) -
-                (apy * abx * acz) - (apx * abz * acy))) > 0.0)
+        this.defaultContext.setDepth(this.depth);
+
+        final double alt = planet1(this.defaultContext, x, y, z);
+
+        this.shade = this.defaultContext.getShade();
+
+        return alt;
+    }
+
+    /**
+     * Top level of planetary terrain generation. This carries out the
+     * first level of subdivision and returns the height of a point. This
+     * method can be called concurrently by several threads provided each of
+     * them supplies its own context.
+     *
+     * @param ctx The context holding the state of this evaluation, including
+     * the depth of subdivision to be carried out
+     * @param x The x coordinate of the point to get altitude for
+     * @param y The y coordinate of the point to get altitude for
+     * @param z The z coordinate of the point to get altitude for
+     * @return The altiude of the planet at this point (0 = sea level)
+     */
+    public double planet1(PlanetContext ctx, double x, double y, double z)
+    {
+        final int slot = ctx.findDeepest(x, y, z);
+
+        if (slot < 0)
         {
-            /* p is on same side of abc as d */
-            if (
-                ((((acx * aby * adz) + (acy * abz * adx) + (acz * abx * ady)) -
-                    (acz * aby * adx) - (acy * abx * adz) - (acx * abz * ady)) * (((apx * aby * adz) +
-                    (apy * abz * adx) + (apz * abx * ady)) - (apz * aby * adx) -
-                    (apy * abx * adz) - (apx * abz * ady))) > 0.0)
-            {
-                /* p is on same side of abd as c */
-                if (
-                    ((((abx * ady * acz) + (aby * adz * acx) +
-                        (abz * adx * acy)) - (abz * ady * acx) -
-                        (aby * adx * acz) - (abx * adz * acy)) * (((apx * ady * acz) +
-                        (apy * adz * acx) + (apz * adx * acy)) -
-                        (apz * ady * acx) - (apy * adx * acz) -
-                        (apx * adz * acy))) > 0.0)
-                {
-                    /* p is on same side of acd as b */
-                    bax = -abx;
-                    bay = -aby;
-                    baz = -abz;
-                    bcx = this.sscx - this.ssbx;
-                    bcy = this.sscy - this.ssby;
-                    bcz = this.sscz - this.ssbz;
-                    bdx = this.ssdx - this.ssbx;
-                    bdy = this.ssdy - this.ssby;
-                    bdz = this.ssdz - this.ssbz;
-                    bpx = x - this.ssbx;
-                    bpy = y - this.ssby;
-                    bpz = z - this.ssbz;
-
-                    if (
-                        ((((bax * bcy * bdz) + (bay * bcz * bdx) +
-                            (baz * bcx * bdy)) - (baz * bcy * bdx) -
-                            (bay * bcx * bdz) - (bax * bcz * bdy)) * (((bpx * bcy * bdz) +
-                            (bpy * bcz * bdx) + (bpz * bcx * bdy)) -
-                            (bpz * bcy * bdx) - (bpy * bcx * bdz) -
-                            (bpx * bcz * bdy))) > 0.0)
-                    {
-                        /* p is on same side of bcd as a */
-                        /* Hence, p is inside tetrahedron */
-                        return (planet(
-                            this.ssa, this.ssb, this.ssc, this.ssd, this.ssas,
-                            this.ssbs, this.sscs, this.ssds, this.ssax,
-                            this.ssay, this.ssaz, this.ssbx, this.ssby,
-                            this.ssbz, this.sscx, this.sscy, this.sscz,
-                            this.ssdx, this.ssdy, this.ssdz, x, y, z, 11));
-                    }
-                }
-            }
-        } /* otherwise */
+            return planetTop(ctx, x, y, z);
+        }
+
+        /* p is inside a tetrahedron reached by an earlier point */
+        final double[] t = ctx.path;
+        final int o = slot * PlanetContext.ENTRY_SIZE;
+        final int level = ctx.pathLevel[slot];
+
+        if (this.iterative)
+        {
+            return (planetIterative(
+                ctx, t[o], t[o + 1], t[o + 2], t[o + 3], t[o + 4], t[o + 5],
+                t[o + 6], t[o + 7], t[o + 8], t[o + 9], t[o + 10], t[o + 11],
+                t[o + 12], t[o + 13], t[o + 14], t[o + 15], t[o + 16],
+                t[o + 17], t[o + 18], t[o + 19], x, y, z, level));
+        }
+
         return (planet(
-            /* initial altitude is M on all corners of tetrahedron */
-        this.m, this.m, this.m, this.m, /* same seed set is used in every call */
-        this.r1, this.r2, this.r3, this.r4, /* coordinates of vertices */
-        0.0, 0.0, 3.01, 0.0, this.SQRT8 + (.01 * this.r1 * this.r1),
-            -1.02 + (.01 * this.r2 * this.r3),
-            -this.SQRT6 - (.01 * this.r3 * this.r3),
-            -this.SQRT2 - (.01 * this.r4 * this.r4),
-            -1.02 + (.01 * this.r1 * this.r2),
-            this.SQRT6 - (.01 * this.r2 * this.r2),
-            -this.SQRT2 - (.01 * this.r3 * this.r3),
-            -1.02 + (.01 * this.r1 * this.r3), /* coordinates of point we want colour of */
-        x, y, z, this.depth));
-
-        /* subdivision depth */
+            ctx, t[o], t[o + 1], t[o + 2], t[o + 3], t[o + 4], t[o + 5],
+            t[o + 6], t[o + 7], t[o + 8], t[o + 9], t[o + 10], t[o + 11],
+            t[o + 12], t[o + 13], t[o + 14], t[o + 15], t[o + 16], t[o + 17],
+            t[o + 18], t[o + 19], x, y, z, level));
+    }
+
+    /**
+     * Evaluate a point starting from the top level tetrahedron that encloses
+     * the whole planet
+     *
+     * @param ctx The context holding the state of this evaluation
+     * @param x The x coordinate of the point to get altitude for
+     * @param y The y coordinate of the point to get altitude for
+     * @param z The z coordinate of the point to get altitude for
+     * @return The altiude of the planet at this point (0 = sea level)
+     */
+    private double planetTop(PlanetContext ctx, double x, double y, double z)
+    {
+        // coordinates of the vertices of the initial tetrahedron
+        final double bx = 0.0;
+        final double by = this.SQRT8 + (.01 * this.r1 * this.r1);
+        final double bz = -1.02 + (.01 * this.r2 * this.r3);
+        final double cx = -this.SQRT6 - (.01 * this.r3 * this.r3);
+        final double cy = -this.SQRT2 - (.01 * this.r4 * this.r4);
+        final double cz = -1.02 + (.01 * this.r1 * this.r2);
+        final double dx = this.SQRT6 - (.01 * this.r2 * this.r2);
+        final double dy = -this.SQRT2 - (.01 * this.r3 * this.r3);
+        final double dz = -1.02 + (.01 * this.r1 * this.r3);
+
+        /* initial altitude is M on all corners of tetrahedron */
+        /* same seed set is used in every call */
+        if (this.iterative)
+        {
+            return (planetIterative(
+                ctx, this.m, this.m, this.m, this.m, this.r1, this.r2, this.r3,
+                this.r4, 0.0, 0.0, 3.01, bx, by, bz, cx, cy, cz, dx, dy, dz, x,
+                y, z, ctx.getDepth()));
+        }
+
+        return (planet(
+            ctx, this.m, this.m, this.m, this.m, this.r1, this.r2, this.r3,
+            this.r4, 0.0, 0.0, 3.01, bx, by, bz, cx, cy, cz, dx, dy, dz, x, y,
+            z, ctx.getDepth()));
     }
 
     /* random number generator taking two seeds */
@@ -650,6 +1337,8 @@ public class PlanetGen
         this.r3 = rand2(this.r1, this.r2);
         this.r4 = rand2(this.r2, this.r3);
 
+        this.defaultContext.invalidate();
+
         log.debug(
             "Random seeds this.r1=" + this.r1 + " this.r2=" + this.r2 +
             " this.r3=" + this.r3 + " this.r4=" + this.r4);
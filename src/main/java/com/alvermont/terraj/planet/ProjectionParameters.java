@@ -50,6 +50,7 @@
  */
 package com.alvermont.terraj.planet;
 
+import java.awt.Rectangle;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -140,6 +141,14 @@ public class ProjectionParameters
         this.colourFile = null;
         this.outline = false;
         this.edges = false;
+        this.parallel = false;
+        this.iterative = false;
+        this.bandRows = 0;
+        this.altitudeGridFile = null;
+        this.altitudeGridSize = DEFAULT_ALTITUDE_GRID_SIZE;
+        this.region = null;
+        this.altitudeOnly = false;
+        this.normalStrength = 0.0;
     }
 
     /**
@@ -166,6 +175,15 @@ public class ProjectionParameters
         this.projectionName = source.projectionName;
         this.edges = source.edges;
         this.outline = source.outline;
+        this.parallel = source.parallel;
+        this.iterative = source.iterative;
+        this.bandRows = source.bandRows;
+        this.altitudeGridFile = source.altitudeGridFile;
+        this.altitudeGridSize = source.altitudeGridSize;
+        this.region =
+            (source.region == null) ? null : new Rectangle(source.region);
+        this.altitudeOnly = source.altitudeOnly;
+        this.normalStrength = source.normalStrength;
     }
 
     /**
@@ -648,4 +666,205 @@ public class ProjectionParameters
     {
         this.edges = edges;
     }
+
+    /**
+     * Holds value of property parallel.
+     */
+    private boolean parallel;
+
+    /**
+     * Getter for property parallel.
+     * @return Value of property parallel.
+     */
+    public boolean isParallel()
+    {
+        return this.parallel;
+    }
+
+    /**
+     * Setter for property parallel.
+     * @param parallel New value of property parallel.
+     */
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Holds value of property iterative.
+     */
+    private boolean iterative;
+
+    /**
+     * Getter for property iterative.
+     * @return Value of property iterative.
+     */
+    public boolean isIterative()
+    {
+        return this.iterative;
+    }
+
+    /**
+     * Setter for property iterative.
+     * @param iterative New value of property iterative.
+     */
+    public void setIterative(boolean iterative)
+    {
+        this.iterative = iterative;
+    }
+
+    /**
+     * Holds value of property bandRows.
+     */
+    private int bandRows;
+
+    /**
+     * Getter for property bandRows. If this is greater than zero the image
+     * is written out in bands of this many rows rather than built in
+     * memory.
+     * @return Value of property bandRows.
+     */
+    public int getBandRows()
+    {
+        return this.bandRows;
+    }
+
+    /**
+     * Setter for property bandRows.
+     * @param bandRows New value of property bandRows.
+     */
+    public void setBandRows(int bandRows)
+    {
+        this.bandRows = bandRows;
+    }
+
+    /**
+     * The default number of samples along each edge of a face of an
+     * altitude grid
+     */
+    public static final int DEFAULT_ALTITUDE_GRID_SIZE = 1024;
+
+    /**
+     * Holds value of property altitudeGridFile.
+     */
+    private String altitudeGridFile;
+
+    /**
+     * Getter for property altitudeGridFile. If this is set the terrain is
+     * baked into an altitude grid held in this file, or read from the file
+     * if it already holds a grid for the same planet, and the projection
+     * looks the terrain up in the grid.
+     * @return Value of property altitudeGridFile.
+     */
+    public String getAltitudeGridFile()
+    {
+        return this.altitudeGridFile;
+    }
+
+    /**
+     * Setter for property altitudeGridFile.
+     * @param altitudeGridFile New value of property altitudeGridFile.
+     */
+    public void setAltitudeGridFile(String altitudeGridFile)
+    {
+        this.altitudeGridFile = altitudeGridFile;
+    }
+
+    /**
+     * Holds value of property altitudeGridSize.
+     */
+    private int altitudeGridSize = DEFAULT_ALTITUDE_GRID_SIZE;
+
+    /**
+     * Getter for property altitudeGridSize.
+     * @return Value of property altitudeGridSize.
+     */
+    public int getAltitudeGridSize()
+    {
+        return this.altitudeGridSize;
+    }
+
+    /**
+     * Setter for property altitudeGridSize.
+     * @param altitudeGridSize New value of property altitudeGridSize.
+     */
+    public void setAltitudeGridSize(int altitudeGridSize)
+    {
+        this.altitudeGridSize = altitudeGridSize;
+    }
+
+    /**
+     * Holds value of property region.
+     */
+    private Rectangle region;
+
+    /**
+     * Getter for property region. If this is set only this rectangle of
+     * the image is rendered, the width and height giving the size of the
+     * whole image that it is part of.
+     * @return Value of property region.
+     */
+    public Rectangle getRegion()
+    {
+        return this.region;
+    }
+
+    /**
+     * Setter for property region.
+     * @param region New value of property region.
+     */
+    public void setRegion(Rectangle region)
+    {
+        this.region = region;
+    }
+
+    /**
+     * Holds value of property altitudeOnly.
+     */
+    private boolean altitudeOnly;
+
+    /**
+     * Getter for property altitudeOnly. If this is set the projection only
+     * works out the altitude of each pixel, without any colouring or
+     * shading.
+     * @return Value of property altitudeOnly.
+     */
+    public boolean isAltitudeOnly()
+    {
+        return this.altitudeOnly;
+    }
+
+    /**
+     * Setter for property altitudeOnly.
+     * @param altitudeOnly New value of property altitudeOnly.
+     */
+    public void setAltitudeOnly(boolean altitudeOnly)
+    {
+        this.altitudeOnly = altitudeOnly;
+    }
+
+    /**
+     * Holds value of property normalStrength.
+     */
+    private double normalStrength;
+
+    /**
+     * Getter for property normalStrength. If this is greater than zero a
+     * normal map is made from the altitudes alongside the image, with
+     * slopes exaggerated by this factor.
+     * @return Value of property normalStrength.
+     */
+    public double getNormalStrength()
+    {
+        return this.normalStrength;
+    }
+
+    /**
+     * Setter for property normalStrength.
+     * @param normalStrength New value of property normalStrength.
+     */
+    public void setNormalStrength(double normalStrength)
+    {
+        this.normalStrength = normalStrength;
+    }
 }
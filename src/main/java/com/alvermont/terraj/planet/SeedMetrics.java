@@ -0,0 +1,185 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * SeedMetrics.java
+ *
+ * Created on October 18, 2026, 2:15 PM
+ *
+ */
+package com.alvermont.terraj.planet;
+
+/**
+ * Measurements of the terrain of the planet generated from one seed, made
+ * by a <code>SeedSweep</code> from a coarse sampling of the surface.
+ * Fractions of the surface are of the area of the whole sphere and lengths
+ * are in units of the planet radius.
+ *
+ * @version $Id$
+ */
+public class SeedMetrics
+{
+    /** The seed of the planet */
+    private final double seed;
+
+    /** The fraction of the surface above sea level */
+    private final double landFraction;
+
+    /** The mean altitude over the whole surface */
+    private final double meanAltitude;
+
+    /** The total length of the coastlines */
+    private final double coastlineLength;
+
+    /** The fraction of the surface covered by the largest landmass */
+    private final double largestLandmass;
+
+    /** The score given to the planet */
+    private double score;
+
+    /**
+     * Creates a new instance of SeedMetrics
+     *
+     * @param seed The seed of the planet
+     * @param landFraction The fraction of the surface above sea level
+     * @param meanAltitude The mean altitude over the whole surface
+     * @param coastlineLength The total length of the coastlines
+     * @param largestLandmass The fraction of the surface covered by the
+     * largest landmass
+     */
+    public SeedMetrics(
+        double seed, double landFraction, double meanAltitude,
+        double coastlineLength, double largestLandmass)
+    {
+        this.seed = seed;
+        this.landFraction = landFraction;
+        this.meanAltitude = meanAltitude;
+        this.coastlineLength = coastlineLength;
+        this.largestLandmass = largestLandmass;
+    }
+
+    /**
+     * Get the seed of the planet
+     *
+     * @return The seed that the planet was generated from
+     */
+    public double getSeed()
+    {
+        return this.seed;
+    }
+
+    /**
+     * Get the fraction of the surface above sea level
+     *
+     * @return The land fraction, from 0 to 1
+     */
+    public double getLandFraction()
+    {
+        return this.landFraction;
+    }
+
+    /**
+     * Get the mean altitude over the whole surface, where 0 is sea level
+     *
+     * @return The mean altitude
+     */
+    public double getMeanAltitude()
+    {
+        return this.meanAltitude;
+    }
+
+    /**
+     * Get the total length of the coastlines, as resolved by the sampling
+     *
+     * @return The coastline length in planet radii
+     */
+    public double getCoastlineLength()
+    {
+        return this.coastlineLength;
+    }
+
+    /**
+     * Get the fraction of the surface covered by the largest connected
+     * area of land
+     *
+     * @return The largest landmass, from 0 to 1
+     */
+    public double getLargestLandmass()
+    {
+        return this.largestLandmass;
+    }
+
+    /**
+     * Get the score given to the planet by the sweep
+     *
+     * @return The score of the planet
+     */
+    public double getScore()
+    {
+        return this.score;
+    }
+
+    /**
+     * Set the score given to the planet
+     *
+     * @param score The score of the planet
+     */
+    void setScore(double score)
+    {
+        this.score = score;
+    }
+
+    /**
+     * Returns a string representation of the object
+     *
+     * @return a string representation of the object.
+     */
+    public String toString()
+    {
+        return "seed=" + this.seed + " score=" + this.score + " land=" +
+        this.landFraction + " mean=" + this.meanAltitude + " coast=" +
+        this.coastlineLength + " largest=" + this.largestLandmass;
+    }
+}
@@ -0,0 +1,575 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * SeedSweep.java
+ *
+ * Created on October 18, 2026, 2:30 PM
+ *
+ */
+package com.alvermont.terraj.planet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Screens a range of seeds to find the planets worth rendering in full.
+ * The terrain of each planet is sampled on a coarse latitude and longitude
+ * grid at a reduced depth of subdivision and measured, and the best
+ * planets by a chosen score are kept. Seeds are shared between a number of
+ * threads and only the best planets are held in memory.
+ *
+ * @version $Id$
+ */
+public class SeedSweep
+{
+    /** Our logging object */
+    private static Log log = LogFactory.getLog(SeedSweep.class);
+
+    // RequireThis OFF: log
+
+    /** The default number of rows of the sampling grid */
+    public static final int DEFAULT_ROWS = 90;
+
+    /** The default difference between successive seeds */
+    public static final double DEFAULT_SEED_STEP = 0.001;
+
+    /** The fraction of the Earth's surface that is land */
+    private static final double EARTH_LAND_FRACTION = 0.29;
+
+    /** The scores that can be chosen by name */
+    private static final Map<String, SeedScore> SCORES =
+        new HashMap<String, SeedScore>();
+
+    static
+    {
+        SCORES.put(
+            "earthlike",
+            new SeedScore()
+            {
+                public double score(SeedMetrics metrics)
+                {
+                    return -Math.abs(
+                        metrics.getLandFraction() - EARTH_LAND_FRACTION);
+                }
+            });
+
+        SCORES.put(
+            "land",
+            new SeedScore()
+            {
+                public double score(SeedMetrics metrics)
+                {
+                    return metrics.getLandFraction();
+                }
+            });
+
+        SCORES.put(
+            "continent",
+            new SeedScore()
+            {
+                public double score(SeedMetrics metrics)
+                {
+                    return metrics.getLargestLandmass();
+                }
+            });
+
+        SCORES.put(
+            "coast",
+            new SeedScore()
+            {
+                public double score(SeedMetrics metrics)
+                {
+                    return metrics.getCoastlineLength();
+                }
+            });
+
+        SCORES.put(
+            "islands",
+            new SeedScore()
+            {
+                public double score(SeedMetrics metrics)
+                {
+                    return metrics.getLandFraction() -
+                    metrics.getLargestLandmass();
+                }
+            });
+    }
+
+    /** Orders planets from the lowest score to the highest, lower seeds
+     * coming first for equal scores */
+    private static final Comparator<SeedMetrics> WORST_FIRST =
+        new Comparator<SeedMetrics>()
+        {
+            public int compare(SeedMetrics a, SeedMetrics b)
+            {
+                final int result = Double.compare(a.getScore(), b.getScore());
+
+                return (result != 0) ? result
+                                     : Double.compare(b.getSeed(), a.getSeed());
+            }
+        };
+
+    /** The parameters of the planets, apart from the seed */
+    private final AllPlanetParameters params;
+
+    /**
+     * Creates a new instance of SeedSweep
+     *
+     * @param params The parameters of the planets. Only the planet
+     * parameters are used and the seed is replaced by each seed of the
+     * sweep in turn.
+     */
+    public SeedSweep(AllPlanetParameters params)
+    {
+        this.params = new AllPlanetParameters(params);
+
+        this.params.getProjectionParameters()
+            .setDoShade(false);
+    }
+
+    /**
+     * Look up one of the built in scores by name. The names are
+     * "earthlike", for a land fraction close to the Earth's, "land",
+     * "continent" for the largest landmass, "coast" for the longest
+     * coastline and "islands" for the most land outside the largest
+     * landmass.
+     *
+     * @param name The name of the score
+     * @return The score or <code>null</code> if there is none of that name
+     */
+    public static SeedScore getScore(String name)
+    {
+        return SCORES.get(name);
+    }
+
+    /**
+     * Evaluate a range of seeds and keep the best of them
+     *
+     * @param firstSeed The first seed to be evaluated
+     * @param count The number of seeds to evaluate
+     * @param threads The number of threads to share the seeds between
+     * @return The best planets, ordered from the highest score to the lowest
+     * @throws java.lang.InterruptedException If the thread is interrupted
+     * while waiting for the sweep to finish
+     */
+    public List<SeedMetrics> run(
+        final double firstSeed, final int count, int threads)
+        throws InterruptedException
+    {
+        final PriorityQueue<SeedMetrics> best =
+            new PriorityQueue<SeedMetrics>(
+                Math.max(1, this.keep) + 1, WORST_FIRST);
+        final AtomicInteger next = new AtomicInteger();
+        final ExecutorService pool =
+            Executors.newFixedThreadPool(Math.max(1, threads));
+        final List<Future<?>> results = new ArrayList<Future<?>>();
+        final long start = System.nanoTime();
+
+        for (int t = 0; t < Math.max(1, threads); ++t)
+        {
+            results.add(
+                pool.submit(
+                    new Runnable()
+                    {
+                        public void run()
+                        {
+                            int index = next.getAndIncrement();
+
+                            while (index < count)
+                            {
+                                final SeedMetrics metrics =
+                                    measure(firstSeed + (index * seedStep));
+
+                                metrics.setScore(score.score(metrics));
+
+                                synchronized (best)
+                                {
+                                    best.add(metrics);
+
+                                    if (best.size() > keep)
+                                    {
+                                        best.poll();
+                                    }
+                                }
+
+                                index = next.getAndIncrement();
+                            }
+                        }
+                    }));
+        }
+
+        pool.shutdown();
+
+        try
+        {
+            for (Future<?> result : results)
+            {
+                result.get();
+            }
+        }
+        catch (InterruptedException ie)
+        {
+            pool.shutdownNow();
+
+            throw ie;
+        }
+        catch (ExecutionException ee)
+        {
+            pool.shutdownNow();
+
+            throw new IllegalStateException("Seed sweep failed", ee.getCause());
+        }
+
+        log.debug(
+            count + " seeds swept in " +
+            ((System.nanoTime() - start) / 1000000) + " ms");
+
+        final List<SeedMetrics> winners = new ArrayList<SeedMetrics>(best);
+
+        Collections.sort(winners, Collections.reverseOrder(WORST_FIRST));
+
+        return winners;
+    }
+
+    /**
+     * Generate a planet on the sampling grid and measure it
+     *
+     * @param seed The seed of the planet
+     * @return The measurements of the planet, without a score
+     */
+    public SeedMetrics measure(double seed)
+    {
+        final AllPlanetParameters planet = new AllPlanetParameters(this.params);
+
+        planet.getPlanetParameters()
+            .setSeed(seed);
+
+        final PlanetGen gen = new PlanetGen(planet);
+
+        gen.cacheParameters();
+
+        final int rows = this.rows;
+        final int cols = 2 * rows;
+        final double dlat = Math.PI / rows;
+        final double dlon = (2 * Math.PI) / cols;
+        final PlanetContext ctx = new PlanetContext(getSweepDepth());
+        final boolean[] land = new boolean[rows * cols];
+        final double[] weight = new double[rows];
+
+        double area = 0;
+        double landArea = 0;
+        double altitude = 0;
+        double coast = 0;
+
+        for (int j = 0; j < rows; ++j)
+        {
+            final double lat = ((j + 0.5) * dlat) - (Math.PI / 2);
+            final double y = Math.sin(lat);
+            final double r = Math.cos(lat);
+
+            weight[j] = r;
+
+            // neighbouring samples share most of their subdivision path
+            ctx.invalidate();
+
+            for (int i = 0; i < cols; ++i)
+            {
+                final double lon = (i + 0.5) * dlon;
+                final double alt =
+                    gen.planet1(
+                        ctx, r * Math.cos(lon), y, -r * Math.sin(lon));
+
+                area += r;
+                altitude += (alt * r);
+
+                if (alt > 0)
+                {
+                    land[(j * cols) + i] = true;
+                    landArea += r;
+                }
+            }
+        }
+
+        for (int j = 0; j < rows; ++j)
+        {
+            // the boundary with the row above runs along a parallel
+            final double across =
+                Math.cos((j * dlat) - (Math.PI / 2)) * dlon;
+
+            for (int i = 0; i < cols; ++i)
+            {
+                final boolean here = land[(j * cols) + i];
+
+                if (here != land[(j * cols) + ((i + 1) % cols)])
+                {
+                    coast += dlat;
+                }
+
+                if ((j > 0) && (here != land[((j - 1) * cols) + i]))
+                {
+                    coast += across;
+                }
+            }
+        }
+
+        return new SeedMetrics(
+            seed, landArea / area, altitude / area, coast,
+            findLargestLandmass(land, weight, cols) / area);
+    }
+
+    /**
+     * Find the area of the largest connected region of land on the
+     * sampling grid, which wraps around in longitude
+     *
+     * @param land Whether each sample is land, row by row
+     * @param weight The area of a sample in each row
+     * @param cols The number of samples in each row
+     * @return The area of the largest landmass in the units of the weights
+     */
+    private static double findLargestLandmass(
+        boolean[] land, double[] weight, int cols)
+    {
+        final boolean[] seen = new boolean[land.length];
+        final int[] stack = new int[land.length];
+        double largest = 0;
+
+        for (int s = 0; s < land.length; ++s)
+        {
+            if (!land[s] || seen[s])
+            {
+                continue;
+            }
+
+            double size = 0;
+            int top = 0;
+
+            seen[s] = true;
+            stack[top++] = s;
+
+            while (top > 0)
+            {
+                final int k = stack[--top];
+                final int i = k % cols;
+                final int j = k / cols;
+
+                size += weight[j];
+
+                final int[] neighbours =
+                    {
+                        (j * cols) + ((i + 1) % cols),
+                        (j * cols) + (((i + cols) - 1) % cols),
+                        (j > 0) ? (k - cols) : -1,
+                        (k + cols < land.length) ? (k + cols) : -1
+                    };
+
+                for (int n : neighbours)
+                {
+                    if ((n >= 0) && land[n] && !seen[n])
+                    {
+                        seen[n] = true;
+                        stack[top++] = n;
+                    }
+                }
+            }
+
+            largest = Math.max(largest, size);
+        }
+
+        return largest;
+    }
+
+    /**
+     * Get the depth of subdivision used to sample the terrain
+     *
+     * @return The depth that is set or one suited to the grid if it is zero
+     */
+    private int getSweepDepth()
+    {
+        return (this.depth > 0) ? this.depth : AltitudeGrid.getDepth(this.rows / 2);
+    }
+
+    /**
+     * Holds value of property rows.
+     */
+    private int rows = DEFAULT_ROWS;
+
+    /**
+     * Getter for property rows.
+     * @return Value of property rows.
+     */
+    public int getRows()
+    {
+        return this.rows;
+    }
+
+    /**
+     * Setter for property rows. This is the number of rows of the sampling
+     * grid, which has twice as many columns.
+     * @param rows New value of property rows.
+     */
+    public void setRows(int rows)
+    {
+        if (rows < 2)
+        {
+            throw new IllegalArgumentException(
+                "The sampling grid needs at least 2 rows: " + rows);
+        }
+
+        this.rows = rows;
+    }
+
+    /**
+     * Holds value of property depth.
+     */
+    private int depth;
+
+    /**
+     * Getter for property depth.
+     * @return Value of property depth.
+     */
+    public int getDepth()
+    {
+        return this.depth;
+    }
+
+    /**
+     * Setter for property depth. If this is zero the depth is chosen to
+     * suit the sampling grid.
+     * @param depth New value of property depth.
+     */
+    public void setDepth(int depth)
+    {
+        this.depth = depth;
+    }
+
+    /**
+     * Holds value of property keep.
+     */
+    private int keep = 10;
+
+    /**
+     * Getter for property keep.
+     * @return Value of property keep.
+     */
+    public int getKeep()
+    {
+        return this.keep;
+    }
+
+    /**
+     * Setter for property keep. This is the number of the best planets
+     * that are kept.
+     * @param keep New value of property keep.
+     */
+    public void setKeep(int keep)
+    {
+        if (keep < 1)
+        {
+            throw new IllegalArgumentException(
+                "At least one planet must be kept: " + keep);
+        }
+
+        this.keep = keep;
+    }
+
+    /**
+     * Holds value of property seedStep.
+     */
+    private double seedStep = DEFAULT_SEED_STEP;
+
+    /**
+     * Getter for property seedStep.
+     * @return Value of property seedStep.
+     */
+    public double getSeedStep()
+    {
+        return this.seedStep;
+    }
+
+    /**
+     * Setter for property seedStep.
+     * @param seedStep New value of property seedStep.
+     */
+    public void setSeedStep(double seedStep)
+    {
+        this.seedStep = seedStep;
+    }
+
+    /**
+     * Holds value of property score.
+     */
+    private SeedScore score = getScore("earthlike");
+
+    /**
+     * Getter for property score.
+     * @return Value of property score.
+     */
+    public SeedScore getScore()
+    {
+        return this.score;
+    }
+
+    /**
+     * Setter for property score.
+     * @param score New value of property score.
+     */
+    public void setScore(SeedScore score)
+    {
+        this.score = score;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * BMPBandWriter.java
+ *
+ * Created on October 17, 2026, 10:40 AM
+ *
+ */
+package com.alvermont.terraj.planet.io;
+
+import com.alvermont.terraj.planet.project.BandConsumer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes the bands of a projection to a .BMP file as they are produced.
+ * A BMP file stores its rows from the bottom of the image to the top, so
+ * each band is written directly into its place in the file. Only one band
+ * of pixels is held in memory at a time.
+ *
+ * @version $Id$
+ */
+public class BMPBandWriter implements BandConsumer
+{
+    /** The channel the file is written to */
+    private FileChannel channel;
+
+    /** The buffer used to assemble the rows of a band */
+    private ByteBuffer buffer;
+
+    /** The width of the image being written */
+    private int width;
+
+    /** The height of the image being written */
+    private int height;
+
+    /** The number of bytes in each row of the file */
+    private int rowSize;
+
+    /**
+     * Creates a new instance of BMPBandWriter
+     *
+     * @param channel The channel the file will be written to. This must be
+     * positioned at the start of the file and is left open when the image
+     * has been written.
+     */
+    public BMPBandWriter(FileChannel channel)
+    {
+        this.channel = channel;
+    }
+
+    /**
+     * Write the headers of the file
+     *
+     * @param width The width of the image in pixels
+     * @param height The height of the image in pixels
+     * @throws java.io.IOException If there is an error writing the headers
+     * or the image is too large for a BMP file
+     */
+    public void startImage(int width, int height) throws IOException
+    {
+        this.width = width;
+        this.height = height;
+        this.rowSize = BMPOutput.getRowSize(width);
+        this.buffer = null;
+
+        writeFully(ByteBuffer.wrap(BMPOutput.createHeader(width, height)), 0);
+    }
+
+    /**
+     * Write a band of the image into its place in the file
+     *
+     * @param y The y coordinate of the first row in the band
+     * @param rows The number of rows in the band
+     * @param rgb The packed pixels of the band
+     * @throws java.io.IOException If there is an error writing the band
+     */
+    public void writeBand(int y, int rows, int[] rgb) throws IOException
+    {
+        final int size = this.rowSize * rows;
+
+        if ((this.buffer == null) || (this.buffer.capacity() < size))
+        {
+            this.buffer = ByteBuffer.allocateDirect(size);
+        }
+
+        this.buffer.clear();
+
+        // the bottom row of the band comes first in the file
+        for (int j = rows - 1; j >= 0; --j)
+        {
+            int index = j * this.width;
+
+            for (int i = 0; i < this.width; ++i)
+            {
+                final int pixel = rgb[index++];
+
+                this.buffer.put((byte) pixel);
+                this.buffer.put((byte) (pixel >> 8));
+                this.buffer.put((byte) (pixel >> 16));
+            }
+
+            for (int i = 3 * this.width; i < this.rowSize; ++i)
+            {
+                this.buffer.put((byte) 0);
+            }
+        }
+
+        this.buffer.flip();
+
+        writeFully(
+            this.buffer,
+            BMPOutput.HEADER_SIZE +
+            ((long) this.rowSize * (this.height - y - rows)));
+    }
+
+    /**
+     * Called when the last band has been written. Nothing needs to be done
+     * as every row is already in its place.
+     */
+    public void endImage()
+    {
+        this.buffer = null;
+    }
+
+    /**
+     * Write the whole of a buffer to the file at a given position
+     *
+     * @param buff The buffer to be written
+     * @param position The offset in the file of the first byte
+     * @throws java.io.IOException If there is an error writing the data
+     */
+    private void writeFully(ByteBuffer buff, long position)
+        throws IOException
+    {
+        long pos = position;
+
+        while (buff.hasRemaining())
+        {
+            pos += this.channel.write(buff, pos);
+        }
+    }
+}
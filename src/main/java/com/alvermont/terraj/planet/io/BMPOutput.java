@@ -82,6 +82,97 @@ public class BMPOutput
 
     // MagicNumber OFF
 
+    /** The size of the headers at the start of the file */
+    static final int HEADER_SIZE = 54;
+
+    /** The largest file size that can be held in the header */
+    private static final long MAX_FILE_SIZE = 0xffffffffL;
+
+    /**
+     * Get the number of bytes used to store each row of an image. Rows are
+     * padded to a multiple of four bytes.
+     *
+     * @param width The width of the image in pixels
+     * @return The number of bytes in each row of the file
+     */
+    static int getRowSize(int width)
+    {
+        final int w1 = ((3 * width) + 3);
+
+        return w1 - (w1 % 4);
+    }
+
+    /**
+     * Create the file and bitmap info headers for a 24 bit image
+     *
+     * @param width The width of the image in pixels
+     * @param height The height of the image in pixels
+     * @return The headers that start the file
+     * @throws java.io.IOException If the image is too large for a BMP file
+     */
+    static byte[] createHeader(int width, int height)
+        throws IOException
+    {
+        final long fileSize =
+            HEADER_SIZE + ((long) getRowSize(width) * height);
+
+        if (fileSize > MAX_FILE_SIZE)
+        {
+            throw new IOException(
+                "Image is too large for a BMP file: " + width + "x" + height);
+        }
+
+        final byte[] header = new byte[HEADER_SIZE];
+
+        header[0] = 0x42;
+        header[1] = 0x4d;
+
+        /* file size, unsigned */
+        putInt(header, 2, (int) fileSize);
+
+        /* offset to data */
+        putInt(header, 10, HEADER_SIZE);
+
+        /* size of infoheader */
+        putInt(header, 14, 40);
+
+        putInt(header, 18, width);
+        putInt(header, 22, height);
+
+        /* no. of planes = 1 */
+        header[26] = 1;
+
+        /* bpp */
+        header[28] = 24;
+
+        /* no compression and image size (unspecified) are left as zero */
+
+        /* h. pixels/m */
+        header[39] = 32;
+
+        /* v. pixels/m */
+        header[43] = 32;
+
+        /* colours used (unspecified) and important colours (all) are
+         * left as zero */
+        return header;
+    }
+
+    /**
+     * Store an int in little endian order
+     *
+     * @param buff The array to store the value into
+     * @param offset The index of the first byte to be set
+     * @param val The value to be stored
+     */
+    private static void putInt(byte[] buff, int offset, int val)
+    {
+        buff[offset] = (byte) val;
+        buff[offset + 1] = (byte) (val >> 8);
+        buff[offset + 2] = (byte) (val >> 16);
+        buff[offset + 3] = (byte) (val >> 24);
+    }
+
     /**
      * Write the results of the projection in BMP format to a specified
      * output stream
@@ -95,8 +186,6 @@ public class BMPOutput
     {
         int i;
         int j;
-        int s;
-        int w1;
 
         final int width =
             proj.getParameters()
@@ -109,103 +198,26 @@ public class BMPOutput
 
         final int[] col = new int[3];
 
-        out.write(0x42);
-        out.write(0x4d);
-
-        w1 = ((3 * width) + 3);
-        w1 -= (w1 % 4);
+        out.write(createHeader(width, height));
 
-        s = 54 + (w1 * height); /* file size */
-
-        out.write(s & 255);
-        out.write((s >> 8) & 255);
-        out.write((s >> 16) & 255);
-        out.write(s >> 24);
-
-        out.write(0);
-        out.write(0);
-        out.write(0);
-        out.write(0);
-
-        /* offset to data */
-        out.write(54);
-        out.write(0);
-        out.write(0);
-        out.write(0);
-
-        /* size of infoheader */
-        out.write(40);
-        out.write(0);
-        out.write(0);
-        out.write(0);
-
-        out.write(width & 255);
-        out.write((width >> 8) & 255);
-        out.write((width >> 16) & 255);
-        out.write(width >> 24);
-
-        out.write(height & 255);
-        out.write((height >> 8) & 255);
-        out.write((height >> 16) & 255);
-        out.write(height >> 24);
-
-        /* no. of planes = 1 */
-        out.write(1);
-        out.write(0);
-
-        /* bpp */
-        out.write(24);
-        out.write(0);
-
-        /* no compression */
-        out.write(0);
-        out.write(0);
-        out.write(0);
-        out.write(0);
-
-        /* image size (unspecified) */
-        out.write(0);
-        out.write(0);
-        out.write(0);
-        out.write(0);
-
-        /* h. pixels/m */
-        out.write(0);
-        out.write(32);
-        out.write(0);
-        out.write(0);
-
-        /* v. pixels/m */
-        out.write(0);
-        out.write(32);
-        out.write(0);
-        out.write(0);
-
-        /* colours used (unspecified) */
-        out.write(0);
-        out.write(0);
-        out.write(0);
-        out.write(0);
-
-        /* important colours (all) */
-        out.write(0);
-        out.write(0);
-        out.write(0);
-        out.write(0);
+        // each row is built up and written in one go, the padding at the
+        // end of it is always left as zero
+        final byte[] row = new byte[getRowSize(width)];
 
         for (j = height - 1; j >= 0; --j)
         {
+            int index = 0;
+
             for (i = 0; i < width; ++i)
             {
                 proj.fillRGB(i, j, col);
 
-                out.write(col[2]);
-                out.write(col[1]);
-                out.write(col[0]);
+                row[index++] = (byte) col[2];
+                row[index++] = (byte) col[1];
+                row[index++] = (byte) col[0];
             }
 
-            for (i = 3 * width; i < w1; ++i)
-                out.write(0);
+            out.write(row);
         }
     }
 }
@@ -0,0 +1,472 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * HeightfieldWriter.java
+ *
+ * Created on October 18, 2026, 1:20 PM
+ *
+ */
+package com.alvermont.terraj.planet.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the altitudes from an altitude only render to a file. The
+ * altitudes can be written as raw 32 bit floats, or scaled to 16 bits
+ * either raw or as a binary PGM file, or as a single strip 32 bit floating
+ * point TIFF file. The rows are converted a few at a time as they are
+ * written so no second copy of the image is made.
+ *
+ * When 16 bit samples are written the altitudes are scaled linearly so
+ * that the minimum altitude is 0 and the maximum is 65535, with pixels that
+ * show the background also written as 0. The range defaults to the lowest
+ * and highest altitudes in the image and can be read back after writing
+ * so that the heights can be recovered.
+ *
+ * @version $Id$
+ */
+public class HeightfieldWriter
+{
+    /** The largest value of a 16 bit sample */
+    private static final int MAX_SAMPLE = 65535;
+
+    /** The number of bytes converted at a time */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The number of entries in the TIFF directory */
+    private static final int TIFF_ENTRIES = 11;
+
+    /** The offset of the pixel data in a TIFF file */
+    private static final int TIFF_DATA_OFFSET =
+        8 + 2 + (TIFF_ENTRIES * 12) + 4 + 2;
+
+    /**
+     * The file formats that can be written
+     */
+    public enum Format
+    {
+        /** Raw 32 bit IEEE floats in the byte order of the writer */
+        RAW_FLOAT(4),
+
+        /** Raw unsigned 16 bit samples in the byte order of the writer */
+        RAW_16(2),
+
+        /** A binary PGM file with 16 bit samples */
+        PGM(2),
+
+        /** A little endian TIFF file with 32 bit floating point samples */
+        TIFF(4);
+
+        /** The number of bytes in each sample */
+        private int sampleSize;
+
+        /**
+         * Create a new Format
+         *
+         * @param sampleSize The number of bytes in each sample
+         */
+        private Format(int sampleSize)
+        {
+            this.sampleSize = sampleSize;
+        }
+
+        /**
+         * Get the number of bytes in each sample
+         *
+         * @return The size of a sample in bytes
+         */
+        public int getSampleSize()
+        {
+            return this.sampleSize;
+        }
+
+        /**
+         * Choose the format for a file from its extension. Files ending
+         * .r16 are raw 16 bit, .pgm are PGM, .tif or .tiff are TIFF and
+         * anything else is raw floats.
+         *
+         * @param file The file that is to be written
+         * @return The format to write it in
+         */
+        public static Format forFile(File file)
+        {
+            final String name = file.getName()
+                    .toLowerCase();
+
+            if (name.endsWith(".r16"))
+            {
+                return RAW_16;
+            }
+            else if (name.endsWith(".pgm"))
+            {
+                return PGM;
+            }
+            else if (name.endsWith(".tif") || name.endsWith(".tiff"))
+            {
+                return TIFF;
+            }
+
+            return RAW_FLOAT;
+        }
+    }
+
+    /**
+     * Creates a new instance of HeightfieldWriter
+     *
+     * @param format The format of the files to be written
+     */
+    public HeightfieldWriter(Format format)
+    {
+        this.format = format;
+    }
+
+    /**
+     * Write an array of altitudes
+     *
+     * @param altitudes The altitudes, row by row, with <code>NaN</code> for
+     * pixels that show the background
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param channel The channel to write the file to. It is left open.
+     * @throws java.io.IOException If there is an error writing the file
+     * or the image is too large for the format
+     */
+    public void write(
+        float[] altitudes, int width, int height, WritableByteChannel channel)
+        throws IOException
+    {
+        if (altitudes.length < ((long) width * height))
+        {
+            throw new IllegalArgumentException(
+                "Too few altitudes for a " + width + "x" + height + " image");
+        }
+
+        findRange(altitudes, width * height);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        switch (this.format)
+        {
+            case PGM:
+                buffer.order(ByteOrder.BIG_ENDIAN);
+                buffer.put(
+                    ("P5\n" + width + " " + height + "\n" + MAX_SAMPLE + "\n").getBytes(
+                        "US-ASCII"));
+
+                break;
+
+            case TIFF:
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                putTIFFHeader(buffer, width, height);
+
+                break;
+
+            default:
+                buffer.order(this.byteOrder);
+
+                break;
+        }
+
+        final double scale =
+            (this.maximum > this.minimum)
+            ? (MAX_SAMPLE / (this.maximum - this.minimum)) : 0.0;
+        final int samples = width * height;
+        final int sampleSize = this.format.getSampleSize();
+
+        for (int i = 0; i < samples; ++i)
+        {
+            if (buffer.remaining() < sampleSize)
+            {
+                drain(buffer, channel);
+            }
+
+            final float alt = altitudes[i];
+
+            if (sampleSize == 4)
+            {
+                buffer.putFloat(alt);
+            }
+            else if (Float.isNaN(alt))
+            {
+                buffer.putShort((short) 0);
+            }
+            else
+            {
+                final long sample = Math.round((alt - this.minimum) * scale);
+
+                buffer.putShort(
+                    (short) Math.max(0, Math.min(MAX_SAMPLE, sample)));
+            }
+        }
+
+        drain(buffer, channel);
+    }
+
+    /**
+     * Work out the range of altitudes to be scaled to 16 bits, unless it
+     * has been set
+     *
+     * @param altitudes The altitudes to be written
+     * @param samples The number of altitudes in the image
+     */
+    private void findRange(float[] altitudes, int samples)
+    {
+        if (!Double.isNaN(this.rangeMinimum) && !Double.isNaN(this.rangeMaximum))
+        {
+            this.minimum = this.rangeMinimum;
+            this.maximum = this.rangeMaximum;
+
+            return;
+        }
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < samples; ++i)
+        {
+            final float alt = altitudes[i];
+
+            if (alt < min)
+            {
+                min = alt;
+            }
+
+            if (alt > max)
+            {
+                max = alt;
+            }
+        }
+
+        if (min > max)
+        {
+            // nothing but background
+            min = 0.0;
+            max = 0.0;
+        }
+
+        this.minimum = min;
+        this.maximum = max;
+    }
+
+    /**
+     * Put the header and image directory of a TIFF file into a buffer
+     *
+     * @param buffer The buffer, which must be little endian
+     * @param width The width of the image
+     * @param height The height of the image
+     * @throws java.io.IOException If the image is too large for a TIFF file
+     */
+    private void putTIFFHeader(ByteBuffer buffer, int width, int height)
+        throws IOException
+    {
+        final long bytes = (long) width * height * 4;
+
+        if ((bytes + TIFF_DATA_OFFSET) > 0xffffffffL)
+        {
+            throw new IOException(
+                "Image is too large for a TIFF file: " + width + "x" + height);
+        }
+
+        // MagicNumber OFF
+        buffer.put((byte) 'I')
+            .put((byte) 'I')
+            .putShort((short) 42)
+            .putInt(8);
+
+        buffer.putShort((short) TIFF_ENTRIES);
+
+        putTIFFLong(buffer, 256, width);         // ImageWidth
+        putTIFFLong(buffer, 257, height);        // ImageLength
+        putTIFFShort(buffer, 258, 32);           // BitsPerSample
+        putTIFFShort(buffer, 259, 1);            // Compression: none
+        putTIFFShort(buffer, 262, 1);            // Photometric: black is zero
+        putTIFFLong(buffer, 273, TIFF_DATA_OFFSET); // StripOffsets
+        putTIFFShort(buffer, 277, 1);            // SamplesPerPixel
+        putTIFFLong(buffer, 278, height);        // RowsPerStrip
+        putTIFFLong(buffer, 279, (int) bytes);   // StripByteCounts
+        putTIFFShort(buffer, 284, 1);            // PlanarConfiguration
+        putTIFFShort(buffer, 339, 3);            // SampleFormat: IEEE float
+
+        // no more directories, then pad the data to a word boundary
+        buffer.putInt(0);
+        buffer.putShort((short) 0);
+
+        // MagicNumber ON
+    }
+
+    /**
+     * Put a TIFF directory entry with a single short value into a buffer
+     *
+     * @param buffer The buffer to put the entry into
+     * @param tag The tag of the entry
+     * @param value The value of the entry
+     */
+    private static void putTIFFShort(ByteBuffer buffer, int tag, int value)
+    {
+        // MagicNumber OFF
+        buffer.putShort((short) tag)
+            .putShort((short) 3)
+            .putInt(1)
+            .putShort((short) value)
+            .putShort((short) 0);
+
+        // MagicNumber ON
+    }
+
+    /**
+     * Put a TIFF directory entry with a single long value into a buffer
+     *
+     * @param buffer The buffer to put the entry into
+     * @param tag The tag of the entry
+     * @param value The value of the entry
+     */
+    private static void putTIFFLong(ByteBuffer buffer, int tag, int value)
+    {
+        // MagicNumber OFF
+        buffer.putShort((short) tag)
+            .putShort((short) 4)
+            .putInt(1)
+            .putInt(value);
+
+        // MagicNumber ON
+    }
+
+    /**
+     * Write out the contents of a buffer and clear it
+     *
+     * @param buffer The buffer to be written
+     * @param channel The channel to write it to
+     * @throws java.io.IOException If there is an error writing the buffer
+     */
+    private static void drain(ByteBuffer buffer, WritableByteChannel channel)
+        throws IOException
+    {
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    /** The format of the files written */
+    private Format format;
+
+    /** The lowest altitude of the range used for the last file */
+    private double minimum;
+
+    /** The highest altitude of the range used for the last file */
+    private double maximum;
+
+    /**
+     * Get the altitude that was written as 0 in the last 16 bit file
+     *
+     * @return The lowest altitude of the range
+     */
+    public double getMinimum()
+    {
+        return this.minimum;
+    }
+
+    /**
+     * Get the altitude that was written as 65535 in the last 16 bit file
+     *
+     * @return The highest altitude of the range
+     */
+    public double getMaximum()
+    {
+        return this.maximum;
+    }
+
+    /**
+     * Set the range of altitudes that are scaled to 16 bits, instead of
+     * using the range found in each image. This keeps the scaling the same
+     * across a set of files.
+     *
+     * @param minimum The altitude to be written as 0
+     * @param maximum The altitude to be written as 65535
+     */
+    public void setRange(double minimum, double maximum)
+    {
+        this.rangeMinimum = minimum;
+        this.rangeMaximum = maximum;
+    }
+
+    /** The lowest altitude of the range set by the caller */
+    private double rangeMinimum = Double.NaN;
+
+    /** The highest altitude of the range set by the caller */
+    private double rangeMaximum = Double.NaN;
+
+    /** Holds value of property byteOrder */
+    private ByteOrder byteOrder = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * Getter for property byteOrder
+     *
+     * @return The value of property byteOrder
+     */
+    public ByteOrder getByteOrder()
+    {
+        return byteOrder;
+    }
+
+    /**
+     * Setter for property byteOrder (the byte order of raw files)
+     *
+     * @param byteOrder The new value of property byteOrder
+     */
+    public void setByteOrder(ByteOrder byteOrder)
+    {
+        this.byteOrder = byteOrder;
+    }
+}
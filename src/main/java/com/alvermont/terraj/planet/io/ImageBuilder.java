@@ -50,6 +50,7 @@
  */
 package com.alvermont.terraj.planet.io;
 
+import com.alvermont.terraj.planet.project.AbstractProjector;
 import com.alvermont.terraj.planet.project.Projector;
 import java.awt.Transparency;
 import java.awt.color.ColorSpace;
@@ -58,6 +59,7 @@ import java.awt.image.ColorModel;
 import java.awt.image.ComponentColorModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import org.apache.commons.logging.Log;
@@ -137,12 +139,22 @@ public class ImageBuilder
      * result of the projection. This image can then be further processed
      * or written out to a file using <code>ImageIO</code>.
      *
+     * Projections derived from <code>AbstractProjector</code> write their
+     * pixels directly into the data buffer of an image of type
+     * <code>TYPE_INT_RGB</code>, a row at a time. Any other projection is
+     * converted one pixel at a time.
+     *
      * @param proj The projection that will provide the image
      * @return A <code>BufferedImage</code> object containing the results of
      * the projection.
      */
     public BufferedImage getImage(Projector proj)
     {
+        if (proj instanceof AbstractProjector)
+        {
+            return getPackedImage((AbstractProjector) proj);
+        }
+
         // get the pixel data and store it into a data buffer
         final byte[] pixels = getPixels(proj);
 
@@ -180,4 +192,97 @@ public class ImageBuilder
 
         return img;
     }
+
+    /**
+     * Create an image with one packed integer per pixel and have the
+     * projection fill in its data buffer
+     *
+     * @param proj The projection that will provide the image
+     * @return A <code>BufferedImage</code> object containing the results of
+     * the projection.
+     */
+    protected BufferedImage getPackedImage(AbstractProjector proj)
+    {
+        final int height =
+            proj.getParameters()
+                .getProjectionParameters()
+                .getHeight();
+        final int width =
+            proj.getParameters()
+                .getProjectionParameters()
+                .getWidth();
+
+        final BufferedImage img =
+            new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        final int[] data =
+            ((DataBufferInt) img.getRaster()
+                .getDataBuffer()).getData();
+
+        proj.getRGB(0, 0, width, height, data, 0, width);
+
+        return img;
+    }
+
+    /**
+     * Render a rectangle of a projection's image as an image of its own,
+     * generating only the terrain of the rectangle. The result is the same
+     * as cropping the whole image.
+     *
+     * @param proj The projection that will provide the image
+     * @param x The x coordinate of the left edge of the rectangle
+     * @param y The y coordinate of the top edge of the rectangle
+     * @param w The width of the rectangle
+     * @param h The height of the rectangle
+     * @return A <code>BufferedImage</code> object of size w by h containing
+     * the rectangle of the projection
+     */
+    public BufferedImage getRegionImage(
+        AbstractProjector proj, int x, int y, int w, int h)
+    {
+        final BufferedImage img =
+            new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+
+        final int[] data =
+            ((DataBufferInt) img.getRaster()
+                .getDataBuffer()).getData();
+
+        proj.projectRegion(x, y, w, h, data);
+
+        return img;
+    }
+
+    /**
+     * Create an image of the surface normals of the last render of a
+     * projection, as used for bump mapping. The projection must have been
+     * told to keep its altitudes before it was run.
+     *
+     * @param proj The projection that will provide the altitudes
+     * @param strength The factor the slopes of the terrain are multiplied by
+     * @return A <code>BufferedImage</code> object the same size as the
+     * image of the projection holding the normals in tangent space
+     * @see AbstractProjector#getNormals
+     */
+    public BufferedImage getNormalImage(AbstractProjector proj, double strength)
+    {
+        final int height =
+            proj.getParameters()
+                .getProjectionParameters()
+                .getHeight();
+        final int width =
+            proj.getParameters()
+                .getProjectionParameters()
+                .getWidth();
+
+        final BufferedImage img =
+            new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        final int[] data =
+            ((DataBufferInt) img.getRaster()
+                .getDataBuffer()).getData();
+
+        proj.getNormals(strength, data, 0, width);
+
+        return img;
+    }
 }
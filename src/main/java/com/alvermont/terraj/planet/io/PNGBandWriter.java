@@ -0,0 +1,355 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * PNGBandWriter.java
+ *
+ * Created on October 17, 2026, 11:05 AM
+ *
+ */
+package com.alvermont.terraj.planet.io;
+
+import com.alvermont.terraj.planet.project.BandConsumer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes the bands of a projection to a .PNG file as they are produced.
+ * The rows are compressed as they arrive and written out in IDAT chunks so
+ * only one band of pixels and the compressor state are held in memory. The
+ * compressed data is collected until a whole chunk is full, so narrow
+ * bands don't produce lots of tiny chunks.
+ * ImageIO can not be used for this as it needs the whole image before it
+ * starts writing.
+ *
+ * Each row is stored with the PNG "up" filter, which works well for the
+ * smoothly varying colours of a terrain map.
+ *
+ * @version $Id$
+ */
+public class PNGBandWriter implements BandConsumer
+{
+    // MagicNumber OFF
+
+    /** The signature that starts every PNG file */
+    private static final byte[] SIGNATURE =
+        { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+
+    /** The size of the IDAT chunks that are written */
+    private static final int CHUNK_SIZE = 65536;
+
+    /** The filter type for the "up" filter */
+    private static final int FILTER_UP = 2;
+
+    // RequireThis OFF: SIGNATURE
+    // RequireThis OFF: CHUNK_SIZE
+    // RequireThis OFF: FILTER_UP
+
+    /** The channel the file is written to */
+    private WritableByteChannel channel;
+
+    /** The compressor used for the image data */
+    private Deflater deflater;
+
+    /** The checksum used for each chunk */
+    private CRC32 crc = new CRC32();
+
+    /** Buffer that chunks are assembled in before being written */
+    private ByteBuffer chunk;
+
+    /** Buffer that holds the compressed data for the next IDAT chunk */
+    private byte[] compressed;
+
+    /** The number of bytes of compressed data waiting to be written */
+    private int pending;
+
+    /** The current row, filter type first */
+    private byte[] row;
+
+    /** The previous row without its filter type */
+    private byte[] prior;
+
+    /** The width of the image being written */
+    private int width;
+
+    /**
+     * Creates a new instance of PNGBandWriter
+     *
+     * @param channel The channel the file will be written to. This is left
+     * open when the image has been written.
+     */
+    public PNGBandWriter(WritableByteChannel channel)
+    {
+        this.channel = channel;
+    }
+
+    /**
+     * Write the signature and header of the file
+     *
+     * @param width The width of the image in pixels
+     * @param height The height of the image in pixels
+     * @throws java.io.IOException If there is an error writing the header
+     */
+    public void startImage(int width, int height) throws IOException
+    {
+        this.width = width;
+        this.chunk = ByteBuffer.allocateDirect(CHUNK_SIZE + 12);
+        this.compressed = new byte[CHUNK_SIZE];
+        this.pending = 0;
+        this.row = new byte[(3 * width) + 1];
+        this.prior = new byte[3 * width];
+
+        this.chunk.put(SIGNATURE);
+        this.chunk.flip();
+        writeFully(this.chunk);
+
+        final byte[] header = new byte[13];
+
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+
+        /* 8 bits per sample, true colour */
+        header[8] = 8;
+        header[9] = 2;
+
+        /* deflate compression, adaptive filtering and no interlace are
+         * left as zero */
+        writeChunk("IHDR", header, header.length);
+
+        // created last so nothing above can fail and leave it unreleased
+        this.deflater = new Deflater();
+    }
+
+    /**
+     * Filter and compress the rows of a band
+     *
+     * @param y The y coordinate of the first row in the band
+     * @param rows The number of rows in the band
+     * @param rgb The packed pixels of the band
+     * @throws java.io.IOException If there is an error writing the data
+     */
+    public void writeBand(int y, int rows, int[] rgb) throws IOException
+    {
+        int index = 0;
+        boolean written = false;
+
+        this.row[0] = FILTER_UP;
+
+        try
+        {
+            for (int j = 0; j < rows; ++j)
+            {
+                int b = 0;
+
+                for (int i = 0; i < this.width; ++i)
+                {
+                    final int pixel = rgb[index++];
+
+                    b = putFiltered(b, pixel >> 16);
+                    b = putFiltered(b, pixel >> 8);
+                    b = putFiltered(b, pixel);
+                }
+
+                this.deflater.setInput(this.row);
+
+                while (!this.deflater.needsInput())
+                {
+                    deflate();
+                }
+            }
+
+            written = true;
+        }
+        finally
+        {
+            // the image won't be finished so free the compressor now
+            if (!written)
+            {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Store one sample of the current row with the "up" filter applied
+     *
+     * @param b The index of the sample in the row
+     * @param sample The value of the sample, only the low 8 bits are used
+     * @return The index of the next sample
+     */
+    private int putFiltered(int b, int sample)
+    {
+        this.row[b + 1] = (byte) (sample - this.prior[b]);
+        this.prior[b] = (byte) sample;
+
+        return b + 1;
+    }
+
+    /**
+     * Flush the compressed data and write the end of the file
+     *
+     * @throws java.io.IOException If there is an error writing the data
+     */
+    public void endImage() throws IOException
+    {
+        try
+        {
+            this.deflater.finish();
+
+            while (!this.deflater.finished())
+            {
+                deflate();
+            }
+
+            if (this.pending > 0)
+            {
+                writeChunk("IDAT", this.compressed, this.pending);
+            }
+
+            writeChunk("IEND", this.compressed, 0);
+        }
+        finally
+        {
+            release();
+        }
+    }
+
+    /**
+     * Free the compressor and the row buffers
+     */
+    private void release()
+    {
+        if (this.deflater != null)
+        {
+            this.deflater.end();
+            this.deflater = null;
+        }
+
+        this.row = null;
+        this.prior = null;
+    }
+
+    /**
+     * Run the compressor, adding its output to the data for the next IDAT
+     * chunk, and write the chunk out once it is full
+     *
+     * @throws java.io.IOException If there is an error writing the data
+     */
+    private void deflate() throws IOException
+    {
+        this.pending +=
+            this.deflater.deflate(
+                this.compressed, this.pending,
+                this.compressed.length - this.pending);
+
+        if (this.pending == this.compressed.length)
+        {
+            writeChunk("IDAT", this.compressed, this.pending);
+
+            this.pending = 0;
+        }
+    }
+
+    /**
+     * Write a chunk to the file
+     *
+     * @param type The four letter type of the chunk
+     * @param data The array holding the data of the chunk
+     * @param length The number of bytes of data
+     * @throws java.io.IOException If there is an error writing the chunk
+     */
+    private void writeChunk(String type, byte[] data, int length)
+        throws IOException
+    {
+        final byte[] typeBytes = type.getBytes("US-ASCII");
+
+        this.crc.reset();
+        this.crc.update(typeBytes);
+        this.crc.update(data, 0, length);
+
+        this.chunk.clear();
+        this.chunk.putInt(length);
+        this.chunk.put(typeBytes);
+        this.chunk.put(data, 0, length);
+        this.chunk.putInt((int) this.crc.getValue());
+        this.chunk.flip();
+
+        writeFully(this.chunk);
+    }
+
+    /**
+     * Write the whole of a buffer to the channel
+     *
+     * @param buff The buffer to be written
+     * @throws java.io.IOException If there is an error writing the data
+     */
+    private void writeFully(ByteBuffer buff) throws IOException
+    {
+        while (buff.hasRemaining())
+        {
+            this.channel.write(buff);
+        }
+    }
+
+    /**
+     * Store an int in big endian order
+     *
+     * @param buff The array to store the value into
+     * @param offset The index of the first byte to be set
+     * @param val The value to be stored
+     */
+    private static void putInt(byte[] buff, int offset, int val)
+    {
+        buff[offset] = (byte) (val >> 24);
+        buff[offset + 1] = (byte) (val >> 16);
+        buff[offset + 2] = (byte) (val >> 8);
+        buff[offset + 3] = (byte) val;
+    }
+
+    // MagicNumber ON
+}
@@ -0,0 +1,342 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * TileCache.java
+ *
+ * Created on October 17, 2026, 8:15 PM
+ *
+ */
+package com.alvermont.terraj.planet.io;
+
+import com.alvermont.terraj.planet.project.TileGenerator;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A disk cache of map tiles that renders tiles as they are asked for. The
+ * tiles are stored as <code>key/zoom/x/y.png</code> under the cache
+ * directory, where the key identifies the planet and drawing parameters,
+ * so several planets can share one cache. When the files take up more than
+ * the size limit the least recently used tiles are deleted. Tiles already
+ * in the directory when the cache is created are included, oldest first.
+ *
+ * Tiles are handed out as the bytes of the PNG file, read while the cache
+ * is locked, so another thread trimming the cache can't delete a tile
+ * between it being found and being read.
+ *
+ * @version $Id$
+ */
+public class TileCache
+{
+    /** Our logging object */
+    private static Log log = LogFactory.getLog(TileCache.class);
+
+    /** The generator used to render tiles that are not in the cache */
+    private final TileGenerator generator;
+
+    /** The directory holding the tiles for this generator */
+    private final File directory;
+
+    /** The largest number of bytes of tiles to keep */
+    private final long maxBytes;
+
+    /** The size of each cached tile file, in order of use */
+    private final LinkedHashMap<File, Long> entries =
+        new LinkedHashMap<File, Long>(16, 0.75f, true);
+
+    /** The total size of the cached tiles */
+    private long totalBytes;
+
+    /** The number of tiles found in the cache */
+    private long hits;
+
+    /** The number of tiles that had to be rendered */
+    private long misses;
+
+    /**
+     * Creates a new instance of TileCache
+     *
+     * @param generator The generator used to render tiles
+     * @param root The directory the cache is kept under
+     * @param maxBytes The largest number of bytes of tiles to keep for this
+     * generator
+     */
+    public TileCache(TileGenerator generator, File root, long maxBytes)
+    {
+        this.generator = generator;
+        this.directory = new File(root, generator.getKey());
+        this.maxBytes = maxBytes;
+
+        final List<File> existing = new ArrayList<File>();
+
+        findTiles(this.directory, existing);
+
+        final File[] files = existing.toArray(new File[existing.size()]);
+
+        Arrays.sort(
+            files,
+            new Comparator<File>()
+            {
+                public int compare(File f1, File f2)
+                {
+                    final long m1 = f1.lastModified();
+                    final long m2 = f2.lastModified();
+
+                    return (m1 < m2) ? (-1) : ((m1 == m2) ? 0 : 1);
+                }
+            });
+
+        synchronized (this)
+        {
+            for (File f : files)
+            {
+                this.entries.put(f, f.length());
+                this.totalBytes += f.length();
+            }
+
+            trim();
+        }
+
+        log.debug(
+            "Tile cache " + this.directory + " holds " + files.length +
+            " tiles");
+    }
+
+    /**
+     * Add all the tile files under a directory to a list
+     *
+     * @param dir The directory to be searched
+     * @param found The list the files are added to
+     */
+    private void findTiles(File dir, List<File> found)
+    {
+        final File[] files = dir.listFiles();
+
+        if (files != null)
+        {
+            for (File f : files)
+            {
+                if (f.isDirectory())
+                {
+                    findTiles(f, found);
+                }
+                else if (f.getName().endsWith(".png"))
+                {
+                    found.add(f);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get a tile, rendering it first if it isn't already in the cache
+     *
+     * @param zoom The zoom level of the tile
+     * @param x The column of the tile
+     * @param y The row of the tile
+     * @return The contents of the PNG file holding the tile
+     * @throws java.io.IOException If there is an error writing or reading
+     * the tile
+     */
+    public byte[] getTile(int zoom, int x, int y) throws IOException
+    {
+        final File column =
+            new File(
+                new File(this.directory, Integer.toString(zoom)),
+                Integer.toString(x));
+        final File file = new File(column, y + ".png");
+
+        synchronized (this)
+        {
+            if (this.entries.get(file) != null)
+            {
+                ++this.hits;
+
+                file.setLastModified(System.currentTimeMillis());
+
+                return readTile(file);
+            }
+
+            ++this.misses;
+        }
+
+        if (!column.isDirectory() && !column.mkdirs() && !column.isDirectory())
+        {
+            throw new IOException("Unable to create directory: " + column);
+        }
+
+        // render to a temporary file so a partly written tile is never seen
+        final File temp = File.createTempFile("tile", ".tmp", column);
+
+        try
+        {
+            this.generator.writeTile(zoom, x, y, temp);
+
+            if (!temp.renameTo(file))
+            {
+                file.delete();
+
+                if (!temp.renameTo(file))
+                {
+                    throw new IOException("Unable to create tile: " + file);
+                }
+            }
+        }
+        finally
+        {
+            temp.delete();
+        }
+
+        synchronized (this)
+        {
+            final Long old = this.entries.put(file, file.length());
+
+            if (old != null)
+            {
+                this.totalBytes -= old;
+            }
+
+            this.totalBytes += file.length();
+
+            // the newest tile is never trimmed so it can be read afterwards
+            trim();
+
+            return readTile(file);
+        }
+    }
+
+    /**
+     * Read the contents of a tile file
+     *
+     * @param file The file to be read
+     * @return The bytes of the file
+     * @throws java.io.IOException If there is an error reading the file
+     */
+    private byte[] readTile(File file) throws IOException
+    {
+        final byte[] data = new byte[(int) file.length()];
+        final DataInputStream in =
+            new DataInputStream(new FileInputStream(file));
+
+        try
+        {
+            in.readFully(data);
+        }
+        finally
+        {
+            in.close();
+        }
+
+        return data;
+    }
+
+    /**
+     * Delete the least recently used tiles until the cache is within its
+     * size limit
+     */
+    private synchronized void trim()
+    {
+        final Iterator<Map.Entry<File, Long>> it =
+            this.entries.entrySet()
+                .iterator();
+
+        // the most recently used tile is always kept
+        while ((this.totalBytes > this.maxBytes) && (this.entries.size() > 1))
+        {
+            final Map.Entry<File, Long> eldest = it.next();
+
+            it.remove();
+
+            this.totalBytes -= eldest.getValue();
+
+            if (!eldest.getKey().delete())
+            {
+                log.warn("Unable to delete cached tile: " + eldest.getKey());
+            }
+        }
+    }
+
+    /**
+     * Get the number of tiles that were found in the cache
+     *
+     * @return The number of cache hits
+     */
+    public synchronized long getHits()
+    {
+        return this.hits;
+    }
+
+    /**
+     * Get the number of tiles that had to be rendered
+     *
+     * @return The number of cache misses
+     */
+    public synchronized long getMisses()
+    {
+        return this.misses;
+    }
+
+    /**
+     * Get the total size of the tiles in the cache
+     *
+     * @return The number of bytes used by the cached tiles
+     */
+    public synchronized long getSize()
+    {
+        return this.totalBytes;
+    }
+}
@@ -54,7 +54,23 @@ package com.alvermont.terraj.planet.project;
 import com.alvermont.terraj.fracplanet.util.DummyProgress;
 import com.alvermont.terraj.fracplanet.util.Progress;
 import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.AltitudeSampler;
+import com.alvermont.terraj.planet.PlanetContext;
 import com.alvermont.terraj.planet.PlanetGen;
+import com.alvermont.terraj.planet.ProjectionParameters;
+import com.alvermont.terraj.planet.raster.RasterFactory;
+import com.alvermont.terraj.planet.raster.ShortRaster;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -68,12 +84,69 @@ public abstract class AbstractProjector extends PlanetGen
 {
     /** Our logging object */
     private static Log log = LogFactory.getLog(AbstractProjector.class);
-    short[][] colours;
-    short[][] shades;
+
+    /** The colour index of each pixel in the window being rendered */
+    ShortRaster colours;
+
+    /** The shade of each pixel in the window being rendered, only
+     * allocated when shading is enabled */
+    ShortRaster shades;
+
+    /** The altitude of each pixel in the window being rendered, row by
+     * row, only allocated for altitude only renders or when altitudes are
+     * to be kept */
+    float[] altitudes;
+
+    /** The exact altitude of each pixel in the window, with
+     * <code>NaN</code> for the background, only kept when the image is to
+     * be recoloured */
+    double[] surfaceAltitudes;
+
+    /** The y coordinate of the point on the planet shown by each pixel in
+     * the window, kept with the exact altitudes so that the pixels can be
+     * coloured again by latitude */
+    double[] surfaceY;
+
+    /** The pixels of the window that have been drawn over by
+     * <code>plot()</code>, recorded when the image is to be recoloured so
+     * that recolouring leaves grid lines alone */
+    private BitSet plotted;
+
+    /** The x coordinate of the first column held in the colour array */
+    int windowX;
+
+    /** The y coordinate of the first row held in the colour array */
+    int windowY;
+
+    /** The number of columns held in the colour array */
+    int windowWidth;
+
+    /** The number of rows held in the colour array */
+    int windowHeight;
+
+    /** Set while <code>projectBands()</code> renders part of the image */
+    private boolean windowed;
+
+    /** Set once the y range of the whole image is known in banded mode */
+    private boolean yRangeKnown;
+
+    /** The pixel mapping of the window being rendered, used to find the y
+     * range of the whole image if it is needed */
+    private PixelMapper windowMapper;
 
     /** Object for progress reporting */
     protected Progress progress = new DummyProgress();
 
+    /** The pool used to generate tiles in parallel */
+    static final ForkJoinPool TILE_POOL =
+        new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /** The width and height of the tiles the image is divided into */
+    private static final int TILE_SIZE = 64;
+
+    // RequireThis OFF: TILE_POOL
+    // RequireThis OFF: TILE_SIZE
+
     /** Fixed colour index for black */
     public static final int BLACK = 0;
 
@@ -126,6 +199,33 @@ public abstract class AbstractProjector extends PlanetGen
     /** Table of blue colour values */
     private int[] btable = new int[COLOUR_TABLE_SIZE];
 
+    /** Table of colour values packed as 0xRRGGBB, built from the separate
+     * tables for converting unshaded pixels */
+    private int[] palette = new int[COLOUR_TABLE_SIZE];
+
+    /** Table of shaded colour values packed as 0xRRGGBB, indexed by the
+     * shade times 256 plus the colour. Found when first needed after the
+     * colour tables are set up. */
+    private int[] shadedPalette;
+
+    /** The number of shaded colour tables kept for sharing */
+    private static final int SHARED_PALETTES = 8;
+
+    /** Shaded colour tables that have been built, shared read only between
+     * all the projectors using the same colours, least recently used first */
+    private static final Map<PaletteKey, int[]> SHADED_PALETTES =
+        new LinkedHashMap<PaletteKey, int[]>(SHARED_PALETTES, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(
+                Map.Entry<PaletteKey, int[]> eldest)
+            {
+                return size() > SHARED_PALETTES;
+            }
+        };
+
+    /** The alpha value of an opaque pixel in packed ARGB form */
+    private static final int OPAQUE = 0xff000000;
+
     // MagicNumber OFF
 
     /** An alternate set of colours */
@@ -225,200 +325,1325 @@ public abstract class AbstractProjector extends PlanetGen
 
         setLatic(getParameters().getProjectionParameters().isLatic());
         setAltColors(getParameters().getProjectionParameters().isAltColors());
-        setDoShade(getParameters().getProjectionParameters().isDoShade());
+        setAltitudeOnly(
+            getParameters().getProjectionParameters().isAltitudeOnly());
+        setDoShade(
+            getParameters().getProjectionParameters().isDoShade() &&
+            !isAltitudeOnly());
+        setParallel(getParameters().getProjectionParameters().isParallel());
     }
 
     /**
-     * Set up all the colour shades that will be used. The basic set of
-     * colours are interpolated to give a range of shades
+     * Interface implemented by projections to map a pixel of the image back
+     * to a point on the surface of the planet. Pixels may be mapped
+     * concurrently by different threads so an implementation must not
+     * modify any shared state other than the depth of the supplied context.
      */
-    protected void setcolours()
+    protected interface PixelMapper
     {
-        int i;
+        /**
+         * Find the point on the planet that is shown by a pixel of the image
+         *
+         * @param ctx The context that will be used to evaluate the point. The
+         * mapping may change its depth if the level of detail needed varies
+         * across the image.
+         * @param i The x coordinate of the pixel
+         * @param j The y coordinate of the pixel
+         * @param point An array that will be set to the x, y and z coordinates
+         * of the point on the planet
+         * @return <code>true</code> if the pixel shows the planet or
+         * <code>false</code> if it shows the background
+         */
+        boolean mapPixel(PlanetContext ctx, int i, int j, double[] point);
+    }
 
-        if (getParameters()
-                .getProjectionParameters()
-                .isAltColors())
+    /**
+     * Task that generates a range of tiles, splitting itself so that the
+     * tiles are shared between the threads of the pool
+     */
+    private class TileTask extends RecursiveAction
+    {
+        /** The version of the serialized form of this class */
+        private static final long serialVersionUID = 1L;
+
+        /** The mapping to be used for each pixel */
+        private final PixelMapper mapper;
+
+        /** The first tile to be generated */
+        private final int start;
+
+        /** One more than the last tile to be generated */
+        private final int end;
+
+        /** Counter of tiles completed, used for progress reporting */
+        private final AtomicInteger completed;
+
+        /**
+         * Creates a new instance of TileTask
+         *
+         * @param mapper The mapping to be used for each pixel
+         * @param start The first tile to be generated
+         * @param end One more than the last tile to be generated
+         * @param completed Counter of tiles completed by all tasks
+         */
+        public TileTask(
+            PixelMapper mapper, int start, int end, AtomicInteger completed)
         {
-            final int crow;
+            this.mapper = mapper;
+            this.start = start;
+            this.end = end;
+            this.completed = completed;
+        }
 
-            if (nocols < 8)
+        /**
+         * Generate the tiles or split the work into two halves
+         */
+        protected void compute()
+        {
+            if ((this.end - this.start) <= 1)
             {
-                nocols = 8;
+                final PlanetContext ctx = createContext();
+                final TerrainStatistics stats = createStatistics();
+
+                for (int t = this.start; (t < this.end) && !cancelled; ++t)
+                {
+                    generateTile(this.mapper, ctx, stats, t);
+
+                    final int done = this.completed.incrementAndGet();
+
+                    synchronized (progress)
+                    {
+                        progress.progressStep(done - 1);
+                    }
+                }
+
+                addCacheStatistics(ctx);
+                addStatistics(stats);
             }
+            else
+            {
+                final int mid = (this.start + this.end) >>> 1;
 
-            /*
-             *        This color table tries to follow the coloring conventions of
-             *        several atlases.
-             *
-             *        The first two colors are reserved for black and white
-             *        1/4 of the colors are blue for the sea, dark being deep
-             *        3/4 of the colors are land, divided as follows:
-             *         nearly 1/2 of the colors are greens, with the low being dark
-             *         1/8 of the colors shade from green through brown to grey
-             *         1/8 of the colors are shades of grey for the highest altitudes
-             *
-             *        The minimum color table is:
-             *            0        Black
-             *            1        White
-             *            2        Blue
-             *            3        Dark Green
-             *            4        Green
-             *            5        Light Green
-             *            6        Brown
-             *            7        Grey
-             *        and doesn't look very good. Somewhere between 24 and 32 colors
-             *        is where this scheme starts looking good. 256, of course, is best.
-             */
-            this.colourLand0 = Math.max(nocols / 4, BLUE0 + 1);
-            colourBlue1 = this.colourLand0 - 1;
-            this.colourGrey0 = nocols - (nocols / 8);
-            this.colourGreen1 = Math.min(
-                    this.colourLand0 + (nocols / 2), this.colourGrey0 - 2);
-            this.colourBrown0 = (this.colourGreen1 + this.colourGrey0) / 2;
-            this.colourLand1 = nocols - 1;
+                invokeAll(
+                    new TileTask(this.mapper, this.start, mid, this.completed),
+                    new TileTask(this.mapper, mid, this.end, this.completed));
+            }
+        }
+    }
 
-            final int[][] colors =
-                getParameters()
-                    .getProjectionParameters()
-                    .getColors();
+    /**
+     * Generate the terrain for every pixel of the image. The image is
+     * divided into square tiles which are either shared between a pool of
+     * threads, if parallel generation is enabled, or generated in order on
+     * the calling thread. Each tile is started with an empty context so the
+     * result is the same whichever way the tiles are generated. Progress is
+     * reported as the number of tiles completed and generation stops early
+     * if <code>cancel()</code> is called, whether that happens before or
+     * after generation starts.
+     *
+     * When a band of the image is being rendered by
+     * <code>projectBands()</code> only the pixels of the current window are
+     * generated. The range of y coordinates used for grid lines is then
+     * found for the whole image when it is first asked for.
+     *
+     * If an altitude grid has been set the terrain is looked up in the grid
+     * rather than generated.
+     *
+     * If statistics are being collected each thread counts the pixels it
+     * generates separately and the counts are added to the statistics of
+     * the image as each thread finishes. Only the pixels of the image
+     * itself are counted, not the borders of a window.
+     *
+     * When the whole image is generated and a <code>PointTable</code> has
+     * been recorded for an image of the same projection and framing it is
+     * used instead of the mapper. If there isn't one and point recording
+     * is enabled the mapping of each pixel is recorded in a new table.
+     *
+     * @param mapper The mapping from pixels to points on the planet
+     */
+    protected void generatePixels(final PixelMapper mapper)
+    {
+        if (
+            (this.altitudeGrid != null) &&
+                !this.altitudeGrid.matches(getParameters()))
+        {
+            throw new IllegalStateException(
+                "The altitude grid holds a different planet");
+        }
 
-            this.rtable[BLACK] = colors[C_INDEX_SPACE][0];
-            this.gtable[BLACK] = colors[C_INDEX_SPACE][0];
-            this.btable[BLACK] = colors[C_INDEX_SPACE][0];
+        this.tilesAcross = ((this.windowWidth + TILE_SIZE) - 1) / TILE_SIZE;
 
-            this.rtable[WHITE] = colors[C_INDEX_PEAK][0];
-            this.gtable[WHITE] = colors[C_INDEX_PEAK][1];
-            this.btable[WHITE] = colors[C_INDEX_PEAK][2];
+        final int tiles =
+            this.tilesAcross * (((this.windowHeight + TILE_SIZE) - 1) / TILE_SIZE);
 
-            this.rtable[BLUE0] = colors[C_INDEX_DEPTHS][0];
-            this.gtable[BLUE0] = colors[C_INDEX_DEPTHS][1];
-            this.btable[BLUE0] = colors[C_INDEX_DEPTHS][2];
+        this.cacheLookups = 0;
+        this.cacheHits = 0;
+        this.cacheLevelsSkipped = 0;
 
-            for (i = BLUE0 + 1; i <= colourBlue1; ++i)
-            {
-                this.rtable[i] = ((colors[C_INDEX_DEPTHS][0] * (colourBlue1 -
-                        i)) + (colors[C_INDEX_SHORES][0] * (i - BLUE0))) / (colourBlue1 -
-                        BLUE0);
-                this.gtable[i] = ((colors[C_INDEX_DEPTHS][1] * (colourBlue1 -
-                        i)) + (colors[C_INDEX_SHORES][1] * (i - BLUE0))) / (colourBlue1 -
-                        BLUE0);
-                this.btable[i] = ((colors[C_INDEX_DEPTHS][2] * (colourBlue1 -
-                        i)) + (colors[C_INDEX_SHORES][2] * (i - BLUE0))) / (colourBlue1 -
-                        BLUE0);
-            }
+        if (this.windowed)
+        {
+            this.windowMapper = mapper;
+        }
+        else
+        {
+            this.stoppedEarly = false;
 
-            for (i = this.colourLand0; i < this.colourGreen1; ++i)
-            {
-                this.rtable[i] = ((colors[C_INDEX_LOW][0] * (this.colourGreen1 -
-                        i)) +
-                    (colors[C_INDEX_HIGH][0] * (i - this.colourLand0))) / (this.colourGreen1 -
-                        this.colourLand0);
-                this.gtable[i] = ((colors[C_INDEX_LOW][1] * (this.colourGreen1 -
-                        i)) +
-                    (colors[C_INDEX_HIGH][1] * (i - this.colourLand0))) / (this.colourGreen1 -
-                        this.colourLand0);
-                this.btable[i] = ((colors[C_INDEX_LOW][2] * (this.colourGreen1 -
-                        i)) +
-                    (colors[C_INDEX_HIGH][2] * (i - this.colourLand0))) / (this.colourGreen1 -
-                        this.colourLand0);
-            }
+            resetYRange();
 
-            for (i = this.colourGreen1; i < this.colourBrown0; ++i)
+            this.statisticsX = 0;
+            this.statisticsY = 0;
+            this.statisticsWidth = this.windowWidth;
+            this.statisticsHeight = this.windowHeight;
+            this.statistics = this.collectStatistics
+                ? new TerrainStatistics() : null;
+        }
+
+        PixelMapper tileMapper = mapper;
+        PointTable recording = null;
+
+        if (!this.windowed)
+        {
+            final ProjectionParameters pp =
+                getParameters()
+                    .getProjectionParameters();
+
+            final PointTable table =
+                PointTable.find(
+                    getClass(), pp.getWidth(), pp.getHeight(),
+                    pp.getLatitudeRadians(), pp.getLongitudeRadians(),
+                    pp.getScale());
+
+            if (table != null)
             {
-                this.rtable[i] = ((colors[C_INDEX_HIGH][0] * (this.colourBrown0 -
-                        i)) +
-                    (colors[C_INDEX_MOUNT][0] * (i - this.colourGreen1))) / (this.colourBrown0 -
-                        this.colourGreen1);
-                this.gtable[i] = ((colors[C_INDEX_HIGH][1] * (this.colourBrown0 -
-                        i)) +
-                    (colors[C_INDEX_MOUNT][1] * (i - this.colourGreen1))) / (this.colourBrown0 -
-                        this.colourGreen1);
-                this.btable[i] = ((colors[C_INDEX_HIGH][2] * (this.colourBrown0 -
-                        i)) +
-                    (colors[C_INDEX_MOUNT][2] * (i - this.colourGreen1))) / (this.colourBrown0 -
-                        this.colourGreen1);
+                tileMapper = new PixelMapper()
+                        {
+                            public boolean mapPixel(
+                                PlanetContext ctx, int i, int j, double[] point)
+                            {
+                                return table.mapPixel(ctx, i, j, point);
+                            }
+                        };
             }
-
-            for (i = this.colourBrown0; i < this.colourGrey0; ++i)
+            else if (this.recordPoints)
             {
-                this.rtable[i] = ((colors[C_INDEX_MOUNT][0] * (this.colourGrey0 -
-                        i)) +
-                    (colors[C_INDEX_STONE][0] * (i - this.colourBrown0))) / (this.colourGrey0 -
-                        this.colourBrown0);
-                this.gtable[i] = ((colors[C_INDEX_MOUNT][1] * (this.colourGrey0 -
-                        i)) +
-                    (colors[C_INDEX_STONE][1] * (i - this.colourBrown0))) / (this.colourGrey0 -
-                        this.colourBrown0);
-                this.btable[i] = ((colors[C_INDEX_MOUNT][2] * (this.colourGrey0 -
-                        i)) +
-                    (colors[C_INDEX_STONE][2] * (i - this.colourBrown0))) / (this.colourGrey0 -
-                        this.colourBrown0);
+                recording = PointTable.create(
+                        getClass(), pp.getWidth(), pp.getHeight(),
+                        pp.getLatitudeRadians(), pp.getLongitudeRadians(),
+                        pp.getScale());
             }
+        }
 
-            for (i = this.colourGrey0; i < nocols; ++i)
+        if (recording != null)
+        {
+            final PointTable target = recording;
+
+            tileMapper = new PixelMapper()
+                    {
+                        public boolean mapPixel(
+                            PlanetContext ctx, int i, int j, double[] point)
+                        {
+                            final boolean onPlanet =
+                                mapper.mapPixel(ctx, i, j, point);
+
+                            target.record(ctx, i, j, point, onPlanet);
+
+                            return onPlanet;
+                        }
+                    };
+        }
+
+        progress.progressStart(tiles, "Generating Terrain");
+
+        if (isParallel())
+        {
+            TILE_POOL.invoke(
+                new TileTask(tileMapper, 0, tiles, new AtomicInteger()));
+        }
+        else
+        {
+            final PlanetContext ctx = createContext();
+            final TerrainStatistics stats = createStatistics();
+
+            for (int t = 0; (t < tiles) && !this.cancelled; ++t)
             {
-                this.rtable[i] = ((colors[C_INDEX_STONE][0] * (nocols - i)) +
-                    ((colors[C_INDEX_PEAK][0] + 1) * (i - this.colourGrey0))) / (nocols -
-                        this.colourGrey0);
-                this.gtable[i] = ((colors[C_INDEX_STONE][1] * (nocols - i)) +
-                    ((colors[C_INDEX_PEAK][1] + 1) * (i - this.colourGrey0))) / (nocols -
-                        this.colourGrey0);
-                this.btable[i] = ((colors[C_INDEX_STONE][2] * (nocols - i)) +
-                    ((colors[C_INDEX_PEAK][2] + 1) * (i - this.colourGrey0))) / (nocols -
-                        this.colourGrey0);
+                progress.progressStep(t);
+
+                generateTile(tileMapper, ctx, stats, t);
             }
+
+            addCacheStatistics(ctx);
+            addStatistics(stats);
+        }
+
+        if ((recording != null) && !this.cancelled)
+        {
+            PointTable.store(recording);
+        }
+
+        if (this.cacheLookups > 0)
+        {
+            log.debug(
+                "Subdivision cache hit rate " +
+                ((100 * this.cacheHits) / this.cacheLookups) +
+                "%, average levels skipped " +
+                ((double) this.cacheLevelsSkipped / this.cacheLookups));
+        }
+
+        if (this.cancelled)
+        {
+            progress.progressComplete("Terrain Generation Cancelled");
         }
         else
         {
-            this.rtable[BLACK] = 0;
-            this.gtable[BLACK] = 0;
-            this.btable[BLACK] = 0;
+            progress.progressComplete("Terrain Generated");
+        }
 
-            this.rtable[WHITE] = MAX_COMP_VALUE;
-            this.gtable[WHITE] = MAX_COMP_VALUE;
-            this.btable[WHITE] = MAX_COMP_VALUE;
+        if (!this.windowed)
+        {
+            endCancellation();
+        }
+    }
 
-            final int[][] colors =
-                getParameters()
-                    .getProjectionParameters()
-                    .getColors();
+    /**
+     * Generate the terrain for the pixels of one tile of the image
+     *
+     * @param mapper The mapping from pixels to points on the planet
+     * @param ctx The context to be used to evaluate the terrain
+     * @param stats The statistics to add the pixels to, or <code>null</code>
+     * if statistics are not being collected
+     * @param tile The index of the tile, counting across then down
+     */
+    private void generateTile(
+        PixelMapper mapper, PlanetContext ctx, TerrainStatistics stats,
+        int tile)
+    {
+        final int x0 = (tile % this.tilesAcross) * TILE_SIZE;
+        final int y0 = (tile / this.tilesAcross) * TILE_SIZE;
+        final int x1 = Math.min(x0 + TILE_SIZE, this.windowWidth);
+        final int y1 = Math.min(y0 + TILE_SIZE, this.windowHeight);
 
-            int lighter =
-                getParameters()
-                    .getProjectionParameters()
-                    .getLighterColours();
+        final double[] point = new double[3];
+        final double[] sample = new double[2];
+        double tileMin = 2.0;
+        double tileMax = -2.0;
 
-            if (lighter > 0)
-            {
-                log.debug("Lightening colours by: " + lighter);
-            }
+        ctx.invalidate();
 
-            while (--lighter > 0)
+        for (int j = y0; (j < y1) && !this.cancelled; ++j)
+        {
+            final boolean countRow =
+                (stats != null) && ((j + this.windowY) >= this.statisticsY) &&
+                ((j + this.windowY) < (this.statisticsY + this.statisticsHeight));
+
+            for (int i = x0; i < x1; ++i)
             {
-                int r;
-                int c;
-                double x;
+                final TerrainStatistics pixelStats =
+                    (countRow && ((i + this.windowX) >= this.statisticsX) &&
+                    ((i + this.windowX) < (this.statisticsX +
+                    this.statisticsWidth))) ? stats : null;
 
-                for (r = 0; r < 7; ++r)
+                if (
+                    mapper.mapPixel(
+                            ctx, i + this.windowX, j + this.windowY, point))
                 {
-                    for (c = 0; c < 3; ++c)
+                    if (point[1] < tileMin)
                     {
-                        x = Math.sqrt((double) colors[r][c] / 256.0);
-                        colors[r][c] = (int) ((240.0 * x) + 16);
+                        tileMin = point[1];
                     }
-                }
-            }
 
-            colourBlue1 = ((nocols - 4) / 2) + BLUE0;
+                    if (point[1] > tileMax)
+                    {
+                        tileMax = point[1];
+                    }
 
-            if (colourBlue1 == BLUE0)
-            {
-                this.rtable[BLUE0] = colors[C_INDEX_DEPTHS][0];
-                this.gtable[BLUE0] = colors[C_INDEX_DEPTHS][1];
-                this.btable[BLUE0] = colors[C_INDEX_DEPTHS][2];
-            }
-            else
+                    if ((this.altitudes != null) || (this.surfaceY != null))
+                    {
+                        double alt;
+                        short shade;
+
+                        if (this.altitudeGrid != null)
+                        {
+                            this.altitudeGrid.sample(
+                                point[0], point[1], point[2], sample);
+
+                            alt = sample[0];
+                            shade = (short) (sample[1] + 0.5);
+                        }
+                        else
+                        {
+                            alt = planet1(ctx, point[0], point[1], point[2]);
+                            shade = ctx.getShade();
+                        }
+
+                        final int index = (j * this.windowWidth) + i;
+
+                        if (this.altitudes != null)
+                        {
+                            this.altitudes[index] = (float) alt;
+                        }
+
+                        if (this.surfaceY != null)
+                        {
+                            this.surfaceAltitudes[index] = alt;
+                            this.surfaceY[index] = point[1];
+                        }
+
+                        if ((pixelStats != null) || (this.colours != null))
+                        {
+                            final int colour = altitudeColour(alt, point[1]);
+
+                            if (pixelStats != null)
+                            {
+                                pixelStats.add(alt, point[1], colour);
+                            }
+
+                            if (this.colours != null)
+                            {
+                                this.colours.set(i, j, (short) colour);
+
+                                if (isDoShade())
+                                {
+                                    this.shades.set(i, j, shade);
+                                }
+                            }
+                        }
+                    }
+                    else if (this.altitudeGrid != null)
+                    {
+                        this.altitudeGrid.sample(
+                            point[0], point[1], point[2], sample);
+
+                        final int colour = altitudeColour(sample[0], point[1]);
+
+                        this.colours.set(i, j, (short) colour);
+
+                        if (pixelStats != null)
+                        {
+                            pixelStats.add(sample[0], point[1], colour);
+                        }
+
+                        if (isDoShade())
+                        {
+                            this.shades.set(i, j, (short) (sample[1] + 0.5));
+                        }
+                    }
+                    else
+                    {
+                        this.colours.set(
+                            i, j,
+                            (short) planet0(
+                                ctx, point[0], point[1], point[2], pixelStats));
+
+                        if (isDoShade())
+                        {
+                            this.shades.set(i, j, ctx.getShade());
+                        }
+                    }
+                }
+                else if (this.colours == null)
+                {
+                    this.altitudes[(j * this.windowWidth) + i] = Float.NaN;
+
+                    if (pixelStats != null)
+                    {
+                        pixelStats.addBackground(this.backgroundColour);
+                    }
+                }
+                else
+                {
+                    if (this.altitudes != null)
+                    {
+                        this.altitudes[(j * this.windowWidth) + i] = Float.NaN;
+                    }
+
+                    if (this.surfaceAltitudes != null)
+                    {
+                        this.surfaceAltitudes[(j * this.windowWidth) + i] =
+                            Double.NaN;
+                    }
+
+                    this.colours.set(i, j, this.backgroundColour);
+
+                    if (pixelStats != null)
+                    {
+                        pixelStats.addBackground(this.backgroundColour);
+                    }
+
+                    if (isDoShade())
+                    {
+                        this.shades.set(i, j, (short) MAX_COMP_VALUE);
+                    }
+                }
+            }
+        }
+
+        if (!this.windowed)
+        {
+            includeYRange(tileMin, tileMax);
+        }
+    }
+
+    /**
+     * Find the range of y coordinates shown anywhere in the image by mapping
+     * every pixel without generating any terrain. This is only needed when
+     * the image is rendered in parts and grid lines are to be drawn, and is
+     * then done once for all the parts.
+     *
+     * @param mapper The mapping from pixels to points on the planet
+     */
+    private void findYRange(PixelMapper mapper)
+    {
+        final int width = getParameters()
+                .getProjectionParameters()
+                .getWidth();
+        final int height =
+            getParameters()
+                .getProjectionParameters()
+                .getHeight();
+
+        resetYRange();
+
+        if (
+            (getParameters()
+                    .getProjectionParameters()
+                    .getHgrid() == 0.0) &&
+                (getParameters()
+                    .getProjectionParameters()
+                    .getVgrid() == 0.0))
+        {
+            return;
+        }
+
+        final ProjectionParameters pp =
+            getParameters()
+                .getProjectionParameters();
+        final List<Object> key =
+            Arrays.<Object>asList(
+                getClass(), width, height, pp.getLatitudeRadians(),
+                pp.getLongitudeRadians(), pp.getScale());
+
+        synchronized (Y_RANGES)
+        {
+            final double[] range = Y_RANGES.get(key);
+
+            if (range != null)
+            {
+                includeYRange(range[0], range[1]);
+
+                return;
+            }
+        }
+
+        final PlanetContext ctx = createContext();
+        final double[] point = new double[3];
+
+        for (int j = 0; j < height; ++j)
+        {
+            for (int i = 0; i < width; ++i)
+            {
+                if (mapper.mapPixel(ctx, i, j, point))
+                {
+                    includeYRange(point[1], point[1]);
+                }
+            }
+        }
+
+        synchronized (Y_RANGES)
+        {
+            Y_RANGES.put(key, new double[] { this.ymin, this.ymax });
+        }
+    }
+
+    /**
+     * Allocate the colour and shade rasters for the pixels that are to be
+     * rendered. This is the whole image unless a band of it is being
+     * rendered by <code>projectBands()</code>, in which case the rasters
+     * from the previous band are reused when they are the same size. The
+     * raster factory decides where the rasters are stored. An altitude only
+     * render allocates just the array of altitudes, which is also allocated
+     * alongside the rasters if altitudes are to be kept.
+     */
+    protected void allocateImage()
+    {
+        if (!this.windowed)
+        {
+            this.windowX = 0;
+            this.windowY = 0;
+            this.windowWidth = getParameters()
+                    .getProjectionParameters()
+                    .getWidth();
+            this.windowHeight = getParameters()
+                    .getProjectionParameters()
+                    .getHeight();
+        }
+
+        final boolean altitudeOnly =
+            getParameters()
+                .getProjectionParameters()
+                .isAltitudeOnly();
+
+        if (altitudeOnly || this.keepAltitudes)
+        {
+            if (
+                (this.altitudes == null) ||
+                    (this.altitudes.length != (this.windowWidth * this.windowHeight)))
+            {
+                this.altitudes = new float[this.windowWidth * this.windowHeight];
+            }
+        }
+        else
+        {
+            this.altitudes = null;
+        }
+
+        if (this.recolourable && !altitudeOnly)
+        {
+            final int pixels = this.windowWidth * this.windowHeight;
+
+            if ((this.surfaceY == null) || (this.surfaceY.length != pixels))
+            {
+                this.surfaceAltitudes = new double[pixels];
+                this.surfaceY = new double[pixels];
+            }
+
+            if (this.plotted == null)
+            {
+                this.plotted = new BitSet(pixels);
+            }
+            else
+            {
+                this.plotted.clear();
+            }
+        }
+        else
+        {
+            this.surfaceAltitudes = null;
+            this.surfaceY = null;
+            this.plotted = null;
+        }
+
+        if (altitudeOnly)
+        {
+            releaseRasters();
+
+            return;
+        }
+
+        final boolean shaded =
+            getParameters()
+                .getProjectionParameters()
+                .isDoShade();
+
+        if (
+            !this.windowed || (this.colours == null) ||
+                (this.colours.getWidth() != this.windowWidth) ||
+                (this.colours.getHeight() != this.windowHeight) ||
+                (shaded && (this.shades == null)))
+        {
+            releaseRasters();
+
+            this.colours =
+                this.rasterFactory.createShortRaster(
+                    this.windowWidth, this.windowHeight);
+
+            if (shaded)
+            {
+                this.shades =
+                    this.rasterFactory.createShortRaster(
+                        this.windowWidth, this.windowHeight);
+            }
+        }
+    }
+
+    /**
+     * Release the colour and shade rasters
+     */
+    private void releaseRasters()
+    {
+        if (this.colours != null)
+        {
+            this.colours.release();
+            this.colours = null;
+        }
+
+        if (this.shades != null)
+        {
+            this.shades.release();
+            this.shades = null;
+        }
+    }
+
+    /**
+     * Set the colour of a pixel, such as part of a grid line. Pixels outside
+     * the window being rendered, and all pixels of an altitude only render,
+     * are ignored.
+     *
+     * @param i The x coordinate of the pixel in the image
+     * @param j The y coordinate of the pixel in the image
+     * @param colour The colour index to be set
+     */
+    protected void plot(int i, int j, int colour)
+    {
+        final int x = i - this.windowX;
+        final int y = j - this.windowY;
+
+        if (
+            (this.colours != null) && (x >= 0) && (x < this.windowWidth) &&
+                (y >= 0) && (y < this.windowHeight))
+        {
+            this.colours.set(x, y, (short) colour);
+
+            if (this.plotted != null)
+            {
+                this.plotted.set((y * this.windowWidth) + x);
+            }
+        }
+    }
+
+    /**
+     * Carry out the projection one band of rows at a time, passing each
+     * band to a consumer as soon as it is complete. Only the pixels of the
+     * current band, plus the few rows either side of it that smoothing and
+     * outlining look at, are held in memory so images much larger than the
+     * available heap can be written. The pixels are identical to those
+     * produced by <code>project()</code>.
+     *
+     * @param bandHeight The number of rows in each band
+     * @param consumer The object that will be passed each band
+     * @throws java.lang.UnsupportedOperationException If this object is
+     * not a <code>Projector</code>
+     * @throws java.io.IOException If the consumer fails to write a band
+     */
+    public void projectBands(int bandHeight, BandConsumer consumer)
+        throws IOException
+    {
+        if (!(this instanceof Projector))
+        {
+            throw new UnsupportedOperationException(
+                "Only projections can be rendered in bands");
+        }
+
+        final int width = getParameters()
+                .getProjectionParameters()
+                .getWidth();
+        final int height =
+            getParameters()
+                .getProjectionParameters()
+                .getHeight();
+
+        if (bandHeight < 1)
+        {
+            throw new IllegalArgumentException(
+                "Band height must be at least one row: " + bandHeight);
+        }
+
+        final int rowsPerBand = Math.min(bandHeight, height);
+        final int bands = ((height + rowsPerBand) - 1) / rowsPerBand;
+        final int[] rgb = new int[width * rowsPerBand];
+        final Progress bandProgress = this.progress;
+
+        startWindows();
+
+        bandProgress.progressStart(bands, "Generating Terrain");
+
+        try
+        {
+            consumer.startImage(width, height);
+
+            for (int b = 0; (b < bands) && !this.cancelled; ++b)
+            {
+                bandProgress.progressStep(b);
+
+                final int y0 = b * rowsPerBand;
+                final int rows = Math.min(rowsPerBand, height - y0);
+
+                renderWindow(0, y0, width, rows, rgb);
+
+                if (this.cancelled)
+                {
+                    break;
+                }
+
+                consumer.writeBand(y0, rows, rgb);
+            }
+
+            consumer.endImage();
+        }
+        finally
+        {
+            endWindows(bandProgress);
+
+            releaseResources();
+
+            if (this.stoppedEarly)
+            {
+                bandProgress.progressComplete("Terrain Generation Cancelled");
+            }
+            else
+            {
+                bandProgress.progressComplete("Terrain Generated");
+            }
+        }
+    }
+
+    /**
+     * Render a rectangle of the image on its own. The pixels are the same
+     * as the corresponding pixels of the whole image, including grid lines,
+     * shading and outlines, but only the rectangle and a border of a few
+     * pixels around it are generated, so the time taken depends on the size
+     * of the rectangle rather than the size of the image. This allows a
+     * small part of a very large image, such as a deep zoom, to be
+     * rendered.
+     *
+     * Grid lines on some projections are only drawn for latitudes shown
+     * somewhere in the image, which the first region rendered with a given
+     * framing finds by mapping, but not generating, every pixel of the
+     * image. The range is kept for later regions with the same framing.
+     *
+     * @param x The x coordinate of the left edge of the rectangle
+     * @param y The y coordinate of the top edge of the rectangle
+     * @param w The width of the rectangle
+     * @param h The height of the rectangle
+     * @param rgb The array to receive the pixels, left to right then top
+     * to bottom, each packed as <code>0xRRGGBB</code>
+     * @throws java.lang.IllegalArgumentException If the rectangle is not
+     * inside the image or the array is too small
+     */
+    public void projectRegion(int x, int y, int w, int h, int[] rgb)
+    {
+        final int width = getParameters()
+                .getProjectionParameters()
+                .getWidth();
+        final int height =
+            getParameters()
+                .getProjectionParameters()
+                .getHeight();
+
+        if (
+            (x < 0) || (y < 0) || (w < 1) || (h < 1) || (x > (width - w)) ||
+                (y > (height - h)))
+        {
+            throw new IllegalArgumentException(
+                "Region " + x + "," + y + " " + w + "x" + h +
+                " is not inside the " + width + "x" + height + " image");
+        }
+
+        if (rgb.length < ((long) w * h))
+        {
+            throw new IllegalArgumentException(
+                "Pixel array is too small for the region");
+        }
+
+        projectWindow(x, y, w, h, rgb);
+    }
+
+    /**
+     * Render one window of the image and return its pixels. The colour and
+     * shade rasters are kept for the next window so rendering many windows
+     * of the same size, such as map tiles, doesn't allocate new ones each
+     * time. Progress is not reported for the window.
+     *
+     * @param x The x coordinate of the left edge of the window
+     * @param y The y coordinate of the top edge of the window
+     * @param w The width of the window
+     * @param h The height of the window
+     * @param rgb The array to receive the pixels, left to right then top
+     * to bottom, each packed as <code>0xRRGGBB</code>
+     * @throws java.lang.UnsupportedOperationException If this object is
+     * not a <code>Projector</code>
+     */
+    void projectWindow(int x, int y, int w, int h, int[] rgb)
+    {
+        if (!(this instanceof Projector))
+        {
+            throw new UnsupportedOperationException(
+                "Only projections can be rendered in parts");
+        }
+
+        final Progress windowProgress = this.progress;
+
+        startWindows();
+
+        try
+        {
+            renderWindow(x, y, w, h, rgb);
+        }
+        finally
+        {
+            endWindows(windowProgress);
+        }
+    }
+
+    /**
+     * Prepare to render the image in parts
+     */
+    private void startWindows()
+    {
+        this.stoppedEarly = false;
+        this.yRangeKnown = false;
+        this.windowed = true;
+        this.progress = new DummyProgress();
+        this.statistics = this.collectStatistics ? new TerrainStatistics() : null;
+    }
+
+    /**
+     * Go back to rendering the whole image after rendering it in parts
+     *
+     * @param original The progress object that was in use before
+     */
+    private void endWindows(Progress original)
+    {
+        this.windowed = false;
+        this.windowMapper = null;
+        this.progress = original;
+
+        endCancellation();
+    }
+
+    /**
+     * Note whether the projection that has just finished was stopped early
+     * and clear the request to stop, so that the next projection runs
+     */
+    private void endCancellation()
+    {
+        this.stoppedEarly = this.cancelled;
+        this.cancelled = false;
+    }
+
+    /**
+     * Render one part of the image, with enough of the surrounding pixels
+     * for smoothing the shades and outlining the coasts to give the same
+     * result as they would for the whole image, and copy out its pixels
+     *
+     * @param x The x coordinate of the left edge of the part
+     * @param y The y coordinate of the top edge of the part
+     * @param w The width of the part
+     * @param h The height of the part
+     * @param rgb The array to receive the packed pixels
+     */
+    private void renderWindow(int x, int y, int w, int h, int[] rgb)
+    {
+        final int width = getParameters()
+                .getProjectionParameters()
+                .getWidth();
+        final int height =
+            getParameters()
+                .getProjectionParameters()
+                .getHeight();
+
+        // smoothing looks two pixels right and down, outlining looks one
+        // pixel in every direction
+        this.windowX = Math.max(0, x - 1);
+        this.windowWidth = Math.min(width, x + w + 2) - this.windowX;
+        this.windowY = Math.max(0, y - 1);
+        this.windowHeight = Math.min(height, y + h + 2) - this.windowY;
+
+        this.statisticsX = x;
+        this.statisticsY = y;
+        this.statisticsWidth = w;
+        this.statisticsHeight = h;
+
+        ((Projector) this).project();
+
+        if (this.cancelled)
+        {
+            return;
+        }
+
+        resolvePixels(x, y, w, h, rgb, 0, w, 0);
+    }
+
+    /**
+     * Add the cache statistics from a context that has finished generating
+     * tiles to the totals for the image
+     *
+     * @param ctx The context that was used to generate the tiles
+     */
+    private synchronized void addCacheStatistics(PlanetContext ctx)
+    {
+        this.cacheLookups += ctx.getLookups();
+        this.cacheHits += ctx.getHits();
+        this.cacheLevelsSkipped += ctx.getLevelsSkipped();
+    }
+
+    /**
+     * Create the statistics to be filled in by one thread
+     *
+     * @return An empty statistics object or <code>null</code> if statistics
+     * are not being collected
+     */
+    private TerrainStatistics createStatistics()
+    {
+        final TerrainStatistics stats = this.statistics;
+
+        return (stats == null) ? null : stats.createEmpty();
+    }
+
+    /**
+     * Add the statistics from a thread that has finished generating tiles to
+     * the statistics for the image
+     *
+     * @param stats The statistics filled in by the thread, or
+     * <code>null</code>
+     */
+    private synchronized void addStatistics(TerrainStatistics stats)
+    {
+        if (stats != null)
+        {
+            this.statistics.merge(stats);
+        }
+    }
+
+    /**
+     * Get the statistics of the terrain of the last image projected, or of
+     * all the bands of the last image projected a band at a time. They are
+     * only available if collecting statistics was enabled when the image
+     * was projected, and are gathered before grid lines and outlines are
+     * drawn.
+     *
+     * @return The statistics or <code>null</code> if they were not collected
+     */
+    public synchronized TerrainStatistics getStatistics()
+    {
+        return this.statistics;
+    }
+
+    /**
+     * Stop a projection that is in progress. The terrain that has not yet
+     * been generated will be left blank. If the projection has not yet
+     * started generating terrain it stops as soon as it does, so there is
+     * no point at which a request to stop can be lost.
+     */
+    public void cancel()
+    {
+        this.cancelled = true;
+    }
+
+    /**
+     * Determine whether the last projection was cancelled before it
+     * completed, or whether the one in progress has been asked to stop
+     *
+     * @return <code>true</code> if the projection was cancelled
+     */
+    public boolean isCancelled()
+    {
+        return this.cancelled || this.stoppedEarly;
+    }
+
+    /** The number of tiles across the image being generated */
+    private int tilesAcross;
+
+    /** The statistics of the image being generated, or <code>null</code> */
+    private TerrainStatistics statistics;
+
+    /** The x coordinate of the left edge of the pixels counted in the
+     * statistics */
+    private int statisticsX;
+
+    /** The y coordinate of the top edge of the pixels counted in the
+     * statistics */
+    private int statisticsY;
+
+    /** The width of the area of pixels counted in the statistics */
+    private int statisticsWidth;
+
+    /** The height of the area of pixels counted in the statistics */
+    private int statisticsHeight;
+
+    /** Set when the projection in progress, or the next one, should stop */
+    private volatile boolean cancelled;
+
+    /** Set if the last projection was stopped before it completed */
+    private volatile boolean stoppedEarly;
+
+    /** The number of points evaluated for the image being generated */
+    private long cacheLookups;
+
+    /** The number of points that restarted from a cached tetrahedron */
+    private long cacheHits;
+
+    /** The total number of subdivision levels skipped using the cache */
+    private long cacheLevelsSkipped;
+
+    /** The number of y ranges kept for regions of images */
+    private static final int Y_RANGES_KEPT = 64;
+
+    /** The y ranges found for whole images when rendering regions of them,
+     * keyed by projection class, size, latitude, longitude and scale */
+    private static final Map<List<Object>, double[]> Y_RANGES =
+        new LinkedHashMap<List<Object>, double[]>(Y_RANGES_KEPT, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(
+                Map.Entry<List<Object>, double[]> eldest)
+            {
+                return size() > Y_RANGES_KEPT;
+            }
+        };
+
+    /** The smallest y coordinate seen while generating the terrain */
+    private double ymin;
+
+    /** The largest y coordinate seen while generating the terrain */
+    private double ymax;
+
+    /**
+     * Reset the range of y coordinates seen during generation
+     */
+    protected synchronized void resetYRange()
+    {
+        this.ymin = 2.0;
+        this.ymax = -2.0;
+    }
+
+    /**
+     * Merge the range of y coordinates seen while generating part of the
+     * image into the range seen for the whole image
+     *
+     * @param partMin The smallest y coordinate seen in the part
+     * @param partMax The largest y coordinate seen in the part
+     */
+    protected synchronized void includeYRange(double partMin, double partMax)
+    {
+        if (partMin < this.ymin)
+        {
+            this.ymin = partMin;
+        }
+
+        if (partMax > this.ymax)
+        {
+            this.ymax = partMax;
+        }
+    }
+
+    /**
+     * Get the smallest y coordinate seen while generating the terrain
+     *
+     * @return The smallest y coordinate seen
+     */
+    protected synchronized double getYMin()
+    {
+        checkYRange();
+
+        return this.ymin;
+    }
+
+    /**
+     * Get the largest y coordinate seen while generating the terrain
+     *
+     * @return The largest y coordinate seen
+     */
+    protected synchronized double getYMax()
+    {
+        checkYRange();
+
+        return this.ymax;
+    }
+
+    /**
+     * Make sure the y range is known for the whole image when only part of
+     * it has been generated
+     */
+    private void checkYRange()
+    {
+        if (this.windowed && !this.yRangeKnown && (this.windowMapper != null))
+        {
+            findYRange(this.windowMapper);
+
+            this.yRangeKnown = true;
+        }
+    }
+
+    /**
+     * Set up all the colour shades that will be used. The basic set of
+     * colours are interpolated to give a range of shades
+     */
+    protected void setcolours()
+    {
+        int i;
+
+        if (getParameters()
+                .getProjectionParameters()
+                .isAltColors())
+        {
+            final int crow;
+
+            if (nocols < 8)
+            {
+                nocols = 8;
+            }
+
+            /*
+             *        This color table tries to follow the coloring conventions of
+             *        several atlases.
+             *
+             *        The first two colors are reserved for black and white
+             *        1/4 of the colors are blue for the sea, dark being deep
+             *        3/4 of the colors are land, divided as follows:
+             *         nearly 1/2 of the colors are greens, with the low being dark
+             *         1/8 of the colors shade from green through brown to grey
+             *         1/8 of the colors are shades of grey for the highest altitudes
+             *
+             *        The minimum color table is:
+             *            0        Black
+             *            1        White
+             *            2        Blue
+             *            3        Dark Green
+             *            4        Green
+             *            5        Light Green
+             *            6        Brown
+             *            7        Grey
+             *        and doesn't look very good. Somewhere between 24 and 32 colors
+             *        is where this scheme starts looking good. 256, of course, is best.
+             */
+            this.colourLand0 = Math.max(nocols / 4, BLUE0 + 1);
+            colourBlue1 = this.colourLand0 - 1;
+            this.colourGrey0 = nocols - (nocols / 8);
+            this.colourGreen1 = Math.min(
+                    this.colourLand0 + (nocols / 2), this.colourGrey0 - 2);
+            this.colourBrown0 = (this.colourGreen1 + this.colourGrey0) / 2;
+            this.colourLand1 = nocols - 1;
+
+            final int[][] colors =
+                getParameters()
+                    .getProjectionParameters()
+                    .getColors();
+
+            this.rtable[BLACK] = colors[C_INDEX_SPACE][0];
+            this.gtable[BLACK] = colors[C_INDEX_SPACE][0];
+            this.btable[BLACK] = colors[C_INDEX_SPACE][0];
+
+            this.rtable[WHITE] = colors[C_INDEX_PEAK][0];
+            this.gtable[WHITE] = colors[C_INDEX_PEAK][1];
+            this.btable[WHITE] = colors[C_INDEX_PEAK][2];
+
+            this.rtable[BLUE0] = colors[C_INDEX_DEPTHS][0];
+            this.gtable[BLUE0] = colors[C_INDEX_DEPTHS][1];
+            this.btable[BLUE0] = colors[C_INDEX_DEPTHS][2];
+
+            for (i = BLUE0 + 1; i <= colourBlue1; ++i)
+            {
+                this.rtable[i] = ((colors[C_INDEX_DEPTHS][0] * (colourBlue1 -
+                        i)) + (colors[C_INDEX_SHORES][0] * (i - BLUE0))) / (colourBlue1 -
+                        BLUE0);
+                this.gtable[i] = ((colors[C_INDEX_DEPTHS][1] * (colourBlue1 -
+                        i)) + (colors[C_INDEX_SHORES][1] * (i - BLUE0))) / (colourBlue1 -
+                        BLUE0);
+                this.btable[i] = ((colors[C_INDEX_DEPTHS][2] * (colourBlue1 -
+                        i)) + (colors[C_INDEX_SHORES][2] * (i - BLUE0))) / (colourBlue1 -
+                        BLUE0);
+            }
+
+            for (i = this.colourLand0; i < this.colourGreen1; ++i)
+            {
+                this.rtable[i] = ((colors[C_INDEX_LOW][0] * (this.colourGreen1 -
+                        i)) +
+                    (colors[C_INDEX_HIGH][0] * (i - this.colourLand0))) / (this.colourGreen1 -
+                        this.colourLand0);
+                this.gtable[i] = ((colors[C_INDEX_LOW][1] * (this.colourGreen1 -
+                        i)) +
+                    (colors[C_INDEX_HIGH][1] * (i - this.colourLand0))) / (this.colourGreen1 -
+                        this.colourLand0);
+                this.btable[i] = ((colors[C_INDEX_LOW][2] * (this.colourGreen1 -
+                        i)) +
+                    (colors[C_INDEX_HIGH][2] * (i - this.colourLand0))) / (this.colourGreen1 -
+                        this.colourLand0);
+            }
+
+            for (i = this.colourGreen1; i < this.colourBrown0; ++i)
+            {
+                this.rtable[i] = ((colors[C_INDEX_HIGH][0] * (this.colourBrown0 -
+                        i)) +
+                    (colors[C_INDEX_MOUNT][0] * (i - this.colourGreen1))) / (this.colourBrown0 -
+                        this.colourGreen1);
+                this.gtable[i] = ((colors[C_INDEX_HIGH][1] * (this.colourBrown0 -
+                        i)) +
+                    (colors[C_INDEX_MOUNT][1] * (i - this.colourGreen1))) / (this.colourBrown0 -
+                        this.colourGreen1);
+                this.btable[i] = ((colors[C_INDEX_HIGH][2] * (this.colourBrown0 -
+                        i)) +
+                    (colors[C_INDEX_MOUNT][2] * (i - this.colourGreen1))) / (this.colourBrown0 -
+                        this.colourGreen1);
+            }
+
+            for (i = this.colourBrown0; i < this.colourGrey0; ++i)
+            {
+                this.rtable[i] = ((colors[C_INDEX_MOUNT][0] * (this.colourGrey0 -
+                        i)) +
+                    (colors[C_INDEX_STONE][0] * (i - this.colourBrown0))) / (this.colourGrey0 -
+                        this.colourBrown0);
+                this.gtable[i] = ((colors[C_INDEX_MOUNT][1] * (this.colourGrey0 -
+                        i)) +
+                    (colors[C_INDEX_STONE][1] * (i - this.colourBrown0))) / (this.colourGrey0 -
+                        this.colourBrown0);
+                this.btable[i] = ((colors[C_INDEX_MOUNT][2] * (this.colourGrey0 -
+                        i)) +
+                    (colors[C_INDEX_STONE][2] * (i - this.colourBrown0))) / (this.colourGrey0 -
+                        this.colourBrown0);
+            }
+
+            for (i = this.colourGrey0; i < nocols; ++i)
+            {
+                this.rtable[i] = ((colors[C_INDEX_STONE][0] * (nocols - i)) +
+                    ((colors[C_INDEX_PEAK][0] + 1) * (i - this.colourGrey0))) / (nocols -
+                        this.colourGrey0);
+                this.gtable[i] = ((colors[C_INDEX_STONE][1] * (nocols - i)) +
+                    ((colors[C_INDEX_PEAK][1] + 1) * (i - this.colourGrey0))) / (nocols -
+                        this.colourGrey0);
+                this.btable[i] = ((colors[C_INDEX_STONE][2] * (nocols - i)) +
+                    ((colors[C_INDEX_PEAK][2] + 1) * (i - this.colourGrey0))) / (nocols -
+                        this.colourGrey0);
+            }
+        }
+        else
+        {
+            this.rtable[BLACK] = 0;
+            this.gtable[BLACK] = 0;
+            this.btable[BLACK] = 0;
+
+            this.rtable[WHITE] = MAX_COMP_VALUE;
+            this.gtable[WHITE] = MAX_COMP_VALUE;
+            this.btable[WHITE] = MAX_COMP_VALUE;
+
+            final int[][] colors =
+                getParameters()
+                    .getProjectionParameters()
+                    .getColors();
+
+            int lighter =
+                getParameters()
+                    .getProjectionParameters()
+                    .getLighterColours();
+
+            if (lighter > 0)
+            {
+                log.debug("Lightening colours by: " + lighter);
+            }
+
+            while (--lighter > 0)
+            {
+                int r;
+                int c;
+                double x;
+
+                for (r = 0; r < 7; ++r)
+                {
+                    for (c = 0; c < 3; ++c)
+                    {
+                        x = Math.sqrt((double) colors[r][c] / 256.0);
+                        colors[r][c] = (int) ((240.0 * x) + 16);
+                    }
+                }
+            }
+
+            colourBlue1 = ((nocols - 4) / 2) + BLUE0;
+
+            if (colourBlue1 == BLUE0)
+            {
+                this.rtable[BLUE0] = colors[C_INDEX_DEPTHS][0];
+                this.gtable[BLUE0] = colors[C_INDEX_DEPTHS][1];
+                this.btable[BLUE0] = colors[C_INDEX_DEPTHS][2];
+            }
+            else
             {
                 for (i = BLUE0; i <= colourBlue1; ++i)
                 {
@@ -489,25 +1714,41 @@ public abstract class AbstractProjector extends PlanetGen
                 .getProjectionParameters()
                 .isReverseBackground())
         {
-            if (backgroundColour == BLACK)
-            {
-                backgroundColour = WHITE;
-            }
-            else
-            {
-                backgroundColour = BLACK;
-            }
+            backgroundColour = WHITE;
+        }
+        else
+        {
+            backgroundColour = BLACK;
+        }
+
+        this.shadedPalette = null;
+
+        for (i = 0; i < COLOUR_TABLE_SIZE; ++i)
+        {
+            this.palette[i] = ((this.rtable[i] & MAX_COMP_VALUE) << 16) |
+                ((this.gtable[i] & MAX_COMP_VALUE) << 8) |
+                (this.btable[i] & MAX_COMP_VALUE);
         }
     }
 
     /**
-     * Smooth the shading
+     * Smooth the shading. Each pixel only depends on the pixels below and to
+     * the right of it so the last two rows and columns of the window are
+     * left alone, unless they are the last of the image which are never
+     * smoothed anyway.
      */
     protected void smoothshades()
     {
-        int i;
-        int j;
+        runStages(Collections.singletonList(createSmoothingStage()));
+    }
 
+    /**
+     * Create the post processing stage that smooths the shading
+     *
+     * @return The stage that smooths the shades raster
+     */
+    private PostStage createSmoothingStage()
+    {
         final int width = getParameters()
                 .getProjectionParameters()
                 .getWidth();
@@ -516,30 +1757,73 @@ public abstract class AbstractProjector extends PlanetGen
                 .getProjectionParameters()
                 .getHeight();
 
-        for (i = 0; i < (width - 2); ++i)
-        {
-            for (j = 0; j < (height - 2); ++j)
-                shades[i][j] = (short) (((4 * shades[i][j]) +
-                    (2 * shades[i][j + 1]) + (2 * shades[i + 1][j]) +
-                    shades[i + 1][j + 2] + 4) / 9);
-        }
+        final int iend =
+            Math.min(width - 2, this.windowX + this.windowWidth - 2) -
+            this.windowX;
+        final int jend =
+            Math.min(height - 2, this.windowY + this.windowHeight - 2) -
+            this.windowY;
+
+        return new PostStage(this.shades, 0, 2)
+            {
+                public boolean processRow(int j, short[][] rows, short[] result)
+                {
+                    if ((iend <= 0) || (j >= jend))
+                    {
+                        return false;
+                    }
+
+                    final short[] row = rows[0];
+                    final short[] below = rows[1];
+                    final short[] below2 = rows[2];
+
+                    System.arraycopy(row, 0, result, 0, row.length);
+
+                    for (int i = 0; i < iend; ++i)
+                        result[i] = (short) (((4 * row[i]) + (2 * below[i]) +
+                            (2 * row[i + 1]) + below2[i + 1] + 4) / 9);
+
+                    return true;
+                }
+            };
     }
 
     /**
      * The top level of terrain generation. Returns the colour index of the point
      * at the specified coordinates.
      *
+     * @param ctx The context to be used to evaluate the terrain
      * @param x The x coordinate of the point
      * @param y The y coordinate of the point
      * @param z The z coordinate of the point
+     * @param stats The statistics to count the point in, or <code>null</code>
      * @return The index into the colour table that is to be used for this point
      */
-    int planet0(double x, double y, double z)
+    int planet0(
+        PlanetContext ctx, double x, double y, double z, TerrainStatistics stats)
     {
-        int colour;
-
         // get the terrain altitude at this point
-        double alt = planet1(x, y, z);
+        final double alt = planet1(ctx, x, y, z);
+        final int colour = altitudeColour(alt, y);
+
+        if (stats != null)
+        {
+            stats.add(alt, y, colour);
+        }
+
+        return colour;
+    }
+
+    /**
+     * Returns the colour index to be used for a point of the terrain
+     *
+     * @param alt The altitude of the point (0 = sea level)
+     * @param y The y coordinate of the point, used for latitude colouring
+     * @return The index into the colour table that is to be used for this point
+     */
+    int altitudeColour(double alt, double y)
+    {
+        int colour;
 
         if (isAltColors())
         {
@@ -701,76 +1985,265 @@ public abstract class AbstractProjector extends PlanetGen
      *
      *
      *
-     * @param x The x coordinate to be retrieved
-     * @param y The y coordinate to be retrieved
-     * @param col The colour array to be used to store the colour
+     * @param x The x coordinate to be retrieved
+     * @param y The y coordinate to be retrieved
+     * @param col The colour array to be used to store the colour
+     */
+    public void fillRGB(int x, int y, int[] col)
+    {
+        int s;
+        int c;
+
+        final int px = x - this.windowX;
+        final int py = y - this.windowY;
+        final short colour = this.colours.get(px, py);
+
+        if (isDoShade())
+        {
+            s = this.shades.get(px, py);
+            c = (s * this.btable[colour]) / 150;
+
+            if (c > MAX_COMP_VALUE)
+            {
+                c = MAX_COMP_VALUE;
+            }
+
+            col[2] = c;
+
+            c = (s * this.gtable[colour]) / 150;
+
+            if (c > MAX_COMP_VALUE)
+            {
+                c = MAX_COMP_VALUE;
+            }
+
+            col[1] = c;
+
+            c = (s * this.rtable[colour]) / 150;
+
+            if (c > MAX_COMP_VALUE)
+            {
+                c = MAX_COMP_VALUE;
+            }
+
+            col[0] = c;
+        }
+        else
+        {
+            col[0] = this.rtable[colour];
+            col[1] = this.gtable[colour];
+            col[2] = this.btable[colour];
+        }
+    }
+
+    /**
+     * Get the colours of a rectangle of the image as packed ARGB values,
+     * in the same form as <code>BufferedImage.getRGB()</code>. The pixels
+     * can be written straight into the data buffer of an image of type
+     * <code>TYPE_INT_RGB</code> or <code>TYPE_INT_ARGB</code>. The colours
+     * are the same as those given by <code>fillRGB()</code>.
+     *
+     * @param x The x coordinate of the first column
+     * @param y The y coordinate of the first row
+     * @param w The number of columns
+     * @param h The number of rows
+     * @param rgb The array the pixels are to be stored in
+     * @param offset The index in the array of the first pixel
+     * @param scanline The distance in the array from one row to the next
+     */
+    public void getRGB(
+        int x, int y, int w, int h, int[] rgb, int offset, int scanline)
+    {
+        resolvePixels(x, y, w, h, rgb, offset, scanline, OPAQUE);
+    }
+
+    /**
+     * Convert a rectangle of the image to packed pixels a row at a time.
+     * Unshaded pixels are looked up in the packed palette and shaded pixels
+     * in the table of shaded colours.
+     *
+     * @param x The x coordinate of the first column
+     * @param y The y coordinate of the first row
+     * @param w The number of columns
+     * @param h The number of rows
+     * @param rgb The array the pixels are to be stored in
+     * @param offset The index in the array of the first pixel
+     * @param scanline The distance in the array from one row to the next
+     * @param alpha The alpha bits to be set in every pixel
+     */
+    private void resolvePixels(
+        int x, int y, int w, int h, int[] rgb, int offset, int scanline,
+        int alpha)
+    {
+        final int[] pal = this.palette;
+        final boolean shaded = isDoShade();
+
+        final short[] colourRow = new short[this.windowWidth];
+        final short[] shadeRow = shaded ? new short[this.windowWidth] : null;
+        final int px = x - this.windowX;
+
+        for (int j = 0; j < h; ++j)
+        {
+            final int py = (y + j) - this.windowY;
+            int index = offset + (j * scanline);
+
+            this.colours.getRow(py, colourRow);
+
+            if (shaded)
+            {
+                this.shades.getRow(py, shadeRow);
+
+                final int[] lut = getShadedPalette();
+
+                for (int i = px; i < (px + w); ++i)
+                {
+                    final int colour = colourRow[i];
+                    final int s = shadeRow[i];
+
+                    if ((s & ~MAX_COMP_VALUE) == 0)
+                    {
+                        rgb[index++] = alpha | lut[(s * COLOUR_TABLE_SIZE) + colour];
+                    }
+                    else
+                    {
+                        rgb[index++] = alpha | shadeColour(colour, s);
+                    }
+                }
+            }
+            else
+            {
+                for (int i = px; i < (px + w); ++i)
+                {
+                    rgb[index++] = alpha | pal[colourRow[i]];
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the table of shaded colours if the colour tables have changed
+     * since it was last used. The table is shared with other projectors
+     * using the same colours and is built only if none of them has one.
+     *
+     * @return The table of packed colours for every shade from 0 to 255 and
+     * every colour index
      */
-    public void fillRGB(int x, int y, int[] col)
+    private int[] getShadedPalette()
     {
-        int s;
-        int c;
+        int[] lut = this.shadedPalette;
 
-        if (isDoShade())
+        if (lut == null)
         {
-            s = shades[x][y];
-            c = (s * this.btable[this.colours[x][y]]) / 150;
+            final PaletteKey key =
+                new PaletteKey(this.rtable, this.gtable, this.btable);
 
-            if (c > MAX_COMP_VALUE)
+            synchronized (SHADED_PALETTES)
             {
-                c = MAX_COMP_VALUE;
-            }
+                lut = SHADED_PALETTES.get(key);
 
-            col[2] = c;
+                if (lut == null)
+                {
+                    lut = new int[(MAX_COMP_VALUE + 1) * COLOUR_TABLE_SIZE];
 
-            c = (s * this.gtable[this.colours[x][y]]) / 150;
+                    for (int s = 0; s <= MAX_COMP_VALUE; ++s)
+                    {
+                        for (int c = 0; c < COLOUR_TABLE_SIZE; ++c)
+                        {
+                            lut[(s * COLOUR_TABLE_SIZE) + c] =
+                                shadeColour(c, s);
+                        }
+                    }
 
-            if (c > MAX_COMP_VALUE)
-            {
-                c = MAX_COMP_VALUE;
+                    SHADED_PALETTES.put(key, lut);
+                }
             }
 
-            col[1] = c;
+            this.shadedPalette = lut;
+        }
 
-            c = (s * this.rtable[this.colours[x][y]]) / 150;
+        return lut;
+    }
 
-            if (c > MAX_COMP_VALUE)
-            {
-                c = MAX_COMP_VALUE;
-            }
+    /**
+     * The contents of the colour tables, used to find a shared table of
+     * shaded colours
+     */
+    private static final class PaletteKey
+    {
+        /** The red, green and blue tables one after another */
+        private final int[] values;
+
+        /** The hash code of the values */
+        private final int hash;
+
+        /**
+         * Creates a new instance of PaletteKey
+         *
+         * @param r The table of red colour values
+         * @param g The table of green colour values
+         * @param b The table of blue colour values
+         */
+        public PaletteKey(int[] r, int[] g, int[] b)
+        {
+            this.values = new int[r.length + g.length + b.length];
 
-            col[0] = c;
+            System.arraycopy(r, 0, this.values, 0, r.length);
+            System.arraycopy(g, 0, this.values, r.length, g.length);
+            System.arraycopy(b, 0, this.values, r.length + g.length, b.length);
+
+            this.hash = Arrays.hashCode(this.values);
         }
-        else
+
+        public int hashCode()
+        {
+            return this.hash;
+        }
+
+        public boolean equals(Object obj)
         {
-            col[0] = this.rtable[this.colours[x][y]];
-            col[1] = this.gtable[this.colours[x][y]];
-            col[2] = this.btable[this.colours[x][y]];
+            return (obj instanceof PaletteKey) &&
+            Arrays.equals(this.values, ((PaletteKey) obj).values);
         }
     }
 
     /**
-     * Draw the outline of the coasts
+     * Get the packed value of a shaded colour, calculated in the same way as
+     * <code>fillRGB()</code> and keeping only the low eight bits of each
+     * component
+     *
+     * @param colour The colour index
+     * @param s The shade
+     * @return The colour packed as 0xRRGGBB
+     */
+    private int shadeColour(int colour, int s)
+    {
+        final int r = Math.min((s * this.rtable[colour]) / 150, MAX_COMP_VALUE);
+        final int g = Math.min((s * this.gtable[colour]) / 150, MAX_COMP_VALUE);
+        final int b = Math.min((s * this.btable[colour]) / 150, MAX_COMP_VALUE);
+
+        return ((r & MAX_COMP_VALUE) << 16) | ((g & MAX_COMP_VALUE) << 8) |
+            (b & MAX_COMP_VALUE);
+    }
+
+    /**
+     * Draw the outline of the coasts. Sea pixels next to land are found
+     * before any are changed and then all of them are drawn in black.
      *
      * @param isBW If <pre>true</pre> then we are drawing in black and white
      */
     protected void outline(boolean isBW)
     {
-        int i;
-        int j;
-        int k;
+        runStages(Collections.singletonList(createOutlineStage(isBW)));
+    }
 
-        final int[] outx =
-            new int[getParameters()
-                .getProjectionParameters()
-                .getWidth() * getParameters()
-                .getProjectionParameters()
-                .getHeight()];
-        final int[] outy =
-            new int[getParameters()
-                .getProjectionParameters()
-                .getWidth() * getParameters()
-                .getProjectionParameters()
-                .getHeight()];
+    /**
+     * Create the post processing stage that outlines the coasts
+     *
+     * @param isBW If <pre>true</pre> then we are drawing in black and white
+     * @return The stage that outlines the coasts in the colours raster
+     */
+    private PostStage createOutlineStage(final boolean isBW)
+    {
         final int width = getParameters()
                 .getProjectionParameters()
                 .getWidth();
@@ -779,57 +2252,231 @@ public abstract class AbstractProjector extends PlanetGen
                 .getProjectionParameters()
                 .getHeight();
 
-        k = 0;
+        // only test pixels whose neighbours are all in the window
+        final int istart = Math.max(1, this.windowX + 1) - this.windowX;
+        final int iend =
+            Math.min(width - 1, this.windowX + this.windowWidth - 1) -
+            this.windowX;
+        final int jstart = Math.max(1, this.windowY + 1) - this.windowY;
+        final int jend =
+            Math.min(height - 1, this.windowY + this.windowHeight - 1) -
+            this.windowY;
 
-        for (i = 1; i < (width - 1); ++i)
-        {
-            for (j = 1; j < (height - 1); ++j)
-            {
-                if (
-                    ((this.colours[i][j] >= BLUE0) &&
-                        (this.colours[i][j] <= colourBlue1)) &&
-                        ((this.colours[i - 1][j] >= this.colourLand0) ||
-                        (this.colours[i + 1][j] >= this.colourLand0) ||
-                        (this.colours[i][j - 1] >= this.colourLand0) ||
-                        (this.colours[i][j + 1] >= this.colourLand0) ||
-                        (this.colours[i - 1][j - 1] >= this.colourLand0) ||
-                        (this.colours[i - 1][j + 1] >= this.colourLand0) ||
-                        (this.colours[i + 1][j - 1] >= this.colourLand0) ||
-                        (this.colours[i + 1][j + 1] >= this.colourLand0)))
-                {
-                    outx[k] = i;
-                    outy[++k] = j;
-                }
-            }
-        }
+        final int land0 = this.colourLand0;
+        final int blue1 = this.colourBlue1;
 
-        if (isBW)
-        {
-            for (i = 0; i < width; ++i)
+        return new PostStage(this.colours, 1, 1)
             {
-                for (j = 0; j < height; ++j)
+                public boolean processRow(int j, short[][] rows, short[] result)
                 {
-                    if (this.colours[i][j] != BLACK)
+                    final short[] above = rows[0];
+                    final short[] row = rows[1];
+                    final short[] below = rows[2];
+
+                    for (int i = 0; i < row.length; ++i)
+                    {
+                        if (isBW && (row[i] != BLACK))
+                        {
+                            result[i] = WHITE;
+                        }
+                        else
+                        {
+                            result[i] = row[i];
+                        }
+                    }
+
+                    if ((j >= jstart) && (j < jend))
                     {
-                        this.colours[i][j] = WHITE;
+                        for (int i = istart; i < iend; ++i)
+                        {
+                            if (
+                                ((row[i] >= BLUE0) && (row[i] <= blue1)) &&
+                                    ((row[i - 1] >= land0) ||
+                                    (row[i + 1] >= land0) ||
+                                    (above[i] >= land0) ||
+                                    (below[i] >= land0) ||
+                                    (above[i - 1] >= land0) ||
+                                    (below[i - 1] >= land0) ||
+                                    (above[i + 1] >= land0) ||
+                                    (below[i + 1] >= land0)))
+                            {
+                                result[i] = BLACK;
+                            }
+                        }
                     }
+
+                    return true;
                 }
-            }
+            };
+    }
+
+    protected void doOutlining()
+    {
+        if (getParameters()
+                .getProjectionParameters()
+                .isEdges())
+        {
+            outline(getParameters().getProjectionParameters().isOutline());
+        }
+    }
+
+    /**
+     * Carry out the processing that follows the generation of the terrain
+     * and the drawing of any grid lines: smoothing the shading if it is
+     * enabled and outlining the coasts if the parameters ask for it. The
+     * stages work on different rasters so they are done together in one
+     * pass over the image.
+     */
+    protected void postProcess()
+    {
+        if (isAltitudeOnly())
+        {
+            return;
         }
 
-        while (--k > 0)
+        final List<PostStage> stages = new ArrayList<PostStage>();
+
+        if (isDoShade())
         {
-            this.colours[outx[k]][outy[k]] = BLACK;
+            stages.add(createSmoothingStage());
         }
+
+        stages.addAll(createColourStages());
+
+        runStages(stages);
     }
 
-    protected void doOutlining()
+    /**
+     * Create the post processing stages that change the colours raster,
+     * which are carried out again each time the image is recoloured. This
+     * is the outlining of the coasts if the parameters ask for it.
+     *
+     * @return The stages that work on the colours raster, in order
+     */
+    protected List<PostStage> createColourStages()
     {
         if (getParameters()
                 .getProjectionParameters()
                 .isEdges())
         {
-            outline(getParameters().getProjectionParameters().isOutline());
+            return Collections.singletonList(
+                createOutlineStage(
+                    getParameters().getProjectionParameters().isOutline()));
+        }
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * Colour the last render again from the altitudes it kept, which it
+     * only does if the recolourable property was set, using the
+     * colouring options of the current parameters: the colour table, the
+     * alternate colours, latitude colouring and the background. The
+     * terrain is not generated again, so this is much quicker than
+     * <code>project()</code> when only the colours are being changed.
+     * The shading and any grid lines are left as they were rendered and
+     * the coasts are outlined again if the parameters ask for it. If
+     * parallel generation is enabled the rows are shared between the
+     * threads of the pool.
+     *
+     * The exact altitudes are kept, so recolouring with the colouring the
+     * image was rendered with gives back the same image. The statistics of
+     * the last render are not changed.
+     *
+     * @throws java.lang.IllegalStateException If the last render did not
+     * keep its altitudes or was not of the whole image
+     */
+    public void recolour()
+    {
+        final ProjectionParameters pp = getParameters()
+                .getProjectionParameters();
+
+        if ((this.surfaceY == null) || (this.colours == null))
+        {
+            throw new IllegalStateException(
+                "The altitudes of the last render were not kept");
+        }
+
+        if (
+            this.windowed || (this.windowX != 0) || (this.windowY != 0) ||
+                (this.windowWidth != pp.getWidth()) ||
+                (this.windowHeight != pp.getHeight()))
+        {
+            throw new IllegalStateException(
+                "Only a render of the whole image can be recoloured");
+        }
+
+        setLatic(pp.isLatic());
+        setAltColors(pp.isAltColors());
+        setParallel(pp.isParallel());
+
+        setcolours();
+
+        final List<PostStage> stages = new ArrayList<PostStage>();
+
+        stages.add(createRecolourStage());
+        stages.addAll(createColourStages());
+
+        runStages(stages);
+    }
+
+    /**
+     * Create the post processing stage that colours each pixel again from
+     * its kept altitude
+     *
+     * @return The stage that recolours the colours raster
+     */
+    private PostStage createRecolourStage()
+    {
+        final double[] alts = this.surfaceAltitudes;
+        final double[] ys = this.surfaceY;
+        final BitSet drawn = this.plotted;
+        final int width = this.windowWidth;
+        final short background = this.backgroundColour;
+
+        return new PostStage(this.colours, 0, 0)
+            {
+                public boolean processRow(int j, short[][] rows, short[] result)
+                {
+                    final short[] row = rows[0];
+                    final int start = j * width;
+
+                    for (int i = 0; i < width; ++i)
+                    {
+                        final double alt = alts[start + i];
+
+                        if (drawn.get(start + i))
+                        {
+                            result[i] = row[i];
+                        }
+                        else if (Double.isNaN(alt))
+                        {
+                            result[i] = background;
+                        }
+                        else
+                        {
+                            result[i] = (short) altitudeColour(
+                                    alt, ys[start + i]);
+                        }
+                    }
+
+                    return true;
+                }
+            };
+    }
+
+    /**
+     * Carry out a list of post processing stages on the window being
+     * rendered. If parallel generation is enabled the window is divided into
+     * bands of rows that are shared between the threads of the pool.
+     *
+     * @param stages The stages to be carried out, in order
+     */
+    protected void runStages(List<PostStage> stages)
+    {
+        if (!stages.isEmpty())
+        {
+            new PostProcessor(stages).run(isParallel() ? TILE_POOL : null);
         }
     }
 
@@ -838,8 +2485,64 @@ public abstract class AbstractProjector extends PlanetGen
      */
     public void releaseResources()
     {
-        colours = null;
-        shades = null;
+        releaseRasters();
+
+        this.altitudes = null;
+        this.surfaceAltitudes = null;
+        this.surfaceY = null;
+        this.plotted = null;
+    }
+
+    /**
+     * Get the altitudes found by the last altitude only render, or by the
+     * last render if altitudes are being kept. They are held row by row,
+     * with <code>NaN</code> for pixels that show the background rather than
+     * the planet.
+     *
+     * @return The altitudes or <code>null</code> if the last render did not
+     * keep them
+     */
+    public float[] getAltitudes()
+    {
+        return this.altitudes;
+    }
+
+    /**
+     * Work out a tangent space normal map from the altitudes of the last
+     * render, which must have kept them. The distance between pixels is
+     * taken to be that at the centre of an orthographic view with the same
+     * height and scale, so the slopes are exact for that projection and
+     * near enough for the others at similar scales. If parallel generation
+     * is enabled the image is divided into tiles shared between the threads
+     * of the pool.
+     *
+     * @param strength The factor the altitudes are multiplied by, where 1
+     * gives the true slopes of the terrain
+     * @param rgb The array the normals are to be stored in, packed as
+     * <code>0xRRGGBB</code>
+     * @param offset The index in the array of the first pixel
+     * @param scanline The distance in the array from one row to the next
+     * @throws java.lang.IllegalStateException If the last render did not
+     * keep the altitudes
+     */
+    public void getNormals(double strength, int[] rgb, int offset, int scanline)
+    {
+        if (this.altitudes == null)
+        {
+            throw new IllegalStateException(
+                "The altitudes of the last render were not kept");
+        }
+
+        final ProjectionParameters pp = getParameters()
+                .getProjectionParameters();
+
+        // one pixel is 2 / (height * scale) of the radius of the planet
+        final double slopeScale =
+            (strength * pp.getHeight() * pp.getScale()) / 2.0;
+
+        new NormalMap(
+            this.altitudes, this.windowWidth, this.windowHeight, slopeScale).run(
+            rgb, offset, scanline, isParallel() ? TILE_POOL : null);
     }
 
     /**
@@ -925,4 +2628,200 @@ public abstract class AbstractProjector extends PlanetGen
     {
         this.doShade = doShade;
     }
+
+    /** Holds value of property rasterFactory */
+    private RasterFactory rasterFactory = new RasterFactory();
+
+    /**
+     * Getter for property rasterFactory
+     *
+     * @return The value of property rasterFactory
+     */
+    public RasterFactory getRasterFactory()
+    {
+        return rasterFactory;
+    }
+
+    /**
+     * Setter for property rasterFactory (decides where the image is
+     * stored while it is generated)
+     *
+     * @param rasterFactory The new value of property rasterFactory
+     */
+    public void setRasterFactory(RasterFactory rasterFactory)
+    {
+        this.rasterFactory = rasterFactory;
+    }
+
+    /** Holds value of property altitudeGrid */
+    private AltitudeSampler altitudeGrid;
+
+    /**
+     * Getter for property altitudeGrid
+     *
+     * @return The value of property altitudeGrid
+     */
+    public AltitudeSampler getAltitudeGrid()
+    {
+        return altitudeGrid;
+    }
+
+    /**
+     * Setter for property altitudeGrid (a baked grid or a cache to look the
+     * terrain up in, or <code>null</code> to generate it for every pixel)
+     *
+     * @param altitudeGrid The new value of property altitudeGrid
+     */
+    public void setAltitudeGrid(AltitudeSampler altitudeGrid)
+    {
+        this.altitudeGrid = altitudeGrid;
+    }
+
+    /** Holds value of property altitudeOnly */
+    private boolean altitudeOnly;
+
+    /**
+     * Getter for property altitudeOnly
+     *
+     * @return The value of property altitudeOnly
+     */
+    public boolean isAltitudeOnly()
+    {
+        return altitudeOnly;
+    }
+
+    /**
+     * Setter for property altitudeOnly (only work out the altitude of each
+     * pixel, skipping colouring and shading)
+     *
+     * @param altitudeOnly The new value of property altitudeOnly
+     */
+    public void setAltitudeOnly(boolean altitudeOnly)
+    {
+        this.altitudeOnly = altitudeOnly;
+    }
+
+    /** Holds value of property keepAltitudes */
+    private boolean keepAltitudes;
+
+    /**
+     * Getter for property keepAltitudes
+     *
+     * @return The value of property keepAltitudes
+     */
+    public boolean isKeepAltitudes()
+    {
+        return keepAltitudes;
+    }
+
+    /**
+     * Setter for property keepAltitudes (keep the altitude of each pixel
+     * as well as its colour, see <code>getAltitudes()</code>)
+     *
+     * @param keepAltitudes The new value of property keepAltitudes
+     */
+    public void setKeepAltitudes(boolean keepAltitudes)
+    {
+        this.keepAltitudes = keepAltitudes;
+    }
+
+    /** Holds value of property recolourable */
+    private boolean recolourable;
+
+    /**
+     * Getter for property recolourable
+     *
+     * @return The value of property recolourable
+     */
+    public boolean isRecolourable()
+    {
+        return recolourable;
+    }
+
+    /**
+     * Setter for property recolourable (keep the exact altitude and
+     * latitude of each pixel so that the image can be coloured again
+     * without generating the terrain, see <code>recolour()</code>). This
+     * takes 16 bytes per pixel.
+     *
+     * @param recolourable The new value of property recolourable
+     */
+    public void setRecolourable(boolean recolourable)
+    {
+        this.recolourable = recolourable;
+    }
+
+    /** Holds value of property recordPoints */
+    private boolean recordPoints;
+
+    /**
+     * Getter for property recordPoints
+     *
+     * @return The value of property recordPoints
+     */
+    public boolean isRecordPoints()
+    {
+        return recordPoints;
+    }
+
+    /**
+     * Setter for property recordPoints (record the point shown by each
+     * pixel of a whole image in a <code>PointTable</code> so that later
+     * renders with the same framing can reuse it). This is only worth
+     * enabling when several images will be rendered with the same
+     * framing, as each table takes 26 bytes per pixel outside the heap.
+     *
+     * @param recordPoints The new value of property recordPoints
+     */
+    public void setRecordPoints(boolean recordPoints)
+    {
+        this.recordPoints = recordPoints;
+    }
+
+    /** Holds value of property parallel */
+    private boolean parallel;
+
+    /**
+     * Getter for property parallel
+     *
+     * @return The value of property parallel
+     */
+    public boolean isParallel()
+    {
+        return parallel;
+    }
+
+    /**
+     * Setter for property parallel (generate tiles using several threads)
+     *
+     * @param parallel The new value of property parallel
+     */
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+
+    /** Holds value of property collectStatistics */
+    private boolean collectStatistics;
+
+    /**
+     * Getter for property collectStatistics
+     *
+     * @return The value of property collectStatistics
+     */
+    public boolean isCollectStatistics()
+    {
+        return collectStatistics;
+    }
+
+    /**
+     * Setter for property collectStatistics (gather the statistics of the
+     * terrain while it is generated, see <code>getStatistics()</code>)
+     *
+     * @param collectStatistics The new value of property collectStatistics
+     */
+    public void setCollectStatistics(boolean collectStatistics)
+    {
+        this.collectStatistics = collectStatistics;
+    }
 }
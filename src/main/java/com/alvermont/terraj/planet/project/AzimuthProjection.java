@@ -53,6 +53,7 @@ package com.alvermont.terraj.planet.project;
 
 import com.alvermont.terraj.fracplanet.util.Progress;
 import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.PlanetContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -143,8 +144,7 @@ public class AzimuthProjection extends AbstractProjector implements Projector
         final double slo = Math.sin(lon);
         final double clo = Math.cos(lon);
 
-        colours = new short[width][height];
-        shades = new short[width][height];
+        allocateImage();
 
         depth = (3 * ((int) (log2(scale * height)))) + 6;
 
@@ -162,71 +162,46 @@ public class AzimuthProjection extends AbstractProjector implements Projector
         int i;
         int j;
 
-        ymin = 2.0;
-        ymax = -2.0;
-
-        final boolean doShade =
-            getParameters()
-                .getProjectionParameters()
-                .isDoShade();
 
         log.debug(
             "Azimuth projection starting with seed " +
             getParameters().getPlanetParameters().getSeed());
 
-        progress.progressStart(height, "Generating Terrain");
-
-        for (j = 0; j < height; ++j)
-        {
-            progress.progressStep(j);
-
-            for (i = 0; i < width; ++i)
+        generatePixels(
+            new PixelMapper()
             {
-                x = ((2.0 * i) - width) / height / scale;
-                y = ((2.0 * j) - height) / height / scale;
-                zz = (x * x) + (y * y);
-                z = 1.0 - (0.5 * zz);
-
-                if (z < -1.0)
+                public boolean mapPixel(
+                    PlanetContext ctx, int i, int j, double[] point)
                 {
-                    colours[i][j] = backgroundColour;
+                    double x;
+                    double y;
+                    double z;
+                    double zz;
 
-                    if (doShade)
+                    x = ((2.0 * i) - width) / height / scale;
+                    y = ((2.0 * j) - height) / height / scale;
+                    zz = (x * x) + (y * y);
+                    z = 1.0 - (0.5 * zz);
+
+                    if (z < -1.0)
                     {
-                        shades[i][j] = 255;
+                        return false;
                     }
-                }
-                else
-                {
+
                     zz = Math.sqrt(1.0 - (0.25 * zz));
                     x = x * zz;
                     y = y * zz;
 
-                    x1 = (clo * x) + (slo * sla * y) + (slo * cla * z);
-                    y1 = (cla * y) - (sla * z);
-                    z1 = (-slo * x) + (clo * sla * y) + (clo * cla * z);
+                    point[0] = (clo * x) + (slo * sla * y) + (slo * cla * z);
+                    point[1] = (cla * y) - (sla * z);
+                    point[2] = (-slo * x) + (clo * sla * y) + (clo * cla * z);
 
-                    if (y1 < ymin)
-                    {
-                        ymin = y1;
-                    }
-
-                    if (y1 > ymax)
-                    {
-                        ymax = y1;
-                    }
-
-                    colours[i][j] = (short) planet0(x1, y1, z1);
-
-                    if (doShade)
-                    {
-                        shades[i][j] = shade;
-                    }
+                    return true;
                 }
-            }
-        }
+            });
 
-        progress.progressComplete("Terrain Generated");
+        ymin = getYMin();
+        ymax = getYMax();
 
         if (hgrid != 0.0)
         {
@@ -264,7 +239,7 @@ public class AzimuthProjection extends AbstractProjector implements Projector
                                 (0 <= i) && (i < width) && (0 <= j) &&
                                     (j < height))
                             {
-                                colours[i][j] = BLACK;
+                                plot(i, j, BLACK);
                             }
                         }
                     }
@@ -303,7 +278,7 @@ public class AzimuthProjection extends AbstractProjector implements Projector
                                 (0 <= i) && (i < width) && (0 <= j) &&
                                     (j < height))
                             {
-                                colours[i][j] = BLACK;
+                                plot(i, j, BLACK);
                             }
                         }
                     }
@@ -311,12 +286,7 @@ public class AzimuthProjection extends AbstractProjector implements Projector
             }
         }
 
-        if (doShade)
-        {
-            smoothshades();
-        }
-
-        doOutlining();
+        postProcess();
     }
 
     /**
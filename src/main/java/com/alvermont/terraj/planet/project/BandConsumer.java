@@ -0,0 +1,94 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * BandConsumer.java
+ *
+ * Created on October 17, 2026, 10:12 AM
+ *
+ */
+package com.alvermont.terraj.planet.project;
+
+import java.io.IOException;
+
+/**
+ * Interface for objects that receive the image produced by a projection one
+ * band of rows at a time, in order from top to bottom, so that it can be
+ * written out without ever holding the whole image in memory.
+ *
+ * @version $Id$
+ */
+public interface BandConsumer
+{
+    /**
+     * Called before the first band of an image is passed on
+     *
+     * @param width The width of the image in pixels
+     * @param height The height of the image in pixels
+     * @throws java.io.IOException If there is an error preparing the output
+     */
+    public void startImage(int width, int height) throws IOException;
+
+    /**
+     * Called as each band of the image is completed. The array is reused for
+     * the next band so it must not be kept after this method returns.
+     *
+     * @param y The y coordinate of the first row in the band
+     * @param rows The number of rows in the band
+     * @param rgb The pixels of the band, left to right then top to bottom,
+     * each packed as <code>0xRRGGBB</code>
+     * @throws java.io.IOException If there is an error writing the band
+     */
+    public void writeBand(int y, int rows, int[] rgb)
+        throws IOException;
+
+    /**
+     * Called after the last band of an image has been passed on, or when the
+     * projection has been cancelled
+     *
+     * @throws java.io.IOException If there is an error completing the output
+     */
+    public void endImage() throws IOException;
+}
@@ -52,6 +52,7 @@
 package com.alvermont.terraj.planet.project;
 
 import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.PlanetContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -119,15 +120,9 @@ public class ConicalProjection extends AbstractProjector implements Projector
                 .getProjectionParameters()
                 .getVgrid();
 
-        final boolean doShade =
-            getParameters()
-                .getProjectionParameters()
-                .isDoShade();
-
         cacheParameters();
 
-        colours = new short[width][height];
-        shades = new short[width][height];
+        allocateImage();
 
         final double sla = Math.sin(lat);
         final double cla = Math.cos(lat);
@@ -139,7 +134,6 @@ public class ConicalProjection extends AbstractProjector implements Projector
         double k1;
         double c;
         double y2;
-        double x;
         double y;
         double zz;
         double x1;
@@ -149,12 +143,9 @@ public class ConicalProjection extends AbstractProjector implements Projector
         double theta2;
         double ymin;
         double ymax;
-        double cos2;
         int i;
         int j;
 
-        ymin = 2.0;
-        ymax = -2.0;
 
         if (lat > 0)
         {
@@ -165,83 +156,60 @@ public class ConicalProjection extends AbstractProjector implements Projector
                     (c * (1.0 - Math.sin(lat / k1))) / (1.0 +
                         Math.sin(lat / k1)));
 
-            progress.progressStart(height, "Generating Terrain");
-
-            for (j = 0; j < height; ++j)
-            {
-                progress.progressStep(j);
-
-                for (i = 0; i < width; ++i)
+            generatePixels(
+                new PixelMapper()
                 {
-                    x = ((2.0 * i) - width) / height / scale;
-                    y = (((2.0 * j) - height) / height / scale) + y2;
-                    zz = (x * x) + (y * y);
-
-                    if (zz == 0.0)
-                    {
-                        theta1 = 0.0;
-                    }
-                    else
+                    public boolean mapPixel(
+                        PlanetContext ctx, int i, int j, double[] point)
                     {
-                        theta1 = k1 * Math.atan2(x, y);
-                    }
-
-                    if ((theta1 < -Math.PI) || (theta1 > Math.PI))
-                    {
-                        colours[i][j] = backgroundColour;
+                        double x;
+                        double y;
+                        double zz;
+                        double theta1;
+                        double theta2;
+                        double cos2;
+
+                        x = ((2.0 * i) - width) / height / scale;
+                        y = (((2.0 * j) - height) / height / scale) + y2;
+                        zz = (x * x) + (y * y);
+
+                        if (zz == 0.0)
+                        {
+                            theta1 = 0.0;
+                        }
+                        else
+                        {
+                            theta1 = k1 * Math.atan2(x, y);
+                        }
 
-                        if (doShade)
+                        if ((theta1 < -Math.PI) || (theta1 > Math.PI))
                         {
-                            shades[i][j] = 255;
+                            return false;
                         }
-                    }
-                    else
-                    {
+
                         /* theta1 is longitude */
                         theta1 += (lon - (0.5 * Math.PI));
                         theta2 = k1 * Math.asin((zz - c) / (zz + c));
 
                         /* theta2 is latitude */
-                        if (
-                            (theta2 > (0.5 * Math.PI)) ||
-                                (theta2 < (-0.5 * Math.PI)))
+                        if ((theta2 > (0.5 * Math.PI)) || (theta2 < (-0.5 * Math.PI)))
                         {
-                            colours[i][j] = backgroundColour;
-
-                            if (doShade)
-                            {
-                                shades[i][j] = 255;
-                            }
+                            return false;
                         }
-                        else
-                        {
-                            cos2 = Math.cos(theta2);
-                            y = Math.sin(theta2);
 
-                            if (y < ymin)
-                            {
-                                ymin = y;
-                            }
+                        cos2 = Math.cos(theta2);
+                        y = Math.sin(theta2);
 
-                            if (y > ymax)
-                            {
-                                ymax = y;
-                            }
+                        point[0] = Math.cos(theta1) * cos2;
+                        point[1] = y;
+                        point[2] = -Math.sin(theta1) * cos2;
 
-                            colours[i][j] = (short) planet0(
-                                    Math.cos(theta1) * cos2, y,
-                                    -Math.sin(theta1) * cos2);
-
-                            if (doShade)
-                            {
-                                shades[i][j] = shade;
-                            }
-                        }
+                        return true;
                     }
-                }
-            }
+                });
 
-            progress.progressComplete("Terrain Generated");
+            ymin = getYMin();
+            ymax = getYMax();
 
             if (hgrid != 0.0)
             {
@@ -276,7 +244,7 @@ public class ConicalProjection extends AbstractProjector implements Projector
                                 (0 <= i) && (i < width) && (0 <= j) &&
                                     (j < height))
                             {
-                                colours[i][j] = BLACK;
+                                plot(i, j, BLACK);
                             }
                         }
                     }
@@ -321,7 +289,7 @@ public class ConicalProjection extends AbstractProjector implements Projector
                                 (0 <= i) && (i < width) && (0 <= j) &&
                                     (j < height))
                             {
-                                colours[i][j] = BLACK;
+                                plot(i, j, BLACK);
                             }
                         }
                     }
@@ -336,83 +304,60 @@ public class ConicalProjection extends AbstractProjector implements Projector
                     (c * (1.0 - Math.sin(lat / k1))) / (1.0 +
                         Math.sin(lat / k1)));
 
-            progress.progressStart(height, "Generating Terrain");
-
-            for (j = 0; j < height; ++j)
-            {
-                progress.progressStep(j);
-
-                for (i = 0; i < width; ++i)
+            generatePixels(
+                new PixelMapper()
                 {
-                    x = ((2.0 * i) - width) / height / scale;
-                    y = (((2.0 * j) - height) / height / scale) - y2;
-                    zz = (x * x) + (y * y);
-
-                    if (zz == 0.0)
-                    {
-                        theta1 = 0.0;
-                    }
-                    else
-                    {
-                        theta1 = -k1 * Math.atan2(x, -y);
-                    }
-
-                    if ((theta1 < -Math.PI) || (theta1 > Math.PI))
+                    public boolean mapPixel(
+                        PlanetContext ctx, int i, int j, double[] point)
                     {
-                        colours[i][j] = backgroundColour;
+                        double x;
+                        double y;
+                        double zz;
+                        double theta1;
+                        double theta2;
+                        double cos2;
+
+                        x = ((2.0 * i) - width) / height / scale;
+                        y = (((2.0 * j) - height) / height / scale) - y2;
+                        zz = (x * x) + (y * y);
+
+                        if (zz == 0.0)
+                        {
+                            theta1 = 0.0;
+                        }
+                        else
+                        {
+                            theta1 = -k1 * Math.atan2(x, -y);
+                        }
 
-                        if (doShade)
+                        if ((theta1 < -Math.PI) || (theta1 > Math.PI))
                         {
-                            shades[i][j] = 255;
+                            return false;
                         }
-                    }
-                    else
-                    {
+
                         /* theta1 is longitude */
                         theta1 += (lon - (0.5 * Math.PI));
                         theta2 = k1 * Math.asin((zz - c) / (zz + c));
 
                         /* theta2 is latitude */
-                        if (
-                            (theta2 > (0.5 * Math.PI)) ||
-                                (theta2 < (-0.5 * Math.PI)))
+                        if ((theta2 > (0.5 * Math.PI)) || (theta2 < (-0.5 * Math.PI)))
                         {
-                            colours[i][j] = backgroundColour;
-
-                            if (doShade)
-                            {
-                                shades[i][j] = 255;
-                            }
+                            return false;
                         }
-                        else
-                        {
-                            cos2 = Math.cos(theta2);
-                            y = Math.sin(theta2);
 
-                            if (y < ymin)
-                            {
-                                ymin = y;
-                            }
-
-                            if (y > ymax)
-                            {
-                                ymax = y;
-                            }
+                        cos2 = Math.cos(theta2);
+                        y = Math.sin(theta2);
 
-                            colours[i][j] = (short) planet0(
-                                    Math.cos(theta1) * cos2, y,
-                                    -Math.sin(theta1) * cos2);
+                        point[0] = Math.cos(theta1) * cos2;
+                        point[1] = y;
+                        point[2] = -Math.sin(theta1) * cos2;
 
-                            if (doShade)
-                            {
-                                shades[i][j] = shade;
-                            }
-                        }
+                        return true;
                     }
-                }
-            }
+                });
 
-            progress.progressComplete("Terrain Generated");
+            ymin = getYMin();
+            ymax = getYMax();
 
             if (hgrid != 0.0)
             {
@@ -447,7 +392,7 @@ public class ConicalProjection extends AbstractProjector implements Projector
                                 (0 <= i) && (i < width) && (0 <= j) &&
                                     (j < height))
                             {
-                                colours[i][j] = BLACK;
+                                plot(i, j, BLACK);
                             }
                         }
                     }
@@ -492,7 +437,7 @@ public class ConicalProjection extends AbstractProjector implements Projector
                                 (0 <= i) && (i < width) && (0 <= j) &&
                                     (j < height))
                             {
-                                colours[i][j] = BLACK;
+                                plot(i, j, BLACK);
                             }
                         }
                     }
@@ -500,12 +445,7 @@ public class ConicalProjection extends AbstractProjector implements Projector
             }
         }
 
-        if (doShade)
-        {
-            smoothshades();
-        }
-
-        doOutlining();
+        postProcess();
     }
 
     /**
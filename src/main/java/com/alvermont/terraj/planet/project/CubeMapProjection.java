@@ -0,0 +1,808 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * CubeMapProjection.java
+ *
+ * Created on October 18, 2026, 3:10 PM
+ *
+ */
+package com.alvermont.terraj.planet.project;
+
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.PlanetContext;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Projects the planet onto the six faces of a cube, for use as a cube map
+ * texture. The faces are square, as large as will fit in the image, and
+ * laid out side by side from the left in the order +X, -X, +Y, -Y, +Z and
+ * -Z, each oriented the way OpenGL expects. An image six times as wide as
+ * it is high is exactly filled. The north pole is the centre of the +Y
+ * face and the +Z face is centred on the longitude in the parameters; the
+ * latitude and scale are not used.
+ *
+ * The texels along the edges of each face lie exactly on the edges of the
+ * cube, so the faces that meet at an edge hold the same row of texels and
+ * can be filtered without a visible seam. As the whole image is rendered
+ * by the usual tiles all six faces are generated at once when parallel
+ * generation is enabled. Grid lines are not drawn, and neither shade
+ * smoothing nor coast outlines are done as they would mix up pixels of
+ * faces that happen to be next to each other in the image.
+ *
+ * @version $Id$
+ */
+public class CubeMapProjection extends AbstractProjector implements Projector
+{
+    /** Our logging object */
+    private static Log log = LogFactory.getLog(CubeMapProjection.class);
+
+    // RequireThis OFF: log
+
+    /** The number of faces of the cube */
+    public static final int FACES = 6;
+
+    /** The names of the faces, used to name the files they are written to */
+    private static final String[] FACE_NAMES =
+        { "px", "nx", "py", "ny", "pz", "nz" };
+
+    /** The number of rows of a mip level downsampled as one task */
+    private static final int BAND_ROWS = 64;
+
+    // RequireThis OFF: FACES
+    // RequireThis OFF: FACE_NAMES
+    // RequireThis OFF: BAND_ROWS
+
+    /** The number of texels along each edge of a face */
+    private int faceSize;
+
+    /** Creates a new instance of CubeMapProjection */
+    public CubeMapProjection()
+    {
+    }
+
+    /**
+     * Creates a new instance of CubeMapProjection
+     *
+     * @param params The parameters to be used
+     */
+    public CubeMapProjection(AllPlanetParameters params)
+    {
+        super(params);
+    }
+
+    /**
+     * Get the number of texels along each edge of a face for an image size
+     *
+     * @param width The width of the image
+     * @param height The height of the image
+     * @return The size of each face
+     */
+    public static int getFaceSize(int width, int height)
+    {
+        return Math.min(width / FACES, height);
+    }
+
+    /**
+     * Get the direction from the centre of the planet through a texel of a
+     * face. The components are whole numbers so that the faces that share
+     * a texel along an edge find exactly the same point.
+     *
+     * @param face The face
+     * @param i The column of the texel
+     * @param j The row of the texel
+     * @param size The number of texels along each edge of a face
+     * @param dir Array to be set to the x, y and z components of the
+     * direction, each from -(size - 1) to size - 1
+     */
+    static void getDirection(int face, int i, int j, int size, double[] dir)
+    {
+        final int m = size - 1;
+        final int a = (2 * i) - m;
+        final int b = (2 * j) - m;
+
+        switch (face)
+        {
+            case 0:
+                dir[0] = m;
+                dir[1] = -b;
+                dir[2] = -a;
+
+                break;
+
+            case 1:
+                dir[0] = -m;
+                dir[1] = -b;
+                dir[2] = a;
+
+                break;
+
+            case 2:
+                dir[0] = a;
+                dir[1] = m;
+                dir[2] = b;
+
+                break;
+
+            case 3:
+                dir[0] = a;
+                dir[1] = -m;
+                dir[2] = -b;
+
+                break;
+
+            case 4:
+                dir[0] = a;
+                dir[1] = -b;
+                dir[2] = m;
+
+                break;
+
+            default:
+                dir[0] = -a;
+                dir[1] = -b;
+                dir[2] = -m;
+
+                break;
+        }
+    }
+
+    /**
+     * Find the texel of a face in a given direction, if the face has one
+     *
+     * @param face The face
+     * @param dir The direction, as set by <code>getDirection()</code>
+     * @param size The number of texels along each edge of a face
+     * @param texel Array to be set to the column and row of the texel
+     * @return <code>true</code> if the direction passes through the face
+     */
+    static boolean locate(int face, double[] dir, int size, int[] texel)
+    {
+        final int m = size - 1;
+        final int axis = face >> 1;
+        final int sign = ((face & 1) == 0) ? 1 : -1;
+
+        if (dir[axis] != (sign * m))
+        {
+            return false;
+        }
+
+        final double a;
+        final double b;
+
+        switch (face)
+        {
+            case 0:
+                a = -dir[2];
+                b = -dir[1];
+
+                break;
+
+            case 1:
+                a = dir[2];
+                b = -dir[1];
+
+                break;
+
+            case 2:
+                a = dir[0];
+                b = dir[2];
+
+                break;
+
+            case 3:
+                a = dir[0];
+                b = -dir[2];
+
+                break;
+
+            case 4:
+                a = dir[0];
+                b = -dir[1];
+
+                break;
+
+            default:
+                a = -dir[0];
+                b = -dir[1];
+
+                break;
+        }
+
+        texel[0] = (int) (a + m) / 2;
+        texel[1] = (int) (b + m) / 2;
+
+        return true;
+    }
+
+    /**
+     * Carry out the projection
+     */
+    public void project()
+    {
+        setcolours();
+
+        final int width = getParameters()
+                .getProjectionParameters()
+                .getWidth();
+        final int height =
+            getParameters()
+                .getProjectionParameters()
+                .getHeight();
+
+        final double lon =
+            getParameters()
+                .getProjectionParameters()
+                .getLongitudeRadians();
+
+        final int size = getFaceSize(width, height);
+
+        if (size < 2)
+        {
+            throw new IllegalArgumentException(
+                "Image is too small for a cube map: " + width + "x" + height);
+        }
+
+        this.faceSize = size;
+
+        cacheParameters();
+
+        allocateImage();
+
+        // detail about as fine as the average spacing of the texels
+        depth = (3 * ((int) (log2((size * 4.0) / Math.PI)))) + 6;
+
+        log.debug("CubeMapProjection starting with depth set to " + depth);
+
+        final double slo = Math.sin(lon);
+        final double clo = Math.cos(lon);
+
+        generatePixels(
+            new PixelMapper()
+            {
+                public boolean mapPixel(
+                    PlanetContext ctx, int i, int j, double[] point)
+                {
+                    if ((j >= size) || (i >= (FACES * size)))
+                    {
+                        return false;
+                    }
+
+                    getDirection(i / size, i % size, j, size, point);
+
+                    final double len =
+                        Math.sqrt(
+                            (point[0] * point[0]) + (point[1] * point[1]) +
+                            (point[2] * point[2]));
+                    final double x = point[0] / len;
+                    final double z = point[2] / len;
+
+                    point[0] = (clo * x) + (slo * z);
+                    point[1] /= len;
+                    point[2] = (clo * z) - (slo * x);
+
+                    return true;
+                }
+            });
+
+        log.debug("CubeMapProjection complete");
+
+        postProcess();
+    }
+
+    /**
+     * Make the texels along the edges of the faces match. Each texel on an
+     * edge is generated once for every face it belongs to from the same
+     * point, so they should already be the same, but the copy makes sure
+     * of it whatever order the points were evaluated in. The stages that
+     * other projections carry out here work across whole rows of the image
+     * so they are not done. Nothing is done when only part of the image
+     * has been rendered as the other faces are not available.
+     */
+    protected void postProcess()
+    {
+        final int size = this.faceSize;
+
+        if (
+            (this.windowX != 0) || (this.windowY != 0) ||
+                (this.windowWidth < (FACES * size)) ||
+                (this.windowHeight < size))
+        {
+            return;
+        }
+
+        final double[] dir = new double[3];
+        final int[] texel = new int[2];
+
+        for (int face = 1; face < FACES; ++face)
+        {
+            for (int k = 0; k < size; ++k)
+            {
+                stitch(face, k, 0, dir, texel);
+                stitch(face, k, size - 1, dir, texel);
+                stitch(face, 0, k, dir, texel);
+                stitch(face, size - 1, k, dir, texel);
+            }
+        }
+    }
+
+    /**
+     * The coasts are not outlined in a cube map, for the same reason that
+     * the shading is not smoothed, so there are no stages to carry out on
+     * the colours
+     *
+     * @return An empty list
+     */
+    protected List<PostStage> createColourStages()
+    {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Copy an edge texel of a face from the first face that shares it
+     *
+     * @param face The face the texel is to be copied to
+     * @param i The column of the texel
+     * @param j The row of the texel
+     * @param dir Array used to hold the direction of the texel
+     * @param texel Array used to hold the position of the texel to copy
+     */
+    private void stitch(int face, int i, int j, double[] dir, int[] texel)
+    {
+        final int size = this.faceSize;
+
+        getDirection(face, i, j, size, dir);
+
+        for (int other = 0; other < face; ++other)
+        {
+            if (locate(other, dir, size, texel))
+            {
+                final int x = (face * size) + i;
+                final int sx = (other * size) + texel[0];
+                final int sy = texel[1];
+
+                final int index = (j * this.windowWidth) + x;
+                final int source = (sy * this.windowWidth) + sx;
+
+                if (this.altitudes != null)
+                {
+                    this.altitudes[index] = this.altitudes[source];
+                }
+
+                if (this.surfaceY != null)
+                {
+                    this.surfaceAltitudes[index] =
+                        this.surfaceAltitudes[source];
+                    this.surfaceY[index] = this.surfaceY[source];
+                }
+
+                if (this.colours != null)
+                {
+                    this.colours.set(x, j, this.colours.get(sx, sy));
+
+                    if (isDoShade())
+                    {
+                        this.shades.set(x, j, this.shades.get(sx, sy));
+                    }
+                }
+
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the number of texels along each edge of a face in the last image
+     * projected
+     *
+     * @return The size of each face
+     */
+    public int getFaceSize()
+    {
+        return this.faceSize;
+    }
+
+    /**
+     * Get the pixels of one face of the last image projected
+     *
+     * @param face The face, from 0 to 5
+     * @return The texels of the face, left to right then top to bottom,
+     * each packed as <code>0xRRGGBB</code>
+     */
+    public int[] getFace(int face)
+    {
+        final int size = this.faceSize;
+        final int[] rgb = new int[size * size];
+
+        getRGB(face * size, 0, size, size, rgb, 0, size);
+
+        for (int n = 0; n < rgb.length; ++n)
+        {
+            rgb[n] &= 0xffffff;
+        }
+
+        return rgb;
+    }
+
+    /**
+     * Get the number of mip levels below the full size faces that can be
+     * made. Each level has one texel for every second texel of the one
+     * above, including the texels on the edges, so a face must have an odd
+     * number of texels to be downsampled. A face of 2^n + 1 texels can be
+     * reduced all the way to 2 texels.
+     *
+     * @return The number of mip levels available
+     */
+    public int getMaxMipLevel()
+    {
+        int size = this.faceSize;
+        int levels = 0;
+
+        while (((size & 1) == 1) && (size > 2))
+        {
+            size = ((size - 1) / 2) + 1;
+            ++levels;
+        }
+
+        return levels;
+    }
+
+    /**
+     * Get the number of texels along each edge of a face at a mip level
+     *
+     * @param level The mip level, 0 being the full size face
+     * @return The size of the face at that level
+     */
+    public int getMipSize(int level)
+    {
+        return ((this.faceSize - 1) >> level) + 1;
+    }
+
+    /**
+     * Make the mip levels of every face of the last image projected. Each
+     * level is filtered from the one above with a tent filter. Texels on
+     * the edges are filtered only from the texels along the same edge, so
+     * faces still match along their edges at every level. If parallel
+     * generation is enabled the faces are divided into bands of rows that
+     * are downsampled at the same time.
+     *
+     * @param levels The number of levels to make below the full size faces
+     * @return The texels of each level of each face, indexed by face and
+     * then level, packed as for <code>getFace()</code>
+     * @throws java.lang.IllegalArgumentException If the faces can't be
+     * reduced that many times
+     */
+    public int[][][] createMipmaps(int levels)
+    {
+        if ((levels < 0) || (levels > getMaxMipLevel()))
+        {
+            throw new IllegalArgumentException(
+                "Can't make " + levels + " mip levels from faces of " +
+                this.faceSize + " texels");
+        }
+
+        final int[][][] mips = new int[FACES][levels + 1][];
+
+        for (int face = 0; face < FACES; ++face)
+        {
+            mips[face][0] = getFace(face);
+        }
+
+        for (int level = 1; level <= levels; ++level)
+        {
+            final int size = getMipSize(level);
+            final List<Callable<Object>> tasks =
+                new ArrayList<Callable<Object>>();
+
+            for (int face = 0; face < FACES; ++face)
+            {
+                final int[] src = mips[face][level - 1];
+                final int[] dst = new int[size * size];
+
+                mips[face][level] = dst;
+
+                for (int row = 0; row < size; row += BAND_ROWS)
+                {
+                    final int first = row;
+                    final int last = Math.min(size, row + BAND_ROWS);
+
+                    tasks.add(
+                        new Callable<Object>()
+                        {
+                            public Object call()
+                            {
+                                downsample(src, dst, size, first, last);
+
+                                return null;
+                            }
+                        });
+                }
+            }
+
+            runTasks(tasks);
+        }
+
+        return mips;
+    }
+
+    /**
+     * Run a set of tasks, in parallel if parallel generation is enabled
+     *
+     * @param tasks The tasks to be run
+     */
+    private void runTasks(List<Callable<Object>> tasks)
+    {
+        try
+        {
+            if (isParallel())
+            {
+                for (Future<Object> f : TILE_POOL.invokeAll(tasks))
+                {
+                    f.get();
+                }
+            }
+            else
+            {
+                for (Callable<Object> task : tasks)
+                {
+                    task.call();
+                }
+            }
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread()
+                .interrupt();
+
+            throw new IllegalStateException("Interrupted making mip levels");
+        }
+        catch (ExecutionException ee)
+        {
+            throw new IllegalStateException(ee.getCause());
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Filter some rows of a mip level from the level above
+     *
+     * @param src The texels of the level above
+     * @param dst The texels of the level being made
+     * @param size The number of texels along each edge of the level being
+     * made
+     * @param first The first row to be made
+     * @param last The row after the last one to be made
+     */
+    private static void downsample(
+        int[] src, int[] dst, int size, int first, int last)
+    {
+        final int srcSize = (2 * (size - 1)) + 1;
+        final int end = size - 1;
+
+        for (int j = first; j < last; ++j)
+        {
+            final int sj = 2 * j;
+            final boolean edgeRow = (j == 0) || (j == end);
+
+            for (int i = 0; i < size; ++i)
+            {
+                final int si = 2 * i;
+                final boolean edgeColumn = (i == 0) || (i == end);
+                final int centre = (sj * srcSize) + si;
+
+                if (edgeRow && edgeColumn)
+                {
+                    // a corner of the cube
+                    dst[(j * size) + i] = src[centre];
+                }
+                else if (edgeRow)
+                {
+                    dst[(j * size) + i] =
+                        filter(src, centre, 1, 0, 4);
+                }
+                else if (edgeColumn)
+                {
+                    dst[(j * size) + i] =
+                        filter(src, centre, srcSize, 0, 4);
+                }
+                else
+                {
+                    dst[(j * size) + i] =
+                        filter(src, centre, 1, srcSize, 16);
+                }
+            }
+        }
+    }
+
+    /**
+     * Filter the texels around a texel with a tent filter, in one
+     * direction or two
+     *
+     * @param src The texels to be filtered
+     * @param centre The index of the texel at the centre of the filter
+     * @param step1 The distance between texels in the first direction
+     * @param step2 The distance between texels in the second direction, or
+     * 0 to filter in one direction only
+     * @param total The sum of the weights of the filter
+     * @return The filtered texel
+     */
+    private static int filter(
+        int[] src, int centre, int step1, int step2, int total)
+    {
+        // MagicNumber OFF
+        int r = 0;
+        int g = 0;
+        int b = 0;
+
+        final int rows = (step2 == 0) ? 0 : 1;
+
+        for (int v = -rows; v <= rows; ++v)
+        {
+            final int wv = (v == 0) ? 2 : 1;
+
+            for (int u = -1; u <= 1; ++u)
+            {
+                final int w = ((u == 0) ? 2 : 1) * wv;
+                final int p = src[centre + (v * step2) + (u * step1)];
+
+                r += (w * ((p >> 16) & 0xff));
+                g += (w * ((p >> 8) & 0xff));
+                b += (w * (p & 0xff));
+            }
+        }
+
+        final int half = total / 2;
+
+        return (((r + half) / total) << 16) | (((g + half) / total) << 8) |
+        ((b + half) / total);
+
+        // MagicNumber ON
+    }
+
+    /**
+     * Write each face of the last image projected to a PNG file in a
+     * directory, followed by its mip levels. The faces are named
+     * <code>px.png</code>, <code>nx.png</code>, <code>py.png</code>,
+     * <code>ny.png</code>, <code>pz.png</code> and <code>nz.png</code>,
+     * and mip level n of a face is named with <code>_n</code> after the
+     * name of the face.
+     *
+     * @param directory The directory the files are to be written to
+     * @param levels The number of mip levels below the full size faces
+     * @return The number of files written
+     * @throws java.io.IOException If there is an error writing a file
+     */
+    public int writeFaces(File directory, int levels)
+        throws IOException
+    {
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException("Unable to create directory: " + directory);
+        }
+
+        final int[][][] mips = createMipmaps(levels);
+        int count = 0;
+
+        for (int face = 0; face < FACES; ++face)
+        {
+            for (int level = 0; level <= levels; ++level)
+            {
+                final int size = getMipSize(level);
+                final BufferedImage image =
+                    new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+                final int[] data =
+                    ((DataBufferInt) image.getRaster()
+                        .getDataBuffer()).getData();
+
+                System.arraycopy(mips[face][level], 0, data, 0, data.length);
+
+                final String name =
+                    FACE_NAMES[face] + ((level == 0) ? "" : ("_" + level)) +
+                    ".png";
+
+                if (!ImageIO.write(image, "png", new File(directory, name)))
+                {
+                    throw new IOException("No PNG writer available");
+                }
+
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns a string representation of the object. In general, the
+     * <code>toString</code> method returns a string that
+     * "textually represents" this object. The result should
+     * be a concise but informative representation that is easy for a
+     * person to read.
+     * It is recommended that all subclasses override this method.
+     * <p>
+     * The <code>toString</code> method for class <code>Object</code>
+     * returns a string consisting of the name of the class of which the
+     * object is an instance, the at-sign character `<code>@</code>', and
+     * the unsigned hexadecimal representation of the hash code of the
+     * object. In other words, this method returns a string equal to the
+     * value of:
+     * <blockquote>
+     * <pre>
+     * getClass().getName() + '@' + Integer.toHexString(hashCode())
+     * </pre></blockquote>
+     *
+     *
+     * @return a string representation of the object.
+     */
+    public String toString()
+    {
+        return "Cube Map Projection";
+    }
+
+    /**
+     * Get the name of the thumbnail image to use for this projection
+     *
+     * @return The name of the thumbmail image
+     */
+    public String getThumbnailName()
+    {
+        return "t_cubemap";
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * GlobeAnimator.java
+ *
+ * Created on October 17, 2026, 11:30 PM
+ *
+ */
+package com.alvermont.terraj.planet.project;
+
+import com.alvermont.terraj.fracplanet.util.DummyProgress;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.AltitudeCache;
+import com.alvermont.terraj.planet.AltitudeGrid;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Renders the frames of an animation of a planet turning about its axis.
+ * The terrain is looked up in an <code>AltitudeCache</code> that is kept
+ * from frame to frame, so each frame only generates the parts of the planet
+ * that have just come into view. Frames are written out by a separate
+ * thread while the next one is being rendered.
+ *
+ * @version $Id$
+ */
+public class GlobeAnimator
+{
+    /** Our logging object */
+    private static Log log = LogFactory.getLog(GlobeAnimator.class);
+
+    // RequireThis OFF: log
+
+    /** The number of frames that can wait to be written */
+    private static final int QUEUE_SIZE = 2;
+
+    /** How long to wait for the writer before checking it is still running,
+     * in milliseconds */
+    private static final long WAIT_MILLIS = 100;
+
+    /** The smallest cache resolution chosen automatically */
+    private static final int MIN_RESOLUTION = 16;
+
+    /** The parameters of the planet and the first frame */
+    private final AllPlanetParameters params;
+
+    /** The cache of terrain kept between frames */
+    private AltitudeCache cache;
+
+    /**
+     * Creates a new instance of GlobeAnimator
+     *
+     * @param params The parameters of the planet and the first frame. The
+     * projection named in the parameters is used, turning the longitude
+     * from one frame to the next.
+     */
+    public GlobeAnimator(AllPlanetParameters params)
+    {
+        this.params = new AllPlanetParameters(params);
+    }
+
+    /**
+     * Get the cache resolution that gives about one sample per pixel at the
+     * centre of the image
+     *
+     * @return The number of samples along each edge of a face of the cache
+     */
+    private int getDefaultResolution()
+    {
+        final int size =
+            Math.max(
+                this.params.getProjectionParameters().getWidth(),
+                this.params.getProjectionParameters().getHeight());
+
+        final double resolution =
+            Math.ceil(
+                (Math.PI / 4) * this.params.getProjectionParameters().getScale() * size);
+
+        return (int) Math.max(
+            MIN_RESOLUTION, Math.min(resolution, AltitudeGrid.MAX_RESOLUTION));
+    }
+
+    /**
+     * Get the cache of terrain used by the animation, creating it if it
+     * doesn't exist yet
+     *
+     * @return The cache of terrain
+     */
+    public synchronized AltitudeCache getCache()
+    {
+        if (this.cache == null)
+        {
+            final int resolution =
+                (this.cacheResolution > 0) ? this.cacheResolution
+                                           : getDefaultResolution();
+
+            this.cache = new AltitudeCache(this.params, resolution);
+        }
+
+        return this.cache;
+    }
+
+    /**
+     * Render the frames of the animation and write them out as numbered
+     * image files. The longitude moves on by the same amount in each frame.
+     *
+     * @param frames The number of frames to render
+     * @param step The change of longitude from one frame to the next, in
+     * degrees
+     * @param directory The directory the frames are written to
+     * @return The number of frames written
+     * @throws java.io.IOException If there is an error writing a frame
+     */
+    public int renderFrames(int frames, double step, final File directory)
+        throws IOException
+    {
+        final ProjectionManager mgr = new ProjectionManager();
+        final Projector found =
+            mgr.createProjector(
+                this.params.getProjectionParameters().getProjectionName());
+
+        if (!(found instanceof AbstractProjector))
+        {
+            throw new IllegalArgumentException(
+                "Unknown projection or one that can't be animated: " +
+                this.params.getProjectionParameters().getProjectionName());
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException("Unable to create directory: " + directory);
+        }
+
+        final AbstractProjector proj = (AbstractProjector) found;
+        final AltitudeCache frameCache = getCache();
+        final int width = this.params.getProjectionParameters()
+                .getWidth();
+        final int height =
+            this.params.getProjectionParameters()
+                .getHeight();
+        final double lon0 = this.params.getProjectionParameters()
+                .getLon();
+
+        // one image is being rendered while the others wait or are written
+        final BlockingQueue<BufferedImage> free =
+            new ArrayBlockingQueue<BufferedImage>(QUEUE_SIZE + 1);
+        final BlockingQueue<Frame> written =
+            new ArrayBlockingQueue<Frame>(QUEUE_SIZE);
+
+        for (int i = 0; i <= QUEUE_SIZE; ++i)
+        {
+            free.add(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+        }
+
+        final ExecutorService writerThread = Executors.newSingleThreadExecutor();
+        final Future<Integer> writer =
+            writerThread.submit(
+                new Callable<Integer>()
+                {
+                    public Integer call() throws Exception
+                    {
+                        return writeFrames(written, free, directory);
+                    }
+                });
+
+        proj.setProgress(new DummyProgress());
+        proj.setAltitudeGrid(frameCache);
+
+        try
+        {
+            for (int f = 0; f < frames; ++f)
+            {
+                final AllPlanetParameters frameParams =
+                    new AllPlanetParameters(this.params);
+
+                frameParams.getProjectionParameters()
+                    .setLon(normaliseLongitude(lon0 + (f * step)));
+
+                final long generated = frameCache.getSamplesGenerated();
+                final long start = System.nanoTime();
+
+                proj.setParameters(frameParams);
+                ((Projector) proj).project();
+
+                final BufferedImage image = take(free, writer);
+                final int[] data =
+                    ((DataBufferInt) image.getRaster()
+                        .getDataBuffer()).getData();
+
+                proj.getRGB(0, 0, width, height, data, 0, width);
+
+                put(written, new Frame(f, image), writer);
+
+                log.debug(
+                    "Frame " + f + " rendered in " +
+                    ((System.nanoTime() - start) / 1000000) + " ms, " +
+                    (frameCache.getSamplesGenerated() - generated) +
+                    " samples generated");
+            }
+
+            put(written, new Frame(-1, null), writer);
+
+            return writer.get();
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread()
+                .interrupt();
+
+            throw new IOException("Interrupted rendering frames");
+        }
+        catch (ExecutionException ee)
+        {
+            if (ee.getCause() instanceof IOException)
+            {
+                throw (IOException) ee.getCause();
+            }
+
+            throw new RuntimeException(ee.getCause());
+        }
+        finally
+        {
+            writerThread.shutdownNow();
+            proj.setAltitudeGrid(null);
+            proj.releaseResources();
+        }
+    }
+
+    /**
+     * Bring a longitude into the range -180 to 180 degrees
+     *
+     * @param lon The longitude in degrees
+     * @return The same longitude in the range -180 to 180
+     */
+    private static double normaliseLongitude(double lon)
+    {
+        double result = lon % 360.0;
+
+        if (result > 180.0)
+        {
+            result -= 360.0;
+        }
+        else if (result < -180.0)
+        {
+            result += 360.0;
+        }
+
+        return result;
+    }
+
+    /**
+     * Write frames out as they arrive until the end is signalled by a frame
+     * with no image. Each image is returned for reuse once it is written.
+     *
+     * @param written The frames waiting to be written
+     * @param free The images that can be reused
+     * @param directory The directory the frames are written to
+     * @return The number of frames written
+     * @throws java.io.IOException If there is an error writing a frame
+     * @throws java.lang.InterruptedException If the thread is interrupted
+     */
+    private int writeFrames(
+        BlockingQueue<Frame> written, BlockingQueue<BufferedImage> free,
+        File directory)
+        throws IOException, InterruptedException
+    {
+        int count = 0;
+        Frame frame = written.take();
+
+        while (frame.image != null)
+        {
+            final File file =
+                new File(directory, getFrameName(frame.index));
+
+            if (!ImageIO.write(frame.image, "png", file))
+            {
+                throw new IOException("No PNG writer available");
+            }
+
+            free.put(frame.image);
+            ++count;
+
+            frame = written.take();
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the name of the file a frame is written to
+     *
+     * @param index The number of the frame, counting from zero
+     * @return The file name of the frame
+     */
+    public static String getFrameName(int index)
+    {
+        return "frame" + String.format("%05d", index) + ".png";
+    }
+
+    /**
+     * Take an item from a queue, giving up if the writer stops
+     *
+     * @param queue The queue to take from
+     * @param writer The result of the writer
+     * @return The item taken
+     * @throws java.lang.InterruptedException If the thread is interrupted
+     * @throws java.util.concurrent.ExecutionException If the writer failed
+     */
+    private static <T> T take(BlockingQueue<T> queue, Future<Integer> writer)
+        throws InterruptedException, ExecutionException
+    {
+        T item = queue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+
+        while (item == null)
+        {
+            checkWriter(writer);
+
+            item = queue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        return item;
+    }
+
+    /**
+     * Add an item to a queue, giving up if the writer stops
+     *
+     * @param queue The queue to add to
+     * @param item The item to add
+     * @param writer The result of the writer
+     * @throws java.lang.InterruptedException If the thread is interrupted
+     * @throws java.util.concurrent.ExecutionException If the writer failed
+     */
+    private static <T> void put(
+        BlockingQueue<T> queue, T item, Future<Integer> writer)
+        throws InterruptedException, ExecutionException
+    {
+        while (!queue.offer(item, WAIT_MILLIS, TimeUnit.MILLISECONDS))
+        {
+            checkWriter(writer);
+        }
+    }
+
+    /**
+     * Check that the writer is still running
+     *
+     * @param writer The result of the writer
+     * @throws java.util.concurrent.ExecutionException If the writer failed
+     * @throws java.lang.InterruptedException If the thread is interrupted
+     */
+    private static void checkWriter(Future<Integer> writer)
+        throws InterruptedException, ExecutionException
+    {
+        if (writer.isDone())
+        {
+            // throws the exception that stopped the writer
+            writer.get();
+
+            throw new IllegalStateException("Frame writer stopped early");
+        }
+    }
+
+    /**
+     * A rendered frame waiting to be written
+     */
+    private static class Frame
+    {
+        /** The number of the frame, or -1 to mark the end */
+        private final int index;
+
+        /** The image of the frame, or <code>null</code> to mark the end */
+        private final BufferedImage image;
+
+        /**
+         * Creates a new instance of Frame
+         *
+         * @param index The number of the frame
+         * @param image The image of the frame
+         */
+        public Frame(int index, BufferedImage image)
+        {
+            this.index = index;
+            this.image = image;
+        }
+    }
+
+    /**
+     * Holds value of property cacheResolution.
+     */
+    private int cacheResolution;
+
+    /**
+     * Getter for property cacheResolution.
+     * @return Value of property cacheResolution.
+     */
+    public int getCacheResolution()
+    {
+        return this.cacheResolution;
+    }
+
+    /**
+     * Setter for property cacheResolution. If this is zero the resolution
+     * is chosen to give about one sample per pixel at the centre of the
+     * image. It must be set before the cache is first used.
+     * @param cacheResolution New value of property cacheResolution.
+     */
+    public void setCacheResolution(int cacheResolution)
+    {
+        this.cacheResolution = cacheResolution;
+    }
+}
@@ -46,6 +46,7 @@
 package com.alvermont.terraj.planet.project;
 
 import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.PlanetContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -113,15 +114,9 @@ public class GnomonicProjection extends AbstractProjector implements Projector
                 .getProjectionParameters()
                 .getVgrid();
 
-        final boolean doShade =
-            getParameters()
-                .getProjectionParameters()
-                .isDoShade();
-
         cacheParameters();
 
-        colours = new short[width][height];
-        shades = new short[width][height];
+        allocateImage();
 
         final double sla = Math.sin(lat);
         final double cla = Math.cos(lat);
@@ -144,49 +139,36 @@ public class GnomonicProjection extends AbstractProjector implements Projector
         int i;
         int j;
 
-        ymin = 2.0;
-        ymax = -2.0;
-
-        progress.progressStart(height, "Generating Terrain");
-
-        for (j = 0; j < height; ++j)
-        {
-            progress.progressStep(j);
 
-            for (i = 0; i < width; ++i)
+        generatePixels(
+            new PixelMapper()
             {
-                x = ((2.0 * i) - width) / height / scale;
-                y = ((2.0 * j) - height) / height / scale;
-                zz = Math.sqrt(1.0 / (1.0 + (x * x) + (y * y)));
-
-                x = x * zz;
-                y = y * zz;
-                z = Math.sqrt(1.0 - (x * x) - (y * y));
-
-                x1 = (clo * x) + (slo * sla * y) + (slo * cla * z);
-                y1 = (cla * y) - (sla * z);
-                z1 = (-slo * x) + (clo * sla * y) + (clo * cla * z);
-
-                if (y1 < ymin)
+                public boolean mapPixel(
+                    PlanetContext ctx, int i, int j, double[] point)
                 {
-                    ymin = y1;
-                }
+                    double x;
+                    double y;
+                    double z;
+                    double zz;
 
-                if (y1 > ymax)
-                {
-                    ymax = y1;
-                }
+                    x = ((2.0 * i) - width) / height / scale;
+                    y = ((2.0 * j) - height) / height / scale;
+                    zz = Math.sqrt(1.0 / (1.0 + (x * x) + (y * y)));
 
-                colours[i][j] = (short) planet0(x1, y1, z1);
+                    x = x * zz;
+                    y = y * zz;
+                    z = Math.sqrt(1.0 - (x * x) - (y * y));
 
-                if (doShade)
-                {
-                    shades[i][j] = shade;
+                    point[0] = (clo * x) + (slo * sla * y) + (slo * cla * z);
+                    point[1] = (cla * y) - (sla * z);
+                    point[2] = (-slo * x) + (clo * sla * y) + (clo * cla * z);
+
+                    return true;
                 }
-            }
-        }
+            });
 
-        progress.progressComplete("Terrain Generated");
+        ymin = getYMin();
+        ymax = getYMax();
 
         if (hgrid != 0.0)
         {
@@ -224,7 +206,7 @@ public class GnomonicProjection extends AbstractProjector implements Projector
                                 (0 <= i) && (i < width) && (0 <= j) &&
                                     (j < height))
                             {
-                                colours[i][j] = BLACK;
+                                plot(i, j, BLACK);
                             }
                         }
                     }
@@ -263,7 +245,7 @@ public class GnomonicProjection extends AbstractProjector implements Projector
                                 (0 <= i) && (i < width) && (0 <= j) &&
                                     (j < height))
                             {
-                                colours[i][j] = BLACK;
+                                plot(i, j, BLACK);
                             }
                         }
                     }
@@ -271,12 +253,7 @@ public class GnomonicProjection extends AbstractProjector implements Projector
             }
         }
 
-        if (doShade)
-        {
-            smoothshades();
-        }
-
-        doOutlining();
+        postProcess();
     }
 
     /**
@@ -52,6 +52,7 @@
 package com.alvermont.terraj.planet.project;
 
 import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.meghnasoft.async.AbstractAsynchronousAction;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -86,7 +87,9 @@ public class HeightfieldGenerator extends AbstractProjector
     }
 
     /**
-     * Generate the heightfield data
+     * Generate the heightfield data. This stops between rows if
+     * <code>cancel()</code> is called, or if it is running as part of an
+     * asynchronous action that is cancelled.
      */
     public void generate()
     {
@@ -132,8 +135,10 @@ public class HeightfieldGenerator extends AbstractProjector
         double y1;
         double z1;
 
-        for (int j = 0; j < height; ++j)
+        for (int j = 0; (j < height) && !isCancelled(); ++j)
         {
+            AbstractAsynchronousAction.checkCancelled();
+
             for (int i = 0; i < width; ++i)
             {
                 x = ((2.0 * i) - width) / height / scale;
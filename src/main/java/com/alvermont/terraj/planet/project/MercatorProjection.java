@@ -52,6 +52,9 @@
 package com.alvermont.terraj.planet.project;
 
 import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.PlanetContext;
+import java.util.Collections;
+import java.util.List;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -119,61 +122,52 @@ public class MercatorProjection extends AbstractProjector implements Projector
                 .getProjectionParameters()
                 .getVgrid();
 
-        final boolean doShade =
-            getParameters()
-                .getProjectionParameters()
-                .isDoShade();
-
         cacheParameters();
 
-        colours = new short[width][height];
-        shades = new short[width][height];
+        allocateImage();
 
         double y;
-        double scale1;
-        double cos2;
         double theta1;
         int i;
         int j;
-        int k;
 
         y = Math.sin(lat);
         y = (1.0 + y) / (1.0 - y);
         y = 0.5 * Math.log(y);
-        k = (int) ((0.5 * y * width * scale) / Math.PI);
 
-        progress.progressStart(height, "Generating Terrain");
+        final int k = (int) ((0.5 * y * width * scale) / Math.PI);
 
-        for (j = 0; j < height; ++j)
-        {
-            //            if (debug && ((j % (Height/25)) == 0))
-            //            {fprintf(stderr, "%c", view); fflush(stderr);}
-            progress.progressStep(j);
+        generatePixels(
+            new PixelMapper()
+            {
+                public boolean mapPixel(
+                    PlanetContext ctx, int i, int j, double[] point)
+                {
+                    double y;
+                    double scale1;
+                    double cos2;
+                    double theta1;
 
-            y = (Math.PI * ((2.0 * (j - k)) - height)) / width / scale;
-            y = Math.exp(2. * y);
-            y = (y - 1.) / (y + 1.);
+                    y = (Math.PI * ((2.0 * (j - k)) - height)) / width / scale;
+                    y = Math.exp(2. * y);
+                    y = (y - 1.) / (y + 1.);
 
-            scale1 = (scale * width) / height / Math.sqrt(1.0 - (y * y)) / Math.PI;
+                    scale1 = (scale * width) / height /
+                        Math.sqrt(1.0 - (y * y)) / Math.PI;
 
-            cos2 = Math.sqrt(1.0 - (y * y));
-            depth = (3 * ((int) (log2(scale1 * height)))) + 3;
+                    cos2 = Math.sqrt(1.0 - (y * y));
+                    ctx.setDepth((3 * ((int) (log2(scale1 * height)))) + 3);
 
-            for (i = 0; i < width; ++i)
-            {
-                theta1 = lon - (0.5 * Math.PI) +
-                    ((Math.PI * ((2.0 * i) - width)) / width / scale);
-                colours[i][j] = (short) planet0(
-                        Math.cos(theta1) * cos2, y, -Math.sin(theta1) * cos2);
+                    theta1 = lon - (0.5 * Math.PI) +
+                        ((Math.PI * ((2.0 * i) - width)) / width / scale);
 
-                if (doShade)
-                {
-                    shades[i][j] = shade;
-                }
-            }
-        }
+                    point[0] = Math.cos(theta1) * cos2;
+                    point[1] = y;
+                    point[2] = -Math.sin(theta1) * cos2;
 
-        progress.progressComplete("Terrain Generated");
+                    return true;
+                }
+            });
 
         if (hgrid != 0.0)
         {
@@ -191,8 +185,8 @@ public class MercatorProjection extends AbstractProjector implements Projector
 
                 if ((j >= 0) && (j < height))
                 {
-                    for (i = 0; i < width; ++i)
-                        colours[i][j] = BLACK;
+                    for (i = windowX; i < (windowX + windowWidth); ++i)
+                        plot(i, j, BLACK);
                 }
             }
         }
@@ -210,18 +204,29 @@ public class MercatorProjection extends AbstractProjector implements Projector
 
                 if ((i >= 0) && (i < width))
                 {
-                    for (j = 0; j < height; ++j)
-                        colours[i][j] = BLACK;
+                    for (j = windowY; j < (windowY + windowHeight); ++j)
+                        plot(i, j, BLACK);
                 }
             }
         }
 
-        if (doShade)
+        if (isDoShade())
         {
             smoothshades();
         }
     }
 
+    /**
+     * The coasts are not outlined in this projection, so there are no
+     * stages to carry out on the colours
+     *
+     * @return An empty list
+     */
+    protected List<PostStage> createColourStages()
+    {
+        return Collections.emptyList();
+    }
+
     /**
      * Returns a string representation of the object. In general, the
      * <code>toString</code> method returns a string that
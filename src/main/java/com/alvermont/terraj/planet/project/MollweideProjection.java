@@ -52,6 +52,7 @@
 package com.alvermont.terraj.planet.project;
 
 import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.PlanetContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -133,28 +134,17 @@ public class MollweideProjection extends AbstractProjector implements Projector
                 .getProjectionParameters()
                 .getVgrid();
 
-        final boolean doShade =
-            getParameters()
-                .getProjectionParameters()
-                .isDoShade();
-
         cacheParameters();
 
-        colours = new short[width][height];
-        shades = new short[width][height];
+        allocateImage();
 
         depth = (3 * ((int) (log2(scale * height)))) + 6;
 
         log.debug("MollweideProjection starting with depth set to " + depth);
 
-        progress.progressStart(height, "Generating Terrain");
-
         double x;
         double y;
         double y1;
-        double zz;
-        double scale1;
-        double cos2;
         double theta1;
         double theta2;
         int i;
@@ -162,67 +152,54 @@ public class MollweideProjection extends AbstractProjector implements Projector
         int i1 = 1;
         int k;
 
-        for (j = 0; j < height; ++j)
-        {
-            progress.progressStep(j);
-
-            y1 = (2 * ((2.0 * j) - height)) / width / scale;
-
-            if (Math.abs(y1) >= 1.0)
+        generatePixels(
+            new PixelMapper()
             {
-                for (i = 0; i < width; ++i)
+                public boolean mapPixel(
+                    PlanetContext ctx, int i, int j, double[] point)
                 {
-                    colours[i][j] = backgroundColour;
+                    double y;
+                    double y1;
+                    double zz;
+                    double scale1;
+                    double cos2;
+                    double theta1;
 
-                    if (doShade)
+                    y1 = (2 * ((2.0 * j) - height)) / width / scale;
+
+                    if (Math.abs(y1) >= 1.0)
                     {
-                        shades[i][j] = 255;
+                        return false;
                     }
-                }
-            }
-            else
-            {
-                zz = Math.sqrt(1.0 - (y1 * y1));
-                y = 2.0 / Math.PI * ((y1 * zz) + Math.asin(y1));
-                cos2 = Math.sqrt(1.0 - (y * y));
 
-                if (cos2 > 0.0)
-                {
-                    scale1 = (scale * width) / height / cos2 / Math.PI;
-                    depth = (3 * ((int) (log2(scale1 * height)))) + 3;
+                    zz = Math.sqrt(1.0 - (y1 * y1));
+                    y = 2.0 / Math.PI * ((y1 * zz) + Math.asin(y1));
+                    cos2 = Math.sqrt(1.0 - (y * y));
 
-                    for (i = 0; i < width; ++i)
+                    if (cos2 <= 0.0)
                     {
-                        theta1 = (Math.PI / zz * ((2.0 * i) - width)) / width / scale;
-
-                        if (Math.abs(theta1) > Math.PI)
-                        {
-                            colours[i][j] = backgroundColour;
+                        return false;
+                    }
 
-                            if (doShade)
-                            {
-                                shades[i][j] = 255;
-                            }
-                        }
-                        else
-                        {
-                            theta1 += (lon - (0.5 * Math.PI));
+                    scale1 = (scale * width) / height / cos2 / Math.PI;
+                    ctx.setDepth((3 * ((int) (log2(scale1 * height)))) + 3);
 
-                            colours[i][j] = (short) planet0(
-                                    Math.cos(theta1) * cos2, y,
-                                    -Math.sin(theta1) * cos2);
+                    theta1 = (Math.PI / zz * ((2.0 * i) - width)) / width / scale;
 
-                            if (doShade)
-                            {
-                                shades[i][j] = shade;
-                            }
-                        }
+                    if (Math.abs(theta1) > Math.PI)
+                    {
+                        return false;
                     }
-                }
-            }
-        }
 
-        progress.progressComplete("Terrain Generated");
+                    theta1 += (lon - (0.5 * Math.PI));
+
+                    point[0] = Math.cos(theta1) * cos2;
+                    point[1] = y;
+                    point[2] = -Math.sin(theta1) * cos2;
+
+                    return true;
+                }
+            });
 
         log.debug("MollweideProjection complete");
 
@@ -266,7 +243,7 @@ public class MollweideProjection extends AbstractProjector implements Projector
                                 (width / 2) +
                                 (int) (0.5 * width * scale * Math.sqrt(
                                     1.0 - (y * y)))); ++i)
-                        colours[i][j] = BLACK;
+                        plot(i, j, BLACK);
                 }
             }
         }
@@ -310,7 +287,7 @@ public class MollweideProjection extends AbstractProjector implements Projector
 
                             if ((i1 >= 0) && (i1 < width))
                             {
-                                colours[i1][j] = BLACK;
+                                plot(i1, j, BLACK);
                             }
                         }
 
@@ -322,7 +299,7 @@ public class MollweideProjection extends AbstractProjector implements Projector
                                 {
                                     if ((k > 00) && (k < width))
                                     {
-                                        colours[k][j] = BLACK;
+                                        plot(k, j, BLACK);
                                     }
                                 }
                             }
@@ -332,7 +309,7 @@ public class MollweideProjection extends AbstractProjector implements Projector
                                 {
                                     if ((k >= 0) && (k < width))
                                     {
-                                        colours[k][j] = BLACK;
+                                        plot(k, j, BLACK);
                                     }
                                 }
                             }
@@ -345,12 +322,7 @@ public class MollweideProjection extends AbstractProjector implements Projector
             }
         }
 
-        if (doShade)
-        {
-            smoothshades();
-        }
-
-        doOutlining();
+        postProcess();
     }
 
     /**
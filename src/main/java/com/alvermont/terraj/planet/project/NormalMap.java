@@ -0,0 +1,309 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * NormalMap.java
+ *
+ * Created on October 18, 2026, 5:30 PM
+ *
+ */
+package com.alvermont.terraj.planet.project;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Works out a tangent space normal map from the altitudes of an image. The
+ * slope at each pixel is found by central differences with the pixels on
+ * either side, or one sided differences at the edges of the image and next
+ * to the background. The normals are packed as RGB with red to the right,
+ * green up the image and blue out of the surface, each mapped from -1..1
+ * to 0..255, so a flat pixel is <code>0x8080ff</code>.
+ *
+ * Altitudes below sea level are taken to be at sea level so that the sea
+ * is flat, and the background is given flat normals. The image is divided
+ * into square tiles that can be processed by the threads of a pool; each
+ * normal depends only on the altitudes so the result is the same however
+ * the work is divided.
+ *
+ * @version $Id$
+ */
+class NormalMap
+{
+    /** The width and height of the tiles the image is divided into */
+    private static final int TILE_SIZE = 64;
+
+    /** The packed normal of a flat pixel */
+    static final int FLAT = 0x8080ff;
+
+    /** The altitudes of the image, row by row */
+    private final float[] altitudes;
+
+    /** The width of the image */
+    private final int width;
+
+    /** The height of the image */
+    private final int height;
+
+    /** The factor that converts a change of altitude from one pixel to the
+     * next into a slope */
+    private final double slopeScale;
+
+    /** The number of tiles across the image */
+    private final int tilesAcross;
+
+    /** The array the normals are stored in */
+    private int[] rgb;
+
+    /** The index in the array of the first pixel */
+    private int offset;
+
+    /** The distance in the array from one row to the next */
+    private int scanline;
+
+    /**
+     * Creates a new instance of NormalMap
+     *
+     * @param altitudes The altitudes of the image, row by row, with
+     * <code>NaN</code> for the background
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param slopeScale The factor that converts a change of altitude from
+     * one pixel to the next into a slope, that is the number of pixels per
+     * unit of altitude
+     */
+    public NormalMap(float[] altitudes, int width, int height, double slopeScale)
+    {
+        this.altitudes = altitudes;
+        this.width = width;
+        this.height = height;
+        this.slopeScale = slopeScale;
+        this.tilesAcross = ((width + TILE_SIZE) - 1) / TILE_SIZE;
+    }
+
+    /**
+     * Work out the normals of the whole image
+     *
+     * @param rgb The array the packed normals are to be stored in
+     * @param offset The index in the array of the first pixel
+     * @param scanline The distance in the array from one row to the next
+     * @param pool The pool to process tiles of the image with, or
+     * <code>null</code> to process the whole image on the calling thread
+     */
+    public void run(int[] rgb, int offset, int scanline, ForkJoinPool pool)
+    {
+        this.rgb = rgb;
+        this.offset = offset;
+        this.scanline = scanline;
+
+        final int tiles =
+            this.tilesAcross * (((this.height + TILE_SIZE) - 1) / TILE_SIZE);
+
+        if (pool != null)
+        {
+            pool.invoke(new TileTask(0, tiles));
+        }
+        else
+        {
+            for (int t = 0; t < tiles; ++t)
+            {
+                processTile(t);
+            }
+        }
+    }
+
+    /**
+     * Get the altitude of a pixel, with the sea flattened
+     *
+     * @param i The x coordinate of the pixel
+     * @param j The y coordinate of the pixel
+     * @return The altitude, or <code>NaN</code> for the background
+     */
+    private double getAltitude(int i, int j)
+    {
+        final float alt = this.altitudes[(j * this.width) + i];
+
+        return (alt < 0.0f) ? 0.0 : alt;
+    }
+
+    /**
+     * Work out the normals of one tile
+     *
+     * @param tile The index of the tile, counting across then down
+     */
+    private void processTile(int tile)
+    {
+        final int x0 = (tile % this.tilesAcross) * TILE_SIZE;
+        final int y0 = (tile / this.tilesAcross) * TILE_SIZE;
+        final int x1 = Math.min(x0 + TILE_SIZE, this.width);
+        final int y1 = Math.min(y0 + TILE_SIZE, this.height);
+
+        for (int j = y0; j < y1; ++j)
+        {
+            final int row = this.offset + (j * this.scanline);
+
+            for (int i = x0; i < x1; ++i)
+            {
+                final double centre = getAltitude(i, j);
+
+                if (Double.isNaN(centre))
+                {
+                    this.rgb[row + i] = FLAT;
+
+                    continue;
+                }
+
+                final double dx =
+                    difference(
+                        centre, (i > 0) ? getAltitude(i - 1, j) : Double.NaN,
+                        (i < (this.width - 1)) ? getAltitude(i + 1, j)
+                                               : Double.NaN);
+
+                // rows go down the image but the normal's y goes up
+                final double dy =
+                    difference(
+                        centre,
+                        (j < (this.height - 1)) ? getAltitude(i, j + 1)
+                                                : Double.NaN,
+                        (j > 0) ? getAltitude(i, j - 1) : Double.NaN);
+
+                final double nx = -dx * this.slopeScale;
+                final double ny = -dy * this.slopeScale;
+                final double len = Math.sqrt((nx * nx) + (ny * ny) + 1.0);
+
+                this.rgb[row + i] =
+                    (pack(nx / len) << 16) | (pack(ny / len) << 8) |
+                    pack(1.0 / len);
+            }
+        }
+    }
+
+    /**
+     * Find the change in altitude from one pixel to the next, using the
+     * neighbours on both sides if they are both part of the planet
+     *
+     * @param centre The altitude of the pixel
+     * @param before The altitude of the previous pixel, or <code>NaN</code>
+     * @param after The altitude of the next pixel, or <code>NaN</code>
+     * @return The change in altitude per pixel
+     */
+    private static double difference(double centre, double before, double after)
+    {
+        if (Double.isNaN(before))
+        {
+            return Double.isNaN(after) ? 0.0 : (after - centre);
+        }
+
+        if (Double.isNaN(after))
+        {
+            return centre - before;
+        }
+
+        return 0.5 * (after - before);
+    }
+
+    /**
+     * Convert a component of a normal to a byte
+     *
+     * @param v The component, from -1 to 1
+     * @return The component from 0 to 255
+     */
+    private static int pack(double v)
+    {
+        // MagicNumber OFF
+        return Math.max(0, Math.min(255, (int) Math.round((v + 1.0) * 127.5)));
+
+        // MagicNumber ON
+    }
+
+    /**
+     * A task that works out the normals of a range of tiles, splitting the
+     * range between two tasks until it is a single tile
+     */
+    private class TileTask extends RecursiveAction
+    {
+        /** The version of the serialized form of this class */
+        private static final long serialVersionUID = 1L;
+
+        /** The first tile of the range */
+        private final int first;
+
+        /** The tile after the last one of the range */
+        private final int last;
+
+        /**
+         * Creates a new instance of TileTask
+         *
+         * @param first The first tile of the range
+         * @param last The tile after the last one of the range
+         */
+        public TileTask(int first, int last)
+        {
+            this.first = first;
+            this.last = last;
+        }
+
+        /**
+         * Work out the normals of the range of tiles
+         */
+        protected void compute()
+        {
+            if ((this.last - this.first) <= 1)
+            {
+                if (this.first < this.last)
+                {
+                    processTile(this.first);
+                }
+            }
+            else
+            {
+                final int mid = (this.first + this.last) >>> 1;
+
+                invokeAll(
+                    new TileTask(this.first, mid), new TileTask(mid, this.last));
+            }
+        }
+    }
+}
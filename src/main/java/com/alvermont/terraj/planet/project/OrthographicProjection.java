@@ -52,6 +52,7 @@
 package com.alvermont.terraj.planet.project;
 
 import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.PlanetContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -120,13 +121,7 @@ public class OrthographicProjection extends AbstractProjector
                 .getProjectionParameters()
                 .getVgrid();
 
-        final boolean doShade =
-            getParameters()
-                .getProjectionParameters()
-                .isDoShade();
-
-        colours = new short[width][height];
-        shades = new short[width][height];
+        allocateImage();
 
         double x;
         double y;
@@ -151,57 +146,37 @@ public class OrthographicProjection extends AbstractProjector
 
         cacheParameters();
 
-        ymin = 2.0;
-        ymax = -2.0;
-
-        progress.progressStart(height, "Generating Terrain");
-
-        for (j = 0; j < height; ++j)
-        {
-            progress.progressStep(j);
 
-            for (i = 0; i < width; ++i)
+        generatePixels(
+            new PixelMapper()
             {
-                x = ((2.0 * i) - width) / height / scale;
-                y = ((2.0 * j) - height) / height / scale;
-
-                if (((x * x) + (y * y)) > 1.0)
+                public boolean mapPixel(
+                    PlanetContext ctx, int i, int j, double[] point)
                 {
-                    colours[i][j] = backgroundColour;
+                    double x;
+                    double y;
+                    double z;
 
-                    if (doShade)
-                    {
-                        shades[i][j] = 255;
-                    }
-                }
-                else
-                {
-                    z = Math.sqrt(1.0 - (x * x) - (y * y));
-                    x1 = (clo * x) + (slo * sla * y) + (slo * cla * z);
-                    y1 = (cla * y) - (sla * z);
-                    z1 = (-slo * x) + (clo * sla * y) + (clo * cla * z);
+                    x = ((2.0 * i) - width) / height / scale;
+                    y = ((2.0 * j) - height) / height / scale;
 
-                    if (y1 < ymin)
+                    if (((x * x) + (y * y)) > 1.0)
                     {
-                        ymin = y1;
+                        return false;
                     }
 
-                    if (y1 > ymax)
-                    {
-                        ymax = y1;
-                    }
+                    z = Math.sqrt(1.0 - (x * x) - (y * y));
 
-                    colours[i][j] = (short) planet0(x1, y1, z1);
+                    point[0] = (clo * x) + (slo * sla * y) + (slo * cla * z);
+                    point[1] = (cla * y) - (sla * z);
+                    point[2] = (-slo * x) + (clo * sla * y) + (clo * cla * z);
 
-                    if (doShade)
-                    {
-                        shades[i][j] = shade;
-                    }
+                    return true;
                 }
-            }
-        }
+            });
 
-        progress.progressComplete("Terrain Generated");
+        ymin = getYMin();
+        ymax = getYMax();
 
         if (hgrid != 0.0)
         {
@@ -237,7 +212,7 @@ public class OrthographicProjection extends AbstractProjector
                                 (0 <= i) && (i < width) && (0 <= j) &&
                                     (j < height))
                             {
-                                colours[i][j] = BLACK;
+                                plot(i, j, BLACK);
                             }
                         }
                     }
@@ -274,7 +249,7 @@ public class OrthographicProjection extends AbstractProjector
                                 (0 <= i) && (i < width) && (0 <= j) &&
                                     (j < height))
                             {
-                                colours[i][j] = BLACK;
+                                plot(i, j, BLACK);
                             }
                         }
                     }
@@ -282,12 +257,7 @@ public class OrthographicProjection extends AbstractProjector
             }
         }
 
-        if (doShade)
-        {
-            smoothshades();
-        }
-
-        doOutlining();
+        postProcess();
     }
 
     /**
@@ -52,6 +52,7 @@
 package com.alvermont.terraj.planet.project;
 
 import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.PlanetContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -119,94 +120,93 @@ public class PetersProjection extends AbstractProjector implements Projector
                 .getProjectionParameters()
                 .getVgrid();
 
-        final boolean doShade =
-            getParameters()
-                .getProjectionParameters()
-                .isDoShade();
-
         cacheParameters();
 
-        colours = new short[width][height];
-        shades = new short[width][height];
+        allocateImage();
 
         depth = (3 * ((int) (log2(scale * height)))) + 6;
 
         double y;
-        double cos2;
         double theta1;
-        double scale1;
-        int k;
         int i;
         int j;
-        int water;
-        int land;
 
         y = 2.0 * Math.sin(lat);
-        k = (int) ((0.5 * y * width * scale) / Math.PI);
+        final int k = (int) ((0.5 * y * width * scale) / Math.PI);
 
-        water = 0;
-        land = 0;
-
-        progress.progressStart(height, "Generating Terrain");
+        generatePixels(
+            new PixelMapper()
+            {
+                public boolean mapPixel(
+                    PlanetContext ctx, int i, int j, double[] point)
+                {
+                    double y;
+                    double cos2;
+                    double theta1;
+                    double scale1;
 
-        for (j = 0; j < height; ++j)
-        {
-            progress.progressStep(j);
+                    y = (0.5 * Math.PI * ((2.0 * (j - k)) - height)) / width /
+                        scale;
 
-            y = (0.5 * Math.PI * ((2.0 * (j - k)) - height)) / width / scale;
+                    if (Math.abs(y) > 1.0)
+                    {
+                        return false;
+                    }
 
-            if (Math.abs(y) > 1.0)
-            {
-                for (i = 0; i < width; ++i)
-                {
-                    colours[i][j] = backgroundColour;
+                    cos2 = Math.sqrt(1.0 - (y * y));
 
-                    if (doShade)
+                    if (cos2 <= 0.0)
                     {
-                        shades[i][j] = 255;
+                        return false;
                     }
-                }
-            }
-            else
-            {
-                cos2 = Math.sqrt(1.0 - (y * y));
 
-                if (cos2 > 0.0)
-                {
                     scale1 = (scale * width) / height / cos2 / Math.PI;
+                    ctx.setDepth((3 * ((int) (log2(scale1 * height)))) + 3);
 
-                    depth = (3 * ((int) (log2(scale1 * height)))) + 3;
+                    theta1 = lon - (0.5 * Math.PI) +
+                        ((Math.PI * ((2.0 * i) - width)) / width / scale);
 
-                    for (i = 0; i < width; ++i)
+                    point[0] = Math.cos(theta1) * cos2;
+                    point[1] = y;
+                    point[2] = -Math.sin(theta1) * cos2;
+
+                    return true;
+                }
+            });
+
+        int water = 0;
+        int land = 0;
+
+        for (j = windowY; j < (windowY + windowHeight); ++j)
+        {
+            y = (0.5 * Math.PI * ((2.0 * (j - k)) - height)) / width / scale;
+
+            if (Math.abs(y) <= 1.0)
+            {
+                for (i = 0; i < windowWidth; ++i)
+                {
+                    final boolean sea =
+                        (colours == null)
+                        ? !(altitudes[((j - windowY) * windowWidth) + i] > 0)
+                        : (colours.get(i, j - windowY) < colourLand0);
+
+                    if (sea)
                     {
-                        theta1 = lon - (0.5 * Math.PI) +
-                            ((Math.PI * ((2.0 * i) - width)) / width / scale);
-
-                        colours[i][j] = (short) planet0(
-                                Math.cos(theta1) * cos2, y,
-                                -Math.sin(theta1) * cos2);
-
-                        if (doShade)
-                        {
-                            shades[i][j] = shade;
-                        }
-
-                        if (colours[i][j] < colourLand0)
-                        {
-                            ++water;
-                        }
-                        else
-                        {
-                            ++land;
-                        }
+                        ++water;
+                    }
+                    else
+                    {
+                        ++land;
                     }
                 }
             }
         }
 
-        progress.progressComplete("Terrain Generated");
-
-        log.debug("Water percentage: " + ((100 * water) / (water + land)));
+        if ((water + land) > 0)
+        {
+            log.debug(
+                "Water percentage: " + ((100 * water) / (water + land)));
+        }
 
         if (hgrid != 0.0)
         {
@@ -223,7 +223,7 @@ public class PetersProjection extends AbstractProjector implements Projector
                 if ((j >= 0) && (j < height))
                 {
                     for (i = 0; i < width; ++i)
-                        colours[i][j] = BLACK;
+                        plot(i, j, BLACK);
                 }
             }
         }
@@ -250,17 +250,12 @@ public class PetersProjection extends AbstractProjector implements Projector
                                 height,
                                 (height / 2) +
                                 (int) ((width * scale) / Math.PI) + k); ++j)
-                        colours[i][j] = BLACK;
+                        plot(i, j, BLACK);
                 }
             }
         }
 
-        if (doShade)
-        {
-            smoothshades();
-        }
-
-        doOutlining();
+        postProcess();
     }
 
     /**
@@ -0,0 +1,419 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * PointTable.java
+ *
+ * Created on October 18, 2026, 11:40 AM
+ *
+ */
+package com.alvermont.terraj.planet.project;
+
+import com.alvermont.terraj.planet.PlanetContext;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.ShortBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A table of the point on the planet and the depth of generation for every
+ * pixel of an image, recorded while one image is projected so that the
+ * projection of another planet with the same framing can skip the
+ * trigonometry. The tables are held outside the Java heap and shared
+ * between all the projectors of the same class, with the least recently
+ * used being discarded when the total size goes over the cache limit.
+ * Tables are only recorded by projectors that have point recording
+ * enabled, see <code>AbstractProjector.setRecordPoints()</code>.
+ *
+ * The points are kept at full precision because the terrain generation is
+ * sensitive to the last bits of the coordinates, so an image projected
+ * from a table is exactly the same as one projected without it.
+ *
+ * @version $Id$
+ */
+public final class PointTable
+{
+    /** Our logging object */
+    private static Log log = LogFactory.getLog(PointTable.class);
+
+    // RequireThis OFF: log
+
+    /** The number of bytes used for each pixel */
+    private static final int BYTES_PER_PIXEL = (3 * 8) + 2;
+
+    /** The tables that have been recorded, least recently used first */
+    private static final Map<Key, PointTable> TABLES =
+        new LinkedHashMap<Key, PointTable>(16, 0.75f, true);
+
+    /** The total size of the tables in the cache */
+    private static long cacheSize;
+
+    /** The largest total size of the tables kept, in bytes */
+    private static long cacheLimit = Runtime.getRuntime()
+            .maxMemory() / 8;
+
+    /** The framing of the image the table was recorded for */
+    private final Key key;
+
+    /** The x, y and z coordinates of the point shown by each pixel */
+    private final DoubleBuffer points;
+
+    /** The depth of the context after each pixel was mapped, or -1 for
+     * pixels that show the background. A flag is needed because a pixel on
+     * the edge of the planet can map to a point that is not a number. */
+    private final ShortBuffer depths;
+
+    /**
+     * Creates a new instance of PointTable
+     *
+     * @param key The framing of the image the table is for
+     */
+    private PointTable(Key key)
+    {
+        this.key = key;
+
+        final int pixels = key.width * key.height;
+
+        this.points =
+            ByteBuffer.allocateDirect(pixels * 3 * 8)
+                .order(ByteOrder.nativeOrder())
+                .asDoubleBuffer();
+        this.depths =
+            ByteBuffer.allocateDirect(pixels * 2)
+                .order(ByteOrder.nativeOrder())
+                .asShortBuffer();
+    }
+
+    /**
+     * Find the table recorded for an image with the same framing
+     *
+     * @param type The class of the projection
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param lat The latitude of the centre in radians
+     * @param lon The longitude of the centre in radians
+     * @param scale The scale of the image
+     * @return The table for the image or <code>null</code> if there isn't
+     * one in the cache
+     */
+    static PointTable find(
+        Class<?> type, int width, int height, double lat, double lon, double scale)
+    {
+        final Key key = new Key(type, width, height, lat, lon, scale);
+
+        synchronized (TABLES)
+        {
+            return TABLES.get(key);
+        }
+    }
+
+    /**
+     * Create an empty table that can be filled in while an image is
+     * projected, if it will fit in the cache
+     *
+     * @param type The class of the projection
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param lat The latitude of the centre in radians
+     * @param lon The longitude of the centre in radians
+     * @param scale The scale of the image
+     * @return The new table or <code>null</code> if it is larger than the
+     * cache limit
+     */
+    static PointTable create(
+        Class<?> type, int width, int height, double lat, double lon, double scale)
+    {
+        final long bytes = (long) width * height * BYTES_PER_PIXEL;
+
+        if ((bytes > getCacheLimit()) || (bytes > Integer.MAX_VALUE))
+        {
+            return null;
+        }
+
+        return new PointTable(new Key(type, width, height, lat, lon, scale));
+    }
+
+    /**
+     * Add a completely filled in table to the cache, discarding the least
+     * recently used tables to make room for it
+     *
+     * @param table The table to be added
+     */
+    static void store(PointTable table)
+    {
+        synchronized (TABLES)
+        {
+            final PointTable old = TABLES.put(table.key, table);
+
+            if (old != null)
+            {
+                cacheSize -= old.getSize();
+            }
+
+            cacheSize += table.getSize();
+
+            trim();
+        }
+
+        log.debug(
+            "Stored point table for " + table.key.width + "x" +
+            table.key.height + " " + table.key.type.getName());
+    }
+
+    /**
+     * Discard the least recently used tables until the cache is within its
+     * limit. Must be called with the cache locked.
+     */
+    private static void trim()
+    {
+        final Iterator<PointTable> it = TABLES.values()
+                .iterator();
+
+        while ((cacheSize > cacheLimit) && it.hasNext())
+        {
+            cacheSize -= it.next()
+                .getSize();
+
+            it.remove();
+        }
+    }
+
+    /**
+     * Discard all the tables in the cache
+     */
+    public static void clearCache()
+    {
+        synchronized (TABLES)
+        {
+            TABLES.clear();
+
+            cacheSize = 0;
+        }
+    }
+
+    /**
+     * Get the largest total size of the tables kept in the cache
+     *
+     * @return The cache limit in bytes
+     */
+    public static long getCacheLimit()
+    {
+        synchronized (TABLES)
+        {
+            return cacheLimit;
+        }
+    }
+
+    /**
+     * Set the largest total size of the tables kept in the cache. Setting
+     * it to zero stops tables being used at all.
+     *
+     * @param limit The cache limit in bytes
+     */
+    public static void setCacheLimit(long limit)
+    {
+        synchronized (TABLES)
+        {
+            cacheLimit = limit;
+
+            trim();
+        }
+    }
+
+    /**
+     * Get the total size of the tables in the cache
+     *
+     * @return The size of the cached tables in bytes
+     */
+    public static long getCacheSize()
+    {
+        synchronized (TABLES)
+        {
+            return cacheSize;
+        }
+    }
+
+    /**
+     * Get the size of this table
+     *
+     * @return The size of the table in bytes
+     */
+    long getSize()
+    {
+        return (long) this.key.width * this.key.height * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Record the mapping of a pixel. Different pixels may be recorded by
+     * different threads at the same time.
+     *
+     * @param ctx The context after the pixel was mapped
+     * @param i The x coordinate of the pixel
+     * @param j The y coordinate of the pixel
+     * @param point The point on the planet shown by the pixel
+     * @param onPlanet <code>true</code> if the pixel shows the planet
+     */
+    void record(PlanetContext ctx, int i, int j, double[] point, boolean onPlanet)
+    {
+        final int index = (j * this.key.width) + i;
+
+        this.points.put(3 * index, point[0]);
+        this.points.put((3 * index) + 1, point[1]);
+        this.points.put((3 * index) + 2, point[2]);
+        this.depths.put(index, onPlanet ? (short) ctx.getDepth() : (short) -1);
+    }
+
+    /**
+     * Look up the mapping of a pixel, leaving the context at the depth it
+     * had when the pixel was recorded
+     *
+     * @param ctx The context that will be used to evaluate the point
+     * @param i The x coordinate of the pixel
+     * @param j The y coordinate of the pixel
+     * @param point An array that will be set to the x, y and z coordinates
+     * of the point on the planet
+     * @return <code>true</code> if the pixel shows the planet or
+     * <code>false</code> if it shows the background
+     */
+    boolean mapPixel(PlanetContext ctx, int i, int j, double[] point)
+    {
+        final int index = (j * this.key.width) + i;
+
+        final int depth = this.depths.get(index);
+
+        if (depth < 0)
+        {
+            return false;
+        }
+
+        ctx.setDepth(depth);
+
+        point[0] = this.points.get(3 * index);
+        point[1] = this.points.get((3 * index) + 1);
+        point[2] = this.points.get((3 * index) + 2);
+
+        return true;
+    }
+
+    /**
+     * The framing of an image that a table is recorded for
+     */
+    private static final class Key
+    {
+        /** The class of the projection */
+        private final Class<?> type;
+
+        /** The width of the image */
+        private final int width;
+
+        /** The height of the image */
+        private final int height;
+
+        /** The latitude of the centre in radians */
+        private final double lat;
+
+        /** The longitude of the centre in radians */
+        private final double lon;
+
+        /** The scale of the image */
+        private final double scale;
+
+        /**
+         * Creates a new instance of Key
+         *
+         * @param type The class of the projection
+         * @param width The width of the image
+         * @param height The height of the image
+         * @param lat The latitude of the centre in radians
+         * @param lon The longitude of the centre in radians
+         * @param scale The scale of the image
+         */
+        public Key(
+            Class<?> type, int width, int height, double lat, double lon,
+            double scale)
+        {
+            this.type = type;
+            this.width = width;
+            this.height = height;
+            this.lat = lat;
+            this.lon = lon;
+            this.scale = scale;
+        }
+
+        public int hashCode()
+        {
+            int hash = this.type.hashCode();
+
+            hash = (31 * hash) + this.width;
+            hash = (31 * hash) + this.height;
+            hash = (31 * hash) + Double.valueOf(this.lat).hashCode();
+            hash = (31 * hash) + Double.valueOf(this.lon).hashCode();
+            hash = (31 * hash) + Double.valueOf(this.scale).hashCode();
+
+            return hash;
+        }
+
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+
+            final Key other = (Key) obj;
+
+            return (this.type == other.type) && (this.width == other.width) &&
+            (this.height == other.height) &&
+            (Double.compare(this.lat, other.lat) == 0) &&
+            (Double.compare(this.lon, other.lon) == 0) &&
+            (Double.compare(this.scale, other.scale) == 0);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * PostProcessor.java
+ *
+ * Created on October 17, 2026, 10:05 PM
+ *
+ */
+package com.alvermont.terraj.planet.project;
+
+import com.alvermont.terraj.planet.raster.ShortRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Carries out a list of post processing stages on an image. The stages are
+ * grouped into as few passes over the image as possible: a stage joins the
+ * current pass unless an earlier stage in the pass works on the same raster,
+ * as it would then need the results of that stage. Within a pass each row
+ * is read once and handed to every stage.
+ *
+ * A pass can divide the image into bands of rows that are processed by the
+ * threads of a pool. The rows just outside each band are copied before any
+ * band starts so that every stage sees only original values, and the result
+ * is the same however the image is divided.
+ *
+ * @version $Id$
+ */
+class PostProcessor
+{
+    /** The smallest band of rows worth processing as a separate task */
+    private static final int MIN_BAND_ROWS = 16;
+
+    /** The number of bands to create for each thread of the pool, so that
+     * threads that finish early can take more work */
+    private static final int BANDS_PER_THREAD = 4;
+
+    /** The stages to be carried out, in order */
+    private final List<PostStage> stages;
+
+    /**
+     * Creates a new instance of PostProcessor
+     *
+     * @param stages The stages to be carried out, in order
+     */
+    public PostProcessor(List<PostStage> stages)
+    {
+        this.stages = stages;
+    }
+
+    /**
+     * Carry out all the stages
+     *
+     * @param pool The pool to process bands of the image with, or
+     * <code>null</code> to process the whole image on the calling thread
+     */
+    public void run(ForkJoinPool pool)
+    {
+        List<PostStage> pass = new ArrayList<PostStage>();
+
+        for (PostStage stage : this.stages)
+        {
+            for (PostStage other : pass)
+            {
+                if (other.getRaster() == stage.getRaster())
+                {
+                    runPass(pass, pool);
+
+                    pass = new ArrayList<PostStage>();
+
+                    break;
+                }
+            }
+
+            pass.add(stage);
+        }
+
+        if (!pass.isEmpty())
+        {
+            runPass(pass, pool);
+        }
+    }
+
+    /**
+     * Carry out a group of stages that work on different rasters in one
+     * pass over the image
+     *
+     * @param pass The stages to be carried out
+     * @param pool The pool to process bands of the image with, or
+     * <code>null</code> to process the whole image on the calling thread
+     */
+    private void runPass(List<PostStage> pass, ForkJoinPool pool)
+    {
+        final PostStage[] stageArray = pass.toArray(new PostStage[pass.size()]);
+        final int height = stageArray[0].getRaster()
+                .getHeight();
+
+        int bands = 1;
+
+        if (pool != null)
+        {
+            bands = Math.max(
+                    1,
+                    Math.min(
+                        height / MIN_BAND_ROWS,
+                        pool.getParallelism() * BANDS_PER_THREAD));
+        }
+
+        final Band[] bandArray = new Band[bands];
+
+        // every band copies its neighbouring rows before any is changed
+        for (int b = 0; b < bands; ++b)
+        {
+            bandArray[b] =
+                new Band(
+                    stageArray, (b * height) / bands, ((b + 1) * height) / bands);
+        }
+
+        if (bands == 1)
+        {
+            bandArray[0].process();
+        }
+        else
+        {
+            pool.invoke(new BandTask(bandArray, 0, bands));
+        }
+    }
+
+    /**
+     * A band of rows of the image together with copies of the rows just
+     * outside it
+     */
+    private static class Band
+    {
+        /** The stages to be carried out */
+        private final PostStage[] stages;
+
+        /** The first row of the band */
+        private final int start;
+
+        /** One more than the last row of the band */
+        private final int end;
+
+        /** Copies of the rows above the band for each stage, indexed from
+         * the row furthest above */
+        private final short[][][] above;
+
+        /** Copies of the rows below the band for each stage, indexed from
+         * the row next to the band */
+        private final short[][][] below;
+
+        /**
+         * Creates a new instance of Band, copying the rows outside it that
+         * will be needed
+         *
+         * @param stages The stages to be carried out
+         * @param start The first row of the band
+         * @param end One more than the last row of the band
+         */
+        public Band(PostStage[] stages, int start, int end)
+        {
+            this.stages = stages;
+            this.start = start;
+            this.end = end;
+            this.above = new short[stages.length][][];
+            this.below = new short[stages.length][][];
+
+            for (int k = 0; k < stages.length; ++k)
+            {
+                final PostStage stage = stages[k];
+
+                this.above[k] = copyRows(
+                        stage.getRaster(), start - stage.getRowsAbove(),
+                        stage.getRowsAbove());
+                this.below[k] = copyRows(
+                        stage.getRaster(), end, stage.getRowsBelow());
+            }
+        }
+
+        /**
+         * Copy a number of rows of a raster, leaving <code>null</code> in
+         * place of any rows outside it
+         *
+         * @param raster The raster to copy from
+         * @param first The first row to copy
+         * @param count The number of rows to copy
+         * @return The copied rows
+         */
+        private static short[][] copyRows(
+            ShortRaster raster, int first, int count)
+        {
+            final short[][] rows = new short[count][];
+
+            for (int r = 0; r < count; ++r)
+            {
+                final int y = first + r;
+
+                if ((y >= 0) && (y < raster.getHeight()))
+                {
+                    rows[r] = new short[raster.getWidth()];
+
+                    raster.getRow(y, rows[r]);
+                }
+            }
+
+            return rows;
+        }
+
+        /**
+         * Carry out every stage on the rows of this band. A window of the
+         * original rows around the current one is kept for each stage, and
+         * rows of the band are read before any of them are changed.
+         */
+        public void process()
+        {
+            final int count = this.stages.length;
+            final short[][][] buffers = new short[count][][];
+            final short[][][] windows = new short[count][][];
+            final short[][] results = new short[count][];
+
+            for (int k = 0; k < count; ++k)
+            {
+                final PostStage stage = this.stages[k];
+                final int size = stage.getRowsAbove() + stage.getRowsBelow() + 1;
+                final int width = stage.getRaster()
+                        .getWidth();
+
+                buffers[k] = new short[size][width];
+                windows[k] = new short[size][];
+                results[k] = new short[width];
+
+                for (int o = 0; o < size; ++o)
+                {
+                    windows[k][o] = loadRow(
+                            k, (this.start - stage.getRowsAbove()) + o,
+                            buffers[k][o]);
+                }
+            }
+
+            for (int j = this.start; j < this.end; ++j)
+            {
+                for (int k = 0; k < count; ++k)
+                {
+                    final PostStage stage = this.stages[k];
+
+                    if (stage.processRow(j, windows[k], results[k]))
+                    {
+                        stage.getRaster()
+                            .setRow(j, results[k]);
+                    }
+
+                    if ((j + 1) == this.end)
+                    {
+                        continue;
+                    }
+
+                    // move the window down a row, reusing the oldest buffer
+                    final short[][] buff = buffers[k];
+                    final short[][] window = windows[k];
+                    final short[] spare = buff[0];
+                    final int last = buff.length - 1;
+
+                    System.arraycopy(buff, 1, buff, 0, last);
+                    System.arraycopy(window, 1, window, 0, last);
+
+                    buff[last] = spare;
+                    window[last] = loadRow(
+                            k, j + 1 + stage.getRowsBelow(), spare);
+                }
+            }
+        }
+
+        /**
+         * Get the original values of a row for a stage
+         *
+         * @param k The index of the stage
+         * @param y The row to get
+         * @param buffer An array the row can be read into
+         * @return The array holding the row, or <code>null</code> if the row
+         * is outside the raster
+         */
+        private short[] loadRow(int k, int y, short[] buffer)
+        {
+            final PostStage stage = this.stages[k];
+            final ShortRaster raster = stage.getRaster();
+
+            if ((y < 0) || (y >= raster.getHeight()))
+            {
+                return null;
+            }
+
+            if (y < this.start)
+            {
+                return this.above[k][y - (this.start - stage.getRowsAbove())];
+            }
+
+            if (y >= this.end)
+            {
+                return this.below[k][y - this.end];
+            }
+
+            raster.getRow(y, buffer);
+
+            return buffer;
+        }
+    }
+
+    /**
+     * Task that processes a range of bands, splitting itself so that the
+     * bands are shared between the threads of the pool
+     */
+    private static class BandTask extends RecursiveAction
+    {
+        /** The version of the serialized form of this class */
+        private static final long serialVersionUID = 1L;
+
+        /** All the bands of the image */
+        private final Band[] bands;
+
+        /** The first band to be processed */
+        private final int first;
+
+        /** One more than the last band to be processed */
+        private final int last;
+
+        /**
+         * Creates a new instance of BandTask
+         *
+         * @param bands All the bands of the image
+         * @param first The first band to be processed
+         * @param last One more than the last band to be processed
+         */
+        public BandTask(Band[] bands, int first, int last)
+        {
+            this.bands = bands;
+            this.first = first;
+            this.last = last;
+        }
+
+        /**
+         * Process the bands or split the work into two halves
+         */
+        protected void compute()
+        {
+            if ((this.last - this.first) <= 1)
+            {
+                for (int b = this.first; b < this.last; ++b)
+                {
+                    this.bands[b].process();
+                }
+            }
+            else
+            {
+                final int mid = (this.first + this.last) >>> 1;
+
+                invokeAll(
+                    new BandTask(this.bands, this.first, mid),
+                    new BandTask(this.bands, mid, this.last));
+            }
+        }
+    }
+}
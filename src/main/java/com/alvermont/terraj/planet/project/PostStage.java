@@ -0,0 +1,140 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * PostStage.java
+ *
+ * Created on October 17, 2026, 9:50 PM
+ *
+ */
+package com.alvermont.terraj.planet.project;
+
+import com.alvermont.terraj.planet.raster.ShortRaster;
+
+/**
+ * A stage of the processing carried out on an image after the terrain has
+ * been generated, such as smoothing the shading or outlining the coasts. A
+ * stage works through the rows of one raster, replacing each row with one
+ * calculated from the original values of that row and of a fixed number
+ * of rows above and below it. This lets stages that work on different
+ * rasters be carried out together in a single pass over the image, and
+ * the image be divided into bands of rows that are processed at the same
+ * time.
+ *
+ * @version $Id$
+ */
+public abstract class PostStage
+{
+    /** The raster that this stage reads and changes */
+    private final ShortRaster raster;
+
+    /** The number of rows above each row that are needed */
+    private final int rowsAbove;
+
+    /** The number of rows below each row that are needed */
+    private final int rowsBelow;
+
+    /**
+     * Creates a new instance of PostStage
+     *
+     * @param raster The raster that this stage reads and changes
+     * @param rowsAbove The number of rows above each row that are needed to
+     * calculate it
+     * @param rowsBelow The number of rows below each row that are needed to
+     * calculate it
+     */
+    protected PostStage(ShortRaster raster, int rowsAbove, int rowsBelow)
+    {
+        this.raster = raster;
+        this.rowsAbove = rowsAbove;
+        this.rowsBelow = rowsBelow;
+    }
+
+    /**
+     * Calculate the new values of a row. This may be called by several
+     * threads at once for different rows, so an implementation must not
+     * change any state shared between rows.
+     *
+     * @param j The index of the row in the raster
+     * @param rows The original values of the rows from
+     * <code>j - getRowsAbove()</code> to <code>j + getRowsBelow()</code>, with
+     * <code>null</code> in place of rows outside the raster. These must not be
+     * changed.
+     * @param result An array to be set to the new values of the row
+     * @return <code>true</code> if the row is to be replaced by the result or
+     * <code>false</code> if it is to be left as it is
+     */
+    public abstract boolean processRow(int j, short[][] rows, short[] result);
+
+    /**
+     * Get the raster that this stage reads and changes
+     *
+     * @return The raster processed by this stage
+     */
+    public ShortRaster getRaster()
+    {
+        return this.raster;
+    }
+
+    /**
+     * Get the number of rows above each row that are needed to calculate it
+     *
+     * @return The number of rows needed above
+     */
+    public int getRowsAbove()
+    {
+        return this.rowsAbove;
+    }
+
+    /**
+     * Get the number of rows below each row that are needed to calculate it
+     *
+     * @return The number of rows needed below
+     */
+    public int getRowsBelow()
+    {
+        return this.rowsBelow;
+    }
+}
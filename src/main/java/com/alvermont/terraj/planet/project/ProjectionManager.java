@@ -50,10 +50,12 @@
  */
 package com.alvermont.terraj.planet.project;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import org.apache.commons.logging.Log;
@@ -62,6 +64,13 @@ import org.apache.commons.logging.LogFactory;
 /**
  * Class that manages a list of available projections.
  *
+ * The projections returned by <code>findByName</code> and the other look up
+ * methods are single shared instances suitable for one user, such as the
+ * user interface. Code that renders several images at once should take
+ * independent instances from <code>acquire</code> and return them with
+ * <code>release</code>, or create unpooled ones with
+ * <code>createProjector</code>.
+ *
  * @author  martin
  * @version $Id: ProjectionManager.java,v 1.6 2006/07/06 06:58:34 martin Exp $
  */
@@ -81,6 +90,14 @@ public class ProjectionManager
     /** Map of thumbnail names to projections */
     private Map<String, Projector> thumbMap = new HashMap<String, Projector>();
 
+    /** Map of names to the factories that create new instances */
+    private Map<String, ProjectorFactory> factoryMap =
+        new HashMap<String, ProjectorFactory>();
+
+    /** Map of names to pools of instances for concurrent use */
+    private Map<String, ProjectorPool> poolMap =
+        new HashMap<String, ProjectorPool>();
+
     /**
      * A comparator to sort projections into alphabetical order by name
      *
@@ -109,7 +126,8 @@ public class ProjectionManager
     private final Projector[] defaultProjections =
         {
             new AzimuthProjection(), new ConicalProjection(),
-            new GnomonicProjection(), new MercatorProjection(),
+            new CubeMapProjection(), new GnomonicProjection(),
+            new MercatorProjection(),
             new MollweideProjection(), new OrthographicProjection(),
             new PetersProjection(), new SinusoidProjection(),
             new SquareProjection(), new StereographicProjection()
@@ -128,6 +146,57 @@ public class ProjectionManager
 
             this.nameMap.put(p.toString(), p);
             this.thumbMap.put(p.getThumbnailName(), p);
+            this.factoryMap.put(p.toString(), new ClassFactory(p.getClass()));
+        }
+    }
+
+    /**
+     * A factory that creates projectors using the default constructor of
+     * their class
+     */
+    private static class ClassFactory implements ProjectorFactory
+    {
+        /** The class of projector to create */
+        private final Class<? extends Projector> type;
+
+        /**
+         * Creates a new instance of ClassFactory
+         *
+         * @param type The class of projector to create
+         */
+        public ClassFactory(Class<? extends Projector> type)
+        {
+            this.type = type;
+        }
+
+        public Projector createProjector()
+        {
+            try
+            {
+                return this.type.getDeclaredConstructor()
+                    .newInstance();
+            }
+            catch (InstantiationException ie)
+            {
+                throw new IllegalStateException(
+                    "Can't create projection: " + this.type.getName(), ie);
+            }
+            catch (IllegalAccessException iae)
+            {
+                throw new IllegalStateException(
+                    "Can't create projection: " + this.type.getName(), iae);
+            }
+            catch (NoSuchMethodException nsme)
+            {
+                throw new IllegalStateException(
+                    "Can't create projection: " + this.type.getName(), nsme);
+            }
+            catch (InvocationTargetException ite)
+            {
+                throw new IllegalStateException(
+                    "Can't create projection: " + this.type.getName(),
+                    ite.getCause());
+            }
         }
     }
 
@@ -164,6 +233,128 @@ public class ProjectionManager
         this.projections.remove(proj);
     }
 
+    /**
+     * Add a projection that can be created by a factory. One instance is
+     * created and added to the set being managed, and others are created
+     * as they are needed for concurrent use.
+     *
+     * @param factory The factory that creates instances of the projection
+     * @return The instance that was added to the set being managed
+     */
+    public synchronized Projector addFactory(ProjectorFactory factory)
+    {
+        final Projector proj = factory.createProjector();
+
+        this.projections.add(proj);
+
+        this.nameMap.put(proj.toString(), proj);
+        this.thumbMap.put(proj.getThumbnailName(), proj);
+        this.factoryMap.put(proj.toString(), factory);
+        this.poolMap.remove(proj.toString());
+
+        return proj;
+    }
+
+    /**
+     * Create a new instance of a projection that is not shared with any
+     * other caller and is not pooled
+     *
+     * @param name The name of the projection to create
+     * @return A new instance of the projection or <code>null</code> if
+     * there is no factory for a projection of that name
+     */
+    public Projector createProjector(String name)
+    {
+        final ProjectorFactory factory;
+
+        synchronized (this)
+        {
+            factory = this.factoryMap.get(name);
+        }
+
+        return (factory == null) ? null : factory.createProjector();
+    }
+
+    /**
+     * Take an instance of a projection from its pool for the exclusive use
+     * of the caller until it is passed to <code>release</code>. If the
+     * pool size number of instances are already in use this waits until
+     * one is released.
+     *
+     * @param name The name of the projection to retrieve
+     * @return An instance of the projection that is not in use elsewhere
+     * @throws java.lang.InterruptedException If the thread is interrupted
+     * while waiting for an instance
+     * @throws java.util.NoSuchElementException If there is no projection of
+     * that name
+     */
+    public Projector acquire(String name) throws InterruptedException
+    {
+        return getPool(name)
+            .acquire();
+    }
+
+    /**
+     * Return an instance of a projection taken from <code>acquire</code>
+     * to its pool so it can be reused
+     *
+     * @param proj The instance to be returned
+     */
+    public void release(Projector proj)
+    {
+        final ProjectorPool pool;
+
+        synchronized (this)
+        {
+            pool = this.poolMap.get(proj.toString());
+        }
+
+        if ((pool == null) || !pool.release(proj))
+        {
+            throw new IllegalArgumentException(
+                "Projector was not acquired from this manager: " + proj);
+        }
+    }
+
+    /**
+     * Release the resources held by pooled instances that are not in use
+     */
+    public synchronized void releaseIdle()
+    {
+        for (ProjectorPool pool : this.poolMap.values())
+        {
+            pool.releaseIdle();
+        }
+    }
+
+    /**
+     * Get the pool of instances of a projection, creating it if necessary
+     *
+     * @param name The name of the projection
+     * @return The pool for that projection
+     */
+    private synchronized ProjectorPool getPool(String name)
+    {
+        ProjectorPool pool = this.poolMap.get(name);
+
+        if (pool == null)
+        {
+            final ProjectorFactory factory = this.factoryMap.get(name);
+
+            if (factory == null)
+            {
+                throw new NoSuchElementException(
+                    "Unknown projection name: " + name);
+            }
+
+            pool = new ProjectorPool(factory, this.poolSize);
+
+            this.poolMap.put(name, pool);
+        }
+
+        return pool;
+    }
+
     /**
      * Look up a projection by its name
      *
@@ -232,4 +423,36 @@ public class ProjectionManager
 
         return fName;
     }
+
+    /**
+     * Holds value of property poolSize.
+     */
+    private int poolSize = Runtime.getRuntime()
+            .availableProcessors();
+
+    /**
+     * Getter for property poolSize.
+     * @return Value of property poolSize.
+     */
+    public synchronized int getPoolSize()
+    {
+        return this.poolSize;
+    }
+
+    /**
+     * Setter for property poolSize. This is the largest number of
+     * instances of each projection that can be in use at once and only
+     * applies to pools created after it is set.
+     * @param poolSize New value of property poolSize.
+     */
+    public synchronized void setPoolSize(int poolSize)
+    {
+        if (poolSize < 1)
+        {
+            throw new IllegalArgumentException(
+                "Pool size must be at least 1: " + poolSize);
+        }
+
+        this.poolSize = poolSize;
+    }
 }
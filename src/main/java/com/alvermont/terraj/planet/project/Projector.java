@@ -70,6 +70,29 @@ public interface Projector
      */
     public void project();
 
+    /**
+     * Carry out the projection a band of rows at a time, passing each band
+     * to a consumer as it is completed rather than keeping the whole image
+     *
+     * @param bandHeight The number of rows in each band
+     * @param consumer The object that will be passed each band
+     * @throws java.io.IOException If the consumer fails to write a band
+     */
+    public void projectBands(int bandHeight, BandConsumer consumer)
+        throws java.io.IOException;
+
+    /**
+     * Stop a projection operation that is in progress
+     */
+    public void cancel();
+
+    /**
+     * Determine whether the last projection operation was cancelled
+     *
+     * @return <code>true</code> if the projection was cancelled
+     */
+    public boolean isCancelled();
+
     /**
      * Free any resources used by this object
      */
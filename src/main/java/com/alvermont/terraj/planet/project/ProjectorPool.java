@@ -0,0 +1,197 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * ProjectorPool.java
+ *
+ * Created on October 18, 2026, 9:25 AM
+ *
+ */
+package com.alvermont.terraj.planet.project;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A pool of instances of one projection. No more than a fixed number of
+ * instances are in use at once, which limits the memory taken by their
+ * rasters, and those that are returned are kept for reuse.
+ *
+ * @version $Id$
+ */
+class ProjectorPool
+{
+    /** The factory that creates new instances */
+    private final ProjectorFactory factory;
+
+    /** Controls the number of instances in use */
+    private final Semaphore permits;
+
+    /** The instances that have been returned and can be reused */
+    private final Deque<Projector> idle = new ArrayDeque<Projector>();
+
+    /** The instances that are currently in use */
+    private final Set<Projector> inUse =
+        Collections.newSetFromMap(new IdentityHashMap<Projector, Boolean>());
+
+    /**
+     * Creates a new instance of ProjectorPool
+     *
+     * @param factory The factory that creates new instances
+     * @param size The largest number of instances that can be in use at once
+     */
+    public ProjectorPool(ProjectorFactory factory, int size)
+    {
+        if (size < 1)
+        {
+            throw new IllegalArgumentException(
+                "Pool size must be at least 1: " + size);
+        }
+
+        this.factory = factory;
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * Take an instance from the pool, waiting if all of them are in use
+     *
+     * @return An instance that is not in use by any other caller
+     * @throws java.lang.InterruptedException If the thread is interrupted
+     * while waiting
+     */
+    public Projector acquire() throws InterruptedException
+    {
+        this.permits.acquire();
+
+        try
+        {
+            Projector proj;
+
+            synchronized (this)
+            {
+                proj = this.idle.pollFirst();
+            }
+
+            if (proj == null)
+            {
+                proj = this.factory.createProjector();
+            }
+
+            synchronized (this)
+            {
+                this.inUse.add(proj);
+            }
+
+            return proj;
+        }
+        catch (RuntimeException re)
+        {
+            this.permits.release();
+
+            throw re;
+        }
+    }
+
+    /**
+     * Return an instance to the pool
+     *
+     * @param proj An instance previously taken from this pool
+     * @return <code>true</code> if the instance belonged to this pool
+     */
+    public boolean release(Projector proj)
+    {
+        synchronized (this)
+        {
+            if (!this.inUse.remove(proj))
+            {
+                return false;
+            }
+
+            this.idle.addFirst(proj);
+        }
+
+        this.permits.release();
+
+        return true;
+    }
+
+    /**
+     * Release the resources held by the instances that are not in use
+     */
+    public void releaseIdle()
+    {
+        synchronized (this)
+        {
+            for (Projector p : this.idle)
+            {
+                p.releaseResources();
+            }
+        }
+    }
+
+    /**
+     * Get the number of instances that are currently in use
+     *
+     * @return The number of instances in use
+     */
+    public synchronized int getInUseCount()
+    {
+        return this.inUse.size();
+    }
+
+    /**
+     * Get the number of instances that are waiting to be reused
+     *
+     * @return The number of idle instances
+     */
+    public synchronized int getIdleCount()
+    {
+        return this.idle.size();
+    }
+}
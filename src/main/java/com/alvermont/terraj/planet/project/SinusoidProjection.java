@@ -52,6 +52,7 @@
 package com.alvermont.terraj.planet.project;
 
 import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.PlanetContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -119,15 +120,9 @@ public class SinusoidProjection extends AbstractProjector implements Projector
                 .getProjectionParameters()
                 .getVgrid();
 
-        final boolean doShade =
-            getParameters()
-                .getProjectionParameters()
-                .isDoShade();
-
         cacheParameters();
 
-        colours = new short[width][height];
-        shades = new short[width][height];
+        allocateImage();
 
         double y;
         double theta1;
@@ -135,82 +130,66 @@ public class SinusoidProjection extends AbstractProjector implements Projector
         double cos2;
         double l1;
         double i1;
-        double scale1;
-        int k;
         int i;
         int j;
         int l;
         int c;
 
-        k = (int) ((lat * width * scale) / Math.PI);
+        final int k = (int) ((lat * width * scale) / Math.PI);
 
-        progress.progressStart(height, "Generating Terrain");
-
-        for (j = 0; j < height; ++j)
-        {
-            progress.progressStep(j);
-
-            y = ((2.0 * (j - k)) - height) / width / scale * Math.PI;
-
-            if (Math.abs(y) >= (0.5 * Math.PI))
+        generatePixels(
+            new PixelMapper()
             {
-                for (i = 0; i < width; ++i)
+                public boolean mapPixel(
+                    PlanetContext ctx, int i, int j, double[] point)
                 {
-                    colours[i][j] = backgroundColour;
+                    double y;
+                    double theta1;
+                    double theta2;
+                    double cos2;
+                    double l1;
+                    double i1;
+                    double scale1;
+                    int l;
+
+                    y = ((2.0 * (j - k)) - height) / width / scale * Math.PI;
+
+                    if (Math.abs(y) >= (0.5 * Math.PI))
+                    {
+                        return false;
+                    }
 
-                    if (doShade)
+                    cos2 = Math.cos(y);
+
+                    if (cos2 <= 0.0)
                     {
-                        shades[i][j] = 255;
+                        return false;
                     }
-                }
-            }
-            else
-            {
-                cos2 = Math.cos(y);
 
-                if (cos2 > 0.0)
-                {
                     scale1 = (scale * width) / height / cos2 / Math.PI;
+                    ctx.setDepth((3 * ((int) (log2(scale1 * height)))) + 3);
 
-                    depth = (3 * ((int) (log2(scale1 * height)))) + 3;
+                    l = (i * 12) / width;
+                    l1 = (l * width) / 12.0;
+                    i1 = i - l1;
 
-                    for (i = 0; i < width; ++i)
-                    {
-                        l = (i * 12) / width;
-                        l1 = (l * width) / 12.0;
-                        i1 = i - l1;
+                    theta2 = lon - (0.5 * Math.PI) +
+                        ((Math.PI * ((2.0 * l1) - width)) / width / scale);
+                    theta1 = ((Math.PI * ((2.0 * i1) - (width / 12))) / width / scale) /
+                        cos2;
 
-                        theta2 = lon - (0.5 * Math.PI) +
-                            ((Math.PI * ((2.0 * l1) - width)) / width / scale);
-                        theta1 = ((Math.PI * ((2.0 * i1) - (width / 12))) / width / scale) / cos2;
+                    if (Math.abs(theta1) > (Math.PI / 12.0))
+                    {
+                        return false;
+                    }
 
-                        if (Math.abs(theta1) > (Math.PI / 12.0))
-                        {
-                            colours[i][j] = backgroundColour;
+                    point[0] = Math.cos(theta1 + theta2) * cos2;
+                    point[1] = Math.sin(y);
+                    point[2] = -Math.sin(theta1 + theta2) * cos2;
 
-                            if (doShade)
-                            {
-                                shades[i][j] = 255;
-                            }
-                        }
-                        else
-                        {
-                            colours[i][j] = (short) planet0(
-                                    Math.cos(theta1 + theta2) * cos2,
-                                    Math.sin(y),
-                                    -Math.sin(theta1 + theta2) * cos2);
-
-                            if (doShade)
-                            {
-                                shades[i][j] = shade;
-                            }
-                        }
-                    }
+                    return true;
                 }
-            }
-        }
-
-        progress.progressComplete("Terrain Generated");
+            });
 
         if (hgrid != 0.0)
         {
@@ -239,7 +218,7 @@ public class SinusoidProjection extends AbstractProjector implements Projector
 
                         if (Math.abs(theta2) <= (Math.PI / 12.0))
                         {
-                            colours[i][j] = BLACK;
+                            plot(i, j, BLACK);
                         }
                     }
                 }
@@ -281,19 +260,14 @@ public class SinusoidProjection extends AbstractProjector implements Projector
 
                         if ((c >= 0) && (c < width))
                         {
-                            colours[c][j] = BLACK;
+                            plot(c, j, BLACK);
                         }
                     }
                 }
             }
         }
 
-        if (doShade)
-        {
-            smoothshades();
-        }
-
-        doOutlining();
+        postProcess();
     }
 
     /**
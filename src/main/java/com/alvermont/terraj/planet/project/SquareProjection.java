@@ -52,6 +52,7 @@
 package com.alvermont.terraj.planet.project;
 
 import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.PlanetContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -119,76 +120,57 @@ public class SquareProjection extends AbstractProjector implements Projector
                 .getProjectionParameters()
                 .getVgrid();
 
-        final boolean doShade =
-            getParameters()
-                .getProjectionParameters()
-                .isDoShade();
-
         depth = (3 * ((int) (log2(scale * height)))) + 6;
 
         cacheParameters();
 
-        colours = new short[width][height];
-        shades = new short[width][height];
+        allocateImage();
 
         double y;
-        double scale1;
         double theta1;
-        double cos2;
-        int k;
         int i;
         int j;
 
-        k = (int) ((lat * width * scale) / Math.PI);
+        final int k = (int) ((lat * width * scale) / Math.PI);
 
-        progress.progressStart(height, "Generating Terrain");
+        generatePixels(
+            new PixelMapper()
+            {
+                public boolean mapPixel(
+                    PlanetContext ctx, int i, int j, double[] point)
+                {
+                    double y;
+                    double scale1;
+                    double theta1;
+                    double cos2;
 
-        for (j = 0; j < height; ++j)
-        {
-            progress.progressStep(j);
+                    y = ((2.0 * (j - k)) - height) / width / scale * Math.PI;
 
-            y = ((2.0 * (j - k)) - height) / width / scale * Math.PI;
+                    if (Math.abs(y) >= (0.5 * Math.PI))
+                    {
+                        return false;
+                    }
 
-            if (Math.abs(y) >= (0.5 * Math.PI))
-            {
-                for (i = 0; i < width; ++i)
-                {
-                    colours[i][j] = backgroundColour;
+                    cos2 = Math.cos(y);
 
-                    if (doShade)
+                    if (cos2 <= 0.0)
                     {
-                        shades[i][j] = 255;
+                        return false;
                     }
-                }
-            }
-            else
-            {
-                cos2 = Math.cos(y);
 
-                if (cos2 > 0.0)
-                {
                     scale1 = (scale * width) / height / cos2 / Math.PI;
-                    depth = (3 * ((int) (log2(scale1 * height)))) + 3;
+                    ctx.setDepth((3 * ((int) (log2(scale1 * height)))) + 3);
 
-                    for (i = 0; i < width; ++i)
-                    {
-                        theta1 = lon - (0.5 * Math.PI) +
-                            ((Math.PI * ((2.0 * i) - width)) / width / scale);
+                    theta1 = lon - (0.5 * Math.PI) +
+                        ((Math.PI * ((2.0 * i) - width)) / width / scale);
 
-                        colours[i][j] = (short) planet0(
-                                Math.cos(theta1) * cos2, Math.sin(y),
-                                -Math.sin(theta1) * cos2);
+                    point[0] = Math.cos(theta1) * cos2;
+                    point[1] = Math.sin(y);
+                    point[2] = -Math.sin(theta1) * cos2;
 
-                        if (doShade)
-                        {
-                            shades[i][j] = shade;
-                        }
-                    }
+                    return true;
                 }
-            }
-        }
-
-        progress.progressComplete("Terrain Generated");
+            });
 
         if (hgrid != 0.0)
         {
@@ -206,7 +188,7 @@ public class SquareProjection extends AbstractProjector implements Projector
                 if ((j >= 0) && (j < height))
                 {
                     for (i = 0; i < width; ++i)
-                        colours[i][j] = BLACK;
+                        plot(i, j, BLACK);
                 }
             }
         }
@@ -236,18 +218,13 @@ public class SquareProjection extends AbstractProjector implements Projector
                                 (int) ((0.25 * Math.PI * width * scale) / Math.PI) +
                                 k); ++j)
                     {
-                        colours[i][j] = BLACK;
+                        plot(i, j, BLACK);
                     }
                 }
             }
         }
 
-        if (doShade)
-        {
-            smoothshades();
-        }
-
-        doOutlining();
+        postProcess();
     }
 
     /**
@@ -52,6 +52,7 @@
 package com.alvermont.terraj.planet.project;
 
 import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.PlanetContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -122,17 +123,11 @@ public class StereographicProjection extends AbstractProjector
                 .getProjectionParameters()
                 .getVgrid();
 
-        final boolean doShade =
-            getParameters()
-                .getProjectionParameters()
-                .isDoShade();
-
         depth = (3 * ((int) (log2(scale * height)))) + 6;
 
         cacheParameters();
 
-        colours = new short[width][height];
-        shades = new short[width][height];
+        allocateImage();
 
         double x;
         double y;
@@ -148,55 +143,42 @@ public class StereographicProjection extends AbstractProjector
         int i;
         int j;
 
-        ymin = 2.0;
-        ymax = -2.0;
 
         final double sla = Math.sin(lat);
         final double cla = Math.cos(lat);
         final double slo = Math.sin(lon);
         final double clo = Math.cos(lon);
 
-        progress.progressStart(height, "Generating Terrain");
-
-        for (j = 0; j < height; ++j)
-        {
-            progress.progressStep(j);
-
-            for (i = 0; i < width; ++i)
+        generatePixels(
+            new PixelMapper()
             {
-                x = ((2.0 * i) - width) / height / scale;
-                y = ((2.0 * j) - height) / height / scale;
-                z = (x * x) + (y * y);
-                zz = 0.25 * (4.0 + z);
-
-                x = x / zz;
-                y = y / zz;
-                z = (1.0 - (0.25 * z)) / zz;
-
-                x1 = (clo * x) + (slo * sla * y) + (slo * cla * z);
-                y1 = (cla * y) - (sla * z);
-                z1 = (-slo * x) + (clo * sla * y) + (clo * cla * z);
-
-                if (y1 < ymin)
+                public boolean mapPixel(
+                    PlanetContext ctx, int i, int j, double[] point)
                 {
-                    ymin = y1;
-                }
+                    double x;
+                    double y;
+                    double z;
+                    double zz;
 
-                if (y1 > ymax)
-                {
-                    ymax = y1;
-                }
+                    x = ((2.0 * i) - width) / height / scale;
+                    y = ((2.0 * j) - height) / height / scale;
+                    z = (x * x) + (y * y);
+                    zz = 0.25 * (4.0 + z);
 
-                colours[i][j] = (short) planet0(x1, y1, z1);
+                    x = x / zz;
+                    y = y / zz;
+                    z = (1.0 - (0.25 * z)) / zz;
 
-                if (doShade)
-                {
-                    shades[i][j] = shade;
+                    point[0] = (clo * x) + (slo * sla * y) + (slo * cla * z);
+                    point[1] = (cla * y) - (sla * z);
+                    point[2] = (-slo * x) + (clo * sla * y) + (clo * cla * z);
+
+                    return true;
                 }
-            }
-        }
+            });
 
-        progress.progressComplete("Terrain Generated");
+        ymin = getYMin();
+        ymax = getYMax();
 
         if (hgrid != 0.0)
         {
@@ -233,7 +215,7 @@ public class StereographicProjection extends AbstractProjector
                                 (0 <= i) && (i < width) && (0 <= j) &&
                                     (j < height))
                             {
-                                colours[i][j] = BLACK;
+                                plot(i, j, BLACK);
                             }
                         }
                     }
@@ -272,7 +254,7 @@ public class StereographicProjection extends AbstractProjector
                                 (0 <= i) && (i < width) && (0 <= j) &&
                                     (j < height))
                             {
-                                colours[i][j] = BLACK;
+                                plot(i, j, BLACK);
                             }
                         }
                     }
@@ -280,12 +262,7 @@ public class StereographicProjection extends AbstractProjector
             }
         }
 
-        if (doShade)
-        {
-            smoothshades();
-        }
-
-        doOutlining();
+        postProcess();
     }
 
     /**
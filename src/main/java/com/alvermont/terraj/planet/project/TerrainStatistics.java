@@ -0,0 +1,393 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * TerrainStatistics.java
+ *
+ * Created on October 18, 2026, 4:05 PM
+ *
+ */
+package com.alvermont.terraj.planet.project;
+
+import java.util.Arrays;
+
+/**
+ * Statistics of the terrain shown in an image, gathered while the image is
+ * projected. All the counts are of pixels, so they depend on the
+ * projection as well as the planet. Each thread generating the image
+ * fills in its own object and these are merged when the image is
+ * complete, so the methods of this class are not thread safe.
+ *
+ * @version $Id$
+ */
+public class TerrainStatistics
+{
+    /** The default number of bins of the altitude histogram */
+    public static final int DEFAULT_ALTITUDE_BINS = 250;
+
+    /** The default lowest altitude covered by the histogram */
+    public static final double DEFAULT_MIN_ALTITUDE = -0.25;
+
+    /** The default highest altitude covered by the histogram */
+    public static final double DEFAULT_MAX_ALTITUDE = 0.25;
+
+    /** The default number of latitude bands, giving 10 degrees per band */
+    public static final int DEFAULT_LATITUDE_BANDS = 18;
+
+    /** The number of colour indexes that are counted */
+    private static final int COLOURS = 256;
+
+    /** The lowest altitude covered by the histogram */
+    private final double minAltitude;
+
+    /** The highest altitude covered by the histogram */
+    private final double maxAltitude;
+
+    /** The number of pixels in each altitude bin */
+    private final long[] histogram;
+
+    /** The number of pixels of each colour index */
+    private final long[] colourCounts = new long[COLOURS];
+
+    /** The number of pixels in each latitude band */
+    private final long[] bandCounts;
+
+    /** The lowest altitude in each latitude band */
+    private final double[] bandMin;
+
+    /** The highest altitude in each latitude band */
+    private final double[] bandMax;
+
+    /** The total altitude in each latitude band */
+    private final double[] bandSum;
+
+    /** The number of pixels showing land */
+    private long landCount;
+
+    /** The number of pixels showing the sea */
+    private long seaCount;
+
+    /** The number of pixels showing the background */
+    private long backgroundCount;
+
+    /** Creates a new instance of TerrainStatistics with the default bins */
+    public TerrainStatistics()
+    {
+        this(
+            DEFAULT_ALTITUDE_BINS, DEFAULT_MIN_ALTITUDE, DEFAULT_MAX_ALTITUDE,
+            DEFAULT_LATITUDE_BANDS);
+    }
+
+    /**
+     * Creates a new instance of TerrainStatistics
+     *
+     * @param bins The number of bins of the altitude histogram
+     * @param minAltitude The lowest altitude covered by the histogram. Lower
+     * altitudes are counted in the first bin.
+     * @param maxAltitude The highest altitude covered by the histogram.
+     * Higher altitudes are counted in the last bin.
+     * @param bands The number of latitude bands from the south pole to the
+     * north pole
+     */
+    public TerrainStatistics(
+        int bins, double minAltitude, double maxAltitude, int bands)
+    {
+        if ((bins < 1) || (bands < 1) || !(maxAltitude > minAltitude))
+        {
+            throw new IllegalArgumentException(
+                "Invalid statistics bins: " + bins + " " + minAltitude + " " +
+                maxAltitude + " " + bands);
+        }
+
+        this.minAltitude = minAltitude;
+        this.maxAltitude = maxAltitude;
+        this.histogram = new long[bins];
+        this.bandCounts = new long[bands];
+        this.bandMin = new double[bands];
+        this.bandMax = new double[bands];
+        this.bandSum = new double[bands];
+
+        Arrays.fill(this.bandMin, Double.POSITIVE_INFINITY);
+        Arrays.fill(this.bandMax, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Create an empty object with the same bins as this one
+     *
+     * @return A new object that can be merged with this one
+     */
+    public TerrainStatistics createEmpty()
+    {
+        return new TerrainStatistics(
+            this.histogram.length, this.minAltitude, this.maxAltitude,
+            this.bandCounts.length);
+    }
+
+    /**
+     * Count a pixel showing the planet
+     *
+     * @param alt The altitude of the point shown (0 = sea level)
+     * @param y The y coordinate of the point, which gives its latitude
+     * @param colour The colour index of the pixel
+     */
+    public void add(double alt, double y, int colour)
+    {
+        final int bins = this.histogram.length;
+        int bin =
+            (int) Math.floor(
+                ((alt - this.minAltitude) * bins) /
+                (this.maxAltitude - this.minAltitude));
+
+        bin = Math.max(0, Math.min(bins - 1, bin));
+
+        ++this.histogram[bin];
+        ++this.colourCounts[colour & (COLOURS - 1)];
+
+        if (alt > 0)
+        {
+            ++this.landCount;
+        }
+        else
+        {
+            ++this.seaCount;
+        }
+
+        final int bands = this.bandCounts.length;
+        final double lat = Math.asin(Math.max(-1.0, Math.min(1.0, y)));
+        final int band =
+            Math.min(
+                bands - 1, (int) (((lat / Math.PI) + 0.5) * bands));
+
+        ++this.bandCounts[band];
+        this.bandSum[band] += alt;
+
+        if (alt < this.bandMin[band])
+        {
+            this.bandMin[band] = alt;
+        }
+
+        if (alt > this.bandMax[band])
+        {
+            this.bandMax[band] = alt;
+        }
+    }
+
+    /**
+     * Count a pixel showing the background
+     *
+     * @param colour The colour index of the pixel
+     */
+    public void addBackground(int colour)
+    {
+        ++this.backgroundCount;
+        ++this.colourCounts[colour & (COLOURS - 1)];
+    }
+
+    /**
+     * Add the counts of another object to this one
+     *
+     * @param other An object with the same bins as this one
+     */
+    public void merge(TerrainStatistics other)
+    {
+        if (
+            (other.histogram.length != this.histogram.length) ||
+                (other.bandCounts.length != this.bandCounts.length))
+        {
+            throw new IllegalArgumentException(
+                "Statistics have different bins");
+        }
+
+        for (int i = 0; i < this.histogram.length; ++i)
+        {
+            this.histogram[i] += other.histogram[i];
+        }
+
+        for (int i = 0; i < COLOURS; ++i)
+        {
+            this.colourCounts[i] += other.colourCounts[i];
+        }
+
+        for (int b = 0; b < this.bandCounts.length; ++b)
+        {
+            this.bandCounts[b] += other.bandCounts[b];
+            this.bandSum[b] += other.bandSum[b];
+            this.bandMin[b] = Math.min(this.bandMin[b], other.bandMin[b]);
+            this.bandMax[b] = Math.max(this.bandMax[b], other.bandMax[b]);
+        }
+
+        this.landCount += other.landCount;
+        this.seaCount += other.seaCount;
+        this.backgroundCount += other.backgroundCount;
+    }
+
+    /**
+     * Get the altitude histogram
+     *
+     * @return The number of pixels in each bin, from the lowest altitude to
+     * the highest
+     */
+    public long[] getHistogram()
+    {
+        return this.histogram.clone();
+    }
+
+    /**
+     * Get the lowest altitude of a bin of the histogram
+     *
+     * @param bin The index of the bin
+     * @return The altitude at the bottom of the bin
+     */
+    public double getBinAltitude(int bin)
+    {
+        return this.minAltitude +
+        (((this.maxAltitude - this.minAltitude) * bin) / this.histogram.length);
+    }
+
+    /**
+     * Get the number of pixels of each colour index, including the
+     * background
+     *
+     * @return The count of each of the 256 colour indexes
+     */
+    public long[] getColourCounts()
+    {
+        return this.colourCounts.clone();
+    }
+
+    /**
+     * Get the number of latitude bands
+     *
+     * @return The number of bands from the south pole to the north pole
+     */
+    public int getLatitudeBands()
+    {
+        return this.bandCounts.length;
+    }
+
+    /**
+     * Get the number of pixels showing points in a latitude band
+     *
+     * @param band The index of the band, counting from the south pole
+     * @return The number of pixels in the band
+     */
+    public long getBandCount(int band)
+    {
+        return this.bandCounts[band];
+    }
+
+    /**
+     * Get the lowest altitude in a latitude band
+     *
+     * @param band The index of the band, counting from the south pole
+     * @return The lowest altitude or NaN if the band isn't shown
+     */
+    public double getBandMinimum(int band)
+    {
+        return (this.bandCounts[band] == 0) ? Double.NaN : this.bandMin[band];
+    }
+
+    /**
+     * Get the highest altitude in a latitude band
+     *
+     * @param band The index of the band, counting from the south pole
+     * @return The highest altitude or NaN if the band isn't shown
+     */
+    public double getBandMaximum(int band)
+    {
+        return (this.bandCounts[band] == 0) ? Double.NaN : this.bandMax[band];
+    }
+
+    /**
+     * Get the mean altitude in a latitude band
+     *
+     * @param band The index of the band, counting from the south pole
+     * @return The mean altitude or NaN if the band isn't shown
+     */
+    public double getBandMean(int band)
+    {
+        return this.bandSum[band] / this.bandCounts[band];
+    }
+
+    /**
+     * Get the number of pixels showing land
+     *
+     * @return The number of pixels above sea level
+     */
+    public long getLandCount()
+    {
+        return this.landCount;
+    }
+
+    /**
+     * Get the number of pixels showing the sea
+     *
+     * @return The number of pixels at or below sea level
+     */
+    public long getSeaCount()
+    {
+        return this.seaCount;
+    }
+
+    /**
+     * Get the number of pixels showing the background
+     *
+     * @return The number of pixels that don't show the planet
+     */
+    public long getBackgroundCount()
+    {
+        return this.backgroundCount;
+    }
+
+    /**
+     * Get the fraction of the pixels showing the planet that show land
+     *
+     * @return The land fraction or NaN if the planet isn't shown
+     */
+    public double getLandFraction()
+    {
+        return (double) this.landCount / (this.landCount + this.seaCount);
+    }
+}
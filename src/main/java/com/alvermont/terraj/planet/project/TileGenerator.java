@@ -0,0 +1,396 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * TileGenerator.java
+ *
+ * Created on October 17, 2026, 7:40 PM
+ *
+ */
+package com.alvermont.terraj.planet.project;
+
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.PlanetParameters;
+import com.alvermont.terraj.planet.ProjectionParameters;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Generates map tiles in the z/x/y scheme used by web map viewers. At zoom
+ * level z the map is a Mercator projection 256 * 2^z pixels square, centred
+ * on the equator and the longitude in the parameters, cut into 2^z by 2^z
+ * tiles. Each tile is rendered on its own as a window of that map, so the
+ * cost of a tile doesn't depend on the zoom level other than through the
+ * depth of the terrain recursion.
+ *
+ * A tile generator can be used by several threads at once, each thread
+ * rendering with its own projection.
+ *
+ * @version $Id$
+ */
+public class TileGenerator
+{
+    /** Our logging object */
+    private static Log log = LogFactory.getLog(TileGenerator.class);
+
+    /** The width and height of a tile in pixels */
+    public static final int TILE_SIZE = 256;
+
+    /** The deepest zoom level supported, the largest for which the width of
+     * the whole map fits in an int */
+    public static final int MAX_ZOOM = 22;
+
+    // RequireThis OFF: TILE_SIZE
+    // RequireThis OFF: MAX_ZOOM
+
+    /** The parameters of the planet to be mapped */
+    private final AllPlanetParameters params;
+
+    /** The projection used by each thread */
+    private final ThreadLocal<MercatorProjection> projections =
+        new ThreadLocal<MercatorProjection>()
+        {
+            protected MercatorProjection initialValue()
+            {
+                return new MercatorProjection();
+            }
+        };
+
+    /**
+     * Creates a new instance of TileGenerator
+     *
+     * @param params The parameters of the planet to be mapped. The size,
+     * latitude and scale are ignored as they are set by the zoom level.
+     */
+    public TileGenerator(AllPlanetParameters params)
+    {
+        this.params = new AllPlanetParameters(params);
+    }
+
+    /**
+     * Get the number of tiles across and down the map at a zoom level
+     *
+     * @param zoom The zoom level
+     * @return The number of tiles on each side of the map
+     */
+    public static int getTileCount(int zoom)
+    {
+        return 1 << zoom;
+    }
+
+    /**
+     * Render one tile of the map
+     *
+     * @param zoom The zoom level of the tile
+     * @param x The column of the tile, counting from the west
+     * @param y The row of the tile, counting from the top
+     * @return The pixels of the tile, left to right then top to bottom,
+     * each packed as <code>0xRRGGBB</code>
+     */
+    public int[] renderTile(int zoom, int x, int y)
+    {
+        if ((zoom < 0) || (zoom > MAX_ZOOM))
+        {
+            throw new IllegalArgumentException("Invalid zoom level: " + zoom);
+        }
+
+        if (
+            (x < 0) || (x >= getTileCount(zoom)) || (y < 0) ||
+                (y >= getTileCount(zoom)))
+        {
+            throw new IllegalArgumentException(
+                "Invalid tile: " + zoom + "/" + x + "/" + y);
+        }
+
+        final AllPlanetParameters tileParams =
+            new AllPlanetParameters(this.params);
+        final ProjectionParameters pp = tileParams.getProjectionParameters();
+
+        pp.setWidth(TILE_SIZE << zoom);
+        pp.setHeight(TILE_SIZE << zoom);
+        pp.setLat(0.0);
+        pp.setScale(1.0);
+
+        final MercatorProjection proj = this.projections.get();
+        final int[] rgb = new int[TILE_SIZE * TILE_SIZE];
+
+        proj.setParameters(tileParams);
+        proj.projectWindow(
+            x * TILE_SIZE, y * TILE_SIZE, TILE_SIZE, TILE_SIZE, rgb);
+
+        return rgb;
+    }
+
+    /**
+     * Render one tile of the map as an image
+     *
+     * @param zoom The zoom level of the tile
+     * @param x The column of the tile, counting from the west
+     * @param y The row of the tile, counting from the top
+     * @return An image of the tile
+     */
+    public BufferedImage getTileImage(int zoom, int x, int y)
+    {
+        final BufferedImage image =
+            new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+        final int[] data =
+            ((DataBufferInt) image.getRaster()
+                .getDataBuffer()).getData();
+
+        System.arraycopy(renderTile(zoom, x, y), 0, data, 0, data.length);
+
+        return image;
+    }
+
+    /**
+     * Render one tile of the map and write it to a PNG file
+     *
+     * @param zoom The zoom level of the tile
+     * @param x The column of the tile, counting from the west
+     * @param y The row of the tile, counting from the top
+     * @param file The file to be written
+     * @throws java.io.IOException If there is an error writing the file
+     */
+    public void writeTile(int zoom, int x, int y, File file)
+        throws IOException
+    {
+        if (!ImageIO.write(getTileImage(zoom, x, y), "png", file))
+        {
+            throw new IOException("No PNG writer available");
+        }
+    }
+
+    /**
+     * Render every tile from one zoom level to another and write them out
+     * as <code>zoom/x/y.png</code> under a directory. The tiles are shared
+     * between a pool of threads.
+     *
+     * @param minZoom The first zoom level to be generated
+     * @param maxZoom The last zoom level to be generated
+     * @param directory The directory the tiles are written under
+     * @param threads The number of threads to use
+     * @return The number of tiles written
+     * @throws java.io.IOException If there is an error writing a tile
+     */
+    public int generatePyramid(
+        int minZoom, int maxZoom, File directory, int threads)
+        throws IOException
+    {
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final List<Future<Object>> results = new ArrayList<Future<Object>>();
+
+        try
+        {
+            for (int zoom = minZoom; zoom <= maxZoom; ++zoom)
+            {
+                for (int x = 0; x < getTileCount(zoom); ++x)
+                {
+                    final File column =
+                        new File(
+                            new File(directory, Integer.toString(zoom)),
+                            Integer.toString(x));
+
+                    if (!column.isDirectory() && !column.mkdirs())
+                    {
+                        throw new IOException(
+                            "Unable to create directory: " + column);
+                    }
+
+                    for (int y = 0; y < getTileCount(zoom); ++y)
+                    {
+                        final int tileZoom = zoom;
+                        final int tileX = x;
+                        final int tileY = y;
+
+                        results.add(
+                            pool.submit(
+                                new Callable<Object>()
+                                {
+                                    public Object call() throws IOException
+                                    {
+                                        writeTile(
+                                            tileZoom, tileX, tileY,
+                                            new File(column, tileY + ".png"));
+
+                                        return null;
+                                    }
+                                }));
+                    }
+                }
+            }
+
+            for (Future<Object> f : results)
+            {
+                f.get();
+            }
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread()
+                .interrupt();
+
+            throw new IOException("Interrupted generating tiles");
+        }
+        catch (ExecutionException ee)
+        {
+            if (ee.getCause() instanceof IOException)
+            {
+                throw (IOException) ee.getCause();
+            }
+
+            throw new RuntimeException(ee.getCause());
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+
+        log.debug("Generated " + results.size() + " tiles in " + directory);
+
+        return results.size();
+    }
+
+    /**
+     * Get a key that identifies the planet and the way it is drawn, but not
+     * any particular tile. Tiles rendered from parameters with the same key
+     * are the same.
+     *
+     * @return A string of hex digits identifying the tiles
+     */
+    public String getKey()
+    {
+        final PlanetParameters planet = this.params.getPlanetParameters();
+        final ProjectionParameters pp = this.params.getProjectionParameters();
+        final StringBuffer buff = new StringBuffer();
+
+        buff.append(planet.getSeed())
+            .append(',')
+            .append(planet.getInitialAltitude())
+            .append(',')
+            .append(planet.getPower())
+            .append(',')
+            .append(planet.getAltitudeDifferenceWeight())
+            .append(',')
+            .append(planet.getDistanceWeight())
+            .append(',')
+            .append(pp.getLon())
+            .append(',')
+            .append(pp.getHgrid())
+            .append(',')
+            .append(pp.getVgrid())
+            .append(',')
+            .append(pp.isAltColors())
+            .append(',')
+            .append(pp.isLatic())
+            .append(',')
+            .append(pp.isReverseBackground())
+            .append(',')
+            .append(pp.isDoShade())
+            .append(',')
+            .append(pp.getShadeAngle())
+            .append(',')
+            .append(pp.getLighterColours())
+            .append(',')
+            .append(pp.isOutline())
+            .append(',')
+            .append(pp.isEdges())
+            .append(',')
+            .append(pp.isAltitudeOnly())
+            .append(',')
+            .append(pp.isIterative())
+            .append(',')
+            .append(pp.getAltitudeGridFile())
+            .append(',')
+            .append(pp.getAltitudeGridSize());
+
+        for (int[] colour : pp.getColors())
+        {
+            for (int c : colour)
+            {
+                buff.append(',')
+                    .append(c);
+            }
+        }
+
+        try
+        {
+            final byte[] digest =
+                MessageDigest.getInstance("SHA-1")
+                    .digest(buff.toString().getBytes("UTF-8"));
+            final StringBuffer key = new StringBuffer();
+
+            for (int i = 0; i < 8; ++i)
+            {
+                key.append(Integer.toHexString(0x100 | (digest[i] & 0xff))
+                        .substring(1));
+            }
+
+            return key.toString();
+        }
+        catch (NoSuchAlgorithmException nsae)
+        {
+            throw new IllegalStateException(nsae);
+        }
+        catch (UnsupportedEncodingException uee)
+        {
+            throw new IllegalStateException(uee);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * BufferShortRaster.java
+ *
+ * Created on October 17, 2026, 4:20 PM
+ *
+ */
+package com.alvermont.terraj.planet.raster;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * A raster held in one or more NIO buffers. The buffers can either be
+ * allocated directly, outside the Java heap, or be mapped from a file by
+ * <code>MappedShortRaster</code>. A single buffer can't hold more than 2GB
+ * so large rasters are split into segments of whole rows.
+ *
+ * @version $Id$
+ */
+public class BufferShortRaster implements ShortRaster
+{
+    /** The largest number of bytes in one segment */
+    static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    // RequireThis OFF: MAX_SEGMENT_BYTES
+
+    /** The segments holding the values of the raster */
+    private ShortBuffer[] segments;
+
+    /** The width of the raster */
+    private final int width;
+
+    /** The height of the raster */
+    private final int height;
+
+    /** The number of rows held in each segment */
+    private final int rowsPerSegment;
+
+    /**
+     * Creates a new instance of BufferShortRaster using direct buffers
+     *
+     * @param width The number of columns in the raster
+     * @param height The number of rows in the raster
+     */
+    public BufferShortRaster(int width, int height)
+    {
+        this(width, height, getRowsPerSegment(width, height));
+
+        for (int s = 0; s < this.segments.length; ++s)
+        {
+            this.segments[s] =
+                ByteBuffer.allocateDirect(getSegmentBytes(s))
+                    .order(ByteOrder.nativeOrder())
+                    .asShortBuffer();
+        }
+    }
+
+    /**
+     * Creates a new instance of BufferShortRaster without any segments.
+     * The subclass must fill in every segment.
+     *
+     * @param width The number of columns in the raster
+     * @param height The number of rows in the raster
+     * @param rowsPerSegment The number of rows in each segment
+     */
+    protected BufferShortRaster(int width, int height, int rowsPerSegment)
+    {
+        this.width = width;
+        this.height = height;
+        this.rowsPerSegment = rowsPerSegment;
+        this.segments =
+            new ShortBuffer[((height + rowsPerSegment) - 1) / rowsPerSegment];
+    }
+
+    /**
+     * Work out how many rows can be held in each segment
+     *
+     * @param width The number of columns in the raster
+     * @param height The number of rows in the raster
+     * @return The number of rows in each segment
+     */
+    static int getRowsPerSegment(int width, int height)
+    {
+        final long rows = MAX_SEGMENT_BYTES / (2L * Math.max(width, 1));
+
+        return (int) Math.max(1, Math.min(rows, Math.max(height, 1)));
+    }
+
+    /**
+     * Get the number of segments used by this raster
+     *
+     * @return The number of segments
+     */
+    protected int getSegmentCount()
+    {
+        return this.segments.length;
+    }
+
+    /**
+     * Get the size of one of the segments of this raster
+     *
+     * @param segment The index of the segment
+     * @return The number of bytes the segment holds
+     */
+    protected int getSegmentBytes(int segment)
+    {
+        final int rows =
+            Math.min(
+                this.rowsPerSegment, this.height -
+                (segment * this.rowsPerSegment));
+
+        return 2 * rows * this.width;
+    }
+
+    /**
+     * Set the buffer used for one of the segments of this raster
+     *
+     * @param segment The index of the segment
+     * @param buffer The buffer holding the rows of the segment
+     */
+    protected void setSegment(int segment, ByteBuffer buffer)
+    {
+        this.segments[segment] =
+            buffer.order(ByteOrder.nativeOrder())
+                .asShortBuffer();
+    }
+
+    /**
+     * Get the width of this raster
+     *
+     * @return The number of columns in the raster
+     */
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    /**
+     * Get the height of this raster
+     *
+     * @return The number of rows in the raster
+     */
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    /**
+     * Get one value from the raster
+     *
+     * @param x The column of the value
+     * @param y The row of the value
+     * @return The value at the specified position
+     */
+    public short get(int x, int y)
+    {
+        final int s = y / this.rowsPerSegment;
+
+        return this.segments[s].get(
+            (((y - (s * this.rowsPerSegment)) * this.width) + x));
+    }
+
+    /**
+     * Set one value in the raster
+     *
+     * @param x The column of the value
+     * @param y The row of the value
+     * @param value The new value to be stored
+     */
+    public void set(int x, int y, short value)
+    {
+        final int s = y / this.rowsPerSegment;
+
+        this.segments[s].put(
+            (((y - (s * this.rowsPerSegment)) * this.width) + x), value);
+    }
+
+    /**
+     * Copy a whole row of the raster into an array
+     *
+     * @param y The row to be copied
+     * @param row The array to receive the values
+     */
+    public void getRow(int y, short[] row)
+    {
+        final int s = y / this.rowsPerSegment;
+        final ShortBuffer buff = this.segments[s].duplicate();
+
+        buff.position((y - (s * this.rowsPerSegment)) * this.width);
+        buff.get(row, 0, this.width);
+    }
+
+    /**
+     * Replace a whole row of the raster with the values from an array
+     *
+     * @param y The row to be replaced
+     * @param row The array holding the new values
+     */
+    public void setRow(int y, short[] row)
+    {
+        final int s = y / this.rowsPerSegment;
+        final ShortBuffer buff = this.segments[s].duplicate();
+
+        buff.position((y - (s * this.rowsPerSegment)) * this.width);
+        buff.put(row, 0, this.width);
+    }
+
+    /**
+     * Set every value in the raster
+     *
+     * @param value The value to be stored
+     */
+    public void fill(short value)
+    {
+        final short[] row = new short[this.width];
+
+        Arrays.fill(row, value);
+
+        for (int y = 0; y < this.height; ++y)
+        {
+            setRow(y, row);
+        }
+    }
+
+    /**
+     * Release the storage used by this raster. The memory is given back
+     * when the buffers are garbage collected.
+     */
+    public void release()
+    {
+        this.segments = null;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * MappedShortRaster.java
+ *
+ * Created on October 17, 2026, 4:30 PM
+ *
+ */
+package com.alvermont.terraj.planet.raster;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A raster held in a temporary file that is mapped into memory. The
+ * operating system pages the values in and out as they are used so the
+ * raster can be much larger than the available memory. The file is
+ * deleted when the raster is released or the program exits.
+ *
+ * @version $Id$
+ */
+public class MappedShortRaster extends BufferShortRaster
+{
+    /** Our logging object */
+    private static Log log = LogFactory.getLog(MappedShortRaster.class);
+
+    /** The file holding the raster */
+    private File file;
+
+    /**
+     * Creates a new instance of MappedShortRaster
+     *
+     * @param width The number of columns in the raster
+     * @param height The number of rows in the raster
+     * @param directory The directory the file is to be created in, or
+     * <code>null</code> to use the default temporary directory
+     * @throws java.io.IOException If the file can't be created or mapped
+     */
+    public MappedShortRaster(int width, int height, File directory)
+        throws IOException
+    {
+        super(width, height, getRowsPerSegment(width, height));
+
+        this.file = File.createTempFile("raster", ".dat", directory);
+        this.file.deleteOnExit();
+
+        final RandomAccessFile raf = new RandomAccessFile(this.file, "rw");
+
+        try
+        {
+            final FileChannel channel = raf.getChannel();
+            long position = 0;
+
+            for (int s = 0; s < getSegmentCount(); ++s)
+            {
+                final int size = getSegmentBytes(s);
+
+                setSegment(
+                    s, channel.map(FileChannel.MapMode.READ_WRITE, position, size));
+
+                position += size;
+            }
+        }
+        catch (IOException ioe)
+        {
+            raf.close();
+            this.file.delete();
+
+            throw ioe;
+        }
+
+        // the mappings remain valid after the file is closed
+        raf.close();
+
+        log.debug(
+            "Mapped " + width + "x" + height + " raster from " + this.file);
+    }
+
+    /**
+     * Release the storage used by this raster and delete its file
+     */
+    public void release()
+    {
+        super.release();
+
+        if ((this.file != null) && !this.file.delete())
+        {
+            log.debug("Raster file will be deleted on exit: " + this.file);
+        }
+
+        this.file = null;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * RasterFactory.java
+ *
+ * Created on October 17, 2026, 4:45 PM
+ *
+ */
+package com.alvermont.terraj.planet.raster;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Creates rasters, choosing where to keep them by their size. Small
+ * rasters are held in an array on the heap, larger ones in direct buffers
+ * outside the heap so they don't add to garbage collection, and the
+ * largest in memory mapped files so they can spill to disk.
+ *
+ * @version $Id$
+ */
+public class RasterFactory
+{
+    /** Our logging object */
+    private static Log log = LogFactory.getLog(RasterFactory.class);
+
+    /** The default size in bytes of the largest raster held on the heap */
+    public static final long DEFAULT_HEAP_LIMIT = 64L << 20;
+
+    /** The default size in bytes of the largest raster held in direct
+     * buffers */
+    public static final long DEFAULT_DIRECT_LIMIT = 256L << 20;
+
+    // RequireThis OFF: DEFAULT_HEAP_LIMIT
+    // RequireThis OFF: DEFAULT_DIRECT_LIMIT
+
+    /** Creates a new instance of RasterFactory */
+    public RasterFactory()
+    {
+    }
+
+    /**
+     * Create a raster of short values
+     *
+     * @param width The number of columns in the raster
+     * @param height The number of rows in the raster
+     * @return A new raster with every value set to zero
+     */
+    public ShortRaster createShortRaster(int width, int height)
+    {
+        final long bytes = 2L * width * height;
+
+        if ((bytes <= this.heapLimit) && (bytes < Integer.MAX_VALUE))
+        {
+            return new HeapShortRaster(width, height);
+        }
+
+        if (bytes <= this.directLimit)
+        {
+            try
+            {
+                return new BufferShortRaster(width, height);
+            }
+            catch (OutOfMemoryError oom)
+            {
+                log.warn(
+                    "Not enough direct memory for a " + width + "x" + height +
+                    " raster, using a mapped file instead");
+            }
+        }
+
+        try
+        {
+            return new MappedShortRaster(width, height, this.directory);
+        }
+        catch (IOException ioe)
+        {
+            log.warn(
+                "Unable to map a file for a " + width + "x" + height +
+                " raster, using direct memory instead", ioe);
+
+            return new BufferShortRaster(width, height);
+        }
+    }
+
+    /**
+     * Holds value of property heapLimit.
+     */
+    private long heapLimit = DEFAULT_HEAP_LIMIT;
+
+    /**
+     * Getter for property heapLimit.
+     * @return Value of property heapLimit.
+     */
+    public long getHeapLimit()
+    {
+        return this.heapLimit;
+    }
+
+    /**
+     * Setter for property heapLimit.
+     * @param heapLimit New value of property heapLimit.
+     */
+    public void setHeapLimit(long heapLimit)
+    {
+        this.heapLimit = heapLimit;
+    }
+
+    /**
+     * Holds value of property directLimit.
+     */
+    private long directLimit = DEFAULT_DIRECT_LIMIT;
+
+    /**
+     * Getter for property directLimit.
+     * @return Value of property directLimit.
+     */
+    public long getDirectLimit()
+    {
+        return this.directLimit;
+    }
+
+    /**
+     * Setter for property directLimit.
+     * @param directLimit New value of property directLimit.
+     */
+    public void setDirectLimit(long directLimit)
+    {
+        this.directLimit = directLimit;
+    }
+
+    /**
+     * Holds value of property directory.
+     */
+    private File directory;
+
+    /**
+     * Getter for property directory.
+     * @return Value of property directory.
+     */
+    public File getDirectory()
+    {
+        return this.directory;
+    }
+
+    /**
+     * Setter for property directory. Mapped rasters are created in this
+     * directory, or the default temporary directory if it is
+     * <code>null</code>.
+     * @param directory New value of property directory.
+     */
+    public void setDirectory(File directory)
+    {
+        this.directory = directory;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * ShortRaster.java
+ *
+ * Created on October 17, 2026, 4:10 PM
+ *
+ */
+package com.alvermont.terraj.planet.raster;
+
+/**
+ * A rectangular grid of short values, such as the colour indices or shades
+ * of the pixels of an image. The values are held in one flat block in row
+ * order rather than as an array per column, so large rasters don't need
+ * an object for every column and can be held outside the Java heap.
+ *
+ * @version $Id$
+ */
+public interface ShortRaster
+{
+    /**
+     * Get the width of this raster
+     *
+     * @return The number of columns in the raster
+     */
+    public int getWidth();
+
+    /**
+     * Get the height of this raster
+     *
+     * @return The number of rows in the raster
+     */
+    public int getHeight();
+
+    /**
+     * Get one value from the raster
+     *
+     * @param x The column of the value
+     * @param y The row of the value
+     * @return The value at the specified position
+     */
+    public short get(int x, int y);
+
+    /**
+     * Set one value in the raster
+     *
+     * @param x The column of the value
+     * @param y The row of the value
+     * @param value The new value to be stored
+     */
+    public void set(int x, int y, short value);
+
+    /**
+     * Copy a whole row of the raster into an array
+     *
+     * @param y The row to be copied
+     * @param row The array to receive the values, which must be at least
+     * as long as the raster is wide
+     */
+    public void getRow(int y, short[] row);
+
+    /**
+     * Replace a whole row of the raster with the values from an array
+     *
+     * @param y The row to be replaced
+     * @param row The array holding the new values
+     */
+    public void setRow(int y, short[] row);
+
+    /**
+     * Set every value in the raster
+     *
+     * @param value The value to be stored
+     */
+    public void fill(short value);
+
+    /**
+     * Release the storage used by this raster. It must not be used after
+     * this has been called.
+     */
+    public void release();
+}
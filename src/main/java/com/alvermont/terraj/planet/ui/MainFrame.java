@@ -54,7 +54,6 @@ import com.alvermont.terraj.fracplanet.ui.ProgressDialog;
 import com.alvermont.terraj.planet.project.HeightfieldGenerator;
 import com.alvermont.terraj.util.ui.XMLFileFilter;
 import com.alvermont.terraj.planet.AllPlanetParameters;
-import com.alvermont.terraj.planet.io.ImageBuilder;
 import com.alvermont.terraj.planet.project.ProjectionManager;
 import com.alvermont.terraj.planet.project.Projector;
 import com.alvermont.terraj.util.ui.JNLPFileChooser;
@@ -111,6 +110,13 @@ public class MainFrame extends javax.swing.JFrame
     /** The projection manager object we use */
     ProjectionManager projManager = new ProjectionManager();
 
+    /** Renders the previews shown in the terrain frame */
+    private ProgressiveRenderer renderer =
+        new ProgressiveRenderer(projManager);
+
+    /** The frame showing the latest terrain, which follows our parameters */
+    private TerrainFrame previewFrame;
+
     /** The about box dialog */
     private AboutBoxDialog aboutBox;
 
@@ -205,34 +211,11 @@ public class MainFrame extends javax.swing.JFrame
         {
             super(name);
             this.parent = parent;
-        }
-
-        /**
-         * Generate an image using a projection
-         *
-         * @param pd The progress object to be used
-         */
-        protected void generateProjection(ProgressDialog pd)
-        {
-            final Projector proj = (Projector) projComboBox.getSelectedItem();
-
-            proj.setParameters(new AllPlanetParameters(params));
-            proj.setProgress(pd);
-
-            proj.project();
 
-            pd.setVisible(false);
-            
-            final ImageBuilder ib = new ImageBuilder();
-
-            final BufferedImage image = ib.getImage(proj);
-
-            final TerrainFrame td = new TerrainFrame(image, lafUtils);
-
-            td.setVisible(true);
-            
+            // clicking again replaces a generation that is still running
+            setCoalescing(true);
         }
-        
+
         /**
          * Generate a heightfield output as a text file
          *
@@ -247,9 +230,24 @@ public class MainFrame extends javax.swing.JFrame
             hg.setParameters(new AllPlanetParameters(params));
             hg.setProgress(pd);
 
+            // a newer request stops this one between rows
+            AbstractAsynchronousAction.onCancel(
+                new Runnable()
+                {
+                    public void run()
+                    {
+                        hg.cancel();
+                    }
+                });
+
             hg.generate();
             
             pd.setVisible(false);
+
+            if (hg.isCancelled())
+            {
+                return;
+            }
             
             // now write it out
             
@@ -296,23 +294,35 @@ public class MainFrame extends javax.swing.JFrame
         
         public Object asynchronousActionPerformed(ActionEvent e)
         {
-            final ProgressDialog pd = new ProgressDialog(parent, false);
-
-            pd.setVisible(true);
-
             // slightly different if we're outputting a heightfield
             
             if (heightfieldCheckbox.isSelected())
             {
-                generateHeightfield(pd);
+                final ProgressDialog pd = new ProgressDialog(parent, false);
+
+                pd.setVisible(true);
+
+                try
+                {
+                    generateHeightfield(pd);
+                }
+                finally
+                {
+                    pd.setVisible(false);
+                    pd.dispose();
+                }
             }
             else
             {
-                generateProjection(pd);
+                java.awt.EventQueue.invokeLater(
+                    new Runnable()
+                    {
+                        public void run()
+                        {
+                            generateProjection();
+                        }
+                    });
             }
-            
-            pd.setVisible(false);
-            pd.dispose();
 
             return this;
         }
@@ -322,6 +332,59 @@ public class MainFrame extends javax.swing.JFrame
         }
     }
 
+    /**
+     * Generate an image using a projection in a new terrain frame. The
+     * image appears at a low resolution first and is refined in the
+     * background. Until the frame is closed it follows any changes to the
+     * parameters.
+     */
+    protected void generateProjection()
+    {
+        this.previewFrame = null;
+
+        renderer.render(params, new PreviewListener());
+    }
+
+    /**
+     * Called whenever one of the parameters has been changed by the user.
+     * Restarts the render of the preview frame, if there is one, with the
+     * new parameters.
+     */
+    protected void parametersChanged()
+    {
+        if ((this.previewFrame != null) && this.previewFrame.isDisplayable())
+        {
+            renderer.render(params, new PreviewListener());
+        }
+    }
+
+    /** Puts each pass of a render into the preview frame */
+    private class PreviewListener implements ProgressiveRenderer.StageListener
+    {
+        public void stageRendered(BufferedImage image, int divisor)
+        {
+            final String title =
+                (divisor == 1) ? "Terrain" : ("Terrain (1/" + divisor + " resolution)");
+
+            if (previewFrame == null)
+            {
+                previewFrame = new TerrainFrame(image, lafUtils);
+                previewFrame.setTitle(title);
+                previewFrame.setVisible(true);
+            }
+            else if (previewFrame.isDisplayable())
+            {
+                previewFrame.setImage(image);
+                previewFrame.setTitle(title);
+            }
+            else
+            {
+                // the frame has been closed so there's no point going on
+                renderer.cancel();
+            }
+        }
+    }
+
     /**
      * Pick a random colour
      *
@@ -479,6 +542,8 @@ public class MainFrame extends javax.swing.JFrame
             colours[index][0] = newColour.getRed();
             colours[index][1] = newColour.getGreen();
             colours[index][2] = newColour.getBlue();
+
+            parametersChanged();
         }
 
         return newColour;
@@ -502,6 +567,8 @@ public class MainFrame extends javax.swing.JFrame
         colours[index][0] = newColour.getRed();
         colours[index][1] = newColour.getGreen();
         colours[index][2] = newColour.getBlue();
+
+        parametersChanged();
     }
 
     private final class CustomDocument extends PlainDocument
@@ -1462,12 +1529,16 @@ public class MainFrame extends javax.swing.JFrame
     {//GEN-HEADEREND:event_edgesCheckboxActionPerformed
         params.getProjectionParameters()
             .setEdges(edgesCheckbox.isSelected());
+
+        parametersChanged();
     }//GEN-LAST:event_edgesCheckboxActionPerformed
 
     private void outlineCheckboxActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_outlineCheckboxActionPerformed
     {//GEN-HEADEREND:event_outlineCheckboxActionPerformed
         params.getProjectionParameters()
             .setOutline(outlineCheckbox.isSelected());
+
+        parametersChanged();
     }//GEN-LAST:event_outlineCheckboxActionPerformed
 
     private void aboutItemActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_aboutItemActionPerformed
@@ -1507,6 +1578,8 @@ public class MainFrame extends javax.swing.JFrame
 
         params.getProjectionParameters()
             .setLighterColours(val);
+
+        parametersChanged();
     }//GEN-LAST:event_lighterSpinnerStateChanged
 
     private void exitItemActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_exitItemActionPerformed
@@ -1604,6 +1677,8 @@ public class MainFrame extends javax.swing.JFrame
             .setLon(lon);
 
         updateProjectParameters();
+
+        parametersChanged();
     }//GEN-LAST:event_randomAllButtonActionPerformed
 
     private void scaleSpinnerStateChanged(javax.swing.event.ChangeEvent evt)//GEN-FIRST:event_scaleSpinnerStateChanged
@@ -1612,6 +1687,8 @@ public class MainFrame extends javax.swing.JFrame
         final JSpinner source = (JSpinner) evt.getSource();
         params.getProjectionParameters()
             .setScale((Double) source.getValue());
+
+        parametersChanged();
     }//GEN-LAST:event_scaleSpinnerStateChanged
 
     private void loadParamsItemActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_loadParamsItemActionPerformed
@@ -1647,6 +1724,8 @@ public class MainFrame extends javax.swing.JFrame
                     JOptionPane.ERROR_MESSAGE);
             }
         }
+
+        parametersChanged();
     }//GEN-LAST:event_loadParamsItemActionPerformed
 
     private void saveParamsItemActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_saveParamsItemActionPerformed
@@ -1696,12 +1775,16 @@ public class MainFrame extends javax.swing.JFrame
     {//GEN-HEADEREND:event_shadeCheckboxActionPerformed
         params.getProjectionParameters()
             .setDoShade(shadeCheckbox.isSelected());
+
+        parametersChanged();
     }//GEN-LAST:event_shadeCheckboxActionPerformed
 
     private void laticCheckboxActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_laticCheckboxActionPerformed
     {//GEN-HEADEREND:event_laticCheckboxActionPerformed
         params.getProjectionParameters()
             .setLatic(laticCheckbox.isSelected());
+
+        parametersChanged();
     }//GEN-LAST:event_laticCheckboxActionPerformed
 
     private void altColourCheckboxActionPerformed(
@@ -1711,6 +1794,8 @@ public class MainFrame extends javax.swing.JFrame
             .setAltColors(altColourCheckbox.isSelected());
 
         lighterSpinner.setEnabled(!altColourCheckbox.isSelected());
+
+        parametersChanged();
     }//GEN-LAST:event_altColourCheckboxActionPerformed
 
     private void shadeAngleSpinnerStateChanged(
@@ -1720,6 +1805,8 @@ public class MainFrame extends javax.swing.JFrame
         final Double value = (Double) shadeAngleSpinner.getValue();
         params.getProjectionParameters()
             .setShadeAngle(value);
+
+        parametersChanged();
     }//GEN-LAST:event_shadeAngleSpinnerStateChanged
 
     private void lineColourButtonActionPerformed(
@@ -1793,6 +1880,8 @@ public class MainFrame extends javax.swing.JFrame
 
         params.getProjectionParameters()
             .setHeight(value);
+
+        parametersChanged();
     }//GEN-LAST:event_heightComboBoxActionPerformed
 
     private void widthComboBoxActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_widthComboBoxActionPerformed
@@ -1813,6 +1902,8 @@ public class MainFrame extends javax.swing.JFrame
 
         params.getProjectionParameters()
             .setWidth(value);
+
+        parametersChanged();
     }//GEN-LAST:event_widthComboBoxActionPerformed
 
     private void hgridSpinnerStateChanged(javax.swing.event.ChangeEvent evt)//GEN-FIRST:event_hgridSpinnerStateChanged
@@ -1821,6 +1912,8 @@ public class MainFrame extends javax.swing.JFrame
         final JSpinner source = (JSpinner) evt.getSource();
         params.getProjectionParameters()
             .setHgrid((Double) source.getValue());
+
+        parametersChanged();
     }//GEN-LAST:event_hgridSpinnerStateChanged
 
     private void vgridSpinnerStateChanged(javax.swing.event.ChangeEvent evt)//GEN-FIRST:event_vgridSpinnerStateChanged
@@ -1829,6 +1922,8 @@ public class MainFrame extends javax.swing.JFrame
         final JSpinner source = (JSpinner) evt.getSource();
         params.getProjectionParameters()
             .setVgrid((Double) source.getValue());
+
+        parametersChanged();
     }//GEN-LAST:event_vgridSpinnerStateChanged
 
     private void seedFieldActionPerformed(java.awt.event.ActionEvent evt)//GEN-FIRST:event_seedFieldActionPerformed
@@ -1837,6 +1932,8 @@ public class MainFrame extends javax.swing.JFrame
         final Double value = (Double) seedField.getValue();
         params.getPlanetParameters()
             .setSeed(value);
+
+        parametersChanged();
     }//GEN-LAST:event_seedFieldActionPerformed
 
     private void lonSpinnerStateChanged(javax.swing.event.ChangeEvent evt)//GEN-FIRST:event_lonSpinnerStateChanged
@@ -1845,6 +1942,8 @@ public class MainFrame extends javax.swing.JFrame
         final JSpinner source = (JSpinner) evt.getSource();
         params.getProjectionParameters()
             .setLat((Double) source.getValue());
+
+        parametersChanged();
     }//GEN-LAST:event_lonSpinnerStateChanged
 
     private void latSpinnerStateChanged(javax.swing.event.ChangeEvent evt)//GEN-FIRST:event_latSpinnerStateChanged
@@ -1853,6 +1952,8 @@ public class MainFrame extends javax.swing.JFrame
         final JSpinner source = (JSpinner) evt.getSource();
         params.getProjectionParameters()
             .setLat((Double) source.getValue());
+
+        parametersChanged();
     }//GEN-LAST:event_latSpinnerStateChanged
 
     private void randomSeedButtonActionPerformed(
@@ -1864,6 +1965,8 @@ public class MainFrame extends javax.swing.JFrame
         params.getPlanetParameters()
             .setSeed(seed);
         seedField.setValue(seed);
+
+        parametersChanged();
     }//GEN-LAST:event_randomSeedButtonActionPerformed
 
     private void heightfieldCheckboxActionPerformed(
@@ -1909,6 +2012,8 @@ public class MainFrame extends javax.swing.JFrame
             previewLabel.setText("Preview Icon Not Found!\n" + path);
             previewLabel.setIcon(null);
         }
+
+        parametersChanged();
     }//GEN-LAST:event_projComboBoxActionPerformed
 
     /**
@@ -52,19 +52,45 @@ package com.alvermont.terraj.planet.ui;
 
 import com.alvermont.terraj.fracplanet.util.DummyProgress;
 import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.AltitudeCache;
+import com.alvermont.terraj.planet.AltitudeGrid;
+import com.alvermont.terraj.planet.SeedMetrics;
+import com.alvermont.terraj.planet.SeedScore;
+import com.alvermont.terraj.planet.SeedSweep;
+import com.alvermont.terraj.planet.io.BMPBandWriter;
+import com.alvermont.terraj.planet.io.HeightfieldWriter;
 import com.alvermont.terraj.planet.io.ImageBuilder;
+import com.alvermont.terraj.planet.io.PNGBandWriter;
+import com.alvermont.terraj.planet.project.AbstractProjector;
+import com.alvermont.terraj.planet.project.BandConsumer;
+import com.alvermont.terraj.planet.project.CubeMapProjection;
+import com.alvermont.terraj.planet.project.GlobeAnimator;
 import com.alvermont.terraj.planet.project.ProjectionManager;
 import com.alvermont.terraj.planet.project.Projector;
+import com.alvermont.terraj.planet.project.TileGenerator;
 import com.alvermont.terraj.util.ui.PNGFileFilter;
 import gnu.getopt.Getopt;
 import gnu.getopt.LongOpt;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.imageio.ImageIO;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -81,6 +107,43 @@ public class PlanetCLI
     /** Our logger object */
     private static Log log = LogFactory.getLog(PlanetCLI.class);
 
+    /** The file of jobs to be run, or <code>null</code> for a single image */
+    private String jobFile;
+
+    /** The deepest zoom level of map tiles to generate, or -1 for none */
+    private int tileZoom = -1;
+
+    /** The number of mip levels of cube map faces to write, or -1 for no
+     * cube map */
+    private int cubeLevels = -1;
+
+    /** The number of frames of a turning globe to render, or 0 for none */
+    private int frames;
+
+    /** The number of seeds to sweep, or 0 for none */
+    private int sweepCount;
+
+    /** The number of the best planets from a sweep that are rendered */
+    private int sweepKeep = 10;
+
+    /** The score used to rank the planets of a sweep */
+    private SeedScore sweepScore = SeedSweep.getScore("earthlike");
+
+    /** The number of jobs that can be run at the same time */
+    private int workers = Runtime.getRuntime()
+            .availableProcessors();
+
+    /** The options that choose what the program does rather than describe
+     * an image, which can't be used in the lines of a job file */
+    private static final String RUN_OPTIONS = "JWTUFSKQ";
+
+    /** The projections used by the worker threads, reused between jobs */
+    private final ProjectionManager manager = new ProjectionManager();
+
+    /** The altitude grids that have been opened, by file name */
+    private final Map<String, AltitudeGrid> grids =
+        new HashMap<String, AltitudeGrid>();
+
     /** Creates a new instance of PlanetCLI */
     public PlanetCLI()
     {
@@ -177,6 +240,49 @@ public class PlanetCLI
         options.add(
             new LongOpt(
                 "projection", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(), 'p'));
+        options.add(new LongOpt("parallel", LongOpt.NO_ARGUMENT, null, 'P'));
+        options.add(new LongOpt("iterative", LongOpt.NO_ARGUMENT, null, 'I'));
+        options.add(new LongOpt("heights", LongOpt.NO_ARGUMENT, null, 'H'));
+        options.add(
+            new LongOpt(
+                "normalmap", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(), 'n'));
+        options.add(
+            new LongOpt(
+                "bandrows", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(), 'R'));
+        options.add(
+            new LongOpt(
+                "jobs", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(), 'J'));
+        options.add(
+            new LongOpt(
+                "workers", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(), 'W'));
+        options.add(
+            new LongOpt(
+                "tiles", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(), 'T'));
+        options.add(
+            new LongOpt(
+                "altgrid", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(), 'X'));
+        options.add(
+            new LongOpt(
+                "altgridsize", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(),
+                'Z'));
+        options.add(
+            new LongOpt(
+                "frames", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(), 'F'));
+        options.add(
+            new LongOpt(
+                "cubemap", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(), 'U'));
+        options.add(
+            new LongOpt(
+                "sweep", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(), 'S'));
+        options.add(
+            new LongOpt(
+                "region", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(), 'r'));
+        options.add(
+            new LongOpt(
+                "keep", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(), 'K'));
+        options.add(
+            new LongOpt(
+                "score", LongOpt.REQUIRED_ARGUMENT, new StringBuffer(), 'Q'));
 
         // now we convert to array to avoid hard coded constants and
         // array assignments
@@ -187,7 +293,24 @@ public class PlanetCLI
 
     private AllPlanetParameters processOptions(String[] args)
     {
-        AllPlanetParameters params = new AllPlanetParameters();
+        return processOptions(args, new AllPlanetParameters(), false);
+    }
+
+    /**
+     * Process a set of options, starting from a copy of some default
+     * parameters
+     *
+     * @param args The options to be processed
+     * @param defaults The parameters to be used for options not given
+     * @param job If <code>true</code> the options are a line of a job file,
+     * which may only describe an image and not change how the program runs
+     * @return The resulting parameters or <code>null</code> if the options
+     * were not valid
+     */
+    private AllPlanetParameters processOptions(
+        String[] args, AllPlanetParameters defaults, boolean job)
+    {
+        AllPlanetParameters params = new AllPlanetParameters(defaults);
 
         final LongOpt[] options = getOptionArray();
         final String shortOpts = getShortOptions(options);
@@ -200,6 +323,15 @@ public class PlanetCLI
         {
             final String arg = g.getOptarg();
 
+            if (job && (RUN_OPTIONS.indexOf(c) >= 0))
+            {
+                System.err.println(
+                    "The " + (char) c + " option can't be used in a job file");
+                params = null;
+
+                continue;
+            }
+
             try
             {
                 switch ((char) c)
@@ -376,6 +508,195 @@ public class PlanetCLI
 
                         break;
 
+                    case 'P':
+                        params.getProjectionParameters()
+                            .setParallel(true);
+
+                        break;
+
+                    case 'I':
+                        params.getProjectionParameters()
+                            .setIterative(true);
+
+                        break;
+
+                    case 'H':
+                        params.getProjectionParameters()
+                            .setAltitudeOnly(true);
+
+                        break;
+
+                    case 'n':
+
+                        final double strength = Double.parseDouble(arg);
+
+                        if (strength <= 0.0)
+                        {
+                            throw new NumberFormatException(
+                                "Normal map strength must be positive: " + arg);
+                        }
+
+                        params.getProjectionParameters()
+                            .setNormalStrength(strength);
+
+                        break;
+
+                    case 'R':
+
+                        final int bandRows = Integer.parseInt(arg);
+                        params.getProjectionParameters()
+                            .setBandRows(bandRows);
+
+                        break;
+
+                    case 'J':
+                        this.jobFile = arg;
+
+                        break;
+
+                    case 'W':
+
+                        final int workerCount = Integer.parseInt(arg);
+
+                        if (workerCount < 1)
+                        {
+                            throw new NumberFormatException(
+                                "Workers must be at least 1: " + arg);
+                        }
+
+                        this.workers = workerCount;
+
+                        break;
+
+                    case 'T':
+
+                        final int zoom = Integer.parseInt(arg);
+
+                        if ((zoom < 0) || (zoom > TileGenerator.MAX_ZOOM))
+                        {
+                            throw new NumberFormatException(
+                                "Tile zoom must be from 0 to " +
+                                TileGenerator.MAX_ZOOM + ": " + arg);
+                        }
+
+                        this.tileZoom = zoom;
+
+                        break;
+
+                    case 'U':
+
+                        final int levels = Integer.parseInt(arg);
+
+                        if (levels < 0)
+                        {
+                            throw new NumberFormatException(
+                                "Mip levels must be at least 0: " + arg);
+                        }
+
+                        this.cubeLevels = levels;
+
+                        break;
+
+                    case 'F':
+
+                        final int frameCount = Integer.parseInt(arg);
+
+                        if (frameCount < 1)
+                        {
+                            throw new NumberFormatException(
+                                "Frame count must be at least 1: " + arg);
+                        }
+
+                        this.frames = frameCount;
+
+                        break;
+
+                    case 'r':
+
+                        final String[] parts = arg.split(",");
+
+                        if (parts.length != 4)
+                        {
+                            throw new NumberFormatException(
+                                "Region must be x,y,width,height: " + arg);
+                        }
+
+                        params.getProjectionParameters()
+                            .setRegion(
+                                new Rectangle(
+                                    Integer.parseInt(parts[0].trim()),
+                                    Integer.parseInt(parts[1].trim()),
+                                    Integer.parseInt(parts[2].trim()),
+                                    Integer.parseInt(parts[3].trim())));
+
+                        break;
+
+                    case 'S':
+
+                        final int seeds = Integer.parseInt(arg);
+
+                        if (seeds < 1)
+                        {
+                            throw new NumberFormatException(
+                                "Sweep must be at least 1 seed: " + arg);
+                        }
+
+                        this.sweepCount = seeds;
+
+                        break;
+
+                    case 'K':
+
+                        final int keep = Integer.parseInt(arg);
+
+                        if (keep < 1)
+                        {
+                            throw new NumberFormatException(
+                                "Must keep at least 1 planet: " + arg);
+                        }
+
+                        this.sweepKeep = keep;
+
+                        break;
+
+                    case 'Q':
+
+                        final SeedScore score = SeedSweep.getScore(arg);
+
+                        if (score == null)
+                        {
+                            throw new IllegalArgumentException(
+                                "Unknown score name: " + arg);
+                        }
+
+                        this.sweepScore = score;
+
+                        break;
+
+                    case 'X':
+                        params.getProjectionParameters()
+                            .setAltitudeGridFile(arg);
+
+                        break;
+
+                    case 'Z':
+
+                        final int gridSize = Integer.parseInt(arg);
+
+                        if (
+                            (gridSize < 1) ||
+                                (gridSize > AltitudeGrid.MAX_RESOLUTION))
+                        {
+                            throw new NumberFormatException(
+                                "Grid size must be from 1 to " +
+                                AltitudeGrid.MAX_RESOLUTION + ": " + arg);
+                        }
+
+                        params.getProjectionParameters()
+                            .setAltitudeGridSize(gridSize);
+
+                        break;
+
                     default:
                         System.err.println(
                             "Unexpected option encountered: " + (char) c);
@@ -392,7 +713,10 @@ public class PlanetCLI
                 params = null;
             }
 
-            System.out.println("arg= " + (char) c + " val= " + arg);
+            if (log.isDebugEnabled())
+            {
+                log.debug("arg= " + (char) c + " val= " + arg);
+            }
         }
 
         return params;
@@ -404,17 +728,52 @@ public class PlanetCLI
      * @param proj The projection object to be used
      * @param params The parameters to be used to generate the terrain
      * @return a <code>BufferedImage</code> representing the terrain
+     * @throws java.io.IOException If there is an error reading or writing
+     * the altitude grid or a normal map can't be made of the terrain
      */
     protected BufferedImage generateTerrain(
         Projector proj, AllPlanetParameters params)
+        throws IOException
     {
+        final Rectangle region = params.getProjectionParameters()
+                .getRegion();
+        final boolean normals =
+            params.getProjectionParameters()
+                .getNormalStrength() > 0.0;
+
+        if (normals && (region != null))
+        {
+            throw new IOException(
+                "A normal map can't be made of a region");
+        }
+
+        if (normals && !(proj instanceof AbstractProjector))
+        {
+            throw new IOException(
+                "Projection can't produce a normal map: " + proj);
+        }
+
         proj.setParameters(new AllPlanetParameters(params));
         proj.setProgress(new DummyProgress());
 
-        proj.project();
+        useAltitudeGrid(proj, params);
+
+        if (proj instanceof AbstractProjector)
+        {
+            ((AbstractProjector) proj).setKeepAltitudes(normals);
+        }
 
         final ImageBuilder ib = new ImageBuilder();
 
+        if ((region != null) && (proj instanceof AbstractProjector))
+        {
+            return ib.getRegionImage(
+                (AbstractProjector) proj, region.x, region.y, region.width,
+                region.height);
+        }
+
+        proj.project();
+
         return ib.getImage(proj);
     }
 
@@ -442,6 +801,536 @@ public class PlanetCLI
         target.close();
     }
 
+    /**
+     * Write the normal map of the terrain last generated by
+     * <code>generateTerrain</code> to a file next to the image, named after
+     * it with <code>_normal</code> added and written in the same format.
+     *
+     * @param proj The projection object that generated the terrain
+     * @param params The parameters that indicate where the image was written
+     * @throws java.io.IOException If there is an error writing the file
+     */
+    protected void writeNormalFile(Projector proj, AllPlanetParameters params)
+        throws IOException
+    {
+        final File file =
+            getNormalFile(
+                new File(params.getProjectionParameters().getOutputFile()));
+
+        final BufferedImage image =
+            new ImageBuilder().getNormalImage(
+                (AbstractProjector) proj,
+                params.getProjectionParameters().getNormalStrength());
+
+        final OutputStream target = new FileOutputStream(file);
+
+        try
+        {
+            ImageIO.write(image, PNGFileFilter.getFormatName(file), target);
+        }
+        finally
+        {
+            target.close();
+        }
+    }
+
+    /**
+     * Get the file a normal map is written to, which is the image file with
+     * <code>_normal</code> added before its extension
+     *
+     * @param image The file the image is written to
+     * @return The file the normal map is to be written to
+     */
+    protected File getNormalFile(File image)
+    {
+        final String name = image.getName();
+        final int dot = name.lastIndexOf('.');
+
+        if (dot < 0)
+        {
+            return new File(image.getParentFile(), name + "_normal");
+        }
+
+        return new File(
+            image.getParentFile(),
+            name.substring(0, dot) + "_normal" + name.substring(dot));
+    }
+
+    /**
+     * Generate the terrain a band of rows at a time, writing each band to
+     * the output file as it is completed so the whole image is never held
+     * in memory. Only BMP and PNG files can be written this way.
+     *
+     * @param proj The projection object to be used
+     * @param params The parameters to be used to generate the terrain
+     * @throws java.io.IOException If there is an error writing the file
+     * or a normal map was asked for, as it needs the whole image
+     */
+    protected void writeImageBands(Projector proj, AllPlanetParameters params)
+        throws IOException
+    {
+        final File file =
+            new File(params.getProjectionParameters().getOutputFile());
+        final String format = PNGFileFilter.getFormatName(file);
+
+        if (params.getProjectionParameters()
+                .getNormalStrength() > 0.0)
+        {
+            throw new IOException(
+                "A normal map can't be made when writing in bands");
+        }
+
+        if (!"bmp".equals(format) && !"png".equals(format))
+        {
+            throw new IOException(
+                "Only BMP and PNG files can be written in bands: " + file);
+        }
+
+        proj.setParameters(new AllPlanetParameters(params));
+        proj.setProgress(new DummyProgress());
+
+        useAltitudeGrid(proj, params);
+
+        final RandomAccessFile target = new RandomAccessFile(file, "rw");
+
+        try
+        {
+            target.setLength(0);
+
+            final BandConsumer writer;
+
+            if ("bmp".equals(format))
+            {
+                writer = new BMPBandWriter(target.getChannel());
+            }
+            else
+            {
+                writer = new PNGBandWriter(target.getChannel());
+            }
+
+            proj.projectBands(
+                params.getProjectionParameters().getBandRows(), writer);
+        }
+        finally
+        {
+            target.close();
+        }
+    }
+
+    /**
+     * Generate the altitudes of the terrain without colouring or shading it
+     * and write them to the output file. The format of the file is chosen
+     * from its extension, see <code>HeightfieldWriter.Format</code>.
+     *
+     * @param proj The projection object to be used
+     * @param params The parameters to be used to generate the terrain
+     * @throws java.io.IOException If there is an error writing the file
+     * or the projection can't produce altitudes
+     */
+    protected void writeAltitudeFile(Projector proj, AllPlanetParameters params)
+        throws IOException
+    {
+        if (!(proj instanceof AbstractProjector))
+        {
+            throw new IOException(
+                "Projection can't produce altitudes: " + proj);
+        }
+
+        if (params.getProjectionParameters()
+                .getRegion() != null)
+        {
+            throw new IOException(
+                "A region can't be used when only altitudes are written");
+        }
+
+        final AllPlanetParameters copy = new AllPlanetParameters(params);
+
+        copy.getProjectionParameters()
+            .setAltitudeOnly(true);
+
+        proj.setParameters(copy);
+        proj.setProgress(new DummyProgress());
+
+        useAltitudeGrid(proj, params);
+
+        proj.project();
+
+        final File file =
+            new File(params.getProjectionParameters().getOutputFile());
+        final HeightfieldWriter writer =
+            new HeightfieldWriter(HeightfieldWriter.Format.forFile(file));
+        final FileOutputStream target = new FileOutputStream(file);
+
+        try
+        {
+            writer.write(
+                ((AbstractProjector) proj).getAltitudes(),
+                params.getProjectionParameters().getWidth(),
+                params.getProjectionParameters().getHeight(),
+                target.getChannel());
+        }
+        finally
+        {
+            target.close();
+        }
+    }
+
+    /**
+     * Set up a projection to use the altitude grid named by the parameters,
+     * or to generate the terrain directly if there isn't one. A grid is
+     * opened or baked the first time it is used and then shared by every
+     * job that names the same file.
+     *
+     * @param proj The projection object to be used
+     * @param params The parameters to be used to generate the terrain
+     * @throws java.io.IOException If there is an error reading or writing
+     * the altitude grid
+     */
+    protected void useAltitudeGrid(Projector proj, AllPlanetParameters params)
+        throws IOException
+    {
+        if (!(proj instanceof AbstractProjector))
+        {
+            return;
+        }
+
+        final String name =
+            params.getProjectionParameters()
+                .getAltitudeGridFile();
+
+        AltitudeGrid grid = null;
+
+        if (name != null)
+        {
+            synchronized (this.grids)
+            {
+                grid = this.grids.get(name);
+
+                if (grid == null)
+                {
+                    grid = AltitudeGrid.openOrBake(
+                            params,
+                            params.getProjectionParameters().getAltitudeGridSize(),
+                            new File(name), this.workers);
+
+                    this.grids.put(name, grid);
+                }
+                else if (!grid.matches(params))
+                {
+                    throw new IOException(
+                        "Altitude grid is in use for a different planet: " +
+                        name);
+                }
+            }
+        }
+
+        ((AbstractProjector) proj).setAltitudeGrid(grid);
+    }
+
+    /**
+     * Generate one image of a batch and write it to its output file. The
+     * projections record the points shown by their pixels, as the images
+     * of a batch often share the same framing.
+     *
+     * @param params The parameters of the image
+     * @throws java.io.IOException If there is an error writing the file
+     */
+    protected void runJob(AllPlanetParameters params)
+        throws IOException
+    {
+        final String name =
+            params.getProjectionParameters()
+                .getProjectionName();
+
+        if (this.manager.findByName(name) == null)
+        {
+            throw new IllegalArgumentException(
+                "Unknown projection name: " + name);
+        }
+
+        final Projector proj;
+
+        try
+        {
+            proj = this.manager.acquire(name);
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread()
+                .interrupt();
+
+            throw new IOException("Interrupted waiting for a projection");
+        }
+
+        try
+        {
+            if (proj instanceof AbstractProjector)
+            {
+                ((AbstractProjector) proj).setRecordPoints(true);
+            }
+
+            if (params.getProjectionParameters()
+                    .isAltitudeOnly())
+            {
+                writeAltitudeFile(proj, params);
+            }
+            else if (
+                (params.getProjectionParameters()
+                        .getBandRows() > 0) &&
+                    (params.getProjectionParameters()
+                        .getRegion() == null))
+            {
+                writeImageBands(proj, params);
+            }
+            else
+            {
+                final BufferedImage image = generateTerrain(proj, params);
+
+                writeImageFile(image, params);
+
+                if (params.getProjectionParameters()
+                        .getNormalStrength() > 0.0)
+                {
+                    writeNormalFile(proj, params);
+                }
+            }
+        }
+        finally
+        {
+            proj.releaseResources();
+            this.manager.release(proj);
+        }
+    }
+
+    /**
+     * Sweep a range of seeds starting from the seed in the parameters and
+     * render the best of the planets found. The images are written to the
+     * output directory, named after their seeds.
+     *
+     * @param params The parameters of the planets and the images
+     * @return The number of images that failed
+     * @throws java.io.IOException If the sweep or rendering is interrupted
+     */
+    protected int runSweep(AllPlanetParameters params)
+        throws IOException
+    {
+        final SeedSweep sweep = new SeedSweep(params);
+        final String output =
+            params.getProjectionParameters()
+                .getOutputFile();
+        final File directory = new File((output == null) ? "." : output);
+        final long start = System.nanoTime();
+        final List<SeedMetrics> winners;
+
+        sweep.setKeep(this.sweepKeep);
+        sweep.setScore(this.sweepScore);
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException("Unable to create directory: " + directory);
+        }
+
+        try
+        {
+            winners = sweep.run(
+                    params.getPlanetParameters().getSeed(), this.sweepCount,
+                    this.workers);
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread()
+                .interrupt();
+
+            throw new IOException("Interrupted sweeping seeds");
+        }
+
+        System.out.println(
+            this.sweepCount + " seeds swept in " +
+            ((System.nanoTime() - start) / 1000000) + " ms");
+
+        final StringBuffer jobs = new StringBuffer();
+
+        for (SeedMetrics m : winners)
+        {
+            System.out.println(m);
+
+            jobs.append("-s ")
+                .append(m.getSeed())
+                .append(" -o \"")
+                .append(new File(directory, "seed_" + m.getSeed() + ".png"))
+                .append("\"\n");
+        }
+
+        return runJobs(
+            new BufferedReader(new StringReader(jobs.toString())),
+            params);
+    }
+
+    /**
+     * Split a line of a job file into separate arguments. Arguments are
+     * separated by white space and may be enclosed in double quotes.
+     *
+     * @param line The line to be split
+     * @return The arguments on the line
+     */
+    protected String[] splitArguments(String line)
+    {
+        final List<String> args = new ArrayList<String>();
+        final StringBuffer current = new StringBuffer();
+        boolean quoted = false;
+        boolean inArg = false;
+
+        for (int i = 0; i < line.length(); ++i)
+        {
+            final char ch = line.charAt(i);
+
+            if (ch == '"')
+            {
+                quoted = !quoted;
+                inArg = true;
+            }
+            else if (!quoted && Character.isWhitespace(ch))
+            {
+                if (inArg)
+                {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    inArg = false;
+                }
+            }
+            else
+            {
+                current.append(ch);
+                inArg = true;
+            }
+        }
+
+        if (inArg)
+        {
+            args.add(current.toString());
+        }
+
+        return args.toArray(new String[args.size()]);
+    }
+
+    /**
+     * Run every job in a job file. Each line of the file holds the options
+     * for one image in the same form as the command line, and any options
+     * not given are taken from the command line. Blank lines and lines
+     * starting with a # are ignored. The jobs are run by a fixed number of
+     * worker threads, each reusing its own projections, and the time taken
+     * by each job is reported when they have all finished. The options that
+     * choose what the program does, such as <code>-J</code> and
+     * <code>-W</code>, can't be used in a job and make it fail.
+     *
+     * @param in The source of the job file
+     * @param defaults The parameters given on the command line
+     * @return The number of jobs that failed
+     * @throws java.io.IOException If there is an error reading the job file
+     */
+    protected int runJobs(BufferedReader in, AllPlanetParameters defaults)
+        throws IOException
+    {
+        final List<String> descriptions = new ArrayList<String>();
+        final List<Future<Long>> results = new ArrayList<Future<Long>>();
+        final ExecutorService pool = Executors.newFixedThreadPool(this.workers);
+
+        this.manager.setPoolSize(this.workers);
+        final long start = System.nanoTime();
+        int failures = 0;
+        int lineNumber = 0;
+        String line;
+
+        try
+        {
+            while ((line = in.readLine()) != null)
+            {
+                ++lineNumber;
+                line = line.trim();
+
+                if ((line.length() == 0) || line.startsWith("#"))
+                {
+                    continue;
+                }
+
+                final AllPlanetParameters params =
+                    processOptions(splitArguments(line), defaults, true);
+
+                if (params == null)
+                {
+                    System.err.println(
+                        "Invalid options in job on line " + lineNumber);
+
+                    ++failures;
+
+                    continue;
+                }
+
+                descriptions.add(
+                    "Line " + lineNumber + " " +
+                    params.getProjectionParameters().getOutputFile());
+
+                results.add(
+                    pool.submit(
+                        new Callable<Long>()
+                        {
+                            public Long call() throws Exception
+                            {
+                                final long jobStart = System.nanoTime();
+
+                                runJob(params);
+
+                                return System.nanoTime() - jobStart;
+                            }
+                        }));
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        long busy = 0;
+
+        for (int i = 0; i < results.size(); ++i)
+        {
+            try
+            {
+                final long time = results.get(i)
+                        .get();
+
+                busy += time;
+
+                System.out.println(
+                    descriptions.get(i) + ": " + (time / 1000000) + " ms");
+            }
+            catch (InterruptedException ie)
+            {
+                Thread.currentThread()
+                    .interrupt();
+
+                throw new IOException("Interrupted waiting for jobs");
+            }
+            catch (ExecutionException ee)
+            {
+                ++failures;
+
+                log.error(descriptions.get(i) + " failed", ee.getCause());
+
+                System.out.println(
+                    descriptions.get(i) + ": FAILED " + ee.getCause());
+            }
+        }
+
+        System.out.println(
+            results.size() + " jobs run by " + this.workers + " workers in " +
+            ((System.nanoTime() - start) / 1000000) + " ms, " +
+            (busy / 1000000) + " ms total job time, " + failures +
+            " failed");
+
+        return failures;
+    }
+
     /**
      * Main entrypoint for this program
      *
@@ -458,7 +1347,102 @@ public class PlanetCLI
         {
             AllPlanetParameters params = me.processOptions(args);
 
-            if (params != null)
+            if ((params != null) && (me.jobFile != null))
+            {
+                final BufferedReader in;
+
+                if ("-".equals(me.jobFile))
+                {
+                    in = new BufferedReader(new InputStreamReader(System.in));
+                }
+                else
+                {
+                    in = new BufferedReader(new FileReader(me.jobFile));
+                }
+
+                final int failures;
+
+                try
+                {
+                    failures = me.runJobs(in, params);
+                }
+                finally
+                {
+                    in.close();
+                }
+
+                System.exit((failures > 0) ? 1 : 0);
+            }
+            else if ((params != null) && (me.tileZoom >= 0))
+            {
+                // the output is the directory the tiles are written under
+                final TileGenerator tiles = new TileGenerator(params);
+                final long start = System.nanoTime();
+
+                final int count =
+                    tiles.generatePyramid(
+                        0, me.tileZoom,
+                        new File(params.getProjectionParameters().getOutputFile()),
+                        me.workers);
+
+                System.out.println(
+                    count + " tiles generated in " +
+                    ((System.nanoTime() - start) / 1000000) + " ms");
+            }
+            else if ((params != null) && (me.cubeLevels >= 0))
+            {
+                // the output is the directory the faces are written to and
+                // the height is the size of each face
+                final AllPlanetParameters cubeParams =
+                    new AllPlanetParameters(params);
+                final int size =
+                    cubeParams.getProjectionParameters()
+                        .getHeight();
+
+                cubeParams.getProjectionParameters()
+                    .setWidth(size * CubeMapProjection.FACES);
+
+                final CubeMapProjection cube =
+                    new CubeMapProjection(cubeParams);
+                final long start = System.nanoTime();
+
+                cube.project();
+
+                final int count =
+                    cube.writeFaces(
+                        new File(params.getProjectionParameters().getOutputFile()),
+                        me.cubeLevels);
+
+                System.out.println(
+                    count + " cube map images written in " +
+                    ((System.nanoTime() - start) / 1000000) + " ms");
+            }
+            else if ((params != null) && (me.sweepCount > 0))
+            {
+                System.exit((me.runSweep(params) > 0) ? 1 : 0);
+            }
+            else if ((params != null) && (me.frames > 0))
+            {
+                // the output is the directory the frames are written to
+                final GlobeAnimator animator = new GlobeAnimator(params);
+                final long start = System.nanoTime();
+
+                final int count =
+                    animator.renderFrames(
+                        me.frames, 360.0 / me.frames,
+                        new File(params.getProjectionParameters().getOutputFile()));
+
+                final AltitudeCache cache = animator.getCache();
+                final long lookups = Math.max(1, cache.getLookups());
+
+                System.out.println(
+                    count + " frames in " +
+                    ((System.nanoTime() - start) / 1000000) +
+                    " ms, cache hit rate " +
+                    ((100 * (lookups - cache.getMisses())) / lookups) + "%, " +
+                    cache.getSamplesGenerated() + " samples generated");
+            }
+            else if (params != null)
             {
                 // then the options were accepted
                 ProjectionManager mgr = new ProjectionManager();
@@ -476,9 +1460,32 @@ public class PlanetCLI
                     System.exit(1);
                 }
 
-                final BufferedImage image = me.generateTerrain(proj, params);
+                if (params.getProjectionParameters()
+                        .isAltitudeOnly())
+                {
+                    me.writeAltitudeFile(proj, params);
+                }
+                else if (
+                    (params.getProjectionParameters()
+                            .getBandRows() > 0) &&
+                        (params.getProjectionParameters()
+                            .getRegion() == null))
+                {
+                    me.writeImageBands(proj, params);
+                }
+                else
+                {
+                    final BufferedImage image =
+                        me.generateTerrain(proj, params);
+
+                    me.writeImageFile(image, params);
 
-                me.writeImageFile(image, params);
+                    if (params.getProjectionParameters()
+                            .getNormalStrength() > 0.0)
+                    {
+                        me.writeNormalFile(proj, params);
+                    }
+                }
             }
             else
             {
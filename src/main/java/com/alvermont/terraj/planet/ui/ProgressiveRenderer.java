@@ -0,0 +1,371 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Copyright (C) 2006 Martin H. Smith based on work by original
+ * authors.
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ *
+ * Linking TerraJ statically or dynamically with other modules is making a
+ * combined work based on TerraJ. Thus, the terms and conditions of the
+ * GNU General Public License cover the whole combination.
+ *
+ * In addition, as a special exception, the copyright holders of TerraJ
+ * give you permission to combine this program with free software programs
+ * or libraries that are released under the GNU LGPL and with code included
+ * in the standard release of JOGL, Java Getopt and FreeMarker under the BSD
+ * license (or modified versions of such code, with unchanged license) and with
+ * Apache Commons and Log4J libraries under the Apache license (or modified versions
+ * of such code. You may copy and distribute such a system following the terms
+ * of the GNU GPL for TerraJ and the licenses of the other code concerned,
+ * provided that you include the source code of that other code when and as the
+ * GNU GPL requires distribution of source code.
+ *
+ * Note that people who make modified versions of TerraJ are not obligated to grant
+ * this special exception for their modified versions; it is their choice whether
+ * to do so. The GNU General Public License gives permission to release a modified
+ * version without this exception; this exception also makes it possible to release
+ * a modified version which carries forward this exception.
+ */
+
+/*
+ * ProgressiveRenderer.java
+ *
+ * Created on October 18, 2026, 9:12 AM
+ *
+ */
+package com.alvermont.terraj.planet.ui;
+
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.ProjectionParameters;
+import com.alvermont.terraj.planet.io.ImageBuilder;
+import com.alvermont.terraj.planet.project.ProjectionManager;
+import com.alvermont.terraj.planet.project.Projector;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Renders a projection in a series of passes of increasing resolution so
+ * that a rough image can be shown almost at once and then refined. Each
+ * pass renders the projection at a fraction of the requested size and
+ * scales the result up to the full size. The projections pick their
+ * subdivision depth from the size of the output, so the early passes
+ * also use a lower depth and are much faster than the fraction of pixels
+ * alone would suggest.
+ *
+ * The passes run on a background thread and generate their tiles in
+ * parallel. Starting a new render cancels the one in progress, so only the
+ * latest parameters use any CPU time.
+ * The listener is told about each pass on the event dispatch thread.
+ *
+ * @version $Id$
+ */
+public class ProgressiveRenderer
+{
+    /** Our logging object */
+    private static Log log = LogFactory.getLog(ProgressiveRenderer.class);
+
+    // RequireThis OFF: log
+
+    /** The fractions of the full size rendered by each pass */
+    private static final int[] DIVISORS = { 8, 4, 2, 1 };
+
+    /**
+     * Interface for objects that want to see the passes of a render
+     */
+    public interface StageListener
+    {
+        /**
+         * Called on the event dispatch thread when a pass has been rendered
+         *
+         * @param image The image, scaled up to the full size
+         * @param divisor The fraction of the full size that was rendered,
+         * 1 for the final pass
+         */
+        void stageRendered(BufferedImage image, int divisor);
+    }
+
+    /** The manager that creates our projection instances */
+    private ProjectionManager manager;
+
+    /** The thread that runs the passes */
+    private ExecutorService executor;
+
+    /** Counts renders so that stale passes can be abandoned */
+    private AtomicInteger generation = new AtomicInteger();
+
+    /** The projection that is currently being rendered */
+    private volatile Projector current;
+
+    /**
+     * Creates a new instance of ProgressiveRenderer
+     *
+     * @param manager The projection manager that will provide instances
+     * of the projections
+     */
+    public ProgressiveRenderer(ProjectionManager manager)
+    {
+        this.manager = manager;
+
+        this.executor =
+            Executors.newSingleThreadExecutor(
+                new ThreadFactory()
+                {
+                    public Thread newThread(Runnable r)
+                    {
+                        final Thread t = new Thread(r, "ProgressiveRenderer");
+
+                        t.setDaemon(true);
+                        t.setPriority(Thread.NORM_PRIORITY - 1);
+
+                        return t;
+                    }
+                });
+    }
+
+    /**
+     * Start rendering a projection, cancelling any render that is still
+     * in progress
+     *
+     * @param params The parameters to be rendered. A copy is taken so the
+     * caller can go on changing them.
+     * @param listener The listener to be told about each pass
+     */
+    public void render(AllPlanetParameters params, StageListener listener)
+    {
+        final Job job =
+            new Job(
+                cancel(), new AllPlanetParameters(params), listener);
+
+        this.executor.execute(job);
+    }
+
+    /**
+     * Cancel the render that is in progress, if there is one
+     *
+     * @return The generation number that a new render should use
+     */
+    public int cancel()
+    {
+        final int gen = this.generation.incrementAndGet();
+
+        final Projector proj = this.current;
+
+        if (proj != null)
+        {
+            proj.cancel();
+        }
+
+        return gen;
+    }
+
+    /**
+     * Stop the background thread. No further renders can be started.
+     */
+    public void shutdown()
+    {
+        cancel();
+
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Scale an image up to a new size
+     *
+     * @param image The image to be scaled
+     * @param width The new width
+     * @param height The new height
+     * @return The scaled image
+     */
+    protected static BufferedImage scale(
+        BufferedImage image, int width, int height)
+    {
+        if ((image.getWidth() == width) && (image.getHeight() == height))
+        {
+            return image;
+        }
+
+        final BufferedImage scaled =
+            new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        final Graphics2D g = scaled.createGraphics();
+
+        try
+        {
+            g.setRenderingHint(
+                RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+
+            g.drawImage(image, 0, 0, width, height, null);
+        }
+        finally
+        {
+            g.dispose();
+        }
+
+        return scaled;
+    }
+
+    /**
+     * Renders all the passes for one set of parameters
+     */
+    private class Job implements Runnable
+    {
+        /** The generation number of this render */
+        private int gen;
+
+        /** The parameters to be rendered */
+        private AllPlanetParameters params;
+
+        /** The listener to tell about each pass */
+        private StageListener listener;
+
+        /**
+         * Create a new Job
+         *
+         * @param gen The generation number of this render
+         * @param params The parameters to be rendered
+         * @param listener The listener to tell about each pass
+         */
+        public Job(int gen, AllPlanetParameters params, StageListener listener)
+        {
+            this.gen = gen;
+            this.params = params;
+            this.listener = listener;
+        }
+
+        /**
+         * Determine whether a newer render has been started
+         *
+         * @return <code>true</code> if this render should be abandoned
+         */
+        private boolean isStale()
+        {
+            return generation.get() != this.gen;
+        }
+
+        /**
+         * Render each pass in turn
+         */
+        public void run()
+        {
+            final ProjectionParameters pp = this.params.getProjectionParameters();
+
+            final int width = pp.getWidth();
+            final int height = pp.getHeight();
+
+            int lastWidth = 0;
+
+            for (int d : DIVISORS)
+            {
+                final int w = Math.max(1, width / d);
+
+                // skip passes that would be no bigger than the last one
+                if ((w == lastWidth) || isStale())
+                {
+                    continue;
+                }
+
+                lastWidth = w;
+
+                final AllPlanetParameters stage =
+                    new AllPlanetParameters(this.params);
+
+                stage.getProjectionParameters()
+                    .setWidth(w);
+                stage.getProjectionParameters()
+                    .setHeight(Math.max(1, height / d));
+
+                // share the tiles of each pass between all the processors
+                stage.getProjectionParameters()
+                    .setParallel(true);
+
+                final Projector proj =
+                    manager.createProjector(pp.getProjectionName());
+
+                if (proj == null)
+                {
+                    log.error("Unknown projection: " + pp.getProjectionName());
+
+                    return;
+                }
+
+                proj.setParameters(stage);
+
+                current = proj;
+
+                // a render started since the last check may have missed us
+                if (isStale())
+                {
+                    current = null;
+
+                    return;
+                }
+
+                final long start = System.currentTimeMillis();
+
+                try
+                {
+                    proj.project();
+                }
+                finally
+                {
+                    current = null;
+                }
+
+                if (isStale())
+                {
+                    return;
+                }
+
+                final BufferedImage image =
+                    scale(new ImageBuilder().getImage(proj), width, height);
+
+                if (log.isDebugEnabled())
+                {
+                    log.debug(
+                        "Pass 1/" + d + " rendered in " +
+                        (System.currentTimeMillis() - start) + " ms");
+                }
+
+                final int divisor = d;
+
+                SwingUtilities.invokeLater(
+                    new Runnable()
+                    {
+                        public void run()
+                        {
+                            // don't show a pass that has since been superseded
+                            if (!isStale())
+                            {
+                                listener.stageRendered(image, divisor);
+                            }
+                        }
+                    });
+            }
+        }
+    }
+}
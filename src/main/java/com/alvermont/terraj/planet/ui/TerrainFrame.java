@@ -138,6 +138,35 @@ public class TerrainFrame extends javax.swing.JFrame
             new Dimension(image.getWidth(), image.getHeight()));
     }
 
+    /**
+     * Replace the image being displayed with another. If the new image is
+     * a different size the frame is resized to fit it.
+     *
+     * @param image The new image to be displayed
+     */
+    public void setImage(BufferedImage image)
+    {
+        final boolean resized =
+            (image.getWidth() != this.image.getWidth()) ||
+            (image.getHeight() != this.image.getHeight());
+
+        this.image = image;
+
+        imageLabel.setIcon(new ImageIcon(image));
+
+        if (resized)
+        {
+            final Dimension size =
+                new Dimension(image.getWidth(), image.getHeight());
+
+            imageLabel.setPreferredSize(size);
+            imageScrollpane.setPreferredSize(size);
+
+            imageScrollpane.revalidate();
+            pack();
+        }
+    }
+
     /** This method is called from within the constructor to
      * initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is
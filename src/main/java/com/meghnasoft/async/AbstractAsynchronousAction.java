@@ -28,9 +28,19 @@ package com.meghnasoft.async;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import java.awt.Component;
 import java.awt.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.List;
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.SwingUtilities;
@@ -60,6 +70,9 @@ import javax.swing.SwingUtilities;
  * completeness, reformatting by Jalopy and changes for Stylecheck reports.
  * No functionality has been changed - MS
  *
+ * The tasks now run on a shared pool of threads instead of a new thread
+ * for each invocation, and can be cancelled and coalesced - MS
+ *
  */
 
 /**
@@ -73,6 +86,28 @@ import javax.swing.SwingUtilities;
  * abstract class, and use it in place of a Swing Action. See documentation
  * for further details.
  *
+ * An action can be made coalescing, in which case the latest request wins:
+ * invoking it while a task is running cancels that task and queues the new
+ * request, replacing any request that was already waiting. Several actions
+ * can share the same queue with <code>setCoalescing(AbstractAsynchronousAction)
+ * </code> so that, for example, all the ways of regenerating a terrain
+ * replace each other. The tasks of coalescing actions run on one bounded
+ * pool of threads, which they can't fill as each queue runs only one task
+ * at a time. The tasks of other actions each get a thread of their own, so
+ * an action that waits for the user, such as a script console or a file
+ * dialog, never holds up the others.
+ *
+ * <code>finished()</code> is called on the event thread once
+ * <code>asynchronousActionPerformed()</code> has returned, and the worker
+ * waits for it to complete. It is not called for a request that was
+ * dropped or cancelled before it started; the action is just enabled again.
+ *
+ * Cancellation is cooperative. Long running work should call
+ * <code>checkCancelled()</code> from its loops, which throws a
+ * <code>TaskCancelledException</code> once the task on the current thread
+ * has been cancelled. Work that hands part of the job to other threads can
+ * register a hook with <code>onCancel()</code> to stop them as well.
+ *
  * @author Alamgir Farouk
  * @see javax.swing.AbstractAction
  */
@@ -82,16 +117,49 @@ public abstract class AbstractAsynchronousAction extends AbstractAction
     private static Log log =
         LogFactory.getLog(AbstractAsynchronousAction.class);
 
-    /** Number of milliseconds in a second */
-    private static final int SECOND = 1000;
-    private ThreadVar threadVar;
+    /** The number of threads in the shared pool */
+    private static final int POOL_THREADS =
+        Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /** The number of tasks that can wait for a thread in the shared pool */
+    private static final int POOL_QUEUE = 64;
+
+    /** The pool that runs the tasks of coalescing actions */
+    private static final ThreadPoolExecutor EXECUTOR =
+        new ThreadPoolExecutor(
+            POOL_THREADS, POOL_THREADS, 1, TimeUnit.MINUTES,
+            new LinkedBlockingQueue<Runnable>(POOL_QUEUE),
+            new ThreadFactory()
+            {
+                private AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r)
+                {
+                    final Thread t =
+                        new Thread(
+                            r, "AsynchronousAction-" + count.incrementAndGet());
+
+                    t.setDaemon(true);
+
+                    return t;
+                }
+            });
+
+    /** The task being run by the current thread */
+    private static final ThreadLocal<Task> CURRENT = new ThreadLocal<Task>();
+
+    static
+    {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /** Nanoseconds in a millisecond */
+    private static final long NANOS_PER_MILLI = 1000000L;
     private Object taskOutput = new String("STILL COMPUTING");
-    private Component theParentComponent;
-    private String monitorMessage;
-    private int popUpMonitorDelay;
-    private String statusUpdate = null;
-    private ActionEvent lastActionEvent;
-    private Runnable asynchronousActionRunnable;
+    private List<Task> activeTasks = new ArrayList<Task>();
+    private Task lastTask;
+    private Slot slot;
+    private volatile long lastElapsedTime = -1;
 
     // RequireThis OFF: log
 
@@ -104,61 +172,6 @@ public abstract class AbstractAsynchronousAction extends AbstractAction
     {
         this();
         putValue(Action.NAME, name);
-
-        final Runnable doFinished =
-            new Runnable()
-            {
-                public void run()
-                {
-                    finished();
-                    firePropertyChange("enabled", Boolean.FALSE, Boolean.TRUE);
-                }
-            };
-
-        this.asynchronousActionRunnable =
-            new Runnable()
-                {
-                    public void run()
-                    {
-                        try
-                        {
-                            setTaskOutput(
-                                asynchronousActionPerformed(lastActionEvent));
-                        }
-                        catch (Exception excp)
-                        {
-                            log.error(
-                                "Aysynchronous action got exception", excp);
-                        }
-                        finally
-                        {
-                            threadVar.clear();
-
-                            try
-                            {
-                                SwingUtilities.invokeAndWait(doFinished);
-                            }
-                            catch (InterruptedException ex)
-                            {
-                                if (log.isDebugEnabled())
-                                {
-                                    log.debug(
-                                        "Asynchronous action got " +
-                                        "interrupted exception", ex);
-                                }
-                            }
-                            catch (InvocationTargetException ex)
-                            {
-                                if (log.isDebugEnabled())
-                                {
-                                    log.debug(
-                                        "Asynchronous action got invocation " +
-                                        "target exception", ex);
-                                }
-                            }
-                        }
-                    }
-                };
     }
 
     /**
@@ -194,11 +207,232 @@ public abstract class AbstractAsynchronousAction extends AbstractAction
     public final void actionPerformed(ActionEvent e)
     {
         firePropertyChange("enabled", Boolean.TRUE, Boolean.FALSE);
-        lastActionEvent = e;
 
-        final Thread t = new Thread(asynchronousActionRunnable);
-        threadVar = new ThreadVar(t);
-        t.start();
+        final Task task = new Task(e);
+        final Slot s = this.slot;
+
+        if (s == null)
+        {
+            submit(task);
+
+            return;
+        }
+
+        Task dropped = null;
+        boolean start = false;
+
+        synchronized (s)
+        {
+            if (s.running == null)
+            {
+                s.running = task;
+                start = true;
+            }
+            else
+            {
+                // the latest request wins
+                dropped = s.pending;
+                s.pending = task;
+                s.running.cancel();
+            }
+        }
+
+        if (start)
+        {
+            submit(task);
+        }
+        else if (dropped != null)
+        {
+            dropped.cancel();
+            dropped.drop();
+        }
+    }
+
+    /**
+     * Set whether requests for this action are coalesced. If they are, a
+     * new request cancels the task that is running and replaces any
+     * request that is waiting for it to stop.
+     *
+     * @param coalescing <code>true</code> if the latest request should win
+     */
+    public void setCoalescing(boolean coalescing)
+    {
+        this.slot = coalescing ? new Slot() : null;
+    }
+
+    /**
+     * Make this action coalesce its requests together with those of
+     * another coalescing action, so that a request for either of them
+     * cancels and replaces the work of both
+     *
+     * @param other The action whose requests ours should be coalesced with
+     */
+    public void setCoalescing(AbstractAsynchronousAction other)
+    {
+        if (other.slot == null)
+        {
+            other.setCoalescing(true);
+        }
+
+        this.slot = other.slot;
+    }
+
+    /**
+     * Determine whether requests for this action are coalesced
+     *
+     * @return <code>true</code> if the latest request wins
+     */
+    public boolean isCoalescing()
+    {
+        return this.slot != null;
+    }
+
+    /**
+     * Get the time taken by the last task of this action to complete or
+     * be cancelled
+     *
+     * @return The elapsed time in milliseconds, or -1 if no task has
+     * completed yet
+     */
+    public long getLastElapsedTime()
+    {
+        return this.lastElapsedTime;
+    }
+
+    /**
+     * Cancel the tasks of this action that are running and any request
+     * that is waiting to run. The tasks stop the next time they check for
+     * cancellation.
+     */
+    public void cancel()
+    {
+        final Slot s = this.slot;
+
+        if (s != null)
+        {
+            Task dropped;
+
+            synchronized (s)
+            {
+                dropped = s.pending;
+                s.pending = null;
+            }
+
+            if (dropped != null)
+            {
+                dropped.cancel();
+                dropped.drop();
+            }
+        }
+
+        for (Task t : getActiveTasks())
+        {
+            t.cancel();
+        }
+    }
+
+    /**
+     * Determine whether the task running on the current thread has been
+     * cancelled
+     *
+     * @return <code>true</code> if the task should stop
+     */
+    protected boolean isCancelled()
+    {
+        final Task t = CURRENT.get();
+
+        return (t != null) && t.cancelled;
+    }
+
+    /**
+     * Check whether the task running on the current thread has been
+     * cancelled, and stop it if so. This can be called from anywhere in the
+     * work of an action, and does nothing on threads that are not running
+     * an asynchronous action.
+     *
+     * @throws TaskCancelledException If the task has been cancelled
+     */
+    public static void checkCancelled()
+    {
+        final Task t = CURRENT.get();
+
+        if ((t != null) && t.cancelled)
+        {
+            throw new TaskCancelledException();
+        }
+    }
+
+    /**
+     * Ask for something to be run if the task running on the current thread
+     * is cancelled. This lets the work of an action stop helpers that don't
+     * call <code>checkCancelled()</code> themselves, such as a projector
+     * that renders its tiles on threads of its own. The hook is run at once
+     * if the task has already been cancelled, and is forgotten when the task
+     * stops. It does nothing on threads that are not running an
+     * asynchronous action.
+     *
+     * @param hook The object to be run when the task is cancelled
+     */
+    public static void onCancel(Runnable hook)
+    {
+        final Task t = CURRENT.get();
+
+        if (t != null)
+        {
+            t.addCancelHook(hook);
+        }
+    }
+
+    /**
+     * Start a task, on the shared pool if this action coalesces its
+     * requests or on a new thread if it doesn't
+     *
+     * @param task The task to be run
+     */
+    private void submit(Task task)
+    {
+        synchronized (this.activeTasks)
+        {
+            this.activeTasks.add(task);
+            this.lastTask = task;
+        }
+
+        if (this.slot == null)
+        {
+            final FutureTask<Object> future = new FutureTask<Object>(task, null);
+
+            task.future = future;
+
+            new Thread(future).start();
+
+            return;
+        }
+
+        try
+        {
+            task.future = EXECUTOR.submit(task);
+        }
+        catch (RejectedExecutionException ree)
+        {
+            log.error("Too many asynchronous tasks, request dropped", ree);
+
+            task.complete();
+            task.drop();
+        }
+    }
+
+    /**
+     * Get a copy of the list of tasks that are running or waiting for a
+     * thread
+     *
+     * @return The list of active tasks
+     */
+    private List<Task> getActiveTasks()
+    {
+        synchronized (this.activeTasks)
+        {
+            return new ArrayList<Task>(this.activeTasks);
+        }
     }
 
     /**
@@ -239,7 +473,8 @@ public abstract class AbstractAsynchronousAction extends AbstractAction
     /**
      * Method called when the task is completed. A callback
      * which is guaranteed to be called only after the action
-     * has completed and the thread terminated.
+     * has completed and the thread terminated. It is not called for a
+     * request that never ran.
      *
      */
     public abstract void finished();
@@ -250,12 +485,16 @@ public abstract class AbstractAsynchronousAction extends AbstractAction
      */
     public void interrupt()
     {
-        final Thread t = threadVar.getThread();
         taskOutput = null;
 
-        if (t != null)
+        for (Task t : getActiveTasks())
         {
-            t.interrupt();
+            final Thread thread = t.thread;
+
+            if (thread != null)
+            {
+                thread.interrupt();
+            }
         }
     }
 
@@ -269,16 +508,21 @@ public abstract class AbstractAsynchronousAction extends AbstractAction
      */
     public Object getTaskOutputBlocking()
     {
-        final Thread t = threadVar.getThread();
+        Task t;
+
+        synchronized (this.activeTasks)
+        {
+            t = this.lastTask;
+        }
 
-        if (t == null)
+        if ((t == null) || (t.future == null))
         {
             return getTaskOutput();
         }
 
         try
         {
-            t.join();
+            t.future.get();
 
             return getTaskOutput();
         }
@@ -289,29 +533,295 @@ public abstract class AbstractAsynchronousAction extends AbstractAction
 
             return null;
         }
+        catch (ExecutionException e)
+        {
+            return null;
+        }
     }
 
     /**
-     * Class to maintain reference to current worker thread
-     * under separate synchronization control.
+     * The running and waiting requests of one or more coalescing actions
      */
-    private class ThreadVar
+    private static class Slot
     {
-        private Thread thread;
+        /** The task that is running */
+        private Task running;
+
+        /** The latest request, which runs when the current one stops */
+        private Task pending;
+    }
+
+    /**
+     * One invocation of an action
+     */
+    private class Task implements Runnable
+    {
+        /** The event that triggered the action */
+        private ActionEvent event;
+
+        /** Set when the task should stop */
+        private volatile boolean cancelled;
+
+        /** The thread running the task, if it has started */
+        private volatile Thread thread;
+
+        /** The result of submitting the task to the pool */
+        private volatile Future<?> future;
+
+        /** The objects to be run when the task is cancelled */
+        private List<Runnable> cancelHooks = new ArrayList<Runnable>();
+
+        /**
+         * Create a new Task
+         *
+         * @param event The event that triggered the action
+         */
+        Task(ActionEvent event)
+        {
+            this.event = event;
+        }
+
+        /**
+         * Ask the task to stop
+         */
+        void cancel()
+        {
+            List<Runnable> hooks;
+
+            synchronized (this)
+            {
+                if (this.cancelled)
+                {
+                    return;
+                }
+
+                this.cancelled = true;
+
+                hooks = new ArrayList<Runnable>(this.cancelHooks);
+                this.cancelHooks.clear();
+            }
+
+            for (Runnable hook : hooks)
+            {
+                runHook(hook);
+            }
+        }
+
+        /**
+         * Add an object to be run when the task is cancelled
+         *
+         * @param hook The object to be run
+         */
+        void addCancelHook(Runnable hook)
+        {
+            synchronized (this)
+            {
+                if (!this.cancelled)
+                {
+                    this.cancelHooks.add(hook);
+
+                    return;
+                }
+            }
+
+            runHook(hook);
+        }
+
+        /**
+         * Run a cancel hook, logging anything that goes wrong so that the
+         * other hooks still run
+         *
+         * @param hook The object to be run
+         */
+        private void runHook(Runnable hook)
+        {
+            try
+            {
+                hook.run();
+            }
+            catch (RuntimeException re)
+            {
+                log.error("Cancel hook got exception", re);
+            }
+        }
+
+        /**
+         * Run the action and report how long it took
+         */
+        public void run()
+        {
+            final long start = System.nanoTime();
 
-        ThreadVar(Thread t)
+            CURRENT.set(this);
+            this.thread = Thread.currentThread();
+
+            boolean ran = false;
+
+            try
+            {
+                if (!this.cancelled)
+                {
+                    ran = true;
+
+                    setTaskOutput(asynchronousActionPerformed(this.event));
+                }
+            }
+            catch (TaskCancelledException tce)
+            {
+                // the task was stopped on request
+            }
+            catch (Exception excp)
+            {
+                log.error("Aysynchronous action got exception", excp);
+            }
+            finally
+            {
+                this.thread = null;
+                CURRENT.remove();
+
+                synchronized (this)
+                {
+                    this.cancelHooks.clear();
+                }
+
+                lastElapsedTime = (System.nanoTime() - start) / NANOS_PER_MILLI;
+
+                if (log.isDebugEnabled())
+                {
+                    log.debug(
+                        getValue(Action.NAME) +
+                        (this.cancelled ? " cancelled after " : " took ") +
+                        lastElapsedTime + " ms");
+                }
+
+                complete();
+
+                if (ran)
+                {
+                    finish();
+                }
+                else
+                {
+                    drop();
+                }
+            }
+        }
+
+        /**
+         * Called when the task has stopped, to start the next request if
+         * there is one waiting
+         */
+        void complete()
+        {
+            synchronized (activeTasks)
+            {
+                activeTasks.remove(this);
+            }
+
+            final Slot s = slot;
+            Task next = null;
+
+            if (s != null)
+            {
+                synchronized (s)
+                {
+                    if (s.running == this)
+                    {
+                        next = s.pending;
+                        s.running = next;
+                        s.pending = null;
+                    }
+                }
+            }
+
+            if (next != null)
+            {
+                next.getAction()
+                    .submit(next);
+            }
+        }
+
+        /**
+         * Get the action that this is a task of
+         *
+         * @return The action that created this task
+         */
+        AbstractAsynchronousAction getAction()
         {
-            this.thread = t;
+            return AbstractAsynchronousAction.this;
         }
 
-        synchronized Thread getThread()
+        /**
+         * Tell the action on the event thread that the task has finished,
+         * and wait for it to deal with that
+         */
+        void finish()
         {
-            return this.thread;
+            final Runnable doFinished =
+                new Runnable()
+                {
+                    public void run()
+                    {
+                        finished();
+                        firePropertyChange(
+                            "enabled", Boolean.FALSE, Boolean.TRUE);
+                    }
+                };
+
+            if (SwingUtilities.isEventDispatchThread())
+            {
+                doFinished.run();
+
+                return;
+            }
+
+            try
+            {
+                SwingUtilities.invokeAndWait(doFinished);
+            }
+            catch (InterruptedException ex)
+            {
+                if (log.isDebugEnabled())
+                {
+                    log.debug(
+                        "Asynchronous action got interrupted exception", ex);
+                }
+            }
+            catch (InvocationTargetException ex)
+            {
+                if (log.isDebugEnabled())
+                {
+                    log.debug(
+                        "Asynchronous action got invocation target exception",
+                        ex);
+                }
+            }
         }
 
-        synchronized void clear()
+        /**
+         * Enable the action again for a request that never ran. The action
+         * isn't told that it has finished as it never started.
+         */
+        void drop()
         {
-            this.thread = null;
+            final Runnable doEnable =
+                new Runnable()
+                {
+                    public void run()
+                    {
+                        firePropertyChange(
+                            "enabled", Boolean.FALSE, Boolean.TRUE);
+                    }
+                };
+
+            if (SwingUtilities.isEventDispatchThread())
+            {
+                doEnable.run();
+            }
+            else
+            {
+                SwingUtilities.invokeLater(doEnable);
+            }
         }
-    } //ThreadVar
+    }
 }
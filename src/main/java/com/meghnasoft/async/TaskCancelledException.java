@@ -0,0 +1,46 @@
+/*
+ * Java Terrain and Stellar System Ports
+ *
+ * Released under the terms of the GNU General Public License
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA  02110-1301, USA.
+ */
+
+/*
+ * TaskCancelledException.java
+ *
+ * Created on October 18, 2026, 10:40 AM
+ */
+package com.meghnasoft.async;
+
+/**
+ * Thrown to stop the work of an asynchronous action that has been
+ * cancelled. The action framework catches it, so it only needs to be
+ * allowed to propagate out of <code>asynchronousActionPerformed</code>.
+ *
+ * @see AbstractAsynchronousAction#checkCancelled()
+ */
+public class TaskCancelledException extends RuntimeException
+{
+    /** The version of the serialized form of this class */
+    private static final long serialVersionUID = 1L;
+
+    /** Creates a new instance of TaskCancelledException */
+    public TaskCancelledException()
+    {
+        super("Task cancelled");
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * AltitudeCacheTest.java
+ * JUnit based test
+ *
+ * Created on October 17, 2026, 11:50 PM
+ */
+
+package com.alvermont.terraj.planet;
+
+import com.alvermont.terraj.planet.project.GlobeAnimator;
+import java.io.File;
+import junit.framework.*;
+
+/**
+ * Test cases for the altitude cache
+ */
+public class AltitudeCacheTest extends TestCase
+{
+    private static final int RESOLUTION = 33;
+    
+    private File file;
+    
+    public AltitudeCacheTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+        file = File.createTempFile("altcache", ".dat");
+    }
+
+    protected void tearDown() throws Exception
+    {
+        file.delete();
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(AltitudeCacheTest.class);
+        
+        return suite;
+    }
+
+    private AllPlanetParameters createParameters(double seed)
+    {
+        AllPlanetParameters params = new AllPlanetParameters();
+        
+        params.getPlanetParameters().setSeed(seed);
+        
+        return params;
+    }
+
+    /**
+     * Test that the cache holds the same terrain as a baked grid of the
+     * same resolution and that only the first lookup of a block misses
+     */
+    public void testSameAsGrid() throws Exception
+    {
+        System.out.println("testSameAsGrid");
+        
+        AllPlanetParameters params = createParameters(0.789);
+        
+        AltitudeGrid grid = AltitudeGrid.bake(params, RESOLUTION, file, 2);
+        AltitudeCache cache = new AltitudeCache(params, RESOLUTION);
+        
+        assertTrue(cache.matches(params));
+        assertFalse(cache.matches(createParameters(0.7)));
+        
+        double[][] points =
+        {
+            { 1, 0, 0 }, { -0.3, 0.8, 0.2 }, { 0.1, -0.2, -0.9 },
+            { 0.57, 0.57, 0.57 }, { -0.5, -0.1, 0.6 }
+        };
+        
+        double[] fromGrid = new double[2];
+        double[] fromCache = new double[2];
+        
+        for (double[] p : points)
+        {
+            grid.sample(p[0], p[1], p[2], fromGrid);
+            cache.sample(p[0], p[1], p[2], fromCache);
+            
+            assertEquals(fromGrid[0], fromCache[0], 1e-6);
+            assertEquals(fromGrid[1], fromCache[1], 1e-3);
+        }
+        
+        assertEquals(points.length, cache.getLookups());
+        assertEquals(points.length, cache.getMisses());
+        
+        long generated = cache.getSamplesGenerated();
+        
+        cache.sample(1, 0, 0, fromCache);
+        
+        assertEquals(points.length + 1, cache.getLookups());
+        assertEquals(points.length, cache.getMisses());
+        assertEquals(generated, cache.getSamplesGenerated());
+        
+        cache.clear();
+        cache.resetStatistics();
+        
+        assertEquals(0, cache.getBlockCount());
+        assertEquals(0, cache.getLookups());
+    }
+
+    /**
+     * Test that an animation writes all of its frames and that later
+     * frames reuse the terrain generated for earlier ones
+     */
+    public void testAnimation() throws Exception
+    {
+        System.out.println("testAnimation");
+        
+        AllPlanetParameters params = createParameters(0.25);
+        
+        params.getProjectionParameters().setWidth(64);
+        params.getProjectionParameters().setHeight(48);
+        params.getProjectionParameters()
+            .setProjectionName("Orthographic Projection");
+        
+        File dir = new File(file.getPath() + ".frames");
+        
+        GlobeAnimator animator = new GlobeAnimator(params);
+        
+        try
+        {
+            assertEquals(4, animator.renderFrames(4, 10, dir));
+            
+            for (int f = 0; f < 4; ++f)
+            {
+                assertTrue(new File(dir, GlobeAnimator.getFrameName(f))
+                    .isFile());
+            }
+            
+            AltitudeCache cache = animator.getCache();
+            
+            assertTrue(cache.getMisses() < (cache.getLookups() / 2));
+        }
+        finally
+        {
+            for (File f : dir.listFiles())
+            {
+                f.delete();
+            }
+            
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * AltitudeGridTest.java
+ * JUnit based test
+ *
+ * Created on October 17, 2026, 7:40 PM
+ */
+
+package com.alvermont.terraj.planet;
+
+import com.alvermont.terraj.planet.project.OrthographicProjection;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import junit.framework.*;
+
+/**
+ * Test cases for the altitude grid
+ */
+public class AltitudeGridTest extends TestCase
+{
+    // an odd resolution puts a sample at the centre of each face
+    private static final int RESOLUTION = 33;
+    
+    private File file;
+    
+    public AltitudeGridTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+        file = File.createTempFile("altgrid", ".dat");
+    }
+
+    protected void tearDown() throws Exception
+    {
+        file.delete();
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(AltitudeGridTest.class);
+        
+        return suite;
+    }
+
+    private AllPlanetParameters createParameters(double seed)
+    {
+        AllPlanetParameters params = new AllPlanetParameters();
+        
+        params.getPlanetParameters().setSeed(seed);
+        
+        return params;
+    }
+
+    /**
+     * Test that the samples at the centres of the faces hold the terrain
+     * of the planet, both when baked and when read back from the file
+     */
+    public void testBakeAndOpen() throws Exception
+    {
+        System.out.println("testBakeAndOpen");
+        
+        AllPlanetParameters params = createParameters(0.456);
+        
+        AltitudeGrid baked = AltitudeGrid.bake(params, RESOLUTION, file, 3);
+        AltitudeGrid opened = AltitudeGrid.open(file);
+        
+        assertEquals(RESOLUTION, opened.getResolution());
+        assertEquals(baked.getDepth(), opened.getDepth());
+        assertTrue(opened.matches(params));
+        
+        AllPlanetParameters shaded = new AllPlanetParameters(params);
+        
+        shaded.getProjectionParameters().setDoShade(true);
+        
+        PlanetGen gen = new PlanetGen(shaded);
+        
+        gen.cacheParameters();
+        
+        PlanetContext ctx = new PlanetContext(opened.getDepth());
+        
+        double[][] centres =
+        {
+            { 1, 0, 0 }, { -1, 0, 0 }, { 0, 1, 0 },
+            { 0, -1, 0 }, { 0, 0, 1 }, { 0, 0, -1 }
+        };
+        
+        double[] fromBaked = new double[2];
+        double[] fromOpened = new double[2];
+        
+        for (double[] p : centres)
+        {
+            double alt = gen.planet1(ctx, p[0], p[1], p[2]);
+            
+            baked.sample(p[0], p[1], p[2], fromBaked);
+            opened.sample(p[0], p[1], p[2], fromOpened);
+            
+            assertEquals((float) alt, (float) fromOpened[0], 1e-6f);
+            assertEquals(ctx.getShade(), fromOpened[1], 1e-3);
+            assertEquals(fromBaked[0], fromOpened[0], 0.0);
+            assertEquals(fromBaked[1], fromOpened[1], 0.0);
+        }
+    }
+
+    /**
+     * Test that an interpolated point lies between the samples around it
+     */
+    public void testInterpolation() throws Exception
+    {
+        System.out.println("testInterpolation");
+        
+        AltitudeGrid grid =
+            AltitudeGrid.bake(createParameters(0.123), RESOLUTION, file, 2);
+        
+        // half way between the centre sample of face 0 and the next one
+        double step = Math.tan(Math.PI / 2 / RESOLUTION);
+        double[] a = new double[2];
+        double[] b = new double[2];
+        double[] mid = new double[2];
+        
+        grid.sample(1, 0, 0, a);
+        grid.sample(1, step, 0, b);
+        grid.sample(1, Math.tan(Math.PI / 4 / RESOLUTION), 0, mid);
+        
+        assertEquals((a[0] + b[0]) / 2, mid[0], 1e-6);
+        assertEquals((a[1] + b[1]) / 2, mid[1], 1e-3);
+    }
+
+    /**
+     * Test that a grid for a different planet is baked again and that a
+     * file that is not a grid is rejected
+     */
+    public void testOpenOrBake() throws Exception
+    {
+        System.out.println("testOpenOrBake");
+        
+        AllPlanetParameters first = createParameters(0.2);
+        AllPlanetParameters second = createParameters(0.3);
+        
+        AltitudeGrid.bake(first, RESOLUTION, file, 2);
+        
+        assertTrue(AltitudeGrid.openOrBake(first, RESOLUTION, file, 2)
+            .matches(first));
+        
+        AltitudeGrid grid = AltitudeGrid.openOrBake(second, RESOLUTION, file, 2);
+        
+        assertTrue(grid.matches(second));
+        assertFalse(grid.matches(first));
+        assertTrue(AltitudeGrid.open(file).matches(second));
+        
+        FileOutputStream out = new FileOutputStream(file);
+        
+        out.write(new byte[100]);
+        out.close();
+        
+        try
+        {
+            AltitudeGrid.open(file);
+            
+            fail("Expected an IOException");
+        }
+        catch (IOException ioe)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Test that a projection refuses a grid baked for another planet
+     */
+    public void testProjectionChecksGrid() throws Exception
+    {
+        System.out.println("testProjectionChecksGrid");
+        
+        AllPlanetParameters params = createParameters(0.5);
+        
+        params.getProjectionParameters().setWidth(40);
+        params.getProjectionParameters().setHeight(30);
+        
+        OrthographicProjection proj = new OrthographicProjection(params);
+        
+        proj.setAltitudeGrid(
+            AltitudeGrid.bake(createParameters(0.6), RESOLUTION, file, 2));
+        
+        try
+        {
+            proj.project();
+            
+            fail("Expected an IllegalStateException");
+        }
+        catch (IllegalStateException ise)
+        {
+            // expected
+        }
+        
+        proj.setAltitudeGrid(
+            AltitudeGrid.bake(params, RESOLUTION, file, 2));
+        proj.project();
+    }
+}
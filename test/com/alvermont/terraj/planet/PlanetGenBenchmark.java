@@ -0,0 +1,680 @@
+/*
+ * PlanetGenBenchmark.java
+ *
+ * Created on October 17, 2026, 2:40 PM
+ */
+
+package com.alvermont.terraj.planet;
+
+import com.alvermont.terraj.planet.io.BMPOutput;
+import com.alvermont.terraj.planet.io.ImageBuilder;
+import com.alvermont.terraj.planet.project.ProjectionManager;
+import com.alvermont.terraj.planet.project.Projector;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks for the planet projection engine. This measures the
+ * throughput of <code>PlanetGen.planet1()</code> with the recursive and
+ * iterative evaluators at several subdivision depths, a full
+ * <code>project()</code> for every projection known to the
+ * <code>ProjectionManager</code> at several image sizes, and
+ * <code>ImageBuilder.getImage()</code> and <code>BMPOutput.outputBMP()</code>
+ * on their own. Each point given to <code>planet1()</code> is evaluated
+ * from the top level tetrahedron so the time covers the full descent.
+ * <p>
+ * The results are printed and written to a JSON file laid out in the same
+ * way as the JMH JSON output so that runs can be compared with existing
+ * tools. Usage:
+ * <pre>
+ * PlanetGenBenchmark [-o file] [-wi n] [-i n] [-points n] [-sizes WxH,...]
+ *                    [-parallel] [regexp]
+ * </pre>
+ * Only benchmarks whose name matches the regular expression are run.
+ * The largest images need a heap of at least 1Gb.
+ */
+public class PlanetGenBenchmark
+{
+    /** The subdivision depths that are measured */
+    private static final int[] DEPTHS = { 20, 40, 60 };
+
+    /** The size of image used for the output benchmarks */
+    private static final int OUTPUT_SIZE = 2048;
+
+    /** Name of the file the results are written to */
+    private String outputFile = "planet-benchmark.json";
+
+    /** Number of warmup iterations */
+    private int warmups = 1;
+
+    /** Number of measured iterations */
+    private int iterations = 5;
+
+    /** The number of points evaluated in each iteration of planet1 */
+    private int count = 100000;
+
+    /** The image sizes used for the projection benchmarks */
+    private String sizes = "512x512,2048x2048,8192x4096";
+
+    /** Whether projections use parallel generation */
+    private boolean parallel;
+
+    /** Only benchmarks with a name matching this are run */
+    private Pattern filter = Pattern.compile(".*");
+
+    /** The points to be evaluated as x, y, z triples */
+    private double[] points;
+
+    /** The results collected so far */
+    private final List<Result> results = new ArrayList<Result>();
+
+    /** Result accumulator, printed so the work cannot be optimised away */
+    private double sink;
+
+    /**
+     * A single benchmark. Each iteration calls <code>setUp()</code>, which
+     * is not timed, and then <code>run()</code>, which is.
+     */
+    private abstract static class Benchmark
+    {
+        /** The name of the benchmark */
+        private final String name;
+
+        /** The parameters of this benchmark, in order */
+        private final Map<String, String> params =
+            new LinkedHashMap<String, String>();
+
+        /**
+         * Creates a new instance of Benchmark
+         *
+         * @param name The name of the benchmark
+         */
+        public Benchmark(String name)
+        {
+            this.name = name;
+        }
+
+        /**
+         * Add a parameter to the description of this benchmark
+         *
+         * @param key The name of the parameter
+         * @param value The value of the parameter
+         * @return This object
+         */
+        public Benchmark param(String key, Object value)
+        {
+            this.params.put(key, String.valueOf(value));
+
+            return this;
+        }
+
+        /**
+         * Prepare for an iteration
+         *
+         * @throws Exception If there is an error during set up
+         */
+        public void setUp() throws Exception
+        {
+        }
+
+        /**
+         * Carry out one iteration of the work being measured
+         *
+         * @return The number of operations carried out
+         * @throws Exception If there is an error while running
+         */
+        public abstract long run() throws Exception;
+
+        /**
+         * Tidy up after all iterations, to release memory
+         */
+        public void tearDown()
+        {
+        }
+
+        /**
+         * Get the unit the result is reported in. By default this is the
+         * average time per operation.
+         *
+         * @return <code>true</code> to report operations per second
+         */
+        public boolean isThroughput()
+        {
+            return false;
+        }
+    }
+
+    /**
+     * The measurements made for one benchmark
+     */
+    private static class Result
+    {
+        /** The benchmark that was run */
+        private Benchmark benchmark;
+
+        /** The score of each measured iteration */
+        private double[] scores;
+
+        /**
+         * Get the mean of the scores
+         *
+         * @return The mean score
+         */
+        public double getMean()
+        {
+            double sum = 0;
+
+            for (double s : this.scores)
+            {
+                sum += s;
+            }
+
+            return sum / this.scores.length;
+        }
+
+        /**
+         * Get the sample standard deviation of the scores
+         *
+         * @return The standard deviation or NaN if there is only one score
+         */
+        public double getError()
+        {
+            if (this.scores.length < 2)
+            {
+                return Double.NaN;
+            }
+
+            final double mean = getMean();
+            double sum = 0;
+
+            for (double s : this.scores)
+            {
+                sum += ((s - mean) * (s - mean));
+            }
+
+            return Math.sqrt(sum / (this.scores.length - 1));
+        }
+
+        /**
+         * Get the unit of the scores
+         *
+         * @return The unit, in JMH notation
+         */
+        public String getUnit()
+        {
+            return this.benchmark.isThroughput() ? "ops/s" : "ms/op";
+        }
+    }
+
+    /**
+     * An output stream that discards everything written to it
+     */
+    private static class NullOutputStream extends OutputStream
+    {
+        /** The number of bytes written */
+        private long count;
+
+        /**
+         * Discard one byte
+         *
+         * @param b The byte to be discarded
+         */
+        public void write(int b)
+        {
+            ++this.count;
+        }
+
+        /**
+         * Discard an array of bytes
+         *
+         * @param b The array of bytes
+         * @param off The offset of the first byte
+         * @param len The number of bytes
+         */
+        public void write(byte[] b, int off, int len)
+        {
+            this.count += len;
+        }
+    }
+
+    /**
+     * Create the points to be evaluated, spread at random over the surface
+     * of the sphere
+     */
+    private void createPoints()
+    {
+        final Random random = new Random(4321L);
+
+        this.points = new double[this.count * 3];
+
+        for (int n = 0; n < this.points.length; n += 3)
+        {
+            final double x = random.nextGaussian();
+            final double y = random.nextGaussian();
+            final double z = random.nextGaussian();
+            final double len = Math.sqrt((x * x) + (y * y) + (z * z));
+
+            this.points[n] = x / len;
+            this.points[n + 1] = y / len;
+            this.points[n + 2] = z / len;
+        }
+    }
+
+    /**
+     * Create the parameters for a projection
+     *
+     * @param width The width of the image
+     * @param height The height of the image
+     * @return The parameters to be used
+     */
+    private AllPlanetParameters createParameters(int width, int height)
+    {
+        final AllPlanetParameters params =
+            TestParameters.create(0.123, width, height);
+
+        params.getProjectionParameters()
+            .setParallel(this.parallel);
+
+        return params;
+    }
+
+    /**
+     * Create the benchmark for the throughput of <code>planet1()</code>
+     *
+     * @param iterative <code>true</code> to use the iterative evaluator
+     * @param depth The depth of subdivision
+     * @return The new benchmark
+     */
+    private Benchmark planet1(final boolean iterative, final int depth)
+    {
+        return new Benchmark("planet1")
+            {
+                private PlanetGen gen;
+
+                public void setUp()
+                {
+                    if (points == null)
+                    {
+                        createPoints();
+                    }
+
+                    final AllPlanetParameters params = createParameters(1, 1);
+
+                    params.getProjectionParameters()
+                        .setIterative(iterative);
+
+                    this.gen = new PlanetGen(params);
+                    this.gen.cacheParameters();
+                }
+
+                public long run()
+                {
+                    final PlanetContext ctx = this.gen.createContext();
+
+                    ctx.setDepth(depth);
+
+                    for (int n = 0; n < points.length; n += 3)
+                    {
+                        ctx.invalidate();
+
+                        sink += this.gen.planet1(
+                                ctx, points[n], points[n + 1], points[n + 2]);
+                    }
+
+                    return points.length / 3;
+                }
+
+                public boolean isThroughput()
+                {
+                    return true;
+                }
+            }.param("evaluator", iterative ? "iterative" : "recursive")
+            .param("depth", depth);
+    }
+
+    /**
+     * Create the benchmark for a full projection
+     *
+     * @param proj The projection to be used
+     * @param width The width of the image
+     * @param height The height of the image
+     * @return The new benchmark
+     */
+    private Benchmark project(
+        final Projector proj, final int width, final int height)
+    {
+        return new Benchmark("project")
+            {
+                public void setUp()
+                {
+                    proj.setParameters(createParameters(width, height));
+                }
+
+                public long run()
+                {
+                    proj.project();
+
+                    return 1;
+                }
+
+                public void tearDown()
+                {
+                    proj.releaseResources();
+                }
+            }.param("projection", proj.getThumbnailName())
+            .param("size", width + "x" + height);
+    }
+
+    /**
+     * Project an image for the output benchmarks
+     *
+     * @return The projection, holding the generated image
+     */
+    private Projector projectForOutput()
+    {
+        final Projector proj = new ProjectionManager().getDefaultProjection();
+
+        proj.setParameters(createParameters(OUTPUT_SIZE, OUTPUT_SIZE));
+        proj.project();
+
+        return proj;
+    }
+
+    /**
+     * Create the benchmark for <code>ImageBuilder.getImage()</code>
+     *
+     * @return The new benchmark
+     */
+    private Benchmark getImage()
+    {
+        return new Benchmark("getImage")
+            {
+                private Projector proj;
+
+                public void setUp()
+                {
+                    if (this.proj == null)
+                    {
+                        this.proj = projectForOutput();
+                    }
+                }
+
+                public long run()
+                {
+                    sink += new ImageBuilder().getImage(this.proj)
+                        .getWidth();
+
+                    return 1;
+                }
+
+                public void tearDown()
+                {
+                    this.proj.releaseResources();
+                }
+            }.param("size", OUTPUT_SIZE + "x" + OUTPUT_SIZE);
+    }
+
+    /**
+     * Create the benchmark for <code>BMPOutput.outputBMP()</code>
+     *
+     * @return The new benchmark
+     */
+    private Benchmark outputBMP()
+    {
+        return new Benchmark("outputBMP")
+            {
+                private Projector proj;
+
+                public void setUp()
+                {
+                    if (this.proj == null)
+                    {
+                        this.proj = projectForOutput();
+                    }
+                }
+
+                public long run() throws IOException
+                {
+                    final NullOutputStream out = new NullOutputStream();
+
+                    new BMPOutput().outputBMP(this.proj, out);
+
+                    sink += out.count;
+
+                    return 1;
+                }
+
+                public void tearDown()
+                {
+                    this.proj.releaseResources();
+                }
+            }.param("size", OUTPUT_SIZE + "x" + OUTPUT_SIZE);
+    }
+
+    /**
+     * Build the list of all the benchmarks
+     *
+     * @return The benchmarks, in the order they are to be run
+     */
+    private List<Benchmark> createBenchmarks()
+    {
+        final List<Benchmark> list = new ArrayList<Benchmark>();
+
+        for (final int depth : DEPTHS)
+        {
+            list.add(planet1(false, depth));
+            list.add(planet1(true, depth));
+        }
+
+        for (String size : this.sizes.split(","))
+        {
+            final String[] wh = size.trim()
+                    .split("x");
+
+            for (Projector proj : new ProjectionManager().getProjections())
+            {
+                list.add(
+                    project(
+                        proj, Integer.parseInt(wh[0]), Integer.parseInt(wh[1])));
+            }
+        }
+
+        list.add(getImage());
+        list.add(outputBMP());
+
+        return list;
+    }
+
+    /**
+     * Run one benchmark and record its result
+     *
+     * @param b The benchmark to be run
+     * @throws Exception If the benchmark fails
+     */
+    private void runBenchmark(Benchmark b) throws Exception
+    {
+        final Result result = new Result();
+
+        result.benchmark = b;
+        result.scores = new double[this.iterations];
+
+        for (int n = -this.warmups; n < this.iterations; ++n)
+        {
+            b.setUp();
+
+            final long start = System.nanoTime();
+            final long ops = b.run();
+            final double seconds = (System.nanoTime() - start) / 1e9;
+
+            if (n >= 0)
+            {
+                result.scores[n] =
+                    b.isThroughput() ? (ops / seconds) : ((seconds * 1000) / ops);
+            }
+        }
+
+        b.tearDown();
+
+        this.results.add(result);
+
+        System.out.println(
+            String.format(
+                "%-10s %-40s %14.3f +- %10.3f %s", b.name, b.params,
+                result.getMean(), result.getError(), result.getUnit()));
+    }
+
+    /**
+     * Format a number for JSON, which has no representation of NaN
+     *
+     * @param value The number to be formatted
+     * @return The formatted number
+     */
+    private static String number(double value)
+    {
+        return Double.isNaN(value) ? "\"NaN\"" : String.valueOf(value);
+    }
+
+    /**
+     * Write the results as JSON in the same layout as JMH uses
+     *
+     * @param out The destination for the JSON text
+     */
+    private void writeJSON(PrintWriter out)
+    {
+        out.println("[");
+
+        for (int r = 0; r < this.results.size(); ++r)
+        {
+            final Result result = this.results.get(r);
+
+            out.println("    {");
+            out.println(
+                "        \"benchmark\" : \"" + getClass().getName() + "." +
+                result.benchmark.name + "\",");
+            out.println(
+                "        \"mode\" : \"" +
+                (result.benchmark.isThroughput() ? "thrpt" : "avgt") + "\",");
+            out.println("        \"warmupIterations\" : " + this.warmups + ",");
+            out.println(
+                "        \"measurementIterations\" : " + this.iterations + ",");
+            out.println("        \"params\" : {");
+
+            int p = 0;
+
+            for (Map.Entry<String, String> e : result.benchmark.params.entrySet())
+            {
+                out.println(
+                    "            \"" + e.getKey() + "\" : \"" + e.getValue() +
+                    "\"" + ((++p < result.benchmark.params.size()) ? "," : ""));
+            }
+
+            out.println("        },");
+            out.println("        \"primaryMetric\" : {");
+            out.println(
+                "            \"score\" : " + number(result.getMean()) + ",");
+            out.println(
+                "            \"scoreError\" : " + number(result.getError()) +
+                ",");
+            out.println(
+                "            \"scoreUnit\" : \"" + result.getUnit() + "\",");
+
+            final StringBuffer raw = new StringBuffer();
+
+            for (int s = 0; s < result.scores.length; ++s)
+            {
+                raw.append((s > 0) ? ", " : "")
+                    .append(number(result.scores[s]));
+            }
+
+            out.println("            \"rawData\" : [ [ " + raw + " ] ]");
+            out.println("        }");
+            out.println(
+                "    }" + (((r + 1) < this.results.size()) ? "," : ""));
+        }
+
+        out.println("]");
+    }
+
+    /**
+     * Run all the selected benchmarks and write the results
+     *
+     * @throws Exception If a benchmark fails or the results can't be written
+     */
+    public void run() throws Exception
+    {
+        for (Benchmark b : createBenchmarks())
+        {
+            if (this.filter.matcher(b.name + " " + b.params).find())
+            {
+                runBenchmark(b);
+            }
+        }
+
+        final PrintWriter out = new PrintWriter(new FileWriter(this.outputFile));
+
+        try
+        {
+            writeJSON(out);
+        }
+        finally
+        {
+            out.close();
+        }
+
+        System.out.println("Results written to " + this.outputFile);
+        System.out.println("(checksum " + this.sink + ")");
+    }
+
+    /**
+     * Main entrypoint for the benchmarks
+     *
+     * @param args The command line arguments
+     * @throws Exception If a benchmark fails or the results can't be written
+     */
+    public static void main(String[] args) throws Exception
+    {
+        final PlanetGenBenchmark me = new PlanetGenBenchmark();
+
+        for (int a = 0; a < args.length; ++a)
+        {
+            if ("-o".equals(args[a]))
+            {
+                me.outputFile = args[++a];
+            }
+            else if ("-wi".equals(args[a]))
+            {
+                me.warmups = Integer.parseInt(args[++a]);
+            }
+            else if ("-i".equals(args[a]))
+            {
+                me.iterations = Integer.parseInt(args[++a]);
+            }
+            else if ("-points".equals(args[a]))
+            {
+                me.count = Integer.parseInt(args[++a]);
+            }
+            else if ("-sizes".equals(args[a]))
+            {
+                me.sizes = args[++a];
+            }
+            else if ("-parallel".equals(args[a]))
+            {
+                me.parallel = true;
+            }
+            else
+            {
+                me.filter = Pattern.compile(args[a]);
+            }
+        }
+
+        me.run();
+    }
+}
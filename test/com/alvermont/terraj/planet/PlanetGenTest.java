@@ -0,0 +1,310 @@
+/*
+ * PlanetGenTest.java
+ * JUnit based test
+ *
+ * Created on October 17, 2026, 2:05 PM
+ */
+
+package com.alvermont.terraj.planet;
+
+import junit.framework.*;
+import java.nio.DoubleBuffer;
+import java.util.Random;
+
+/**
+ * Test cases for the planet generator
+ */
+public class PlanetGenTest extends TestCase
+{
+    
+    public PlanetGenTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(PlanetGenTest.class);
+        
+        return suite;
+    }
+
+    /**
+     * Create a generator ready to evaluate points
+     */
+    private PlanetGen createGenerator(boolean iterative)
+    {
+        AllPlanetParameters params = new AllPlanetParameters();
+        
+        params.getPlanetParameters().setSeed(0.456);
+        params.getProjectionParameters().setDoShade(true);
+        params.getProjectionParameters().setIterative(iterative);
+        
+        PlanetGen gen = new PlanetGen(params);
+        
+        gen.cacheParameters();
+        
+        return gen;
+    }
+
+    /**
+     * Test that the iterative evaluator gives exactly the same results as
+     * the recursive one, including reuse of the cached tetrahedron
+     */
+    public void testIterativeMatchesRecursive()
+    {
+        System.out.println("iterativeMatchesRecursive");
+        
+        PlanetGen recursive = createGenerator(false);
+        PlanetGen iterative = createGenerator(true);
+        Random random = new Random(1234L);
+        
+        for (int depth = 6; depth <= 60; depth += 6)
+        {
+            PlanetContext rctx = recursive.createContext();
+            PlanetContext ictx = iterative.createContext();
+            
+            rctx.setDepth(depth);
+            ictx.setDepth(depth);
+            
+            double x = random.nextGaussian();
+            double y = random.nextGaussian();
+            double z = random.nextGaussian();
+            
+            for (int n = 0; n < 500; ++n)
+            {
+                // small steps so that the cache is used for some points
+                x += random.nextGaussian() * 0.001;
+                y += random.nextGaussian() * 0.001;
+                z += random.nextGaussian() * 0.001;
+                
+                double len = Math.sqrt((x * x) + (y * y) + (z * z));
+                
+                double expResult = recursive.planet1(rctx, x / len, y / len, z / len);
+                double result = iterative.planet1(ictx, x / len, y / len, z / len);
+                
+                assertEquals(expResult, result, 0.0);
+                assertEquals(rctx.getShade(), ictx.getShade());
+            }
+        }
+    }
+
+    /**
+     * Test that a point that is not a number is handled the same way by
+     * both evaluators
+     */
+    public void testIterativeMatchesRecursiveForNaN()
+    {
+        System.out.println("iterativeMatchesRecursiveForNaN");
+        
+        PlanetGen recursive = createGenerator(false);
+        PlanetGen iterative = createGenerator(true);
+        
+        PlanetContext rctx = recursive.createContext();
+        PlanetContext ictx = iterative.createContext();
+        
+        rctx.setDepth(20);
+        ictx.setDepth(20);
+        
+        double expResult = recursive.planet1(rctx, Double.NaN, 0.0, 1.0);
+        double result = iterative.planet1(ictx, Double.NaN, 0.0, 1.0);
+        
+        assertEquals(expResult, result, 0.0);
+    }
+
+    /**
+     * Test that restarting from the cached tetrahedra gives the same results
+     * as evaluating every point from the top level, with the cache limited
+     * so that only some of the levels are kept
+     */
+    public void testCacheMatchesUncached()
+    {
+        System.out.println("cacheMatchesUncached");
+        
+        PlanetGen gen = createGenerator(false);
+        PlanetContext cached = new PlanetContext(40, 8);
+        PlanetContext uncached = new PlanetContext(40, 8);
+        
+        for (int n = 0; n < 1000; ++n)
+        {
+            double theta = 0.3 + (n * 0.00001);
+            double x = Math.cos(theta) * 0.8;
+            double y = 0.6;
+            double z = Math.sin(theta) * 0.8;
+            
+            uncached.invalidate();
+            
+            double expResult = gen.planet1(uncached, x, y, z);
+            double result = gen.planet1(cached, x, y, z);
+            
+            assertEquals(expResult, result, 0.0);
+            assertEquals(uncached.getShade(), cached.getShade());
+        }
+        
+        assertEquals(1000, cached.getLookups());
+        assertEquals(0, uncached.getHits());
+        
+        if (cached.getHits() < 900)
+            fail("Too few cache hits: " + cached.getHits());
+        
+        if (cached.getLevelsSkipped() < (cached.getHits() * 20))
+            fail("Too few levels skipped: " + cached.getLevelsSkipped());
+    }
+
+    /**
+     * Create a set of random points on the surface of the planet
+     */
+    private double[][] createPoints(int count)
+    {
+        Random random = new Random(5678L);
+        double[][] points = new double[3][count];
+        
+        for (int n = 0; n < count; ++n)
+        {
+            double x = random.nextGaussian();
+            double y = random.nextGaussian();
+            double z = random.nextGaussian();
+            double len = Math.sqrt((x * x) + (y * y) + (z * z));
+            
+            points[0][n] = x / len;
+            points[1][n] = y / len;
+            points[2][n] = z / len;
+        }
+        
+        return points;
+    }
+
+    /**
+     * Test that sampling points in bulk gives the same altitudes as
+     * evaluating each of them from the top level
+     */
+    public void testSampleMatchesPlanet1()
+    {
+        System.out.println("sampleMatchesPlanet1");
+        
+        PlanetGen gen = createGenerator(false);
+        double[][] points = createPoints(2000);
+        double[] alts = new double[2001];
+        
+        alts[5] = 99.0;
+        alts[2000] = 99.0;
+        
+        gen.sample(30, points[0], points[1], points[2], 6, 1994, alts);
+        
+        PlanetContext ctx = new PlanetContext(30);
+        
+        for (int n = 6; n < 2000; ++n)
+        {
+            ctx.invalidate();
+            
+            assertEquals(
+                gen.planet1(ctx, points[0][n], points[1][n], points[2][n]),
+                alts[n], 0.0);
+        }
+        
+        assertEquals(99.0, alts[5], 0.0);
+        assertEquals(99.0, alts[2000], 0.0);
+    }
+
+    /**
+     * Test that sampling points held in a buffer gives the same altitudes
+     * as sampling them from arrays
+     */
+    public void testSampleBuffer()
+    {
+        System.out.println("sampleBuffer");
+        
+        PlanetGen gen = createGenerator(true);
+        double[][] points = createPoints(500);
+        double[] expResult = new double[500];
+        
+        gen.sample(24, points[0], points[1], points[2], 0, 500, expResult);
+        
+        DoubleBuffer buffer = DoubleBuffer.allocate(1 + (500 * 3) + 2);
+        
+        buffer.put(0.0);
+        
+        for (int n = 0; n < 500; ++n)
+        {
+            buffer.put(points[0][n]).put(points[1][n]).put(points[2][n]);
+        }
+        
+        buffer.flip();
+        buffer.position(1);
+        buffer.limit(buffer.capacity());
+        
+        double[] result = new double[501];
+        
+        gen.sample(24, buffer, result, 1);
+        
+        assertEquals(1 + (500 * 3), buffer.position());
+        
+        for (int n = 0; n < 500; ++n)
+        {
+            assertEquals(expResult[n], result[n + 1], 0.0);
+        }
+    }
+
+    /**
+     * Test that several threads can sample points from the same generator
+     * at once
+     */
+    public void testConcurrentSample() throws Exception
+    {
+        System.out.println("concurrentSample");
+        
+        final PlanetGen gen = createGenerator(false);
+        final double[][] points = createPoints(3000);
+        final double[] expResult = new double[3000];
+        
+        gen.sample(36, points[0], points[1], points[2], 0, 3000, expResult);
+        
+        final boolean[] ok = new boolean[4];
+        Thread[] threads = new Thread[ok.length];
+        
+        for (int t = 0; t < threads.length; ++t)
+        {
+            final int index = t;
+            
+            threads[t] = new Thread()
+            {
+                public void run()
+                {
+                    double[] result = new double[3000];
+                    boolean same = true;
+                    
+                    for (int round = 0; round < 5; ++round)
+                    {
+                        gen.sample(
+                            36, points[0], points[1], points[2], 0, 3000,
+                            result);
+                        
+                        for (int n = 0; n < 3000; ++n)
+                        {
+                            same &= (result[n] == expResult[n]);
+                        }
+                    }
+                    
+                    ok[index] = same;
+                }
+            };
+            
+            threads[t].start();
+        }
+        
+        for (int t = 0; t < threads.length; ++t)
+        {
+            threads[t].join();
+            
+            assertTrue("Thread " + t + " gave different results", ok[t]);
+        }
+    }
+}
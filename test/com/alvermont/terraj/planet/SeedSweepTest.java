@@ -0,0 +1,114 @@
+/*
+ * SeedSweepTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 3:20 PM
+ */
+
+package com.alvermont.terraj.planet;
+
+import java.util.List;
+import junit.framework.*;
+
+/**
+ * Test cases for the seed sweep
+ */
+public class SeedSweepTest extends TestCase
+{
+    private static final int SEEDS = 12;
+    
+    private SeedSweep sweep;
+    
+    public SeedSweepTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+        sweep = new SeedSweep(new AllPlanetParameters());
+        
+        sweep.setRows(20);
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(SeedSweepTest.class);
+        
+        return suite;
+    }
+
+    /**
+     * Test that the measurements of a planet are consistent with each other
+     */
+    public void testMeasure()
+    {
+        System.out.println("testMeasure");
+        
+        SeedMetrics m = sweep.measure(0.25);
+        
+        assertEquals(0.25, m.getSeed(), 0.0);
+        assertTrue(m.getLandFraction() > 0 && m.getLandFraction() < 1);
+        assertTrue(m.getLargestLandmass() > 0);
+        assertTrue(m.getLargestLandmass() <= m.getLandFraction());
+        assertTrue(m.getCoastlineLength() > 0);
+        assertTrue(Math.abs(m.getMeanAltitude()) < 1);
+        
+        SeedMetrics again = sweep.measure(0.25);
+        
+        assertEquals(m.getLandFraction(), again.getLandFraction(), 0.0);
+        assertEquals(m.getCoastlineLength(), again.getCoastlineLength(), 0.0);
+    }
+
+    /**
+     * Test that the sweep keeps the best planets in order, whatever the
+     * number of threads
+     */
+    public void testRun() throws Exception
+    {
+        System.out.println("testRun");
+        
+        SeedScore score = SeedSweep.getScore("land");
+        
+        sweep.setKeep(3);
+        sweep.setScore(score);
+        sweep.setSeedStep(0.1);
+        
+        double bestSeed = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        
+        for (int i = 0; i < SEEDS; ++i)
+        {
+            double s = score.score(sweep.measure(0.05 + (i * 0.1)));
+            
+            if (s > bestScore)
+            {
+                bestScore = s;
+                bestSeed = 0.05 + (i * 0.1);
+            }
+        }
+        
+        List<SeedMetrics> serial = sweep.run(0.05, SEEDS, 1);
+        List<SeedMetrics> parallel = sweep.run(0.05, SEEDS, 3);
+        
+        assertEquals(3, serial.size());
+        assertEquals(bestSeed, serial.get(0).getSeed(), 0.0);
+        assertEquals(bestScore, serial.get(0).getScore(), 0.0);
+        
+        for (int i = 0; i < 3; ++i)
+        {
+            assertEquals(serial.get(i).getSeed(), parallel.get(i).getSeed(), 0.0);
+            
+            if (i > 0)
+            {
+                assertTrue(serial.get(i).getScore() <= serial.get(i - 1).getScore());
+            }
+        }
+        
+        assertNull(SeedSweep.getScore("nothing"));
+    }
+}
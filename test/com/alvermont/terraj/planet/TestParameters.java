@@ -0,0 +1,58 @@
+/*
+ * TestParameters.java
+ *
+ * Created on October 18, 2026, 6:40 PM
+ */
+
+package com.alvermont.terraj.planet;
+
+/**
+ * Creates the planet parameters used by the tests that render projections,
+ * so each test only has to set what it is about
+ */
+public final class TestParameters
+{
+    /** Not to be created */
+    private TestParameters()
+    {
+    }
+
+    /**
+     * Create the parameters for a shaded image of a planet, looking at the
+     * point where the equator meets the prime meridian
+     *
+     * @param seed The seed of the planet
+     * @param width The width of the image
+     * @param height The height of the image
+     * @return The new parameters
+     */
+    public static AllPlanetParameters create(double seed, int width, int height)
+    {
+        return create(seed, width, height, 0, 0);
+    }
+
+    /**
+     * Create the parameters for a shaded image of a planet
+     *
+     * @param seed The seed of the planet
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param lat The latitude of the centre of the view, in degrees
+     * @param lon The longitude of the centre of the view, in degrees
+     * @return The new parameters
+     */
+    public static AllPlanetParameters create(
+        double seed, int width, int height, double lat, double lon)
+    {
+        AllPlanetParameters params = new AllPlanetParameters();
+        
+        params.getPlanetParameters().setSeed(seed);
+        params.getProjectionParameters().setWidth(width);
+        params.getProjectionParameters().setHeight(height);
+        params.getProjectionParameters().setDoShade(true);
+        params.getProjectionParameters().setLat(lat);
+        params.getProjectionParameters().setLon(lon);
+        
+        return params;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * BMPOutputTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 9:30 PM
+ */
+
+package com.alvermont.terraj.planet.io;
+
+import junit.framework.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Test cases for the headers of BMP files
+ */
+public class BMPOutputTest extends TestCase
+{
+    
+    public BMPOutputTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(BMPOutputTest.class);
+        
+        return suite;
+    }
+
+    private long getFileSize(byte[] header)
+    {
+        return ByteBuffer.wrap(header)
+            .order(ByteOrder.LITTLE_ENDIAN)
+            .getInt(2) & 0xffffffffL;
+    }
+
+    /**
+     * Test that the file size is right for an image of more than 2GB
+     */
+    public void testLargeFileSize() throws Exception
+    {
+        System.out.println("testLargeFileSize");
+        
+        assertEquals(
+            BMPOutput.HEADER_SIZE + (12L * 3),
+            getFileSize(BMPOutput.createHeader(3, 3)));
+        
+        assertEquals(
+            BMPOutput.HEADER_SIZE + (120000L * 30000),
+            getFileSize(BMPOutput.createHeader(40000, 30000)));
+    }
+
+    /**
+     * Test that an image too large for the file format is rejected
+     */
+    public void testTooLarge()
+    {
+        System.out.println("testTooLarge");
+        
+        try
+        {
+            BMPOutput.createHeader(65536, 32768);
+            
+            fail("Image too large for a BMP file was accepted");
+        }
+        catch (IOException ioe)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * HeightfieldWriterTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 2:05 PM
+ */
+
+package com.alvermont.terraj.planet.io;
+
+import junit.framework.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+
+/**
+ * Test cases for writing altitudes to files
+ */
+public class HeightfieldWriterTest extends TestCase
+{
+    private static final float[] ALTS =
+    {
+        -0.5f, 0.0f, Float.NaN, 0.25f, 0.5f, 0.125f
+    };
+    
+    public HeightfieldWriterTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(HeightfieldWriterTest.class);
+        
+        return suite;
+    }
+
+    private byte[] write(HeightfieldWriter writer) throws Exception
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        
+        writer.write(ALTS, 3, 2, Channels.newChannel(bos));
+        
+        return bos.toByteArray();
+    }
+
+    /**
+     * Test that formats are chosen by file extension
+     */
+    public void testForFile()
+    {
+        System.out.println("testForFile");
+        
+        assertEquals(
+            HeightfieldWriter.Format.RAW_FLOAT,
+            HeightfieldWriter.Format.forFile(new File("a.raw")));
+        assertEquals(
+            HeightfieldWriter.Format.RAW_16,
+            HeightfieldWriter.Format.forFile(new File("a.R16")));
+        assertEquals(
+            HeightfieldWriter.Format.PGM,
+            HeightfieldWriter.Format.forFile(new File("a.pgm")));
+        assertEquals(
+            HeightfieldWriter.Format.TIFF,
+            HeightfieldWriter.Format.forFile(new File("a.tiff")));
+    }
+
+    /**
+     * Test writing a PGM file
+     */
+    public void testPGM() throws Exception
+    {
+        System.out.println("testPGM");
+        
+        HeightfieldWriter writer =
+            new HeightfieldWriter(HeightfieldWriter.Format.PGM);
+        
+        byte[] data = write(writer);
+        
+        String header = "P5\n3 2\n65535\n";
+        
+        assertEquals(header, new String(data, 0, header.length(), "US-ASCII"));
+        assertEquals(header.length() + 12, data.length);
+        assertEquals(-0.5, writer.getMinimum(), 0.0);
+        assertEquals(0.5, writer.getMaximum(), 0.0);
+        
+        ByteBuffer bb = ByteBuffer.wrap(data, header.length(), 12);
+        
+        bb.order(ByteOrder.BIG_ENDIAN);
+        
+        assertEquals(0, bb.getShort() & 0xffff);
+        assertEquals(32768, bb.getShort() & 0xffff);
+        assertEquals(0, bb.getShort() & 0xffff);
+        assertEquals(49151, bb.getShort() & 0xffff);
+        assertEquals(65535, bb.getShort() & 0xffff);
+        assertEquals(40959, bb.getShort() & 0xffff);
+    }
+
+    /**
+     * Test writing raw floats
+     */
+    public void testRawFloat() throws Exception
+    {
+        System.out.println("testRawFloat");
+        
+        byte[] data =
+            write(new HeightfieldWriter(HeightfieldWriter.Format.RAW_FLOAT));
+        
+        assertEquals(ALTS.length * 4, data.length);
+        
+        ByteBuffer bb = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        
+        for (float alt : ALTS)
+        {
+            assertEquals(
+                Float.floatToIntBits(alt), Float.floatToIntBits(bb.getFloat()));
+        }
+    }
+
+    /**
+     * Test that a TIFF file points at the floating point samples
+     */
+    public void testTIFF() throws Exception
+    {
+        System.out.println("testTIFF");
+        
+        byte[] data =
+            write(new HeightfieldWriter(HeightfieldWriter.Format.TIFF));
+        
+        ByteBuffer bb = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        
+        assertEquals('I', bb.get());
+        assertEquals('I', bb.get());
+        assertEquals(42, bb.getShort());
+        
+        int ifd = bb.getInt();
+        int entries = bb.getShort(ifd);
+        int offset = -1;
+        int count = -1;
+        
+        for (int e = 0; e < entries; ++e)
+        {
+            int pos = ifd + 2 + (e * 12);
+            int tag = bb.getShort(pos) & 0xffff;
+            
+            if (tag == 273)
+            {
+                offset = bb.getInt(pos + 8);
+            }
+            else if (tag == 279)
+            {
+                count = bb.getInt(pos + 8);
+            }
+        }
+        
+        assertEquals(ALTS.length * 4, count);
+        assertEquals(offset + count, data.length);
+        assertEquals(0, offset % 4);
+        assertEquals(0.25f, bb.getFloat(offset + 12), 0.0f);
+    }
+}
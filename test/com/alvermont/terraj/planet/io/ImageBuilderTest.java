@@ -0,0 +1,96 @@
+/*
+ * ImageBuilderTest.java
+ * JUnit based test
+ *
+ * Created on October 17, 2026, 9:30 PM
+ */
+
+package com.alvermont.terraj.planet.io;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.TestParameters;
+import com.alvermont.terraj.planet.project.MercatorProjection;
+import com.alvermont.terraj.planet.project.OrthographicProjection;
+import com.alvermont.terraj.planet.project.Projector;
+import java.awt.image.BufferedImage;
+
+/**
+ * Test cases for building images from projections
+ */
+public class ImageBuilderTest extends TestCase
+{
+    private static final int WIDTH = 80;
+    private static final int HEIGHT = 60;
+    
+    public ImageBuilderTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(ImageBuilderTest.class);
+        
+        return suite;
+    }
+
+    private AllPlanetParameters createParameters(boolean shade)
+    {
+        AllPlanetParameters params =
+            TestParameters.create(0.321, WIDTH, HEIGHT);
+        
+        params.getProjectionParameters().setDoShade(shade);
+        params.getProjectionParameters().setHgrid(30);
+        
+        return params;
+    }
+
+    /**
+     * Test that every pixel of the image has the colour given by fillRGB,
+     * with and without shading
+     */
+    public void testImageMatchesFillRGB()
+    {
+        System.out.println("imageMatchesFillRGB");
+        
+        Projector[] projectors =
+            {
+                new OrthographicProjection(createParameters(false)),
+                new OrthographicProjection(createParameters(true)),
+                new MercatorProjection(createParameters(true))
+            };
+        
+        int[] col = new int[3];
+        
+        for (Projector proj : projectors)
+        {
+            proj.project();
+            
+            BufferedImage image = new ImageBuilder().getImage(proj);
+            
+            assertEquals(WIDTH, image.getWidth());
+            assertEquals(HEIGHT, image.getHeight());
+            
+            for (int j = 0; j < HEIGHT; ++j)
+            {
+                for (int i = 0; i < WIDTH; ++i)
+                {
+                    proj.fillRGB(i, j, col);
+                    
+                    assertEquals(
+                        0xff000000 | (col[0] << 16) | (col[1] << 8) | col[2],
+                        image.getRGB(i, j));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * PNGBandWriterTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 7:10 PM
+ */
+
+package com.alvermont.terraj.planet.io;
+
+import junit.framework.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+/**
+ * Test cases for writing a PNG file a band of rows at a time
+ */
+public class PNGBandWriterTest extends TestCase
+{
+    private static final int WIDTH = 300;
+    
+    private static final int HEIGHT = 200;
+    
+    public PNGBandWriterTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(PNGBandWriterTest.class);
+        
+        return suite;
+    }
+
+    /**
+     * Get the lengths of the IDAT chunks of a PNG file
+     */
+    private List<Integer> getDataChunks(byte[] png)
+    {
+        List<Integer> lengths = new ArrayList<Integer>();
+        ByteBuffer buff = ByteBuffer.wrap(png);
+        
+        buff.position(8);
+        
+        while (buff.hasRemaining())
+        {
+            int length = buff.getInt();
+            byte[] type = new byte[4];
+            
+            buff.get(type);
+            
+            if (new String(type).equals("IDAT"))
+            {
+                lengths.add(length);
+            }
+            
+            buff.position(buff.position() + length + 4);
+        }
+        
+        return lengths;
+    }
+
+    /**
+     * Test that an image written one row at a time reads back the same and
+     * that its data is written in full sized chunks
+     */
+    public void testSingleRowBands() throws Exception
+    {
+        System.out.println("testSingleRowBands");
+        
+        Random random = new Random(42);
+        int[] rgb = new int[WIDTH * HEIGHT];
+        
+        for (int p = 0; p < rgb.length; ++p)
+        {
+            rgb[p] = random.nextInt() & 0xffffff;
+        }
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PNGBandWriter writer = new PNGBandWriter(Channels.newChannel(out));
+        int[] band = new int[WIDTH];
+        
+        writer.startImage(WIDTH, HEIGHT);
+        
+        for (int y = 0; y < HEIGHT; ++y)
+        {
+            System.arraycopy(rgb, y * WIDTH, band, 0, WIDTH);
+            writer.writeBand(y, 1, band);
+        }
+        
+        writer.endImage();
+        
+        BufferedImage image =
+            ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        
+        assertEquals(WIDTH, image.getWidth());
+        assertEquals(HEIGHT, image.getHeight());
+        
+        for (int y = 0; y < HEIGHT; ++y)
+        {
+            for (int x = 0; x < WIDTH; ++x)
+            {
+                assertEquals(
+                    rgb[(y * WIDTH) + x], image.getRGB(x, y) & 0xffffff);
+            }
+        }
+        
+        List<Integer> chunks = getDataChunks(out.toByteArray());
+        
+        // random pixels don't compress so there is more than one chunk
+        assertTrue(chunks.size() > 1);
+        
+        for (int c = 0; c < (chunks.size() - 1); ++c)
+        {
+            assertEquals(65536, chunks.get(c).intValue());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * TileCacheTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 6:05 PM
+ */
+
+package com.alvermont.terraj.planet.io;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.project.TileGenerator;
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Test cases for the disk cache of map tiles
+ */
+public class TileCacheTest extends TestCase
+{
+    private File dir;
+    
+    public TileCacheTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+        dir = File.createTempFile("tiles", "");
+        dir.delete();
+        dir.mkdir();
+    }
+
+    protected void tearDown() throws Exception
+    {
+        delete(dir);
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TileCacheTest.class);
+        
+        return suite;
+    }
+
+    private void delete(File file)
+    {
+        File[] files = file.listFiles();
+        
+        if (files != null)
+        {
+            for (int f = 0; f < files.length; ++f)
+            {
+                delete(files[f]);
+            }
+        }
+        
+        file.delete();
+    }
+
+    private void assertPNG(byte[] data)
+    {
+        assertTrue(data.length > 8);
+        assertEquals((byte) 0x89, data[0]);
+        assertEquals((byte) 'P', data[1]);
+        assertEquals((byte) 'N', data[2]);
+        assertEquals((byte) 'G', data[3]);
+    }
+
+    /**
+     * Test that tiles are handed out whole even when the cache is so small
+     * that each new tile trims the one before
+     */
+    public void testTrimmedTiles() throws Exception
+    {
+        System.out.println("trimmedTiles");
+        
+        TileCache cache =
+            new TileCache(new TileGenerator(new AllPlanetParameters()), dir, 1);
+        
+        byte[] first = cache.getTile(0, 0, 0);
+        
+        assertPNG(first);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        
+        assertTrue(Arrays.equals(first, cache.getTile(0, 0, 0)));
+        assertEquals(1, cache.getHits());
+        
+        assertPNG(cache.getTile(1, 1, 0));
+        assertEquals(2, cache.getMisses());
+        
+        // the first tile was trimmed so it is rendered again
+        assertTrue(Arrays.equals(first, cache.getTile(0, 0, 0)));
+        assertEquals(3, cache.getMisses());
+        assertEquals(cache.getSize(), first.length);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * AltitudeOnlyTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 1:45 PM
+ */
+
+package com.alvermont.terraj.planet.project;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.TestParameters;
+
+/**
+ * Test cases for rendering altitudes without colouring them
+ */
+public class AltitudeOnlyTest extends TestCase
+{
+    private static final int WIDTH = 120;
+    
+    private static final int HEIGHT = 90;
+    
+    public AltitudeOnlyTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(AltitudeOnlyTest.class);
+        
+        return suite;
+    }
+
+    private AllPlanetParameters createParameters()
+    {
+        AllPlanetParameters params =
+            TestParameters.create(0.456, WIDTH, HEIGHT, 25, -40);
+        
+        params.getProjectionParameters().setAltitudeOnly(true);
+        
+        return params;
+    }
+
+    /**
+     * Test that the altitudes are the same as those of the heightfield
+     * generator, which uses the same view as the orthographic projection
+     */
+    public void testMatchesHeightfield()
+    {
+        System.out.println("testMatchesHeightfield");
+        
+        AllPlanetParameters params = createParameters();
+        
+        OrthographicProjection proj = new OrthographicProjection(params);
+        
+        proj.project();
+        
+        float[] alts = proj.getAltitudes();
+        
+        assertEquals(WIDTH * HEIGHT, alts.length);
+        
+        HeightfieldGenerator hg =
+            new HeightfieldGenerator(new AllPlanetParameters(params));
+        
+        hg.generate();
+        
+        int land = 0;
+        
+        for (int j = 0; j < HEIGHT; ++j)
+        {
+            for (int i = 0; i < WIDTH; ++i)
+            {
+                float alt = alts[(j * WIDTH) + i];
+                
+                if (Float.isNaN(alt))
+                {
+                    assertEquals(0, hg.getHeightAt(i, j));
+                }
+                else
+                {
+                    assertEquals(
+                        hg.getHeightAt(i, j), 10000000.0 * alt, 2.0);
+                    
+                    if (alt > 0)
+                    {
+                        ++land;
+                    }
+                }
+            }
+        }
+        
+        assertTrue(land > 0);
+    }
+
+    /**
+     * Test that every projection gives the same altitudes when the rows
+     * are generated in parallel, and that no image is made
+     */
+    public void testParallelMatchesSerial()
+    {
+        System.out.println("testParallelMatchesSerial");
+        
+        ProjectionManager mgr = new ProjectionManager();
+        
+        for (Projector p : mgr.getProjections())
+        {
+            AllPlanetParameters params = createParameters();
+            
+            Projector proj = mgr.createProjector(p.toString());
+            
+            proj.setParameters(params);
+            proj.project();
+            
+            float[] serial = ((AbstractProjector) proj).getAltitudes();
+            
+            params = createParameters();
+            params.getProjectionParameters().setParallel(true);
+            
+            proj = mgr.createProjector(p.toString());
+            proj.setParameters(params);
+            proj.project();
+            
+            float[] parallel = ((AbstractProjector) proj).getAltitudes();
+            
+            assertEquals(p.toString(), serial.length, parallel.length);
+            
+            for (int n = 0; n < serial.length; ++n)
+            {
+                assertEquals(
+                    p.toString(), Float.floatToIntBits(serial[n]),
+                    Float.floatToIntBits(parallel[n]));
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * CubeMapProjectionTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 4:20 PM
+ */
+
+package com.alvermont.terraj.planet.project;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.TestParameters;
+
+/**
+ * Test cases for the cube map projection
+ */
+public class CubeMapProjectionTest extends TestCase
+{
+    private static final int SIZE = 33;
+    
+    public CubeMapProjectionTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(CubeMapProjectionTest.class);
+        
+        return suite;
+    }
+
+    private CubeMapProjection createProjection(boolean parallel)
+    {
+        AllPlanetParameters params =
+            TestParameters.create(
+                0.567, CubeMapProjection.FACES * SIZE, SIZE, 0, 30);
+        
+        params.getProjectionParameters().setParallel(parallel);
+        
+        CubeMapProjection proj = new CubeMapProjection(params);
+        
+        proj.project();
+        
+        return proj;
+    }
+
+    /**
+     * Check that every texel on the edge of a face is the same as the
+     * texels of the other faces in the same direction
+     */
+    private void checkSeams(int[][] faces, int size)
+    {
+        double[] dir = new double[3];
+        int[] texel = new int[2];
+        int shared = 0;
+        
+        for (int face = 0; face < CubeMapProjection.FACES; ++face)
+        {
+            for (int j = 0; j < size; ++j)
+            {
+                for (int i = 0; i < size; ++i)
+                {
+                    CubeMapProjection.getDirection(face, i, j, size, dir);
+                    
+                    for (int other = 0; other < CubeMapProjection.FACES; ++other)
+                    {
+                        if ((other != face) &&
+                            CubeMapProjection.locate(other, dir, size, texel))
+                        {
+                            assertEquals(
+                                faces[face][(j * size) + i],
+                                faces[other][(texel[1] * size) + texel[0]]);
+                            
+                            ++shared;
+                        }
+                    }
+                }
+            }
+        }
+        
+        // each of the 12 edges is shared by two faces, and each of the 8
+        // corners by three
+        assertEquals((12 * 2 * (size - 2)) + (8 * 3 * 2), shared);
+    }
+
+    /**
+     * Test that every texel maps back to itself
+     */
+    public void testLocate()
+    {
+        System.out.println("testLocate");
+        
+        double[] dir = new double[3];
+        int[] texel = new int[2];
+        
+        for (int face = 0; face < CubeMapProjection.FACES; ++face)
+        {
+            for (int j = 0; j < SIZE; ++j)
+            {
+                for (int i = 0; i < SIZE; ++i)
+                {
+                    CubeMapProjection.getDirection(face, i, j, SIZE, dir);
+                    
+                    assertTrue(CubeMapProjection.locate(face, dir, SIZE, texel));
+                    assertEquals(i, texel[0]);
+                    assertEquals(j, texel[1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that the faces match along their edges, and that the faces are
+     * the same when they are rendered in parallel
+     */
+    public void testSeams()
+    {
+        System.out.println("testSeams");
+        
+        CubeMapProjection proj = createProjection(false);
+        CubeMapProjection parallel = createProjection(true);
+        
+        assertEquals(SIZE, proj.getFaceSize());
+        
+        int[][] faces = new int[CubeMapProjection.FACES][];
+        
+        for (int face = 0; face < CubeMapProjection.FACES; ++face)
+        {
+            faces[face] = proj.getFace(face);
+            
+            int[] other = parallel.getFace(face);
+            
+            for (int n = 0; n < other.length; ++n)
+            {
+                assertEquals(faces[face][n], other[n]);
+            }
+        }
+        
+        checkSeams(faces, SIZE);
+    }
+
+    /**
+     * Test that the mip levels are the right size and still match along
+     * their edges
+     */
+    public void testMipmaps()
+    {
+        System.out.println("testMipmaps");
+        
+        CubeMapProjection proj = createProjection(true);
+        
+        assertEquals(5, proj.getMaxMipLevel());
+        
+        int[][][] mips = proj.createMipmaps(5);
+        
+        int size = SIZE;
+        
+        for (int level = 0; level <= 5; ++level)
+        {
+            assertEquals(size, proj.getMipSize(level));
+            
+            int[][] faces = new int[CubeMapProjection.FACES][];
+            
+            for (int face = 0; face < CubeMapProjection.FACES; ++face)
+            {
+                faces[face] = mips[face][level];
+                
+                assertEquals(size * size, faces[face].length);
+            }
+            
+            checkSeams(faces, size);
+            
+            size = ((size - 1) / 2) + 1;
+        }
+        
+        try
+        {
+            proj.createMipmaps(6);
+            
+            fail("Too many mip levels were accepted");
+        }
+        catch (IllegalArgumentException iae)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * HeightfieldGeneratorTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 4:10 PM
+ */
+
+package com.alvermont.terraj.planet.project;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.meghnasoft.async.AbstractAsynchronousAction;
+import java.awt.event.ActionEvent;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test cases for stopping the heightfield generator
+ */
+public class HeightfieldGeneratorTest extends TestCase
+{
+    private static final int WIDTH = 64;
+    
+    private static final int HEIGHT = 48;
+    
+    public HeightfieldGeneratorTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(HeightfieldGeneratorTest.class);
+        
+        return suite;
+    }
+
+    private static HeightfieldGenerator createGenerator(int width, int height)
+    {
+        AllPlanetParameters params = new AllPlanetParameters();
+        
+        params.getProjectionParameters().setWidth(width);
+        params.getProjectionParameters().setHeight(height);
+        
+        return new HeightfieldGenerator(params);
+    }
+
+    private int countHeights(HeightfieldGenerator hg)
+    {
+        int count = 0;
+        
+        for (int y = 0; y < HEIGHT; ++y)
+        {
+            for (int x = 0; x < WIDTH; ++x)
+            {
+                if (hg.getHeightAt(x, y) != 0)
+                {
+                    ++count;
+                }
+            }
+        }
+        
+        return count;
+    }
+
+    /**
+     * Test that a cancelled generator leaves the rows it hasn't reached
+     * empty
+     */
+    public void testCancel()
+    {
+        System.out.println("cancel");
+        
+        HeightfieldGenerator hg = createGenerator(WIDTH, HEIGHT);
+        
+        hg.generate();
+        
+        assertFalse(hg.isCancelled());
+        assertTrue(countHeights(hg) > 0);
+        
+        hg = createGenerator(WIDTH, HEIGHT);
+        
+        hg.cancel();
+        hg.generate();
+        
+        assertTrue(hg.isCancelled());
+        assertEquals(0, countHeights(hg));
+    }
+
+    /**
+     * An action that generates a heightfield too big to finish quickly
+     */
+    private static class GenerateAction extends AbstractAsynchronousAction
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        volatile boolean completed;
+        
+        GenerateAction()
+        {
+            super("Generate");
+        }
+        
+        public Object asynchronousActionPerformed(ActionEvent e)
+        {
+            this.started.countDown();
+            
+            final HeightfieldGenerator hg = createGenerator(4000, 3000);
+            
+            hg.generate();
+            
+            this.completed = true;
+            
+            return hg;
+        }
+        
+        public void finished()
+        {
+            this.finished.countDown();
+        }
+    }
+
+    /**
+     * Test that cancelling the action running the generator stops it
+     * between rows
+     */
+    public void testCancelAction() throws Exception
+    {
+        System.out.println("cancelAction");
+        
+        GenerateAction action = new GenerateAction();
+        
+        action.actionPerformed(new ActionEvent(this, 0, "generate"));
+        
+        assertTrue(action.started.await(10, TimeUnit.SECONDS));
+        
+        action.cancel();
+        
+        assertTrue(action.finished.await(10, TimeUnit.SECONDS));
+        
+        assertFalse(action.completed);
+    }
+}
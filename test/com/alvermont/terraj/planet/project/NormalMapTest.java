@@ -0,0 +1,203 @@
+/*
+ * NormalMapTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 4:20 PM
+ */
+
+package com.alvermont.terraj.planet.project;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.TestParameters;
+
+/**
+ * Test cases for making normal maps from the altitudes of a projection
+ */
+public class NormalMapTest extends TestCase
+{
+    private static final int WIDTH = 160;
+    
+    private static final int HEIGHT = 120;
+    
+    private static final int FLAT = 0x8080ff;
+    
+    public NormalMapTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(NormalMapTest.class);
+        
+        return suite;
+    }
+
+    private AllPlanetParameters createParameters()
+    {
+        return TestParameters.create(0.789, WIDTH, HEIGHT, 10, 60);
+    }
+
+    private int[] getImage(AbstractProjector proj)
+    {
+        int[] rgb = new int[WIDTH * HEIGHT];
+        
+        proj.getRGB(0, 0, WIDTH, HEIGHT, rgb, 0, WIDTH);
+        
+        return rgb;
+    }
+
+    /**
+     * Test that keeping the altitudes doesn't change the image and that
+     * they are the same as an altitude only render
+     */
+    public void testKeepAltitudes()
+    {
+        System.out.println("testKeepAltitudes");
+        
+        OrthographicProjection plain =
+            new OrthographicProjection(createParameters());
+        
+        plain.project();
+        
+        assertNull(plain.getAltitudes());
+        
+        OrthographicProjection kept =
+            new OrthographicProjection(createParameters());
+        
+        kept.setKeepAltitudes(true);
+        kept.project();
+        
+        int[] expected = getImage(plain);
+        int[] actual = getImage(kept);
+        
+        for (int n = 0; n < expected.length; ++n)
+        {
+            assertEquals(expected[n], actual[n]);
+        }
+        
+        AllPlanetParameters params = createParameters();
+        
+        params.getProjectionParameters().setAltitudeOnly(true);
+        
+        OrthographicProjection alts = new OrthographicProjection(params);
+        
+        alts.project();
+        
+        for (int n = 0; n < expected.length; ++n)
+        {
+            assertEquals(
+                Float.floatToIntBits(alts.getAltitudes()[n]),
+                Float.floatToIntBits(kept.getAltitudes()[n]));
+        }
+    }
+
+    /**
+     * Test that the background and the sea are flat and that the land
+     * isn't
+     */
+    public void testNormals()
+    {
+        System.out.println("testNormals");
+        
+        OrthographicProjection proj =
+            new OrthographicProjection(createParameters());
+        
+        proj.setKeepAltitudes(true);
+        proj.project();
+        
+        int[] normals = new int[WIDTH * HEIGHT];
+        
+        proj.getNormals(1.0, normals, 0, WIDTH);
+        
+        float[] alts = proj.getAltitudes();
+        int sloped = 0;
+        
+        for (int n = 0; n < normals.length; ++n)
+        {
+            if (Float.isNaN(alts[n]))
+            {
+                assertEquals(FLAT, normals[n]);
+            }
+            else
+            {
+                // every normal points out of the surface
+                assertTrue((normals[n] & 0xff) >= 0x80);
+                
+                if (normals[n] != FLAT)
+                {
+                    ++sloped;
+                }
+            }
+        }
+        
+        assertEquals(FLAT, normals[0]);
+        assertTrue(sloped > 0);
+    }
+
+    /**
+     * Test that the normals are the same when they are made in parallel
+     */
+    public void testParallelMatchesSerial()
+    {
+        System.out.println("testParallelMatchesSerial");
+        
+        MercatorProjection proj = new MercatorProjection(createParameters());
+        
+        proj.setKeepAltitudes(true);
+        proj.project();
+        
+        int[] serial = new int[WIDTH * HEIGHT];
+        
+        proj.getNormals(4.0, serial, 0, WIDTH);
+        
+        AllPlanetParameters params = createParameters();
+        
+        params.getProjectionParameters().setParallel(true);
+        
+        proj = new MercatorProjection(params);
+        proj.setKeepAltitudes(true);
+        proj.project();
+        
+        int[] parallel = new int[WIDTH * HEIGHT];
+        
+        proj.getNormals(4.0, parallel, 0, WIDTH);
+        
+        for (int n = 0; n < serial.length; ++n)
+        {
+            assertEquals(serial[n], parallel[n]);
+        }
+    }
+
+    /**
+     * Test that normals can't be asked for if the altitudes weren't kept
+     */
+    public void testNoAltitudes()
+    {
+        System.out.println("testNoAltitudes");
+        
+        MercatorProjection proj = new MercatorProjection(createParameters());
+        
+        proj.project();
+        
+        try
+        {
+            proj.getNormals(1.0, new int[WIDTH * HEIGHT], 0, WIDTH);
+            
+            fail("Normals were made without altitudes");
+        }
+        catch (IllegalStateException ise)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * ParallelRenderTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 4:40 PM
+ */
+
+package com.alvermont.terraj.planet.project;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.TestParameters;
+import com.alvermont.terraj.planet.raster.ShortRaster;
+
+/**
+ * Test cases for generating the tiles of an image on several threads
+ */
+public class ParallelRenderTest extends TestCase
+{
+    // not a multiple of the tile size so the edge tiles are partial
+    private static final int WIDTH = 200;
+    
+    private static final int HEIGHT = 130;
+    
+    public ParallelRenderTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(ParallelRenderTest.class);
+        
+        return suite;
+    }
+
+    private AllPlanetParameters createParameters(boolean parallel)
+    {
+        AllPlanetParameters params =
+            TestParameters.create(0.37, WIDTH, HEIGHT, 25, 40);
+        
+        params.getProjectionParameters().setScale(1.2);
+        params.getProjectionParameters().setVgrid(30);
+        params.getProjectionParameters().setParallel(parallel);
+        
+        return params;
+    }
+
+    private short[] copy(ShortRaster raster)
+    {
+        short[] values = new short[WIDTH * HEIGHT];
+        
+        for (int j = 0; j < HEIGHT; ++j)
+        {
+            for (int i = 0; i < WIDTH; ++i)
+            {
+                values[(j * WIDTH) + i] = raster.get(i, j);
+            }
+        }
+        
+        return values;
+    }
+
+    private void assertSameRaster(String message, short[] expected,
+        short[] got)
+    {
+        for (int p = 0; p < expected.length; ++p)
+        {
+            if (expected[p] != got[p])
+            {
+                fail(message + " differs at " + (p % WIDTH) + "," +
+                    (p / WIDTH));
+            }
+        }
+    }
+
+    /**
+     * Test that every projection gives the same colours and shading when
+     * its tiles are generated in parallel as when they are generated in
+     * order
+     */
+    public void testSameRasters()
+    {
+        System.out.println("testSameRasters");
+        
+        ProjectionManager mgr = new ProjectionManager();
+        
+        for (Projector p : mgr.getProjections())
+        {
+            Projector proj = mgr.createProjector(p.toString());
+            AbstractProjector ap = (AbstractProjector) proj;
+            
+            proj.setParameters(createParameters(false));
+            proj.project();
+            
+            assertFalse(ap.isParallel());
+            
+            short[] colours = copy(ap.colours);
+            short[] shades = copy(ap.shades);
+            
+            proj.setParameters(createParameters(true));
+            proj.project();
+            
+            assertTrue(ap.isParallel());
+            
+            assertSameRaster(p + " colours", colours, copy(ap.colours));
+            assertSameRaster(p + " shades", shades, copy(ap.shades));
+            
+            proj.releaseResources();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * PointTableTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 12:30 PM
+ */
+
+package com.alvermont.terraj.planet.project;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.TestParameters;
+import java.util.Arrays;
+
+/**
+ * Test cases for the cached tables of pixel mappings
+ */
+public class PointTableTest extends TestCase
+{
+    private static final int WIDTH = 96;
+    
+    private static final int HEIGHT = 64;
+    
+    private long oldLimit;
+    
+    public PointTableTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+        oldLimit = PointTable.getCacheLimit();
+        
+        PointTable.clearCache();
+    }
+
+    protected void tearDown() throws Exception
+    {
+        PointTable.setCacheLimit(oldLimit);
+        PointTable.clearCache();
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(PointTableTest.class);
+        
+        return suite;
+    }
+
+    private AllPlanetParameters createParameters(double seed)
+    {
+        AllPlanetParameters params =
+            TestParameters.create(seed, WIDTH, HEIGHT, 30, -20);
+        
+        params.getProjectionParameters().setScale(1.5);
+        
+        return params;
+    }
+
+    private int[] render(Projector proj, AllPlanetParameters params)
+    {
+        AbstractProjector ap = (AbstractProjector) proj;
+        int[] rgb = new int[WIDTH * HEIGHT];
+        
+        ap.setRecordPoints(true);
+        ap.setParameters(params);
+        proj.project();
+        ap.getRGB(0, 0, WIDTH, HEIGHT, rgb, 0, WIDTH);
+        
+        return rgb;
+    }
+
+    /**
+     * Test that every projection gives the same image from a recorded
+     * table as it does when mapping the pixels itself
+     */
+    public void testSameImages()
+    {
+        System.out.println("testSameImages");
+        
+        ProjectionManager mgr = new ProjectionManager();
+        
+        for (Projector p : mgr.getProjections())
+        {
+            Projector proj = mgr.createProjector(p.toString());
+            
+            PointTable.setCacheLimit(0);
+            
+            int[] expected = render(proj, createParameters(0.62));
+            
+            PointTable.setCacheLimit(Long.MAX_VALUE);
+            
+            render(proj, createParameters(0.61));
+            
+            assertTrue(PointTable.getCacheSize() > 0);
+            
+            int[] got = render(proj, createParameters(0.62));
+            
+            assertTrue(p.toString(), Arrays.equals(expected, got));
+            
+            PointTable.clearCache();
+        }
+    }
+
+    /**
+     * Test that pixels exactly on the edge of the globe, which map to a
+     * point that is not a number, are still replayed as part of the planet
+     */
+    public void testPointsOnTheLimb()
+    {
+        System.out.println("testPointsOnTheLimb");
+        
+        Projector proj = new OrthographicProjection();
+        AllPlanetParameters params = TestParameters.create(0.1, 80, 60);
+        
+        int[] expected = new int[80 * 60];
+        int[] got = new int[80 * 60];
+        
+        ((AbstractProjector) proj).setRecordPoints(true);
+        proj.setParameters(params);
+        proj.project();
+        ((AbstractProjector) proj).getRGB(0, 0, 80, 60, expected, 0, 80);
+        
+        assertTrue(PointTable.getCacheSize() > 0);
+        
+        proj.project();
+        ((AbstractProjector) proj).getRGB(0, 0, 80, 60, got, 0, 80);
+        
+        assertTrue(Arrays.equals(expected, got));
+    }
+
+    /**
+     * Test that nothing is recorded unless a projector asks for it, but
+     * that a recorded table is still used
+     */
+    public void testRecordingOffByDefault()
+    {
+        System.out.println("testRecordingOffByDefault");
+        
+        OrthographicProjection proj =
+            new OrthographicProjection(createParameters(0.5));
+        
+        assertFalse(proj.isRecordPoints());
+        
+        proj.project();
+        
+        assertEquals(0, PointTable.getCacheSize());
+        
+        int[] expected = new int[WIDTH * HEIGHT];
+        
+        proj.getRGB(0, 0, WIDTH, HEIGHT, expected, 0, WIDTH);
+        
+        render(new OrthographicProjection(), createParameters(0.4));
+        
+        long size = PointTable.getCacheSize();
+        
+        assertTrue(size > 0);
+        
+        int[] got = new int[WIDTH * HEIGHT];
+        
+        proj.project();
+        proj.getRGB(0, 0, WIDTH, HEIGHT, got, 0, WIDTH);
+        
+        assertTrue(Arrays.equals(expected, got));
+        assertEquals(size, PointTable.getCacheSize());
+    }
+
+    /**
+     * Test that tables are only kept while they fit in the cache
+     */
+    public void testCacheLimit()
+    {
+        System.out.println("testCacheLimit");
+        
+        Projector proj = new MollweideProjection();
+        
+        PointTable.setCacheLimit(WIDTH * HEIGHT);
+        render(proj, createParameters(0.5));
+        
+        assertEquals(0, PointTable.getCacheSize());
+        
+        PointTable.setCacheLimit(Long.MAX_VALUE);
+        render(proj, createParameters(0.5));
+        
+        long size = PointTable.getCacheSize();
+        
+        assertTrue(size > 0);
+        
+        AllPlanetParameters moved = createParameters(0.5);
+        
+        moved.getProjectionParameters().setLon(10);
+        render(proj, moved);
+        
+        assertEquals(2 * size, PointTable.getCacheSize());
+        
+        PointTable.setCacheLimit(size);
+        
+        assertEquals(size, PointTable.getCacheSize());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * PostProcessorTest.java
+ * JUnit based test
+ *
+ * Created on October 17, 2026, 10:30 PM
+ */
+
+package com.alvermont.terraj.planet.project;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.raster.HeapShortRaster;
+import com.alvermont.terraj.planet.raster.ShortRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test cases for the post processing of images in bands
+ */
+public class PostProcessorTest extends TestCase
+{
+    private static final int WIDTH = 53;
+    private static final int HEIGHT = 211;
+    
+    private ForkJoinPool pool;
+    
+    public PostProcessorTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+        pool = new ForkJoinPool(4);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        pool.shutdown();
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(PostProcessorTest.class);
+        
+        return suite;
+    }
+
+    /**
+     * A stage that replaces each value with the sum of the values around it
+     * in a column, so any use of changed values shows up in the result
+     */
+    private static class SumStage extends PostStage
+    {
+        public SumStage(ShortRaster raster, int above, int below)
+        {
+            super(raster, above, below);
+        }
+
+        public boolean processRow(int j, short[][] rows, short[] result)
+        {
+            Arrays.fill(result, (short) 0);
+            
+            for (short[] row : rows)
+            {
+                if (row != null)
+                {
+                    for (int i = 0; i < result.length; ++i)
+                    {
+                        result[i] += row[i];
+                    }
+                }
+            }
+            
+            return (j % 5) != 0;
+        }
+    }
+
+    private ShortRaster createRaster(int seed)
+    {
+        ShortRaster raster = new HeapShortRaster(WIDTH, HEIGHT);
+        
+        for (int j = 0; j < HEIGHT; ++j)
+        {
+            for (int i = 0; i < WIDTH; ++i)
+            {
+                raster.set(i, j, (short) (((i * 7) + (j * 13) + seed) % 17));
+            }
+        }
+        
+        return raster;
+    }
+
+    /**
+     * Work out the result of a stage directly from a copy of the raster
+     */
+    private void applyDirectly(ShortRaster raster, int above, int below)
+    {
+        ShortRaster original = new HeapShortRaster(WIDTH, HEIGHT);
+        short[] row = new short[WIDTH];
+        
+        for (int j = 0; j < HEIGHT; ++j)
+        {
+            raster.getRow(j, row);
+            original.setRow(j, row);
+        }
+        
+        for (int j = 0; j < HEIGHT; ++j)
+        {
+            if ((j % 5) == 0)
+            {
+                continue;
+            }
+            
+            for (int i = 0; i < WIDTH; ++i)
+            {
+                short sum = 0;
+                
+                for (int y = j - above; y <= (j + below); ++y)
+                {
+                    if ((y >= 0) && (y < HEIGHT))
+                    {
+                        sum += original.get(i, y);
+                    }
+                }
+                
+                raster.set(i, j, sum);
+            }
+        }
+    }
+
+    private void assertSameRaster(ShortRaster expected, ShortRaster actual)
+    {
+        for (int j = 0; j < HEIGHT; ++j)
+        {
+            for (int i = 0; i < WIDTH; ++i)
+            {
+                assertEquals(expected.get(i, j), actual.get(i, j));
+            }
+        }
+    }
+
+    /**
+     * Test that stages on different rasters and chained stages on the same
+     * raster give the same results in bands as when done directly
+     */
+    public void testStagesInBands()
+    {
+        System.out.println("stagesInBands");
+        
+        for (int mode = 0; mode < 2; ++mode)
+        {
+            ShortRaster first = createRaster(1);
+            ShortRaster second = createRaster(2);
+            
+            List<PostStage> stages = new ArrayList<PostStage>();
+            
+            stages.add(new SumStage(first, 1, 1));
+            stages.add(new SumStage(second, 0, 2));
+            stages.add(new SumStage(first, 3, 0));
+            
+            new PostProcessor(stages).run((mode == 0) ? null : pool);
+            
+            ShortRaster expectedFirst = createRaster(1);
+            ShortRaster expectedSecond = createRaster(2);
+            
+            applyDirectly(expectedFirst, 1, 1);
+            applyDirectly(expectedSecond, 0, 2);
+            applyDirectly(expectedFirst, 3, 0);
+            
+            assertSameRaster(expectedFirst, first);
+            assertSameRaster(expectedSecond, second);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * ProjectBandsTest.java
+ * JUnit based test
+ *
+ * Created on October 17, 2026, 3:20 PM
+ */
+
+package com.alvermont.terraj.planet.project;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.TestParameters;
+import com.alvermont.terraj.planet.ProjectionParameters;
+
+/**
+ * Test cases for rendering projections a band of rows at a time
+ */
+public class ProjectBandsTest extends TestCase
+{
+    private static final int WIDTH = 96;
+    private static final int HEIGHT = 72;
+    
+    public ProjectBandsTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(ProjectBandsTest.class);
+        
+        return suite;
+    }
+
+    /**
+     * Create parameters that use shading, grid lines and outlines so that
+     * every stage that looks at neighbouring rows is exercised
+     */
+    private AllPlanetParameters createParameters()
+    {
+        AllPlanetParameters params =
+            TestParameters.create(0.789, WIDTH, HEIGHT);
+        ProjectionParameters pp = params.getProjectionParameters();
+        
+        pp.setHgrid(20);
+        pp.setVgrid(30);
+        pp.setEdges(true);
+        pp.setReverseBackground(true);
+        
+        return params;
+    }
+
+    /**
+     * Test that the bands are the same as the image produced in one go
+     */
+    public void testBandsMatchProject() throws Exception
+    {
+        System.out.println("bandsMatchProject");
+        
+        Projector[] projectors =
+            {
+                new OrthographicProjection(), new MercatorProjection(),
+                new SquareProjection()
+            };
+        
+        int[] col = new int[3];
+        
+        for (Projector proj : projectors)
+        {
+            proj.setParameters(createParameters());
+            proj.project();
+            
+            final int[] expected = new int[WIDTH * HEIGHT];
+            
+            for (int j = 0; j < HEIGHT; ++j)
+            {
+                for (int i = 0; i < WIDTH; ++i)
+                {
+                    proj.fillRGB(i, j, col);
+                    
+                    expected[(j * WIDTH) + i] =
+                        (col[0] << 16) | (col[1] << 8) | col[2];
+                }
+            }
+            
+            for (int bandHeight = 1; bandHeight <= HEIGHT; bandHeight *= 3)
+            {
+                final int[] actual = new int[WIDTH * HEIGHT];
+                final int[] nextRow = new int[1];
+                
+                proj.projectBands(
+                    bandHeight,
+                    new BandConsumer()
+                    {
+                        public void startImage(int width, int height)
+                        {
+                            assertEquals(WIDTH, width);
+                            assertEquals(HEIGHT, height);
+                        }
+
+                        public void writeBand(int y, int rows, int[] rgb)
+                        {
+                            assertEquals(nextRow[0], y);
+                            
+                            System.arraycopy(
+                                rgb, 0, actual, y * WIDTH, rows * WIDTH);
+                            
+                            nextRow[0] += rows;
+                        }
+
+                        public void endImage()
+                        {
+                            assertEquals(HEIGHT, nextRow[0]);
+                        }
+                    });
+                
+                for (int k = 0; k < expected.length; ++k)
+                {
+                    assertEquals(
+                        proj + " band " + bandHeight + " pixel " + k,
+                        expected[k], actual[k]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * ProjectRegionTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 6:10 PM
+ */
+
+package com.alvermont.terraj.planet.project;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.TestParameters;
+
+/**
+ * Test cases for rendering regions of an image
+ */
+public class ProjectRegionTest extends TestCase
+{
+    private static final int WIDTH = 150;
+    
+    private static final int HEIGHT = 100;
+    
+    private static final int[][] REGIONS =
+    {
+        { 0, 0, 30, 20 }, { 57, 41, 33, 17 }, { 120, 80, 30, 20 },
+        { 0, 50, WIDTH, 1 }, { 149, 0, 1, HEIGHT }
+    };
+    
+    public ProjectRegionTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(ProjectRegionTest.class);
+        
+        return suite;
+    }
+
+    private AllPlanetParameters createParameters()
+    {
+        AllPlanetParameters params =
+            TestParameters.create(0.345, WIDTH, HEIGHT, 35, 10);
+        
+        params.getProjectionParameters().setEdges(true);
+        params.getProjectionParameters().setHgrid(15);
+        params.getProjectionParameters().setVgrid(20);
+        params.getProjectionParameters().setScale(1.3);
+        
+        return params;
+    }
+
+    /**
+     * Test that regions of every projection are the same as the
+     * corresponding parts of the whole image
+     */
+    public void testRegionsMatchImage()
+    {
+        System.out.println("testRegionsMatchImage");
+        
+        ProjectionManager mgr = new ProjectionManager();
+        
+        for (Projector p : mgr.getProjections())
+        {
+            AbstractProjector proj =
+                (AbstractProjector) mgr.createProjector(p.toString());
+            
+            AllPlanetParameters params = createParameters();
+            
+            if (proj instanceof MollweideProjection)
+            {
+                // horizontal grid lines always fail on this projection
+                params.getProjectionParameters().setHgrid(0);
+            }
+            
+            proj.setParameters(params);
+            ((Projector) proj).project();
+            
+            int[] whole = new int[WIDTH * HEIGHT];
+            
+            proj.getRGB(0, 0, WIDTH, HEIGHT, whole, 0, WIDTH);
+            
+            for (int[] r : REGIONS)
+            {
+                int[] region = new int[r[2] * r[3]];
+                
+                proj.projectRegion(r[0], r[1], r[2], r[3], region);
+                
+                for (int j = 0; j < r[3]; ++j)
+                {
+                    for (int i = 0; i < r[2]; ++i)
+                    {
+                        assertEquals(
+                            p + " at " + (r[0] + i) + "," + (r[1] + j),
+                            whole[((r[1] + j) * WIDTH) + r[0] + i] & 0xffffff,
+                            region[(j * r[2]) + i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that a small region of a very large image can be rendered and
+     * that regions outside the image are rejected
+     */
+    public void testLargeImage()
+    {
+        System.out.println("testLargeImage");
+        
+        AllPlanetParameters params = createParameters();
+        
+        params.getProjectionParameters().setWidth(1 << 20);
+        params.getProjectionParameters().setHeight(1 << 20);
+        params.getProjectionParameters().setHgrid(0);
+        params.getProjectionParameters().setVgrid(0);
+        params.getProjectionParameters().setScale(50);
+        
+        OrthographicProjection proj = new OrthographicProjection(params);
+        int[] region = new int[16 * 16];
+        
+        proj.projectRegion(1 << 19, 1 << 19, 16, 16, region);
+        
+        try
+        {
+            proj.projectRegion((1 << 20) - 8, 0, 16, 16, region);
+            
+            fail("Expected an IllegalArgumentException");
+        }
+        catch (IllegalArgumentException iae)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * ProjectionManagerTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 10:05 AM
+ */
+
+package com.alvermont.terraj.planet.project;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.TestParameters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test cases for the projection manager
+ */
+public class ProjectionManagerTest extends TestCase
+{
+    private static final String NAME = "Orthographic Projection";
+    
+    public ProjectionManagerTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(ProjectionManagerTest.class);
+        
+        return suite;
+    }
+
+    private AllPlanetParameters createParameters(double seed)
+    {
+        return TestParameters.create(seed, 80, 60);
+    }
+
+    private int[] render(Projector proj, AllPlanetParameters params)
+    {
+        AbstractProjector ap = (AbstractProjector) proj;
+        int[] rgb = new int[80 * 60];
+        
+        ap.setParameters(params);
+        proj.project();
+        ap.getRGB(0, 0, 80, 60, rgb, 0, 80);
+        
+        return rgb;
+    }
+
+    /**
+     * Test that the pool hands out separate instances and reuses returned
+     * ones
+     */
+    public void testAcquireAndRelease() throws Exception
+    {
+        System.out.println("testAcquireAndRelease");
+        
+        ProjectionManager mgr = new ProjectionManager();
+        
+        mgr.setPoolSize(2);
+        
+        Projector a = mgr.acquire(NAME);
+        Projector b = mgr.acquire(NAME);
+        
+        assertNotSame(a, b);
+        assertNotSame(mgr.findByName(NAME), a);
+        assertNotSame(mgr.createProjector(NAME), a);
+        assertNull(mgr.createProjector("No Such Projection"));
+        
+        mgr.release(a);
+        
+        assertSame(a, mgr.acquire(NAME));
+        
+        try
+        {
+            mgr.release(mgr.createProjector(NAME));
+            
+            fail("Expected an IllegalArgumentException");
+        }
+        catch (IllegalArgumentException iae)
+        {
+            // expected
+        }
+        
+        try
+        {
+            mgr.acquire("No Such Projection");
+            
+            fail("Expected a NoSuchElementException");
+        }
+        catch (NoSuchElementException nse)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Test that no more than the pool size of instances are in use at once
+     */
+    public void testPoolIsBounded() throws Exception
+    {
+        System.out.println("testPoolIsBounded");
+        
+        final ProjectionManager mgr = new ProjectionManager();
+        
+        mgr.setPoolSize(1);
+        
+        final Projector first = mgr.acquire(NAME);
+        
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        
+        try
+        {
+            Future<Projector> waiting =
+                pool.submit(
+                    new Callable<Projector>()
+                    {
+                        public Projector call() throws Exception
+                        {
+                            return mgr.acquire(NAME);
+                        }
+                    });
+            
+            Thread.sleep(100);
+            
+            assertFalse(waiting.isDone());
+            
+            mgr.release(first);
+            
+            assertSame(first, waiting.get(10, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that renders running at the same time on pooled instances give
+     * the same images as renders run one after another
+     */
+    public void testConcurrentRenders() throws Exception
+    {
+        System.out.println("testConcurrentRenders");
+        
+        final ProjectionManager mgr = new ProjectionManager();
+        final double[] seeds = { 0.1, 0.2, 0.3, 0.4 };
+        final List<int[]> expected = new ArrayList<int[]>();
+        
+        for (double seed : seeds)
+        {
+            expected.add(render(mgr.createProjector(NAME), createParameters(seed)));
+        }
+        
+        mgr.setPoolSize(seeds.length);
+        
+        ExecutorService pool = Executors.newFixedThreadPool(seeds.length);
+        
+        try
+        {
+            List<Future<int[]>> results = new ArrayList<Future<int[]>>();
+            
+            for (final double seed : seeds)
+            {
+                results.add(
+                    pool.submit(
+                        new Callable<int[]>()
+                        {
+                            public int[] call() throws Exception
+                            {
+                                Projector proj = mgr.acquire(NAME);
+                                
+                                try
+                                {
+                                    return render(proj, createParameters(seed));
+                                }
+                                finally
+                                {
+                                    mgr.release(proj);
+                                }
+                            }
+                        }));
+            }
+            
+            for (int i = 0; i < seeds.length; ++i)
+            {
+                int[] got = results.get(i).get();
+                
+                assertTrue(Arrays.equals(expected.get(i), got));
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * RecolourTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 7:10 PM
+ */
+
+package com.alvermont.terraj.planet.project;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.TestParameters;
+import com.alvermont.terraj.planet.ProjectionParameters;
+import java.util.Arrays;
+
+/**
+ * Test cases for colouring a render again from its kept altitudes
+ */
+public class RecolourTest extends TestCase
+{
+    private static final int WIDTH = 160;
+    
+    private static final int HEIGHT = 120;
+    
+    public RecolourTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(RecolourTest.class);
+        
+        return suite;
+    }
+
+    private AllPlanetParameters createParameters()
+    {
+        AllPlanetParameters params =
+            TestParameters.create(0.321, WIDTH, HEIGHT, 30, 20);
+        
+        params.getProjectionParameters().setVgrid(45);
+        params.getProjectionParameters().setEdges(true);
+        
+        return params;
+    }
+
+    private void changeColouring(ProjectionParameters pp)
+    {
+        int[][] colours = pp.getColors();
+        
+        colours[0][2] = 96;
+        colours[2][1] = 160;
+        
+        pp.setColors(colours);
+        pp.setAltColors(true);
+        pp.setLatic(true);
+        pp.setOutline(true);
+        pp.setReverseBackground(true);
+    }
+
+    private AbstractProjector render(
+        ProjectionManager mgr, String name, AllPlanetParameters params,
+        boolean recolourable)
+    {
+        AbstractProjector proj =
+            (AbstractProjector) mgr.createProjector(name);
+        
+        proj.setParameters(params);
+        proj.setRecolourable(recolourable);
+        ((Projector) proj).project();
+        
+        return proj;
+    }
+
+    private int[] getImage(AbstractProjector proj)
+    {
+        int[] rgb = new int[WIDTH * HEIGHT];
+        
+        proj.getRGB(0, 0, WIDTH, HEIGHT, rgb, 0, WIDTH);
+        
+        return rgb;
+    }
+
+    private void assertSameImage(String name, int[] expected, int[] actual)
+    {
+        for (int n = 0; n < expected.length; ++n)
+        {
+            assertEquals(name, expected[n], actual[n]);
+        }
+    }
+
+    /**
+     * Test that recolouring every projection gives the same image as
+     * rendering it with the new colours, and that recolouring with the
+     * original colours gives back the original image. The images are
+     * compared with renders that don't keep anything for recolouring, so
+     * this also checks that keeping it doesn't change the image.
+     */
+    public void testMatchesRender()
+    {
+        System.out.println("testMatchesRender");
+        
+        ProjectionManager mgr = new ProjectionManager();
+        
+        for (Projector p : mgr.getProjections())
+        {
+            String name = p.toString();
+            
+            AllPlanetParameters params = createParameters();
+            AbstractProjector proj = render(mgr, name, params, true);
+            int[] original = getImage(render(mgr, name, params, false));
+            
+            assertSameImage(name, original, getImage(proj));
+            
+            AllPlanetParameters changed = createParameters();
+            
+            changeColouring(changed.getProjectionParameters());
+            
+            int[] expected = getImage(render(mgr, name, changed, false));
+            
+            assertFalse(name, Arrays.equals(original, expected));
+            
+            changeColouring(params.getProjectionParameters());
+            proj.recolour();
+            
+            assertSameImage(name, expected, getImage(proj));
+            
+            proj.setParameters(createParameters());
+            proj.recolour();
+            
+            assertSameImage(name, original, getImage(proj));
+        }
+    }
+
+    /**
+     * Test that recolouring in parallel gives the same image
+     */
+    public void testParallelMatchesSerial()
+    {
+        System.out.println("testParallelMatchesSerial");
+        
+        ProjectionManager mgr = new ProjectionManager();
+        
+        AllPlanetParameters params = createParameters();
+        AbstractProjector proj = render(mgr, "Orthographic Projection", params, true);
+        
+        changeColouring(params.getProjectionParameters());
+        proj.recolour();
+        
+        int[] serial = getImage(proj);
+        
+        params = createParameters();
+        params.getProjectionParameters().setParallel(true);
+        proj = render(mgr, "Orthographic Projection", params, true);
+        
+        changeColouring(params.getProjectionParameters());
+        proj.recolour();
+        
+        assertSameImage("parallel", serial, getImage(proj));
+    }
+
+    /**
+     * Test that a render that wasn't made recolourable can't be recoloured,
+     * even if it kept the altitudes used for normal maps
+     */
+    public void testNoAltitudes()
+    {
+        System.out.println("testNoAltitudes");
+        
+        OrthographicProjection proj =
+            new OrthographicProjection(createParameters());
+        
+        proj.setKeepAltitudes(true);
+        proj.project();
+        
+        try
+        {
+            proj.recolour();
+            
+            fail("Render was recoloured without altitudes");
+        }
+        catch (IllegalStateException ise)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * TerrainStatisticsTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 4:50 PM
+ */
+
+package com.alvermont.terraj.planet.project;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.TestParameters;
+import java.util.Arrays;
+
+/**
+ * Test cases for the terrain statistics gathered during projection
+ */
+public class TerrainStatisticsTest extends TestCase
+{
+    private static final int WIDTH = 120;
+    
+    private static final int HEIGHT = 90;
+    
+    public TerrainStatisticsTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TerrainStatisticsTest.class);
+        
+        return suite;
+    }
+
+    private AllPlanetParameters createParameters(boolean parallel)
+    {
+        AllPlanetParameters params =
+            TestParameters.create(0.77, WIDTH, HEIGHT, 20, 0);
+        
+        params.getProjectionParameters().setParallel(parallel);
+        
+        return params;
+    }
+
+    private void assertSameStatistics(TerrainStatistics a, TerrainStatistics b)
+    {
+        assertTrue(Arrays.equals(a.getHistogram(), b.getHistogram()));
+        assertTrue(Arrays.equals(a.getColourCounts(), b.getColourCounts()));
+        assertEquals(a.getLandCount(), b.getLandCount());
+        assertEquals(a.getSeaCount(), b.getSeaCount());
+        assertEquals(a.getBackgroundCount(), b.getBackgroundCount());
+        
+        for (int band = 0; band < a.getLatitudeBands(); ++band)
+        {
+            assertEquals(a.getBandCount(band), b.getBandCount(band));
+            assertEquals(a.getBandMinimum(band), b.getBandMinimum(band), 0.0);
+            assertEquals(a.getBandMaximum(band), b.getBandMaximum(band), 0.0);
+            assertEquals(a.getBandMean(band), b.getBandMean(band), 1e-12);
+        }
+    }
+
+    /**
+     * Test that the counts cover every pixel once and agree with the image
+     */
+    public void testCounts()
+    {
+        System.out.println("testCounts");
+        
+        OrthographicProjection proj =
+            new OrthographicProjection(createParameters(false));
+        
+        assertNull(proj.getStatistics());
+        
+        proj.setCollectStatistics(true);
+        proj.project();
+        
+        TerrainStatistics stats = proj.getStatistics();
+        long[] colours = stats.getColourCounts();
+        long total = 0;
+        long histogramTotal = 0;
+        long bandTotal = 0;
+        
+        for (long c : colours)
+        {
+            total += c;
+        }
+        
+        for (long h : stats.getHistogram())
+        {
+            histogramTotal += h;
+        }
+        
+        for (int band = 0; band < stats.getLatitudeBands(); ++band)
+        {
+            bandTotal += stats.getBandCount(band);
+            
+            if (stats.getBandCount(band) > 0)
+            {
+                assertTrue(stats.getBandMinimum(band) <= stats.getBandMean(band));
+                assertTrue(stats.getBandMean(band) <= stats.getBandMaximum(band));
+            }
+        }
+        
+        assertEquals(WIDTH * HEIGHT, total);
+        assertEquals(WIDTH * HEIGHT, histogramTotal + stats.getBackgroundCount());
+        assertEquals(histogramTotal, stats.getLandCount() + stats.getSeaCount());
+        assertEquals(histogramTotal, bandTotal);
+        assertTrue(stats.getBackgroundCount() > 0);
+        assertTrue(stats.getLandFraction() > 0 && stats.getLandFraction() < 1);
+        
+        proj.setCollectStatistics(false);
+        proj.project();
+        
+        assertNull(proj.getStatistics());
+    }
+
+    /**
+     * Test that the statistics are the same whether the image is generated
+     * by one thread, by several or a band at a time
+     */
+    public void testSameStatistics() throws Exception
+    {
+        System.out.println("testSameStatistics");
+        
+        MercatorProjection serial =
+            new MercatorProjection(createParameters(false));
+        MercatorProjection parallel =
+            new MercatorProjection(createParameters(true));
+        MercatorProjection bands =
+            new MercatorProjection(createParameters(false));
+        
+        serial.setCollectStatistics(true);
+        parallel.setCollectStatistics(true);
+        bands.setCollectStatistics(true);
+        
+        serial.project();
+        parallel.project();
+        bands.projectBands(
+            7,
+            new BandConsumer()
+            {
+                public void startImage(int width, int height)
+                {
+                }
+
+                public void writeBand(int y, int rows, int[] rgb)
+                {
+                }
+
+                public void endImage()
+                {
+                }
+            });
+        
+        assertSameStatistics(serial.getStatistics(), parallel.getStatistics());
+        assertSameStatistics(serial.getStatistics(), bands.getStatistics());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * TileGeneratorTest.java
+ * JUnit based test
+ *
+ * Created on October 17, 2026, 9:05 PM
+ */
+
+package com.alvermont.terraj.planet.project;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.TestParameters;
+
+/**
+ * Test cases for the map tile generator
+ */
+public class TileGeneratorTest extends TestCase
+{
+    
+    public TileGeneratorTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(TileGeneratorTest.class);
+        
+        return suite;
+    }
+
+    /**
+     * Test that the tiles are the same as the corresponding parts of the
+     * whole map
+     */
+    public void testTilesMatchMap()
+    {
+        System.out.println("tilesMatchMap");
+        
+        final int size = 2 * TileGenerator.TILE_SIZE;
+        AllPlanetParameters params =
+            TestParameters.create(0.321, size, size, 0, 45);
+        
+        params.getProjectionParameters().setHgrid(30);
+        
+        TileGenerator tiles = new TileGenerator(params);
+        
+        MercatorProjection map = new MercatorProjection(params);
+        
+        map.project();
+        
+        int[] col = new int[3];
+        
+        for (int x = 0; x < 2; ++x)
+        {
+            for (int y = 0; y < 2; ++y)
+            {
+                int[] tile = tiles.renderTile(1, x, y);
+                
+                for (int j = 0; j < TileGenerator.TILE_SIZE; ++j)
+                {
+                    for (int i = 0; i < TileGenerator.TILE_SIZE; ++i)
+                    {
+                        map.fillRGB(
+                            (x * TileGenerator.TILE_SIZE) + i,
+                            (y * TileGenerator.TILE_SIZE) + j, col);
+                        
+                        assertEquals(
+                            (col[0] << 16) | (col[1] << 8) | col[2],
+                            tile[(j * TileGenerator.TILE_SIZE) + i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that the key changes with everything that changes how the tiles
+     * are drawn, and not with what the zoom level sets
+     */
+    public void testKey()
+    {
+        System.out.println("key");
+        
+        AllPlanetParameters params = new AllPlanetParameters();
+        String key = new TileGenerator(params).getKey();
+        
+        AllPlanetParameters other = new AllPlanetParameters(params);
+        
+        other.getProjectionParameters().setWidth(1234);
+        other.getProjectionParameters().setLat(12);
+        other.getProjectionParameters().setScale(3);
+        
+        assertEquals(key, new TileGenerator(other).getKey());
+        
+        other = new AllPlanetParameters(params);
+        other.getProjectionParameters().setOutline(true);
+        assertFalse(key.equals(new TileGenerator(other).getKey()));
+        
+        other = new AllPlanetParameters(params);
+        other.getProjectionParameters().setEdges(true);
+        assertFalse(key.equals(new TileGenerator(other).getKey()));
+        
+        other = new AllPlanetParameters(params);
+        other.getProjectionParameters().setAltitudeOnly(true);
+        assertFalse(key.equals(new TileGenerator(other).getKey()));
+        
+        other = new AllPlanetParameters(params);
+        other.getProjectionParameters().setIterative(
+            !params.getProjectionParameters().isIterative());
+        assertFalse(key.equals(new TileGenerator(other).getKey()));
+        
+        other = new AllPlanetParameters(params);
+        other.getProjectionParameters().setAltitudeGridFile("grid.bin");
+        assertFalse(key.equals(new TileGenerator(other).getKey()));
+    }
+
+    /**
+     * Test that tiles outside the map are rejected
+     */
+    public void testInvalidTile()
+    {
+        System.out.println("invalidTile");
+        
+        TileGenerator tiles = new TileGenerator(new AllPlanetParameters());
+        
+        try
+        {
+            tiles.renderTile(2, 4, 0);
+            
+            fail("Tile outside the map was accepted");
+        }
+        catch (IllegalArgumentException iae)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * ShortRasterTest.java
+ * JUnit based test
+ *
+ * Created on October 17, 2026, 5:30 PM
+ */
+
+package com.alvermont.terraj.planet.raster;
+
+import junit.framework.*;
+
+/**
+ * Test cases for the raster implementations
+ */
+public class ShortRasterTest extends TestCase
+{
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+    
+    public ShortRasterTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(ShortRasterTest.class);
+        
+        return suite;
+    }
+
+    /**
+     * Check that values and rows can be stored and retrieved
+     */
+    private void checkRaster(ShortRaster raster)
+    {
+        assertEquals(WIDTH, raster.getWidth());
+        assertEquals(HEIGHT, raster.getHeight());
+        
+        for (int y = 0; y < HEIGHT; ++y)
+        {
+            for (int x = 0; x < WIDTH; ++x)
+            {
+                assertEquals(0, raster.get(x, y));
+                
+                raster.set(x, y, (short) ((y * 1000) + x));
+            }
+        }
+        
+        short[] row = new short[WIDTH];
+        
+        raster.getRow(7, row);
+        
+        for (int x = 0; x < WIDTH; ++x)
+        {
+            assertEquals((short) (7000 + x), row[x]);
+            
+            row[x] = (short) -x;
+        }
+        
+        raster.setRow(HEIGHT - 1, row);
+        
+        for (int x = 0; x < WIDTH; ++x)
+        {
+            assertEquals((short) -x, raster.get(x, HEIGHT - 1));
+            assertEquals((short) (((HEIGHT - 2) * 1000) + x),
+                raster.get(x, HEIGHT - 2));
+        }
+        
+        raster.fill((short) 255);
+        
+        assertEquals(255, raster.get(0, 0));
+        assertEquals(255, raster.get(WIDTH - 1, HEIGHT - 1));
+        
+        raster.release();
+    }
+
+    /**
+     * Test the raster held on the heap
+     */
+    public void testHeap()
+    {
+        System.out.println("heap");
+        
+        checkRaster(new HeapShortRaster(WIDTH, HEIGHT));
+    }
+
+    /**
+     * Test the raster held in direct buffers
+     */
+    public void testDirect()
+    {
+        System.out.println("direct");
+        
+        checkRaster(new BufferShortRaster(WIDTH, HEIGHT));
+    }
+
+    /**
+     * Test the raster held in a mapped file
+     */
+    public void testMapped() throws Exception
+    {
+        System.out.println("mapped");
+        
+        checkRaster(new MappedShortRaster(WIDTH, HEIGHT, null));
+    }
+
+    /**
+     * Test that the factory chooses the storage by size
+     */
+    public void testFactory()
+    {
+        System.out.println("factory");
+        
+        RasterFactory factory = new RasterFactory();
+        
+        factory.setHeapLimit(2 * WIDTH * HEIGHT);
+        factory.setDirectLimit(4 * WIDTH * HEIGHT);
+        
+        ShortRaster raster = factory.createShortRaster(WIDTH, HEIGHT);
+        
+        assertTrue(raster instanceof HeapShortRaster);
+        raster.release();
+        
+        raster = factory.createShortRaster(WIDTH, 2 * HEIGHT);
+        
+        assertEquals(BufferShortRaster.class, raster.getClass());
+        raster.release();
+        
+        raster = factory.createShortRaster(WIDTH, 3 * HEIGHT);
+        
+        assertTrue(raster instanceof MappedShortRaster);
+        raster.release();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * PlanetCLITest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 10:15 PM
+ */
+
+package com.alvermont.terraj.planet.ui;
+
+import junit.framework.*;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * Test cases for the batch mode of the command line interface
+ */
+public class PlanetCLITest extends TestCase
+{
+    private File dir;
+    
+    public PlanetCLITest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+        dir = File.createTempFile("jobs", "");
+        dir.delete();
+        dir.mkdir();
+    }
+
+    protected void tearDown() throws Exception
+    {
+        File[] files = dir.listFiles();
+        
+        for (int f = 0; f < files.length; ++f)
+        {
+            files[f].delete();
+        }
+        
+        dir.delete();
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(PlanetCLITest.class);
+        
+        return suite;
+    }
+
+    /**
+     * Test that the lines of a job file are split into arguments, keeping
+     * quoted spaces
+     */
+    public void testSplitArguments()
+    {
+        System.out.println("testSplitArguments");
+        
+        PlanetCLI cli = new PlanetCLI();
+        
+        assertTrue(
+            Arrays.equals(
+                new String[] { "-s", "0.5", "-o", "my map.png" },
+                cli.splitArguments("  -s 0.5\t-o \"my map.png\"  ")));
+        
+        assertTrue(
+            Arrays.equals(
+                new String[] { "-o", "" }, cli.splitArguments("-o \"\"")));
+        
+        assertEquals(0, cli.splitArguments("   ").length);
+    }
+
+    /**
+     * Test that the jobs of a file are run, that invalid lines fail, and
+     * that options changing how the batch is run are rejected
+     */
+    public void testRunJobs() throws Exception
+    {
+        System.out.println("testRunJobs");
+        
+        PlanetCLI cli = new PlanetCLI();
+        
+        AllPlanetParameters defaults = new AllPlanetParameters();
+        
+        defaults.getProjectionParameters().setWidth(40);
+        defaults.getProjectionParameters().setHeight(30);
+        
+        File first = new File(dir, "first.png");
+        File second = new File(dir, "second map.png");
+        File workers = new File(dir, "workers.png");
+        File jobs = new File(dir, "jobs.png");
+        
+        String lines =
+            "# a comment\n" +
+            "\n" +
+            "-s 0.1 -o \"" + first + "\"\n" +
+            "-s 0.2 -p \"Mercator Projection\" -o \"" + second + "\"\n" +
+            "-s zero -o \"" + new File(dir, "bad.png") + "\"\n" +
+            "-s 0.3 -W 1 -o \"" + workers + "\"\n" +
+            "-s 0.4 -J other.txt -o \"" + jobs + "\"\n";
+        
+        int failures =
+            cli.runJobs(new BufferedReader(new StringReader(lines)), defaults);
+        
+        assertEquals(3, failures);
+        assertTrue(first.length() > 0);
+        assertTrue(second.length() > 0);
+        assertFalse(workers.exists());
+        assertFalse(jobs.exists());
+    }
+}
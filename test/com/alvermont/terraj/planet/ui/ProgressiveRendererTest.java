@@ -0,0 +1,361 @@
+/*
+ * ProgressiveRendererTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 5:20 PM
+ */
+
+package com.alvermont.terraj.planet.ui;
+
+import junit.framework.*;
+import com.alvermont.terraj.fracplanet.util.DummyProgress;
+import com.alvermont.terraj.planet.AllPlanetParameters;
+import com.alvermont.terraj.planet.project.MercatorProjection;
+import com.alvermont.terraj.planet.project.ProjectionManager;
+import com.alvermont.terraj.planet.project.Projector;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+
+/**
+ * Test cases for the renderer that shows a projection in passes of
+ * increasing resolution
+ */
+public class ProgressiveRendererTest extends TestCase
+{
+    private GateManager manager;
+    
+    private ProgressiveRenderer renderer;
+    
+    public ProgressiveRendererTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+        manager = new GateManager();
+        renderer = new ProgressiveRenderer(manager);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        renderer.shutdown();
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(ProgressiveRendererTest.class);
+        
+        return suite;
+    }
+
+    /**
+     * A Mercator projection that can be held up part of the way through
+     * generating its terrain
+     */
+    private static class GateProjection extends MercatorProjection
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        
+        GateProjection(boolean gated)
+        {
+            if (gated)
+            {
+                setProgress(new DummyProgress()
+                {
+                    public void progressStep(int step)
+                    {
+                        started.countDown();
+                        
+                        try
+                        {
+                            proceed.await(10, TimeUnit.SECONDS);
+                        }
+                        catch (InterruptedException ie)
+                        {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * A projection manager that hands out Mercator projections and can
+     * hold up the one for a chosen pass
+     */
+    private static class GateManager extends ProjectionManager
+    {
+        List<GateProjection> created =
+            Collections.synchronizedList(new ArrayList<GateProjection>());
+        CountDownLatch secondPass = new CountDownLatch(1);
+        volatile int gatedPass = -1;
+        
+        public Projector createProjector(String name)
+        {
+            final GateProjection proj =
+                new GateProjection(created.size() == gatedPass);
+            
+            created.add(proj);
+            
+            if (created.size() == 2)
+            {
+                secondPass.countDown();
+            }
+            
+            return proj;
+        }
+    }
+
+    /**
+     * A listener that records the passes it is told about
+     */
+    private static class Recorder implements ProgressiveRenderer.StageListener
+    {
+        List<Integer> divisors =
+            Collections.synchronizedList(new ArrayList<Integer>());
+        List<String> sizes =
+            Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        
+        public void stageRendered(BufferedImage image, int divisor)
+        {
+            divisors.add(divisor);
+            sizes.add(image.getWidth() + "x" + image.getHeight());
+            
+            first.countDown();
+            
+            if (divisor == 1)
+            {
+                done.countDown();
+            }
+        }
+    }
+
+    private AllPlanetParameters createParameters(int width, int height)
+    {
+        AllPlanetParameters params = new AllPlanetParameters();
+        
+        params.getProjectionParameters().setWidth(width);
+        params.getProjectionParameters().setHeight(height);
+        
+        return params;
+    }
+
+    /**
+     * Wait until everything posted to the event thread so far has run
+     */
+    private void flushEvents() throws Exception
+    {
+        SwingUtilities.invokeAndWait(new Runnable()
+        {
+            public void run()
+            {
+            }
+        });
+    }
+
+    /**
+     * Test that each pass is delivered in order at the full size
+     */
+    public void testPasses() throws Exception
+    {
+        System.out.println("testPasses");
+        
+        Recorder listener = new Recorder();
+        
+        renderer.render(createParameters(160, 80), listener);
+        
+        assertTrue(listener.done.await(30, TimeUnit.SECONDS));
+        flushEvents();
+        
+        assertEquals(Arrays.asList(8, 4, 2, 1), listener.divisors);
+        assertEquals(
+            Arrays.asList("160x80", "160x80", "160x80", "160x80"),
+            listener.sizes);
+        assertEquals(4, manager.created.size());
+        
+        for (GateProjection proj : manager.created)
+        {
+            assertTrue(proj.isParallel());
+        }
+    }
+
+    /**
+     * Test that passes which would be no wider than the one before are
+     * skipped
+     */
+    public void testDuplicateWidths() throws Exception
+    {
+        System.out.println("testDuplicateWidths");
+        
+        Recorder listener = new Recorder();
+        
+        // widths of 1, 1, 3 and 6 pixels
+        renderer.render(createParameters(6, 4), listener);
+        
+        assertTrue(listener.done.await(30, TimeUnit.SECONDS));
+        flushEvents();
+        
+        assertEquals(Arrays.asList(8, 2, 1), listener.divisors);
+        assertEquals(Arrays.asList("6x4", "6x4", "6x4"), listener.sizes);
+        assertEquals(3, manager.created.size());
+    }
+
+    /**
+     * Test that starting a render cancels the pass that is being generated
+     * and that nothing more of the old render is delivered
+     */
+    public void testRenderCancelsPass() throws Exception
+    {
+        System.out.println("testRenderCancelsPass");
+        
+        manager.gatedPass = 1;
+        
+        Recorder oldListener = new Recorder();
+        Recorder newListener = new Recorder();
+        
+        renderer.render(createParameters(160, 80), oldListener);
+        
+        assertTrue(oldListener.first.await(30, TimeUnit.SECONDS));
+        assertTrue(manager.secondPass.await(30, TimeUnit.SECONDS));
+        
+        GateProjection gated = manager.created.get(1);
+        
+        assertTrue(gated.started.await(30, TimeUnit.SECONDS));
+        
+        renderer.render(createParameters(160, 80), newListener);
+        
+        gated.proceed.countDown();
+        
+        assertTrue(newListener.done.await(30, TimeUnit.SECONDS));
+        flushEvents();
+        
+        assertTrue(gated.isCancelled());
+        assertEquals(Arrays.asList(8), oldListener.divisors);
+        assertEquals(Arrays.asList(8, 4, 2, 1), newListener.divisors);
+        
+        // the old render gave up instead of going on to its later passes
+        assertEquals(6, manager.created.size());
+    }
+
+    /**
+     * Test that a pass which finished before a newer render started is not
+     * delivered if the event thread hadn't got to it yet
+     */
+    public void testStalePassNotDelivered() throws Exception
+    {
+        System.out.println("testStalePassNotDelivered");
+        
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        
+        // hold up the event thread so the passes queue behind it
+        SwingUtilities.invokeLater(new Runnable()
+        {
+            public void run()
+            {
+                blocked.countDown();
+                
+                try
+                {
+                    release.await(30, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException ie)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        
+        Recorder oldListener = new Recorder();
+        Recorder newListener = new Recorder();
+        
+        try
+        {
+            renderer.render(createParameters(160, 80), oldListener);
+            
+            // the second pass starts after the first has been posted
+            assertTrue(manager.secondPass.await(30, TimeUnit.SECONDS));
+            
+            renderer.render(createParameters(160, 80), newListener);
+        }
+        finally
+        {
+            release.countDown();
+        }
+        
+        assertTrue(newListener.done.await(30, TimeUnit.SECONDS));
+        flushEvents();
+        
+        assertTrue(oldListener.divisors.isEmpty());
+        assertEquals(Arrays.asList(8, 4, 2, 1), newListener.divisors);
+    }
+
+    /**
+     * Test that a projection cancelled just before it starts generating
+     * terrain still stops, and that the next projection runs in full
+     */
+    public void testCancelBeforeProject()
+    {
+        System.out.println("testCancelBeforeProject");
+        
+        GateProjection proj = new GateProjection(false);
+        
+        proj.setParameters(createParameters(160, 80));
+        proj.cancel();
+        proj.project();
+        
+        assertTrue(proj.isCancelled());
+        
+        proj.project();
+        
+        assertFalse(proj.isCancelled());
+    }
+
+    /**
+     * Test scaling an image up to the full size
+     */
+    public void testScale()
+    {
+        System.out.println("testScale");
+        
+        BufferedImage image =
+            new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        
+        for (int y = 0; y < 10; ++y)
+        {
+            for (int x = 0; x < 20; ++x)
+            {
+                image.setRGB(x, y, 0x336699);
+            }
+        }
+        
+        assertSame(image, ProgressiveRenderer.scale(image, 20, 10));
+        
+        BufferedImage scaled = ProgressiveRenderer.scale(image, 160, 80);
+        
+        assertEquals(160, scaled.getWidth());
+        assertEquals(80, scaled.getHeight());
+        
+        for (int y = 0; y < 80; ++y)
+        {
+            for (int x = 0; x < 160; ++x)
+            {
+                assertEquals(0x336699, scaled.getRGB(x, y) & 0xffffff);
+            }
+        }
+    }
+}
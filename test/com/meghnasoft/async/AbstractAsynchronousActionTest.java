@@ -0,0 +1,337 @@
+/*
+ * AbstractAsynchronousActionTest.java
+ * JUnit based test
+ *
+ * Created on October 18, 2026, 11:05 AM
+ */
+
+package com.meghnasoft.async;
+
+import junit.framework.*;
+import java.awt.event.ActionEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test cases for the asynchronous action framework
+ */
+public class AbstractAsynchronousActionTest extends TestCase
+{
+    
+    public AbstractAsynchronousActionTest(String testName)
+    {
+        super(testName);
+    }
+
+    protected void setUp() throws Exception
+    {
+    }
+
+    protected void tearDown() throws Exception
+    {
+    }
+
+    public static Test suite()
+    {
+        TestSuite suite = new TestSuite(AbstractAsynchronousActionTest.class);
+        
+        return suite;
+    }
+
+    /**
+     * An action that spins until it is cancelled or has done enough steps
+     */
+    private static class SpinAction extends AbstractAsynchronousAction
+    {
+        List<String> completed =
+            Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished;
+        
+        SpinAction(int requests)
+        {
+            super("Spin");
+            
+            this.finished = new CountDownLatch(requests);
+        }
+        
+        public Object asynchronousActionPerformed(ActionEvent e)
+        {
+            this.started.countDown();
+            
+            for (int i = 0; i < 200; ++i)
+            {
+                checkCancelled();
+                
+                try
+                {
+                    Thread.sleep(5);
+                }
+                catch (InterruptedException ie)
+                {
+                    return null;
+                }
+            }
+            
+            this.completed.add(e.getActionCommand());
+            
+            return e.getActionCommand();
+        }
+        
+        public void finished()
+        {
+            this.finished.countDown();
+        }
+    }
+
+    /**
+     * Test that with coalescing only the first and the latest requests run,
+     * the first being cancelled. The requests that were dropped don't call
+     * finished() but do enable the action again.
+     */
+    public void testLatestRequestWins() throws Exception
+    {
+        System.out.println("latestRequestWins");
+        
+        SpinAction action = new SpinAction(2);
+        final CountDownLatch enabled = new CountDownLatch(4);
+        
+        action.addPropertyChangeListener(new PropertyChangeListener()
+        {
+            public void propertyChange(PropertyChangeEvent evt)
+            {
+                if ("enabled".equals(evt.getPropertyName()) &&
+                    Boolean.TRUE.equals(evt.getNewValue()))
+                {
+                    enabled.countDown();
+                }
+            }
+        });
+        
+        action.setCoalescing(true);
+        
+        action.actionPerformed(new ActionEvent(this, 0, "first"));
+        
+        assertTrue(action.started.await(10, TimeUnit.SECONDS));
+        
+        action.actionPerformed(new ActionEvent(this, 0, "second"));
+        action.actionPerformed(new ActionEvent(this, 0, "third"));
+        action.actionPerformed(new ActionEvent(this, 0, "fourth"));
+        
+        assertTrue(action.finished.await(10, TimeUnit.SECONDS));
+        assertTrue(enabled.await(10, TimeUnit.SECONDS));
+        
+        assertEquals(Collections.singletonList("fourth"), action.completed);
+        assertEquals("fourth", action.getTaskOutput());
+        assertTrue(action.getLastElapsedTime() >= 0);
+    }
+
+    /**
+     * Test that cancelling stops a running task
+     */
+    public void testCancel() throws Exception
+    {
+        System.out.println("cancel");
+        
+        SpinAction action = new SpinAction(1);
+        
+        action.actionPerformed(new ActionEvent(this, 0, "only"));
+        
+        assertTrue(action.started.await(10, TimeUnit.SECONDS));
+        
+        action.cancel();
+        
+        assertTrue(action.finished.await(10, TimeUnit.SECONDS));
+        
+        assertTrue(action.completed.isEmpty());
+        assertTrue(action.getLastElapsedTime() < 1000);
+    }
+
+    /**
+     * An action whose work never checks for cancellation itself but waits
+     * for a cancel hook to release it
+     */
+    private static class HookAction extends AbstractAsynchronousAction
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        volatile boolean lateHookRan;
+        
+        HookAction()
+        {
+            super("Hook");
+        }
+        
+        public Object asynchronousActionPerformed(ActionEvent e)
+        {
+            onCancel(new Runnable()
+            {
+                public void run()
+                {
+                    released.countDown();
+                }
+            });
+            
+            this.started.countDown();
+            
+            try
+            {
+                if (!this.released.await(10, TimeUnit.SECONDS))
+                {
+                    return null;
+                }
+            }
+            catch (InterruptedException ie)
+            {
+                return null;
+            }
+            
+            // a hook added once the task is cancelled runs straight away
+            onCancel(new Runnable()
+            {
+                public void run()
+                {
+                    lateHookRan = true;
+                }
+            });
+            
+            return "released";
+        }
+        
+        public void finished()
+        {
+            this.finished.countDown();
+        }
+    }
+
+    /**
+     * Test that cancelling a task runs the hooks its work registered
+     */
+    public void testCancelHook() throws Exception
+    {
+        System.out.println("cancelHook");
+        
+        HookAction action = new HookAction();
+        
+        action.actionPerformed(new ActionEvent(this, 0, "only"));
+        
+        assertTrue(action.started.await(10, TimeUnit.SECONDS));
+        
+        action.cancel();
+        
+        assertTrue(action.finished.await(10, TimeUnit.SECONDS));
+        
+        assertEquals("released", action.getTaskOutput());
+        assertTrue(action.lateHookRan);
+        assertTrue(action.getLastElapsedTime() < 1000);
+    }
+
+    /**
+     * Test that hooks do nothing on a thread that isn't running an action
+     */
+    public void testHookOutsideAction()
+    {
+        System.out.println("hookOutsideAction");
+        
+        final boolean[] ran = new boolean[1];
+        
+        AbstractAsynchronousAction.onCancel(new Runnable()
+        {
+            public void run()
+            {
+                ran[0] = true;
+            }
+        });
+        
+        assertFalse(ran[0]);
+    }
+
+    /**
+     * An action whose tasks wait until they are released
+     */
+    private static class WaitAction extends AbstractAsynchronousAction
+    {
+        CountDownLatch started;
+        CountDownLatch release = new CountDownLatch(1);
+        volatile boolean finishedCalled;
+        
+        WaitAction(int requests)
+        {
+            super("Wait");
+            
+            this.started = new CountDownLatch(requests);
+        }
+        
+        public Object asynchronousActionPerformed(ActionEvent e)
+        {
+            this.started.countDown();
+            
+            try
+            {
+                this.release.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException ie)
+            {
+                return null;
+            }
+            
+            return e.getActionCommand();
+        }
+        
+        public void finished()
+        {
+            this.finishedCalled = true;
+        }
+    }
+
+    /**
+     * Test that actions that don't coalesce get a thread each, so that
+     * tasks waiting for the user can't use up the shared pool, and that
+     * finished() has run by the time the worker is done
+     */
+    public void testOwnThreads() throws Exception
+    {
+        System.out.println("ownThreads");
+        
+        final int requests =
+            (4 * Math.max(2, Runtime.getRuntime().availableProcessors())) + 1;
+        
+        WaitAction action = new WaitAction(requests);
+        
+        for (int r = 0; r < requests; ++r)
+        {
+            action.actionPerformed(new ActionEvent(this, 0, "wait"));
+        }
+        
+        // they can only all be waiting at once on threads of their own
+        assertTrue(action.started.await(10, TimeUnit.SECONDS));
+        
+        action.release.countDown();
+        
+        assertEquals("wait", action.getTaskOutputBlocking());
+        assertTrue(action.finishedCalled);
+    }
+
+    /**
+     * Test that requests for an action that doesn't coalesce all run
+     */
+    public void testNoCoalescing() throws Exception
+    {
+        System.out.println("noCoalescing");
+        
+        SpinAction action = new SpinAction(2);
+        
+        action.actionPerformed(new ActionEvent(this, 0, "a"));
+        action.actionPerformed(new ActionEvent(this, 0, "b"));
+        
+        assertTrue(action.finished.await(10, TimeUnit.SECONDS));
+        
+        assertEquals(2, action.completed.size());
+    }
+}